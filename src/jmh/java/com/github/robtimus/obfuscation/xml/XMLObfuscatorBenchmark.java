@@ -0,0 +1,139 @@
+/*
+ * XMLObfuscatorBenchmark.java
+ * Copyright 2026 Rob Spoor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robtimus.obfuscation.xml;
+
+import static com.github.robtimus.obfuscation.Obfuscator.fixedLength;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.github.robtimus.obfuscation.Obfuscator;
+import com.github.robtimus.obfuscation.xml.XMLObfuscator.ElementConfigurer.ObfuscationMode;
+
+/**
+ * Benchmarks for {@link XMLObfuscator}.
+ * Run these using {@code mvn -Pbenchmark test-compile exec:exec}.
+ * <p>
+ * The documents are generated once per trial. They consist of records with a configurable number of distinct elements; each element contains some
+ * text and a nested element. Half of the distinct elements are configured to be obfuscated, the other half is not.
+ */
+@SuppressWarnings({ "javadoc", "nls" })
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XMLObfuscatorBenchmark {
+
+    private static final int WRITE_CHUNK_SIZE = 4096;
+
+    @Param({ "1024", "102400", "10485760", "52428800" })
+    public int documentSize;
+
+    @Param({ "2", "20", "200" })
+    public int elementCount;
+
+    @Param({ "EXCLUDE", "INHERIT", "INHERIT_OVERRIDABLE" })
+    public ObfuscationMode obfuscationMode;
+
+    @Param({ "false", "true" })
+    public boolean generateXML;
+
+    private String document;
+    private char[] documentChars;
+
+    private Obfuscator obfuscator;
+
+    private StringBuilder destination;
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        document = generateDocument(documentSize, elementCount);
+        documentChars = document.toCharArray();
+
+        XMLObfuscator.Builder builder = XMLObfuscator.builder()
+                .forNestedElementsByDefault(obfuscationMode);
+        for (int i = 0; i < elementCount; i += 2) {
+            builder = builder.withElement("element" + i, fixedLength(3));
+        }
+        if (generateXML) {
+            builder = builder.generateXML();
+        }
+        obfuscator = builder.build();
+
+        destination = new StringBuilder(document.length());
+    }
+
+    @Benchmark
+    public CharSequence obfuscateCharSequence() {
+        return obfuscator.obfuscateText(document);
+    }
+
+    @Benchmark
+    public StringBuilder obfuscateReader() throws IOException {
+        destination.setLength(0);
+        try (Reader input = new StringReader(document)) {
+            obfuscator.obfuscateText(input, destination);
+        }
+        return destination;
+    }
+
+    @Benchmark
+    public StringBuilder streamTo() throws IOException {
+        destination.setLength(0);
+        try (Writer writer = obfuscator.streamTo(destination)) {
+            for (int i = 0; i < documentChars.length; i += WRITE_CHUNK_SIZE) {
+                writer.write(documentChars, i, Math.min(WRITE_CHUNK_SIZE, documentChars.length - i));
+            }
+        }
+        return destination;
+    }
+
+    static String generateDocument(int documentSize, int elementCount) {
+        StringBuilder sb = new StringBuilder(documentSize + 1024);
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        sb.append("<root>\n");
+        final String end = "</root>\n";
+        int record = 0;
+        while (sb.length() + end.length() < documentSize) {
+            sb.append("  <record id=\"").append(record).append("\">\n");
+            for (int i = 0; i < elementCount; i++) {
+                sb.append("    <element").append(i).append(">value ").append(record).append('-').append(i)
+                        .append("<nested>nested value &amp; more</nested></element").append(i).append(">\n");
+            }
+            sb.append("  </record>\n");
+            record++;
+        }
+        sb.append(end);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * XMLObfuscatorStartupBenchmark.java
+ * Copyright 2026 Rob Spoor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robtimus.obfuscation.xml;
+
+import static com.github.robtimus.obfuscation.Obfuscator.fixedLength;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the latency of the first calls of {@link XMLObfuscator}, in a JVM in which it has not been used yet.
+ * Run these using {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="XMLObfuscatorStartupBenchmark"}.
+ * <p>
+ * Each benchmark is executed once per fork, and each fork uses a new JVM. {@link #firstCall(Document)} therefore includes loading and
+ * initializing all classes that are needed, and runs all code in the interpreter. {@link #firstCallAfterWarmUp(WarmedUp)} shows the effect of
+ * {@link XMLObfuscator#warmUp(int)}; the warm-up itself is not measured.
+ */
+@SuppressWarnings({ "javadoc", "nls" })
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class XMLObfuscatorStartupBenchmark {
+
+    private static final int DOCUMENT_SIZE = 4096;
+    private static final int ELEMENT_COUNT = 4;
+
+    @State(Scope.Benchmark)
+    public static class Document {
+
+        @Param({ "false", "true" })
+        public boolean generateXML;
+
+        String document;
+
+        @Setup(Level.Trial)
+        public void setupTrial() {
+            // generating the document does not use any of the classes of this library
+            document = XMLObfuscatorBenchmark.generateDocument(DOCUMENT_SIZE, ELEMENT_COUNT);
+        }
+
+        XMLObfuscator createObfuscator() {
+            XMLObfuscator.Builder builder = XMLObfuscator.builder()
+                    .withElement("element0", fixedLength(3))
+                    .withElement("element2", fixedLength(3));
+            if (generateXML) {
+                builder = builder.generateXML();
+            }
+            return builder.build();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class WarmedUp {
+
+        @Param({ "1000" })
+        public int warmUpIterations;
+
+        XMLObfuscator obfuscator;
+
+        @Setup(Level.Trial)
+        public void setupTrial(Document document) {
+            obfuscator = document.createObfuscator();
+            obfuscator.warmUp(warmUpIterations);
+        }
+    }
+
+    @Benchmark
+    public CharSequence firstCall(Document document) {
+        return document.createObfuscator().obfuscateText(document.document);
+    }
+
+    @Benchmark
+    public CharSequence firstCallAfterWarmUp(Document document, WarmedUp warmedUp) {
+        return warmedUp.obfuscator.obfuscateText(document.document);
+    }
+}
@@ -27,23 +27,21 @@ final class AttributeConfig {
     private final Obfuscator obfuscator;
     private final Map<String, Obfuscator> elements;
     private final Map<QName, Obfuscator> qualifiedElements;
+    private final ConfigResolver<Obfuscator> elementResolver;
 
     AttributeConfig(Obfuscator obfuscator, Map<String, Obfuscator> elements, Map<QName, Obfuscator> qualifiedElements) {
         this.obfuscator = Objects.requireNonNull(obfuscator);
         this.elements = Objects.requireNonNull(elements);
         this.qualifiedElements = Objects.requireNonNull(qualifiedElements);
+        this.elementResolver = new ConfigResolver<>(elements, qualifiedElements);
     }
 
-    Obfuscator obfuscator(QName elementName) {
-        Obfuscator result = qualifiedElements.get(elementName);
-        if (result != null) {
-            return result;
+    Obfuscator obfuscator(String elementNamespaceURI, String elementLocalName) {
+        if (elementResolver.isEmpty()) {
+            return obfuscator;
         }
-        result = elements.get(elementName.getLocalPart());
-        if (result != null) {
-            return result;
-        }
-        return obfuscator;
+        Obfuscator result = elementResolver.resolve(elementNamespaceURI, elementLocalName);
+        return result != null ? result : obfuscator;
     }
 
     @Override
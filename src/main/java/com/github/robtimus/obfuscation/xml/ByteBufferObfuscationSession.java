@@ -0,0 +1,188 @@
+/*
+ * ByteBufferObfuscationSession.java
+ * Copyright 2026 Rob Spoor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robtimus.obfuscation.xml;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import com.github.robtimus.obfuscation.xml.XMLObfuscator.ObfuscationSession;
+
+// Decodes ByteBuffer chunks and writes them to a streaming writer, and encodes everything that writer produces.
+// Bytes are collected until the encoding can be detected; after that, each chunk is obfuscated as far as possible before feed returns.
+// Buffer methods are called through Buffer, because ByteBuffer and CharBuffer only override them with covariant return types since Java 9.
+final class ByteBufferObfuscationSession implements ObfuscationSession {
+
+    private static final int DECODE_BUFFER_SIZE = 4096;
+
+    // The maximum number of bytes of a partial character; this is enough for any supported encoding
+    private static final int MAX_PARTIAL_CHARACTER_SIZE = 16;
+
+    private final Consumer<? super ByteBuffer> output;
+
+    private final StringBuilder obfuscated;
+    private final Writer writer;
+
+    // null once the encoding has been detected
+    private byte[] prefix;
+    private int prefixLength;
+
+    private CharsetDecoder decoder;
+    private CharsetEncoder encoder;
+
+    private final CharBuffer decoded;
+    // the bytes of a character that was split between chunks
+    private final ByteBuffer partialCharacter;
+
+    private boolean completed;
+
+    ByteBufferObfuscationSession(Function<Appendable, Writer> writerFactory, Consumer<? super ByteBuffer> output) {
+        this.output = Objects.requireNonNull(output);
+
+        this.obfuscated = new StringBuilder();
+        this.writer = writerFactory.apply(obfuscated);
+
+        this.prefix = new byte[XMLEncoding.DETECTION_LENGTH];
+        this.prefixLength = 0;
+
+        this.decoded = CharBuffer.allocate(DECODE_BUFFER_SIZE);
+        this.partialCharacter = ByteBuffer.allocate(MAX_PARTIAL_CHARACTER_SIZE);
+
+        this.completed = false;
+    }
+
+    @Override
+    public void feed(ByteBuffer input) throws IOException {
+        Objects.requireNonNull(input);
+        checkNotCompleted();
+
+        if (prefix != null) {
+            int length = Math.min(input.remaining(), prefix.length - prefixLength);
+            input.get(prefix, prefixLength, length);
+            prefixLength += length;
+            if (!XMLEncoding.canDetect(prefix, 0, prefixLength)) {
+                return;
+            }
+            start();
+        }
+        decode(input);
+        emit(false);
+    }
+
+    @Override
+    public void complete() throws IOException {
+        checkNotCompleted();
+        completed = true;
+
+        if (prefix != null) {
+            start();
+        }
+        ((Buffer) partialCharacter).flip();
+        decode(partialCharacter, true);
+        while (decoder.flush(decoded).isOverflow()) {
+            writeDecoded();
+        }
+        writeDecoded();
+        writer.close();
+        emit(true);
+    }
+
+    private void checkNotCompleted() {
+        if (completed) {
+            throw new IllegalStateException(Messages.ByteBufferObfuscationSession.completed());
+        }
+    }
+
+    private void start() throws IOException {
+        XMLEncoding encoding = XMLEncoding.detect(prefix, 0, prefixLength);
+        // Be consistent with InputStreamReader and OutputStreamWriter
+        decoder = encoding.charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        encoder = encoding.charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        int byteOrderMarkLength = encoding.byteOrderMarkLength;
+        if (byteOrderMarkLength > 0) {
+            output.accept(ByteBuffer.wrap(Arrays.copyOf(prefix, byteOrderMarkLength)));
+        }
+        decode(ByteBuffer.wrap(prefix, byteOrderMarkLength, prefixLength - byteOrderMarkLength));
+        prefix = null;
+    }
+
+    private void decode(ByteBuffer input) throws IOException {
+        // First complete any character that was split between chunks, one byte at a time
+        while (partialCharacter.position() > 0 && input.hasRemaining()) {
+            partialCharacter.put(input.get());
+            ((Buffer) partialCharacter).flip();
+            decode(partialCharacter, false);
+            partialCharacter.compact();
+        }
+        decode(input, false);
+        // Any remaining bytes form a partial character
+        partialCharacter.put(input);
+    }
+
+    private void decode(ByteBuffer input, boolean endOfInput) throws IOException {
+        while (decoder.decode(input, decoded, endOfInput).isOverflow()) {
+            writeDecoded();
+        }
+        writeDecoded();
+    }
+
+    private void writeDecoded() throws IOException {
+        ((Buffer) decoded).flip();
+        if (decoded.hasRemaining()) {
+            writer.write(decoded.array(), decoded.arrayOffset(), decoded.remaining());
+        }
+        ((Buffer) decoded).clear();
+    }
+
+    private void emit(boolean endOfInput) throws IOException {
+        if (!endOfInput) {
+            // obfuscates everything that has been written so far, as far as possible
+            writer.flush();
+        }
+        if (obfuscated.length() == 0 && !endOfInput) {
+            return;
+        }
+        CharBuffer chars = CharBuffer.wrap(obfuscated);
+        // One extra character's worth of bytes leaves room for any bytes written when the encoder is flushed
+        ByteBuffer bytes = ByteBuffer.allocate((int) Math.ceil((obfuscated.length() + 1) * (double) encoder.maxBytesPerChar()));
+        CoderResult result = encoder.encode(chars, bytes, endOfInput);
+        if (endOfInput && result.isUnderflow()) {
+            encoder.flush(bytes);
+        }
+        // Without the end of input, a trailing high surrogate is not consumed until the next call
+        obfuscated.delete(0, chars.position());
+        ((Buffer) bytes).flip();
+        if (bytes.hasRemaining()) {
+            output.accept(bytes);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * ConfigResolver.java
+ * Copyright 2026 Rob Spoor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robtimus.obfuscation.xml;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+
+/*
+ * Resolves the configuration for element or attribute names. Qualified names take precedence over local names, which take precedence over name
+ * patterns. Patterns are tried in order, and the first matching pattern wins.
+ *
+ * Decisions are cached per combination of namespace URI and local name. Both are compared by identity, so cache hits need no QName objects and no
+ * string hashing. This relies on names being interned, like Woodstox and IncrementalXMLReader do. If names are not interned, results are still
+ * correct but the cache is not effective; its size is limited to prevent it from growing indefinitely.
+ * Names come from the documents that are obfuscated, so names without a configuration are limited separately. That way, documents with many
+ * different names cannot prevent names with a configuration from being cached. Once a limit has been reached, cache misses no longer lock.
+ * Because of the cache, patterns only need to be matched once per distinct name.
+ *
+ * Instances are shared by all parsers of an XMLObfuscator, so they are thread-safe. The cache is copy-on-write, so lookups need no locking.
+ */
+final class ConfigResolver<C> {
+
+    static final int MAX_CACHE_SIZE = 1024;
+
+    private final Map<String, C> configs;
+    private final Map<QName, C> qualifiedConfigs;
+    private final Map<NamePattern, C> patternConfigs;
+
+    private volatile Map<String, Decision<C>> decisions;
+    // only updated while locked, but read without locking to skip caching once a limit has been reached
+    private volatile int matchedCount;
+    private volatile int unmatchedCount;
+
+    ConfigResolver(Map<String, C> configs, Map<QName, C> qualifiedConfigs) {
+        this(configs, qualifiedConfigs, Collections.emptyMap());
+    }
+
+    ConfigResolver(Map<String, C> configs, Map<QName, C> qualifiedConfigs, Map<NamePattern, C> patternConfigs) {
+        this.configs = configs;
+        this.qualifiedConfigs = qualifiedConfigs;
+        this.patternConfigs = patternConfigs;
+
+        decisions = new IdentityHashMap<>();
+        matchedCount = 0;
+        unmatchedCount = 0;
+    }
+
+    boolean isEmpty() {
+        return configs.isEmpty() && qualifiedConfigs.isEmpty() && patternConfigs.isEmpty();
+    }
+
+    C resolve(String namespaceURI, String localName) {
+        for (Decision<C> decision = decisions.get(localName); decision != null; decision = decision.next) {
+            // names are interned, so compare by identity
+            if (decision.namespaceURI == namespaceURI) {
+                return decision.config;
+            }
+        }
+        C config = lookup(namespaceURI, localName);
+        if (canCache(config)) {
+            cache(namespaceURI, localName, config);
+        }
+        return config;
+    }
+
+    private C lookup(String namespaceURI, String localName) {
+        C config = null;
+        if (!qualifiedConfigs.isEmpty()) {
+            config = qualifiedConfigs.get(new QName(namespaceURI == null ? XMLConstants.NULL_NS_URI : namespaceURI, localName));
+        }
+        if (config == null) {
+            config = configs.get(localName);
+        }
+        if (config == null) {
+            for (Map.Entry<NamePattern, C> entry : patternConfigs.entrySet()) {
+                if (entry.getKey().matches(localName)) {
+                    return entry.getValue();
+                }
+            }
+        }
+        return config;
+    }
+
+    private boolean canCache(C config) {
+        return (config != null ? matchedCount : unmatchedCount) < MAX_CACHE_SIZE;
+    }
+
+    private synchronized void cache(String namespaceURI, String localName, C config) {
+        // another thread may have reached the limit in the meantime
+        if (!canCache(config)) {
+            return;
+        }
+        Map<String, Decision<C>> newDecisions = new IdentityHashMap<>(decisions);
+        newDecisions.put(localName, new Decision<>(namespaceURI, config, newDecisions.get(localName)));
+        decisions = newDecisions;
+        if (config != null) {
+            matchedCount++;
+        } else {
+            unmatchedCount++;
+        }
+    }
+
+    int cacheSize() {
+        return matchedCount + unmatchedCount;
+    }
+
+    private static final class Decision<C> {
+
+        private final String namespaceURI;
+        private final C config;
+        private final Decision<C> next;
+
+        private Decision(String namespaceURI, C config, Decision<C> next) {
+            this.namespaceURI = namespaceURI;
+            this.config = config;
+            this.next = next;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * DocumentChunks.java
+ * Copyright 2026 Rob Spoor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robtimus.obfuscation.xml;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Splits an XML document into chunks that can be obfuscated independently. Chunks are split between child elements of the root element.
+ *
+ * Each chunk is turned into a well-formed document of its own by surrounding it with the root element's start and end tag:
+ * - the first chunk contains everything up to its last child element, and gets the root element's end tag appended
+ * - the last chunk contains everything from its first child element, and gets the root element's start tag prepended
+ * - any other chunk gets both
+ * The root element's start tag is copied as-is, so the namespace declarations of the root element apply to all chunks.
+ *
+ * Locating the boundaries only requires keeping track of the element depth; names, attributes and text are not processed. It is therefore a lot
+ * cheaper than parsing the document. Only documents without a document type declaration are split, as entities may contain markup.
+ * If the document does not look well-formed no chunks are created; the document should then be obfuscated as a whole, so malformed XML is handled
+ * as usual. Any malformed XML that is not detected while splitting is detected when parsing the chunks.
+ */
+final class DocumentChunks {
+
+    private final CharSequence s;
+    // the start of each chunk, followed by the end of the last chunk
+    private final int[] boundaries;
+    private final int rootStartTagStart;
+    private final int rootStartTagEnd;
+    private final String rootEndTag;
+
+    private DocumentChunks(CharSequence s, int[] boundaries, int rootStartTagStart, int rootStartTagEnd, String rootEndTag) {
+        this.s = s;
+        this.boundaries = boundaries;
+        this.rootStartTagStart = rootStartTagStart;
+        this.rootStartTagEnd = rootStartTagEnd;
+        this.rootEndTag = rootEndTag;
+    }
+
+    // Returns null if the document cannot be split into at least two chunks
+    static DocumentChunks split(CharSequence s, int start, int end, int minChunkSize) {
+        int index = skipProlog(s, start, end);
+        if (index == -1) {
+            return null;
+        }
+        int rootStartTagStart = index;
+        int rootNameEnd = nameEnd(s, rootStartTagStart + 1, end);
+        int rootStartTagEnd = tagEnd(s, rootStartTagStart, end);
+        if (rootStartTagEnd == -1 || s.charAt(rootStartTagEnd - 2) == '/') {
+            // incomplete start tag, or an empty root element
+            return null;
+        }
+
+        List<Integer> boundaries = new ArrayList<>();
+        boundaries.add(start);
+        int latestBoundary = start;
+        boolean childElementAfterLatestBoundary = false;
+        int depth = 1;
+        index = rootStartTagEnd;
+        while (depth > 0) {
+            index = indexOf(s, '<', index, end);
+            if (index == -1) {
+                return null;
+            }
+            int candidate = -1;
+            if (startsWith(s, index, end, "<!--")) { //$NON-NLS-1$
+                index = skipPast(s, index + 4, end, "-->"); //$NON-NLS-1$
+            } else if (startsWith(s, index, end, "<![CDATA[")) { //$NON-NLS-1$
+                index = skipPast(s, index + 9, end, "]]>"); //$NON-NLS-1$
+            } else if (startsWith(s, index, end, "<?")) { //$NON-NLS-1$
+                index = skipPast(s, index + 2, end, "?>"); //$NON-NLS-1$
+            } else if (startsWith(s, index, end, "</")) { //$NON-NLS-1$
+                index = skipPast(s, index + 2, end, ">"); //$NON-NLS-1$
+                depth--;
+                candidate = depth == 1 ? index : -1;
+            } else if (startsWith(s, index, end, "<!")) { //$NON-NLS-1$
+                // not valid inside elements
+                return null;
+            } else {
+                childElementAfterLatestBoundary |= depth == 1;
+                index = tagEnd(s, index, end);
+                if (index != -1 && s.charAt(index - 2) != '/') {
+                    depth++;
+                } else {
+                    candidate = depth == 1 ? index : -1;
+                }
+            }
+            if (index == -1) {
+                return null;
+            }
+            if (candidate != -1 && candidate - latestBoundary >= minChunkSize) {
+                boundaries.add(candidate);
+                latestBoundary = candidate;
+                childElementAfterLatestBoundary = false;
+            }
+        }
+        if (boundaries.size() > 1 && (!childElementAfterLatestBoundary || end - latestBoundary < minChunkSize)) {
+            // the last chunk would have no child elements or would be small; merge it with the previous chunk
+            boundaries.remove(boundaries.size() - 1);
+        }
+        if (boundaries.size() < 2) {
+            return null;
+        }
+        boundaries.add(end);
+
+        int[] boundaryArray = new int[boundaries.size()];
+        for (int i = 0; i < boundaryArray.length; i++) {
+            boundaryArray[i] = boundaries.get(i);
+        }
+        String rootEndTag = "</" + s.subSequence(rootStartTagStart + 1, rootNameEnd) + ">"; //$NON-NLS-1$ //$NON-NLS-2$
+        return new DocumentChunks(s, boundaryArray, rootStartTagStart, rootStartTagEnd, rootEndTag);
+    }
+
+    // Returns the index of the root element's start tag, or -1 if the document should not be split
+    private static int skipProlog(CharSequence s, int start, int end) {
+        int index = start;
+        while (index != -1) {
+            index = indexOf(s, '<', index, end);
+            if (index == -1) {
+                return -1;
+            }
+            if (startsWith(s, index, end, "<?")) { //$NON-NLS-1$
+                index = skipPast(s, index + 2, end, "?>"); //$NON-NLS-1$
+            } else if (startsWith(s, index, end, "<!--")) { //$NON-NLS-1$
+                index = skipPast(s, index + 4, end, "-->"); //$NON-NLS-1$
+            } else if (startsWith(s, index, end, "<!")) { //$NON-NLS-1$
+                // a document type declaration
+                return -1;
+            } else {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(CharSequence s, char c, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (s.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean startsWith(CharSequence s, int index, int end, String prefix) {
+        if (index + prefix.length() > end) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (s.charAt(index + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Returns the index after the first occurrence of the given string, or -1 if there is none
+    private static int skipPast(CharSequence s, int from, int end, String string) {
+        char first = string.charAt(0);
+        for (int i = indexOf(s, first, from, end); i != -1; i = indexOf(s, first, i + 1, end)) {
+            if (startsWith(s, i, end, string)) {
+                return i + string.length();
+            }
+        }
+        return -1;
+    }
+
+    // Returns the index after the > of the tag that starts at the given index, or -1 if there is none; > inside attribute values is ignored
+    private static int tagEnd(CharSequence s, int tagStart, int end) {
+        char quote = 0;
+        for (int i = tagStart + 1; i < end; i++) {
+            char c = s.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '>') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static int nameEnd(CharSequence s, int from, int end) {
+        int i = from;
+        while (i < end && !isNameEnd(s.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isNameEnd(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '/' || c == '>';
+    }
+
+    int chunkCount() {
+        return boundaries.length - 1;
+    }
+
+    // Returns the chunk with the given index as a well-formed document
+    String document(int index) {
+        int start = boundaries[index];
+        int end = boundaries[index + 1];
+        int length = end - start + prefixLength(index) + suffixLength(index);
+        StringBuilder sb = new StringBuilder(length);
+        if (index > 0) {
+            sb.append(s, rootStartTagStart, rootStartTagEnd);
+        }
+        sb.append(s, start, end);
+        if (index < chunkCount() - 1) {
+            sb.append(rootEndTag);
+        }
+        return sb.toString();
+    }
+
+    // Returns the number of characters added before the chunk with the given index
+    int prefixLength(int index) {
+        return index > 0 ? rootStartTagEnd - rootStartTagStart : 0;
+    }
+
+    // Returns the number of characters added after the chunk with the given index
+    int suffixLength(int index) {
+        return index < chunkCount() - 1 ? rootEndTag.length() : 0;
+    }
+}
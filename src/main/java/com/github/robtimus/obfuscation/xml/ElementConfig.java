@@ -25,11 +25,13 @@ final class ElementConfig {
 
     final Obfuscator obfuscator;
     final ObfuscationMode forNestedElements;
+    final boolean occursOnce;
     final boolean performObfuscation;
 
-    ElementConfig(Obfuscator obfuscator, ObfuscationMode forNestedElements) {
+    ElementConfig(Obfuscator obfuscator, ObfuscationMode forNestedElements, boolean occursOnce) {
         this.obfuscator = Objects.requireNonNull(obfuscator);
         this.forNestedElements = Objects.requireNonNull(forNestedElements);
+        this.occursOnce = occursOnce;
         this.performObfuscation = !obfuscator.equals(Obfuscator.none());
     }
 
@@ -43,12 +45,13 @@ final class ElementConfig {
         }
         ElementConfig other = (ElementConfig) o;
         return obfuscator.equals(other.obfuscator)
-                && forNestedElements == other.forNestedElements;
+                && forNestedElements == other.forNestedElements
+                && occursOnce == other.occursOnce;
     }
 
     @Override
     public int hashCode() {
-        return obfuscator.hashCode() ^ forNestedElements.hashCode();
+        return obfuscator.hashCode() ^ forNestedElements.hashCode() ^ Boolean.hashCode(occursOnce);
     }
 
     @Override
@@ -56,6 +59,7 @@ final class ElementConfig {
     public String toString() {
         return "[obfuscator=" + obfuscator
                 + ",forObjects=" + forNestedElements
+                + ",occursOnce=" + occursOnce
                 + "]";
     }
 }
@@ -0,0 +1,154 @@
+/*
+ * ElementPath.java
+ * Copyright 2026 Rob Spoor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robtimus.obfuscation.xml;
+
+import static com.github.robtimus.obfuscation.support.CaseSensitivity.CASE_SENSITIVE;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import com.github.robtimus.obfuscation.support.CaseSensitivity;
+
+/*
+ * A path to elements, like /Envelope/Body/Login/password, //password or //Login/*.
+ *
+ * Each step is preceded by / for a child element or by // for a descendant element, and is either a local name or * for any element.
+ * Matching paths is done by ElementPathMatcher.
+ */
+final class ElementPath {
+
+    private static final String WILDCARD = "*"; //$NON-NLS-1$
+
+    private final String path;
+    private final CaseSensitivity caseSensitivity;
+
+    private final String[] names;
+    private final boolean[] descendants;
+
+    ElementPath(String path, CaseSensitivity caseSensitivity) {
+        this.path = Objects.requireNonNull(path);
+        this.caseSensitivity = Objects.requireNonNull(caseSensitivity);
+
+        List<String> nameList = new ArrayList<>();
+        List<Boolean> descendantList = new ArrayList<>();
+        int index = 0;
+        while (index < path.length()) {
+            if (path.charAt(index) != '/') {
+                throw new IllegalArgumentException(Messages.XMLObfuscator.invalidElementPath(path));
+            }
+            boolean descendant = index + 1 < path.length() && path.charAt(index + 1) == '/';
+            int nameStart = descendant ? index + 2 : index + 1;
+            int nameEnd = path.indexOf('/', nameStart);
+            if (nameEnd == -1) {
+                nameEnd = path.length();
+            }
+            String name = path.substring(nameStart, nameEnd);
+            if (!isValidName(name)) {
+                throw new IllegalArgumentException(Messages.XMLObfuscator.invalidElementPath(path));
+            }
+            nameList.add(name);
+            descendantList.add(descendant);
+            index = nameEnd;
+        }
+        if (nameList.isEmpty()) {
+            throw new IllegalArgumentException(Messages.XMLObfuscator.invalidElementPath(path));
+        }
+
+        names = nameList.toArray(new String[0]);
+        descendants = new boolean[names.length];
+        for (int i = 0; i < descendants.length; i++) {
+            descendants[i] = descendantList.get(i);
+        }
+    }
+
+    private static boolean isValidName(String name) {
+        if (WILDCARD.equals(name)) {
+            return true;
+        }
+        if (name.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            // names must be local names; wildcards are only supported for complete names
+            if (c == '*' || c == ':' || Character.isWhitespace(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int stepCount() {
+        return names.length;
+    }
+
+    // Returns whether or not the step with the given index can be preceded by any number of other elements
+    boolean isDescendant(int step) {
+        return descendants[step];
+    }
+
+    boolean matches(int step, String localName) {
+        String name = names[step];
+        if (WILDCARD.equals(name)) {
+            return true;
+        }
+        return caseSensitivity == CASE_SENSITIVE ? name.equals(localName) : name.equalsIgnoreCase(localName);
+    }
+
+    // Returns the local name that the last step matches, or null if the last step matches any element
+    String lastName() {
+        String name = names[names.length - 1];
+        return WILDCARD.equals(name) ? null : name;
+    }
+
+    CaseSensitivity caseSensitivity() {
+        return caseSensitivity;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || o.getClass() != getClass()) {
+            return false;
+        }
+        ElementPath other = (ElementPath) o;
+        if (caseSensitivity != other.caseSensitivity) {
+            return false;
+        }
+        return caseSensitivity == CASE_SENSITIVE ? path.equals(other.path) : path.equalsIgnoreCase(other.path);
+    }
+
+    @Override
+    public int hashCode() {
+        if (caseSensitivity == CASE_SENSITIVE) {
+            return path.hashCode();
+        }
+        // fold characters the same way as String.equalsIgnoreCase does
+        int hash = 0;
+        for (int i = 0; i < path.length(); i++) {
+            hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(path.charAt(i)));
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return caseSensitivity == CASE_SENSITIVE ? path : path + " (case insensitive)"; //$NON-NLS-1$
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * ElementPathMatcher.java
+ * Copyright 2026 Rob Spoor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robtimus.obfuscation.xml;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/*
+ * Matches element paths while elements are being parsed, using a pushdown automaton.
+ *
+ * The paths are combined into a single automaton. A position in this automaton is a combination of a path and the number of its steps that have
+ * been matched; a state is a set of such positions. Each parser keeps a stack of states, with one state per open element. A start tag pushes the
+ * state for its element and an end tag pops it, so both only take constant time if the transition is cached.
+ *
+ * States are created when they are first needed, and shared by all parsers of an XMLObfuscator, so they are thread-safe.
+ * Like ConfigResolver, transitions are cached per local name and compared by identity, which relies on names being interned. The caches are
+ * copy-on-write, so lookups need no locking. Both the number of states and the number of transitions per state are limited, to prevent them from
+ * growing indefinitely; transitions that are not cached are calculated again when needed.
+ *
+ * If multiple paths match the same element, the first path wins.
+ */
+final class ElementPathMatcher {
+
+    static final int MAX_STATE_COUNT = 1024;
+    static final int MAX_TRANSITION_COUNT = 1024;
+
+    private final ElementPath[] paths;
+    private final ElementConfig[] configs;
+    // positions are encoded as path index * stride + number of matched steps
+    private final int stride;
+
+    private final Map<Positions, State> states;
+    private final State initialState;
+    private final State deadState;
+
+    ElementPathMatcher(Map<ElementPath, ElementConfig> elementPaths) {
+        paths = elementPaths.keySet().toArray(new ElementPath[0]);
+        configs = elementPaths.values().toArray(new ElementConfig[0]);
+
+        int maxStepCount = 0;
+        for (ElementPath path : paths) {
+            maxStepCount = Math.max(maxStepCount, path.stepCount());
+        }
+        stride = maxStepCount + 1;
+
+        states = new HashMap<>();
+        int[] initialPositions = new int[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            initialPositions[i] = i * stride;
+        }
+        initialState = state(initialPositions);
+        deadState = state(new int[0]);
+    }
+
+    boolean isEmpty() {
+        return paths.length == 0;
+    }
+
+    Tracker tracker() {
+        return new Tracker();
+    }
+
+    private State next(State state, String localName) {
+        if (state == deadState) {
+            return deadState;
+        }
+        State next = state.transitions.get(localName);
+        if (next == null) {
+            next = state(step(state.positions, localName));
+            if (state.cacheable) {
+                cache(state, localName, next);
+            }
+        }
+        return next;
+    }
+
+    private int[] step(int[] positions, String localName) {
+        int[] result = new int[positions.length * 2];
+        int count = 0;
+        for (int position : positions) {
+            ElementPath path = paths[position / stride];
+            int step = position % stride;
+            if (step == path.stepCount()) {
+                // the path has been matched completely; child elements cannot match it
+                continue;
+            }
+            if (path.isDescendant(step)) {
+                result[count++] = position;
+            }
+            if (path.matches(step, localName)) {
+                result[count++] = position + 1;
+            }
+        }
+        // each position p results in p and/or p + 1, so the result is sorted as well; duplicates can only occur next to each other
+        int distinctCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinctCount == 0 || result[distinctCount - 1] != result[i]) {
+                result[distinctCount++] = result[i];
+            }
+        }
+        return Arrays.copyOf(result, distinctCount);
+    }
+
+    private synchronized State state(int[] positions) {
+        Positions key = new Positions(positions);
+        State state = states.get(key);
+        if (state == null) {
+            boolean cacheable = states.size() < MAX_STATE_COUNT;
+            state = new State(positions, config(positions), cacheable);
+            if (cacheable) {
+                states.put(key, state);
+            }
+        }
+        return state;
+    }
+
+    private ElementConfig config(int[] positions) {
+        // positions are sorted by path index, so the first completely matched path wins
+        for (int position : positions) {
+            int pathIndex = position / stride;
+            if (position % stride == paths[pathIndex].stepCount()) {
+                return configs[pathIndex];
+            }
+        }
+        return null;
+    }
+
+    private static void cache(State state, String localName, State next) {
+        synchronized (state) {
+            if (state.transitionCount >= MAX_TRANSITION_COUNT) {
+                return;
+            }
+            Map<String, State> newTransitions = new IdentityHashMap<>(state.transitions);
+            newTransitions.put(localName, next);
+            state.transitions = newTransitions;
+            state.transitionCount++;
+        }
+    }
+
+    synchronized int stateCount() {
+        return states.size();
+    }
+
+    /*
+     * Keeps track of the states for the open elements of a single parser. Not thread-safe.
+     */
+    final class Tracker {
+
+        private State[] stack = new State[16];
+        private int depth = 0;
+
+        // Returns the configuration of the first path that matches the element, or null if no path matches
+        ElementConfig startElement(String localName) {
+            if (paths.length == 0) {
+                return null;
+            }
+            State current = depth == 0 ? initialState : stack[depth - 1];
+            State next = next(current, localName);
+            if (depth == stack.length) {
+                stack = Arrays.copyOf(stack, depth * 2);
+            }
+            stack[depth++] = next;
+            return next.config;
+        }
+
+        void endElement() {
+            if (depth > 0) {
+                stack[--depth] = null;
+            }
+        }
+    }
+
+    private static final class State {
+
+        private final int[] positions;
+        private final ElementConfig config;
+        private final boolean cacheable;
+
+        private volatile Map<String, State> transitions;
+        private int transitionCount;
+
+        private State(int[] positions, ElementConfig config, boolean cacheable) {
+            this.positions = positions;
+            this.config = config;
+            this.cacheable = cacheable;
+
+            transitions = new IdentityHashMap<>();
+            transitionCount = 0;
+        }
+    }
+
+    private static final class Positions {
+
+        private final int[] positions;
+
+        private Positions(int[] positions) {
+            this.positions = positions;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || o.getClass() != getClass()) {
+                return false;
+            }
+            Positions other = (Positions) o;
+            return Arrays.equals(positions, other.positions);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(positions);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * FlightRecorderSupport.java
+ * Copyright 2026 Rob Spoor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robtimus.obfuscation.xml;
+
+/*
+ * Guards access to ObfuscationEvent. Java Flight Recorder is not available on all Java 8 runtimes, so ObfuscationEvent may only be loaded if the
+ * jdk.jfr package is available. Events are returned as Object so that callers do not need to load ObfuscationEvent either.
+ */
+final class FlightRecorderSupport {
+
+    static final boolean AVAILABLE = isFlightRecorderAvailable();
+
+    private FlightRecorderSupport() {
+    }
+
+    private static boolean isFlightRecorderAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, FlightRecorderSupport.class.getClassLoader()); //$NON-NLS-1$
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    static boolean isObfuscationEventEnabled() {
+        return AVAILABLE && ObfuscationEvent.isEventEnabled();
+    }
+
+    // Returns a started event, or null if the event is not enabled
+    static Object beginObfuscationEvent() {
+        if (!isObfuscationEventEnabled()) {
+            return null;
+        }
+        ObfuscationEvent event = new ObfuscationEvent();
+        event.begin();
+        return event;
+    }
+
+    static void commitObfuscationEvent(Object e, MetricsCollector metrics) {
+        ObfuscationEvent event = (ObfuscationEvent) e;
+        event.end();
+        if (event.shouldCommit()) {
+            event.engine = metrics.engine();
+            event.inputCharacters = metrics.characterCount();
+            event.outputCharacters = metrics.outputCount();
+            event.matchedElements = metrics.matchedElementCount();
+            event.matchedAttributes = metrics.matchedAttributeCount();
+            event.truncated = metrics.truncated();
+            event.malformedXML = metrics.malformedXML();
+            event.bufferTruncations = metrics.bufferTruncationCount();
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,948 @@
+/*
+ * IncrementalXMLReader.java
+ * Copyright 2026 Rob Spoor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robtimus.obfuscation.xml;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import com.ctc.wstx.io.WstxInputData;
+
+/*
+ * An IndexedXMLReader that reads from a Source that can still grow.
+ * hasNext() returns false if the source does not (yet) contain a complete event; it can be called again after more content has been appended.
+ * Once endOfInput() has been called, hasNext() returning false means that the end of the document has been reached.
+ *
+ * Text and CDATA sections are reported as soon as they are available, which means they can be split over several events.
+ * This keeps the amount of content that needs to be buffered limited to the size of the markup, unless text needs to be obfuscated.
+ *
+ * This reader checks that elements are properly nested, that names and characters are valid, that namespace prefixes are bound,
+ * that attributes are unique, and that character references refer to valid characters. However, it does not process DTDs.
+ * As a result, entity references other than the predefined ones are reported as part of the text without being checked,
+ * and the content of a document type declaration is not checked at all. Unpaired surrogate characters are not detected either.
+ */
+final class IncrementalXMLReader implements IndexedXMLReader {
+
+    private static final String COMMENT_START = "<!--"; //$NON-NLS-1$
+    private static final String COMMENT_END = "-->"; //$NON-NLS-1$
+    private static final String CDATA_START = "<![CDATA["; //$NON-NLS-1$
+    private static final String CDATA_END = "]]>"; //$NON-NLS-1$
+    private static final String DOCTYPE_START = "<!DOCTYPE"; //$NON-NLS-1$
+    private static final String PI_END = "?>"; //$NON-NLS-1$
+    private static final String XML_DECLARATION_TARGET = "xml"; //$NON-NLS-1$
+    private static final String XMLNS = "xmlns"; //$NON-NLS-1$
+
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+    private static final int INITIAL_NAME_TABLE_SIZE = 64;
+    // The maximum number of names in the name table; any other name is interned each time it occurs
+    private static final int MAX_NAME_COUNT = 4096;
+
+    private final Source source;
+
+    private State state;
+    private boolean endOfInput;
+
+    // the start of the next event
+    private int index;
+    // the index from where to continue scanning the current construct
+    private int scanIndex;
+    // the quote character that scanIndex is inside of, or 0 if scanIndex is not inside quotes
+    private char scanQuote;
+    // whether or not scanIndex is inside the internal subset of a document type declaration
+    private boolean scanInInternalSubset;
+    // the end of the comment or processing instruction in an internal subset that scanIndex is inside of, or null if there is none
+    private String scanMarkupEnd;
+    private boolean inCData;
+    private boolean hasDoctype;
+    // an error that is reported after the current event, or null if there is none
+    private XMLStreamException pendingError;
+
+    private final List<Element> openElements;
+    // pairs of prefix and namespace URI
+    private final List<String> namespaceBindings;
+    // the locations of the names of the attributes of the current start tag, followed by their resolved local names and namespace URIs
+    private final List<Integer> attributeLocations;
+    private final List<Integer> attributeNameEnds;
+    private final List<String> attributeLocalNames;
+    private final List<String> attributeNamespaceURIs;
+
+    private boolean hasEvent;
+    private int eventType;
+    private int eventStart;
+    private int eventEnd;
+    private Element eventElement;
+    private boolean emptyElement;
+
+    // Names and namespace URIs that have occurred before, so String.intern() is only called the first time each one occurs
+    private String[] names;
+    private int nameCount;
+
+    IncrementalXMLReader(Source source) {
+        this.source = source;
+
+        state = State.PROLOG;
+        endOfInput = false;
+
+        index = 0;
+        scanIndex = 0;
+        scanQuote = 0;
+        scanInInternalSubset = false;
+        scanMarkupEnd = null;
+        inCData = false;
+        hasDoctype = false;
+        pendingError = null;
+
+        openElements = new ArrayList<>();
+        namespaceBindings = new ArrayList<>();
+        attributeLocations = new ArrayList<>();
+        attributeNameEnds = new ArrayList<>();
+        attributeLocalNames = new ArrayList<>();
+        attributeNamespaceURIs = new ArrayList<>();
+
+        names = new String[INITIAL_NAME_TABLE_SIZE];
+        nameCount = 0;
+    }
+
+    void endOfInput() {
+        endOfInput = true;
+    }
+
+    @Override
+    public boolean hasNext() throws XMLStreamException {
+        if (!hasEvent) {
+            hasEvent = readEvent();
+        }
+        return hasEvent;
+    }
+
+    @Override
+    public int next() throws XMLStreamException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        hasEvent = false;
+        return eventType;
+    }
+
+    @Override
+    public int getStartOffset() {
+        return eventStart;
+    }
+
+    @Override
+    public int getEndOffset() {
+        return eventEnd;
+    }
+
+    @Override
+    public String getLocalName() {
+        return eventElement.localName;
+    }
+
+    @Override
+    public QName getName() {
+        return eventElement.name();
+    }
+
+    @Override
+    public String getNamespaceURI() {
+        return eventElement.namespaceURI;
+    }
+
+    @Override
+    public int getAttributeCount() {
+        return attributeLocalNames.size();
+    }
+
+    @Override
+    public String getAttributeLocalName(int index) {
+        return attributeLocalNames.get(index);
+    }
+
+    @Override
+    public String getAttributeNamespace(int index) {
+        return attributeNamespaceURIs.get(index);
+    }
+
+    private boolean readEvent() throws XMLStreamException {
+        if (pendingError != null) {
+            throw pendingError;
+        }
+        if (emptyElement) {
+            // report the end of the element, with the same location as the start
+            emptyElement = false;
+            endElement(eventStart, eventEnd);
+            return true;
+        }
+        if (inCData) {
+            return readCData();
+        }
+
+        int length = source.length();
+        if (index >= length) {
+            if (endOfInput && state != State.EPILOG) {
+                throw new XMLStreamException(Messages.IncrementalXMLReader.unexpectedEOF(index));
+            }
+            return false;
+        }
+        if (source.charAt(index) != '<') {
+            return readText(length);
+        }
+        if (index + 1 >= length) {
+            return needMoreInput(length);
+        }
+        switch (source.charAt(index + 1)) {
+            case '/':
+                return readEndTag(length);
+            case '?':
+                return readProcessingInstruction(length);
+            case '!':
+                return readMarkupDeclaration(length);
+            default:
+                return readStartTag(length);
+        }
+    }
+
+    private boolean readText(int length) throws XMLStreamException {
+        if (state == State.CONTENT) {
+            return readContentText(length);
+        }
+        int end = indexOf('<', index, length);
+        if (end == -1) {
+            end = length;
+        }
+        for (int i = index; i < end; i++) {
+            char c = source.charAt(i);
+            if (!isWhitespace(c) && !(i == 0 && c == BYTE_ORDER_MARK)) {
+                throw new XMLStreamException(Messages.IncrementalXMLReader.textOutsideRoot(i));
+            }
+        }
+        // Like with Woodstox, whitespace outside the root element is not reported as an event
+        index = end;
+        scanIndex = index;
+        return readEvent();
+    }
+
+    private boolean readContentText(int length) throws XMLStreamException {
+        int end = index;
+        while (end < length) {
+            char c = source.charAt(end);
+            if (c == '<') {
+                break;
+            }
+            if (c == '&') {
+                int referenceEnd = referenceEnd(end, length);
+                if (referenceEnd == -1) {
+                    // the reference is not complete yet
+                    return end > index ? emit(XMLStreamConstants.CHARACTERS, end) : needMoreInput(length);
+                }
+                end = referenceEnd;
+            } else {
+                if (c == '>' && end - index >= 2 && source.charAt(end - 1) == ']' && source.charAt(end - 2) == ']') {
+                    // Like Woodstox, report the text up to and including the ]]> before the error
+                    pendingError = new XMLStreamException(Messages.IncrementalXMLReader.cdataEndInText(end - 2));
+                    return emit(XMLStreamConstants.CHARACTERS, end + 1);
+                }
+                checkCharacter(c, end);
+                end++;
+            }
+        }
+        if (end == length && !endOfInput) {
+            // Don't report what could be the start of a CDATA end, so it can still be detected once the rest is available
+            for (int i = 0; i < 2 && end > index && source.charAt(end - 1) == ']'; i++) {
+                end--;
+            }
+        }
+        return end > index ? emit(XMLStreamConstants.CHARACTERS, end) : needMoreInput(length);
+    }
+
+    private boolean readStartTag(int length) throws XMLStreamException {
+        if (state == State.EPILOG) {
+            throw new XMLStreamException(Messages.IncrementalXMLReader.multipleRootElements(index));
+        }
+        int end = findTagEnd(index + 1, length);
+        if (end == -1) {
+            return needMoreInput(length);
+        }
+        boolean empty = source.charAt(end - 1) == '/';
+
+        int nameStart = index + 1;
+        int nameEnd = nameEnd(nameStart, end);
+        int colon = checkName(nameStart, nameEnd);
+        Element element = new Element(intern(nameStart, nameEnd), namespaceBindings.size());
+        readAttributes(nameEnd, empty ? end - 1 : end, element.namespaceBindingCount);
+        element.resolve(nameStart, colon, nameEnd);
+        resolveAttributes();
+
+        openElements.add(element);
+        state = State.CONTENT;
+
+        emptyElement = empty;
+        eventElement = element;
+        return emit(XMLStreamConstants.START_ELEMENT, end + 1);
+    }
+
+    private int findTagEnd(int from, int length) throws XMLStreamException {
+        int i = Math.max(from, scanIndex);
+        char quote = scanQuote;
+        for ( ; i < length; i++) {
+            char c = source.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '>') {
+                return i;
+            } else if (c == '<') {
+                throw unexpectedCharacter(i);
+            }
+        }
+        scanIndex = i;
+        scanQuote = quote;
+        return -1;
+    }
+
+    private void readAttributes(int from, int to, int namespaceBindingCount) throws XMLStreamException {
+        attributeLocations.clear();
+        attributeNameEnds.clear();
+        int i = from;
+        while (true) {
+            int nameStart = skipWhitespace(i, to);
+            if (nameStart == to) {
+                return;
+            }
+            if (nameStart == i) {
+                // attributes must be preceded by whitespace
+                throw unexpectedCharacter(nameStart);
+            }
+            int nameEnd = nameEnd(nameStart, to);
+            checkName(nameStart, nameEnd);
+            int equals = skipWhitespace(nameEnd, to);
+            if (equals == to || source.charAt(equals) != '=') {
+                throw unexpectedCharacter(equals);
+            }
+            int valueStart = skipWhitespace(equals + 1, to);
+            char quote = valueStart == to ? 0 : source.charAt(valueStart);
+            if (quote != '"' && quote != '\'') {
+                throw unexpectedCharacter(valueStart);
+            }
+            int valueEnd = indexOf(quote, valueStart + 1, to);
+            if (valueEnd == -1) {
+                throw unexpectedCharacter(to);
+            }
+            checkAttributeValue(valueStart + 1, valueEnd);
+            if (!bindNamespaceIfNeeded(nameStart, nameEnd, valueStart + 1, valueEnd, namespaceBindingCount)) {
+                attributeLocations.add(nameStart);
+                attributeNameEnds.add(nameEnd);
+            }
+            i = valueEnd + 1;
+        }
+    }
+
+    private void checkAttributeValue(int from, int to) throws XMLStreamException {
+        int i = from;
+        while (i < to) {
+            char c = source.charAt(i);
+            if (c == '&') {
+                int referenceEnd = referenceEnd(i, to);
+                if (referenceEnd == -1) {
+                    throw unexpectedCharacter(to);
+                }
+                i = referenceEnd;
+            } else {
+                if (c == '<') {
+                    throw unexpectedCharacter(i);
+                }
+                checkCharacter(c, i);
+                i++;
+            }
+        }
+    }
+
+    private boolean bindNamespaceIfNeeded(int nameStart, int nameEnd, int valueStart, int valueEnd, int namespaceBindingCount)
+            throws XMLStreamException {
+
+        if (!startsWith(XMLNS, nameStart, nameEnd)) {
+            return false;
+        }
+        int prefixStart = nameStart + XMLNS.length();
+        String prefix;
+        if (prefixStart == nameEnd) {
+            prefix = XMLConstants.DEFAULT_NS_PREFIX;
+        } else if (source.charAt(prefixStart) == ':') {
+            prefix = intern(prefixStart + 1, nameEnd);
+        } else {
+            // an attribute that starts with xmlns but is not a namespace declaration
+            return false;
+        }
+        // only the bindings of the current element can contain a duplicate declaration
+        for (int i = namespaceBindingCount; i < namespaceBindings.size(); i += 2) {
+            if (namespaceBindings.get(i).equals(prefix)) {
+                throw new XMLStreamException(Messages.IncrementalXMLReader.duplicateAttribute(substring(nameStart, nameEnd), nameStart));
+            }
+        }
+        namespaceBindings.add(prefix);
+        namespaceBindings.add(indexOf('&', valueStart, valueEnd) == -1
+                ? intern(valueStart, valueEnd)
+                : attributeValue(valueStart, valueEnd).intern());
+        return true;
+    }
+
+    private void resolveAttributes() throws XMLStreamException {
+        attributeLocalNames.clear();
+        attributeNamespaceURIs.clear();
+        for (int i = 0; i < attributeLocations.size(); i++) {
+            int nameStart = attributeLocations.get(i);
+            int nameEnd = attributeNameEnds.get(i);
+            int colon = indexOf(':', nameStart, nameEnd);
+            String localName;
+            String namespaceURI;
+            if (colon == -1) {
+                // attributes without prefix are not in any namespace, not even the default namespace
+                localName = intern(nameStart, nameEnd);
+                namespaceURI = XMLConstants.NULL_NS_URI;
+            } else {
+                localName = intern(colon + 1, nameEnd);
+                namespaceURI = namespaceURI(intern(nameStart, colon), nameStart);
+            }
+            // attributes must be unique by local name and namespace URI, not by their prefixed names
+            for (int j = 0; j < i; j++) {
+                if (attributeLocalNames.get(j).equals(localName) && attributeNamespaceURIs.get(j).equals(namespaceURI)) {
+                    throw new XMLStreamException(Messages.IncrementalXMLReader.duplicateAttribute(substring(nameStart, nameEnd), nameStart));
+                }
+            }
+            attributeLocalNames.add(localName);
+            attributeNamespaceURIs.add(namespaceURI);
+        }
+    }
+
+    private boolean readEndTag(int length) throws XMLStreamException {
+        int end = indexOf('>', index + 2, length);
+        if (end == -1) {
+            return needMoreInput(length);
+        }
+        int nameStart = index + 2;
+        int nameEnd = nameEnd(nameStart, end);
+        int trailingWhitespaceEnd = skipWhitespace(nameEnd, end);
+        if (trailingWhitespaceEnd != end) {
+            throw unexpectedCharacter(trailingWhitespaceEnd);
+        }
+        if (openElements.isEmpty()) {
+            throw new XMLStreamException(Messages.IncrementalXMLReader.unexpectedEndTag(substring(nameStart, nameEnd), index));
+        }
+        Element element = openElements.get(openElements.size() - 1);
+        if (!matches(element.rawName, nameStart, nameEnd)) {
+            throw new XMLStreamException(Messages.IncrementalXMLReader.mismatchedEndTag(substring(nameStart, nameEnd), index, element.rawName));
+        }
+        int start = index;
+        index = end + 1;
+        scanIndex = index;
+        endElement(start, index);
+        return true;
+    }
+
+    private void endElement(int start, int end) {
+        Element element = openElements.remove(openElements.size() - 1);
+        while (namespaceBindings.size() > element.namespaceBindingCount) {
+            namespaceBindings.remove(namespaceBindings.size() - 1);
+        }
+        if (openElements.isEmpty()) {
+            state = State.EPILOG;
+        }
+
+        eventType = XMLStreamConstants.END_ELEMENT;
+        eventStart = start;
+        eventEnd = end;
+        eventElement = element;
+    }
+
+    private boolean readProcessingInstruction(int length) throws XMLStreamException {
+        int from = index + 2;
+        int end = indexOf(PI_END, Math.max(from, scanIndex), length);
+        if (end == -1) {
+            scanIndex = Math.max(from, length - PI_END.length() + 1);
+            return needMoreInput(length);
+        }
+        int targetEnd = nameEnd(from, end);
+        checkName(from, targetEnd);
+        if (targetEnd != end && !isWhitespace(source.charAt(targetEnd))) {
+            throw unexpectedCharacter(targetEnd);
+        }
+        checkCharacters(targetEnd, end);
+        if (matches(XML_DECLARATION_TARGET, from, targetEnd)) {
+            // The XML declaration is only allowed at the start of the document, possibly after a byte order mark
+            if (index != 0 && (index != 1 || source.charAt(0) != BYTE_ORDER_MARK)) {
+                throw unexpectedCharacter(from);
+            }
+            // The XML declaration is not reported as an event
+            index = end + PI_END.length();
+            scanIndex = index;
+            return readEvent();
+        }
+        return emit(XMLStreamConstants.PROCESSING_INSTRUCTION, end + PI_END.length());
+    }
+
+    private boolean readMarkupDeclaration(int length) throws XMLStreamException {
+        if (startsWith(COMMENT_START, index, length)) {
+            return readComment(length);
+        }
+        if (startsWith(CDATA_START, index, length)) {
+            if (state != State.CONTENT) {
+                throw unexpectedCharacter(index);
+            }
+            inCData = true;
+            scanIndex = index + CDATA_START.length();
+            return readCData();
+        }
+        if (startsWith(DOCTYPE_START, index, length)) {
+            if (state != State.PROLOG) {
+                throw unexpectedCharacter(index);
+            }
+            return readDoctype(length);
+        }
+        if (length - index < DOCTYPE_START.length()) {
+            // not enough content to determine what kind of declaration this is
+            return needMoreInput(length);
+        }
+        throw unexpectedCharacter(index + 1);
+    }
+
+    private boolean readComment(int length) throws XMLStreamException {
+        int from = index + COMMENT_START.length();
+        int end = indexOf(COMMENT_END, Math.max(from, scanIndex), length);
+        if (end == -1) {
+            scanIndex = Math.max(from, length - COMMENT_END.length() + 1);
+            return needMoreInput(length);
+        }
+        // Comments cannot contain --, and cannot end with - as that would lead to --->
+        int doubleHyphen = indexOf("--", from, end); //$NON-NLS-1$
+        if (doubleHyphen == -1 && end > from && source.charAt(end - 1) == '-') {
+            doubleHyphen = end - 1;
+        }
+        if (doubleHyphen != -1) {
+            throw new XMLStreamException(Messages.IncrementalXMLReader.doubleHyphenInComment(doubleHyphen));
+        }
+        checkCharacters(from, end);
+        return emit(XMLStreamConstants.COMMENT, end + COMMENT_END.length());
+    }
+
+    private boolean readCData() throws XMLStreamException {
+        int length = source.length();
+        int end = indexOf(CDATA_END, scanIndex, length);
+        if (end != -1) {
+            checkCharacters(scanIndex, end);
+            inCData = false;
+            return emit(XMLStreamConstants.CDATA, end + CDATA_END.length());
+        }
+        if (endOfInput) {
+            throw new XMLStreamException(Messages.IncrementalXMLReader.unexpectedEOF(length));
+        }
+        // Report what's available, except for what could be the start of the CDATA end
+        int partialEnd = Math.max(scanIndex, length - CDATA_END.length() + 1);
+        if (partialEnd > index) {
+            checkCharacters(scanIndex, partialEnd);
+            return emit(XMLStreamConstants.CDATA, partialEnd);
+        }
+        return false;
+    }
+
+    private boolean readDoctype(int length) throws XMLStreamException {
+        int i = Math.max(index + DOCTYPE_START.length(), scanIndex);
+        char quote = scanQuote;
+        boolean inInternalSubset = scanInInternalSubset;
+        String markupEnd = scanMarkupEnd;
+        while (i < length) {
+            if (markupEnd != null) {
+                int end = indexOf(markupEnd, i, length);
+                if (end == -1) {
+                    i = Math.max(i, length - markupEnd.length() + 1);
+                    break;
+                }
+                i = end + markupEnd.length();
+                markupEnd = null;
+                continue;
+            }
+            char c = source.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '[') {
+                inInternalSubset = true;
+            } else if (c == ']') {
+                inInternalSubset = false;
+            } else if (c == '>' && !inInternalSubset) {
+                hasDoctype = true;
+                return emit(XMLStreamConstants.DTD, i + 1);
+            } else if (c == '<' && inInternalSubset) {
+                // skip comments and processing instructions, as they can contain quotes and brackets
+                if (startsWith(COMMENT_START, i, length)) {
+                    markupEnd = COMMENT_END;
+                    i += COMMENT_START.length();
+                    continue;
+                }
+                if (i + 1 < length && source.charAt(i + 1) == '?') {
+                    markupEnd = PI_END;
+                    i += 2;
+                    continue;
+                }
+                if (i + COMMENT_START.length() > length) {
+                    // not enough content to determine whether or not this is a comment; continue from the < once there is
+                    break;
+                }
+            }
+            i++;
+        }
+        scanIndex = i;
+        scanQuote = quote;
+        scanInInternalSubset = inInternalSubset;
+        scanMarkupEnd = markupEnd;
+        return needMoreInput(length);
+    }
+
+    private boolean needMoreInput(int length) throws XMLStreamException {
+        if (endOfInput) {
+            throw new XMLStreamException(Messages.IncrementalXMLReader.unexpectedEOF(length));
+        }
+        return false;
+    }
+
+    private boolean emit(int type, int end) {
+        eventType = type;
+        eventStart = index;
+        eventEnd = end;
+
+        index = end;
+        scanIndex = end;
+        scanQuote = 0;
+        scanInInternalSubset = false;
+        scanMarkupEnd = null;
+        return true;
+    }
+
+    private XMLStreamException unexpectedCharacter(int i) {
+        return new XMLStreamException(Messages.IncrementalXMLReader.unexpectedCharacter(source.charAt(i), i));
+    }
+
+    // Checks that the given range is a valid name, with an optional prefix; returns the index of the colon, or -1 if there is no prefix
+    private int checkName(int start, int end) throws XMLStreamException {
+        if (start == end) {
+            throw unexpectedCharacter(start);
+        }
+        int colon = -1;
+        int partStart = start;
+        for (int i = start; i < end; i++) {
+            char c = source.charAt(i);
+            if (c == ':' && colon == -1 && i > start && i < end - 1) {
+                colon = i;
+                partStart = i + 1;
+            } else if (i == partStart ? !WstxInputData.isNameStartChar(c, true, false) : !WstxInputData.isNameChar(c, true, false)) {
+                throw unexpectedCharacter(i);
+            }
+        }
+        return colon;
+    }
+
+    private void checkCharacters(int from, int to) throws XMLStreamException {
+        for (int i = from; i < to; i++) {
+            checkCharacter(source.charAt(i), i);
+        }
+    }
+
+    private static void checkCharacter(char c, int i) throws XMLStreamException {
+        // surrogates are allowed, as they are part of the valid range of characters 0x10000-0x10FFFF
+        if (c < 0x20 ? c != '\t' && c != '\n' && c != '\r' : c >= 0xFFFE) {
+            throw new XMLStreamException(Messages.IncrementalXMLReader.invalidCharacter(Integer.toHexString(c), i));
+        }
+    }
+
+    // Returns the index after the reference that starts at the given index, or -1 if the reference is not complete before the given end
+    private int referenceEnd(int start, int to) throws XMLStreamException {
+        int i = start + 1;
+        while (i < to && source.charAt(i) != ';') {
+            char c = source.charAt(i);
+            if (!(c == '#' && i == start + 1) && !WstxInputData.isNameChar(c, true, false)) {
+                throw unexpectedCharacter(i);
+            }
+            i++;
+        }
+        if (i == to) {
+            return -1;
+        }
+        if (source.charAt(start + 1) == '#') {
+            String name = substring(start + 1, i);
+            if (!isValidCodePoint(resolveReference(name))) {
+                throw new XMLStreamException(Messages.IncrementalXMLReader.invalidCharacterReference(name, start));
+            }
+        } else {
+            checkName(start + 1, i);
+            // Without a document type declaration only the predefined entities are declared.
+            // With one, any other entity is not checked, as that requires processing the DTD
+            if (!hasDoctype && resolveReference(substring(start + 1, i)) == -1) {
+                throw new XMLStreamException(Messages.IncrementalXMLReader.undeclaredEntity(substring(start + 1, i), start));
+            }
+        }
+        return i + 1;
+    }
+
+    private static boolean isValidCodePoint(int codePoint) {
+        return codePoint == '\t' || codePoint == '\n' || codePoint == '\r'
+                || codePoint >= 0x20 && codePoint <= 0xD7FF
+                || codePoint >= 0xE000 && codePoint <= 0xFFFD
+                || codePoint >= 0x10000 && codePoint <= Character.MAX_CODE_POINT;
+    }
+
+    private String namespaceURI(String prefix, int location) throws XMLStreamException {
+        String namespaceURI = boundNamespaceURI(prefix);
+        if (namespaceURI != null) {
+            return namespaceURI;
+        }
+        if (prefix.isEmpty()) {
+            return XMLConstants.NULL_NS_URI;
+        }
+        if (XMLConstants.XML_NS_PREFIX.equals(prefix)) {
+            return XMLConstants.XML_NS_URI;
+        }
+        throw new XMLStreamException(Messages.IncrementalXMLReader.unboundPrefix(prefix, location));
+    }
+
+    private String boundNamespaceURI(String prefix) {
+        for (int i = namespaceBindings.size() - 2; i >= 0; i -= 2) {
+            if (namespaceBindings.get(i).equals(prefix)) {
+                return namespaceBindings.get(i + 1);
+            }
+        }
+        return null;
+    }
+
+    private String attributeValue(int start, int end) {
+        if (indexOf('&', start, end) == -1) {
+            return substring(start, end);
+        }
+        // Only predefined entities and character references are supported; anything else is kept as-is
+        StringBuilder sb = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = source.charAt(i);
+            int semicolon = c == '&' ? indexOf(';', i + 1, end) : -1;
+            int codePoint = semicolon == -1 ? -1 : resolveReference(substring(i + 1, semicolon));
+            if (codePoint == -1) {
+                sb.append(c);
+            } else {
+                sb.appendCodePoint(codePoint);
+                i = semicolon;
+            }
+        }
+        return sb.toString();
+    }
+
+    // Returns the code point for a predefined entity or character reference, or -1 for any other reference
+    @SuppressWarnings("nls")
+    static int resolveReference(String name) {
+        switch (name) {
+            case "lt":
+                return '<';
+            case "gt":
+                return '>';
+            case "amp":
+                return '&';
+            case "quot":
+                return '"';
+            case "apos":
+                return '\'';
+            default:
+                break;
+        }
+        try {
+            if (name.startsWith("#x")) {
+                return Integer.parseInt(name.substring(2), 16);
+            }
+            if (name.startsWith("#")) {
+                return Integer.parseInt(name.substring(1));
+            }
+        } catch (@SuppressWarnings("unused") NumberFormatException e) {
+            // not a valid character reference
+        }
+        return -1;
+    }
+
+    private int indexOf(char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (source.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int indexOf(String s, int from, int to) {
+        char first = s.charAt(0);
+        for (int i = from, max = to - s.length(); i <= max; i++) {
+            if (source.charAt(i) == first && startsWith(s, i, to)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean startsWith(String s, int from, int to) {
+        if (from + s.length() > to) {
+            return false;
+        }
+        for (int i = 0, j = from; i < s.length(); i++, j++) {
+            if (s.charAt(i) != source.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int skipWhitespace(int from, int to) {
+        int i = from;
+        while (i < to && isWhitespace(source.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private int nameEnd(int from, int to) {
+        int i = from;
+        while (i < to && isNameCharacter(source.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private String substring(int start, int end) {
+        char[] chars = new char[end - start];
+        for (int i = start; i < end; i++) {
+            chars[i - start] = source.charAt(i);
+        }
+        return new String(chars);
+    }
+
+    // Returns the interned string for the given range, using the name table to prevent interning the same name over and over
+    private String intern(int start, int end) {
+        // the same hash code as String.hashCode(), so the cached hash codes of the names in the table can be used
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + source.charAt(i);
+        }
+        int mask = names.length - 1;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        for (String name = names[slot]; name != null; slot = (slot + 1) & mask, name = names[slot]) {
+            if (name.hashCode() == hash && matches(name, start, end)) {
+                return name;
+            }
+        }
+        String name = substring(start, end).intern();
+        if (nameCount < MAX_NAME_COUNT) {
+            names[slot] = name;
+            nameCount++;
+            if (nameCount * 2 > names.length) {
+                growNameTable();
+            }
+        }
+        return name;
+    }
+
+    private void growNameTable() {
+        String[] newNames = new String[names.length * 2];
+        int mask = newNames.length - 1;
+        for (String name : names) {
+            if (name != null) {
+                int hash = name.hashCode();
+                int slot = (hash ^ (hash >>> 16)) & mask;
+                while (newNames[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                newNames[slot] = name;
+            }
+        }
+        names = newNames;
+    }
+
+    private boolean matches(String s, int start, int end) {
+        return end - start == s.length() && startsWith(s, start, end);
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    private static boolean isNameCharacter(char c) {
+        switch (c) {
+            case ' ':
+            case '\t':
+            case '\n':
+            case '\r':
+            case '<':
+            case '>':
+            case '/':
+            case '=':
+            case '?':
+            case '!':
+            case '"':
+            case '\'':
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    private enum State {
+        PROLOG,
+        CONTENT,
+        EPILOG,
+    }
+
+    private final class Element {
+
+        private final String rawName;
+        private final int namespaceBindingCount;
+
+        private String localName;
+        private String namespaceURI;
+        private QName name;
+
+        private Element(String rawName, int namespaceBindingCount) {
+            this.rawName = rawName;
+            this.namespaceBindingCount = namespaceBindingCount;
+        }
+
+        private void resolve(int nameStart, int colon, int nameEnd) throws XMLStreamException {
+            String prefix = colon == -1 ? XMLConstants.DEFAULT_NS_PREFIX : intern(nameStart, colon);
+            localName = colon == -1 ? rawName : intern(colon + 1, nameEnd);
+            namespaceURI = namespaceURI(prefix, nameStart);
+        }
+
+        private QName name() {
+            if (name == null) {
+                name = new QName(namespaceURI, localName);
+            }
+            return name;
+        }
+    }
+}
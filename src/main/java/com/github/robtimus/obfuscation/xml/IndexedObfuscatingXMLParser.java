@@ -18,15 +18,17 @@
 package com.github.robtimus.obfuscation.xml;
 
 import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayDeque;
+import java.util.Collections;
 import java.util.Deque;
-import java.util.Map;
-import javax.xml.namespace.QName;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import javax.xml.XMLConstants;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.XMLStreamReader;
-import org.codehaus.stax2.LocationInfo;
 import com.github.robtimus.obfuscation.Obfuscator;
+import com.github.robtimus.obfuscation.support.LimitAppendable;
 import com.github.robtimus.obfuscation.xml.XMLObfuscator.ElementConfigurer.ObfuscationMode;
 
 // Do not implement XMLStreamParser, the mechanism is too different
@@ -35,14 +37,15 @@ final class IndexedObfuscatingXMLParser {
     private static final String CDATA_START = "<![CDATA["; //$NON-NLS-1$
     private static final String CDATA_END = "]]>"; //$NON-NLS-1$
 
-    private final XMLStreamReader xmlStreamReader;
-    private final LocationInfo locationInfo;
+    private final IndexedXMLReader xmlReader;
 
     private final Source source;
     private final Appendable destination;
 
-    private final Map<String, ElementConfig> elements;
-    private final Map<QName, ElementConfig> qualifiedElements;
+    private final ConfigResolver<ElementConfig> elementResolver;
+    private final ElementPathMatcher.Tracker elementPaths;
+    private final ConfigResolver<AttributeConfig> attributeResolver;
+    private final boolean obfuscateAttributes;
 
     private final int textOffset;
     private final int textEnd;
@@ -51,33 +54,55 @@ final class IndexedObfuscatingXMLParser {
 
     private final Deque<ObfuscatedElement> currentElements = new ArrayDeque<>();
 
-    IndexedObfuscatingXMLParser(XMLStreamReader xmlStreamReader, Source source, int start, int end, Appendable destination,
-            Map<String, ElementConfig> elements, Map<QName, ElementConfig> qualifiedElements) {
+    // non-null if the latest text became too large to keep in the source, and is being streamed to the obfuscator
+    private Writer obfuscatingWriter;
+    // whether or not the streamed text started with a CDATA section, whose start has been appended unobfuscated
+    private boolean streamingCDATA;
 
-        this.xmlStreamReader = xmlStreamReader;
-        this.locationInfo = (LocationInfo) xmlStreamReader;
+    // the elements that occur only once that have been processed completely; null if parsing cannot stop early
+    private final Set<ElementConfig> processedSingleOccurrenceElements;
+    private final int singleOccurrenceElementCount;
+
+    // null if no metrics are collected
+    private final MetricsCollector metrics;
+
+    IndexedObfuscatingXMLParser(IndexedXMLReader xmlReader, Source source, int start, int end, Appendable destination,
+            ConfigResolver<ElementConfig> elementResolver, ElementPathMatcher elementPathMatcher, ConfigResolver<AttributeConfig> attributeResolver,
+            int singleOccurrenceElementCount, MetricsCollector metrics) {
+
+        this.xmlReader = xmlReader;
         this.source = source;
         this.textOffset = start;
         this.textEnd = end;
         this.textIndex = start;
         this.destination = destination;
-        this.elements = elements;
-        this.qualifiedElements = qualifiedElements;
+        this.elementResolver = elementResolver;
+        this.elementPaths = elementPathMatcher.tracker();
+        this.attributeResolver = attributeResolver;
+        this.obfuscateAttributes = !attributeResolver.isEmpty();
+        this.processedSingleOccurrenceElements = singleOccurrenceElementCount > 0 ? Collections.newSetFromMap(new IdentityHashMap<>()) : null;
+        this.singleOccurrenceElementCount = singleOccurrenceElementCount;
+        this.metrics = metrics;
     }
 
     boolean hasNext() throws XMLStreamException {
-        return xmlStreamReader.hasNext();
+        return !isCompleted() && xmlReader.hasNext();
+    }
+
+    // Returns whether or not all elements that need to be obfuscated have been processed; the remainder can then be appended as-is
+    boolean isCompleted() {
+        return processedSingleOccurrenceElements != null && processedSingleOccurrenceElements.size() == singleOccurrenceElementCount;
     }
 
     void processNext() throws XMLStreamException, IOException {
-        int event = xmlStreamReader.next();
-        int startIndex = (int) locationInfo.getStartingCharOffset() + textOffset;
-        latestEndIndex = (int) locationInfo.getEndingCharOffset() + textOffset;
+        int event = xmlReader.next();
+        int startIndex = xmlReader.getStartOffset() + textOffset;
+        latestEndIndex = xmlReader.getEndOffset() + textOffset;
 
         processEvent(event, startIndex, latestEndIndex);
     }
 
-    private void processEvent(int event, int startIndex, int endIndex) throws IOException {
+    private void processEvent(int event, int startIndex, int endIndex) throws XMLStreamException, IOException {
         switch (event) {
             case XMLStreamConstants.START_ELEMENT:
                 finishLatestText(startIndex);
@@ -102,15 +127,22 @@ final class IndexedObfuscatingXMLParser {
         }
     }
 
-    private void startElement(int startIndex, int endIndex) throws IOException {
+    private void startElement(int startIndex, int endIndex) throws XMLStreamException, IOException {
+        // element paths need to be tracked for all elements, including nested elements of elements that are being obfuscated
+        ElementConfig pathConfig = elementPaths.startElement(xmlReader.getLocalName());
+
         ObfuscatedElement currentElement = currentElements.peekLast();
         if (currentElement == null || currentElement.allowsOverriding()) {
             // either not obfuscating any element, or the element allows overriding obfuscation - check the element itself
-            ElementConfig config = configForCurrentElement();
+            // element paths take precedence over element names
+            ElementConfig config = pathConfig != null ? pathConfig : elementResolver.resolve(xmlReader.getNamespaceURI(), xmlReader.getLocalName());
             if (config != null) {
                 currentElement = new ObfuscatedElement(config);
                 currentElements.addLast(currentElement);
                 currentElement.depth++;
+                if (metrics != null) {
+                    metrics.elementMatched();
+                }
             } else if (currentElement != null) {
                 currentElement.depth++;
             }
@@ -119,27 +151,164 @@ final class IndexedObfuscatingXMLParser {
             currentElement.depth++;
         }
 
-        appendUnobfuscated(startIndex, endIndex);
+        if (obfuscateAttributes) {
+            appendStartTag(startIndex, endIndex);
+        } else {
+            appendUnobfuscated(startIndex, endIndex);
+        }
+    }
+
+    private void appendStartTag(int startIndex, int endIndex) throws XMLStreamException, IOException {
+        // The start tag has already been validated by the XML reader; only attribute names and values need to be located
+        // Some XML readers, like Aalto, include any whitespace before the start tag in its location; that is appended as-is
+        int tagStart = source.skipLeadingWhitespace(startIndex, endIndex);
+        if (tagStart == endIndex || source.charAt(tagStart) != '<') {
+            throw malformedStartTag(startIndex);
+        }
+        int attributeIndex = 0;
+        int appendIndex = startIndex;
+        int index = nameEnd(tagStart + 1, endIndex);
+        while (true) {
+            int nameStart = source.skipLeadingWhitespace(index, endIndex);
+            int nameEnd = nameEnd(nameStart, endIndex);
+            if (nameStart == nameEnd) {
+                // reached the end of the start tag
+                break;
+            }
+            int valueStart = nameEnd;
+            while (valueStart < endIndex && source.charAt(valueStart) != '"' && source.charAt(valueStart) != '\'') {
+                valueStart++;
+            }
+            if (valueStart == endIndex) {
+                throw malformedStartTag(startIndex);
+            }
+            char quote = source.charAt(valueStart);
+            valueStart++;
+            int valueEnd = valueStart;
+            while (valueEnd < endIndex && source.charAt(valueEnd) != quote) {
+                valueEnd++;
+            }
+            if (valueEnd == endIndex) {
+                throw malformedStartTag(startIndex);
+            }
+
+            if (!isNamespaceDeclaration(nameStart, nameEnd)) {
+                if (attributeIndex >= xmlReader.getAttributeCount()) {
+                    throw malformedStartTag(startIndex);
+                }
+                // the XML reader reports attributes in document order, so its attribute index matches the current attribute
+                AttributeConfig config = attributeResolver.resolve(
+                        xmlReader.getAttributeNamespace(attributeIndex), xmlReader.getAttributeLocalName(attributeIndex));
+                attributeIndex++;
+                if (config != null) {
+                    if (metrics != null) {
+                        metrics.attributeMatched();
+                    }
+                    Obfuscator obfuscator = config.obfuscator(xmlReader.getNamespaceURI(), xmlReader.getLocalName());
+                    source.appendTo(appendIndex, valueStart, destination);
+                    appendAttributeValue(obfuscator.obfuscateText(attributeValue(valueStart, valueEnd)), quote);
+                    appendIndex = valueEnd;
+                }
+            }
+            index = valueEnd + 1;
+        }
+        source.appendTo(appendIndex, endIndex, destination);
+    }
+
+    // The start tag does not match what the XML reader reported, so it cannot be obfuscated reliably
+    private XMLStreamException malformedStartTag(int startIndex) {
+        return new XMLStreamException(Messages.IndexedObfuscatingXMLParser.malformedStartTag(startIndex - textOffset));
+    }
+
+    private boolean isNamespaceDeclaration(int nameStart, int nameEnd) {
+        int prefixEnd = nameStart + XMLConstants.XMLNS_ATTRIBUTE.length();
+        return containsAtIndex(nameStart, XMLConstants.XMLNS_ATTRIBUTE) && (prefixEnd == nameEnd || source.charAt(prefixEnd) == ':');
+    }
+
+    private String attributeValue(int start, int end) {
+        StringBuilder sb = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = source.charAt(i);
+            if (c == '&') {
+                int semicolon = i + 1;
+                while (semicolon < end && source.charAt(semicolon) != ';') {
+                    semicolon++;
+                }
+                int codePoint = semicolon < end ? IncrementalXMLReader.resolveReference(substring(i + 1, semicolon)) : -1;
+                if (codePoint != -1) {
+                    sb.appendCodePoint(codePoint);
+                    i = semicolon;
+                    continue;
+                }
+            }
+            // normalize whitespace like XML parsers do
+            sb.append(c == '\t' || c == '\n' || c == '\r' ? ' ' : c);
+        }
+        return sb.toString();
     }
 
-    private ElementConfig configForCurrentElement() {
-        ElementConfig config = null;
-        if (!qualifiedElements.isEmpty()) {
-            QName elementName = xmlStreamReader.getName();
-            config = qualifiedElements.get(elementName);
+    private void appendAttributeValue(CharSequence value, char quote) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&':
+                    destination.append("&amp;"); //$NON-NLS-1$
+                    break;
+                case '<':
+                    destination.append("&lt;"); //$NON-NLS-1$
+                    break;
+                case '"':
+                    destination.append(c == quote ? "&quot;" : "\""); //$NON-NLS-1$ //$NON-NLS-2$
+                    break;
+                case '\'':
+                    destination.append(c == quote ? "&apos;" : "'"); //$NON-NLS-1$ //$NON-NLS-2$
+                    break;
+                default:
+                    destination.append(c);
+                    break;
+            }
         }
-        if (config == null) {
-            String elementName = xmlStreamReader.getLocalName();
-            config = elements.get(elementName);
+    }
+
+    private int nameEnd(int from, int to) {
+        int i = from;
+        while (i < to && isNameCharacter(source.charAt(i))) {
+            i++;
         }
-        return config;
+        return i;
+    }
+
+    private static boolean isNameCharacter(char c) {
+        switch (c) {
+            case ' ':
+            case '\t':
+            case '\n':
+            case '\r':
+            case '>':
+            case '/':
+            case '=':
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    private String substring(int start, int end) {
+        char[] chars = new char[end - start];
+        for (int i = start; i < end; i++) {
+            chars[i - start] = source.charAt(i);
+        }
+        return new String(chars);
     }
 
     private void endElement(int startIndex, int endIndex) throws IOException {
-        if (containsAtIndex(startIndex, "</")) { //$NON-NLS-1$
+        if (startIndex >= textIndex && containsAtIndex(startIndex, "</")) { //$NON-NLS-1$
             appendUnobfuscated(startIndex, endIndex);
         }
         // else not </, so it's a self-closing element; don't append it twice
+        // its start has already been appended, and may no longer be available in the source
+
+        elementPaths.endElement();
 
         if (!currentElements.isEmpty()) {
             ObfuscatedElement currentElement = currentElements.getLast();
@@ -147,6 +316,10 @@ final class IndexedObfuscatingXMLParser {
             if (currentElement.depth == 0) {
                 // done with the element
                 currentElements.removeLast();
+                if (processedSingleOccurrenceElements != null) {
+                    // if parsing can stop early, all elements occur only once
+                    processedSingleOccurrenceElements.add(currentElement.config);
+                }
             }
             // else nested in an element that's being obfuscated
         }
@@ -171,10 +344,70 @@ final class IndexedObfuscatingXMLParser {
             return endIndex;
         }
         // the text should be obfuscated, but not at this time
+        if (obfuscatingWriter != null || source.needsTruncating()) {
+            // the text is too large to keep it in the source until it's finished
+            streamText(endIndex, currentElement.config.obfuscator);
+        }
         return textIndex;
     }
 
+    private void streamText(int endIndex, Obfuscator obfuscator) throws IOException {
+        if (obfuscatingWriter == null) {
+            int obfuscationStart = source.skipLeadingWhitespace(textIndex, endIndex);
+            boolean cdata = containsAtIndex(obfuscationStart, CDATA_START);
+            if (cdata) {
+                obfuscationStart = source.skipLeadingWhitespace(obfuscationStart + CDATA_START.length(), endIndex);
+            }
+            if (obfuscationStart == endIndex) {
+                // nothing to obfuscate yet
+                return;
+            }
+            source.appendTo(textIndex, obfuscationStart, destination);
+            textIndex = obfuscationStart;
+            obfuscatingWriter = obfuscator.streamTo(destination);
+            streamingCDATA = cdata;
+        }
+        // keep anything that may turn out to be trailing whitespace or the end of the CDATA section in the source
+        int obfuscationEnd = streamedTextEnd(textIndex, endIndex);
+        if (textIndex < obfuscationEnd) {
+            source.appendTo(textIndex, obfuscationEnd, obfuscatingWriter);
+            textIndex = obfuscationEnd;
+        }
+    }
+
+    private int streamedTextEnd(int startIndex, int endIndex) {
+        int obfuscationEnd = source.skipTrailingWhitespace(startIndex, endIndex);
+        int cdataEnd = obfuscationEnd - CDATA_END.length();
+        if (streamingCDATA && cdataEnd >= startIndex && containsAtIndex(cdataEnd, CDATA_END)) {
+            obfuscationEnd = source.skipTrailingWhitespace(startIndex, cdataEnd);
+        }
+        return obfuscationEnd;
+    }
+
+    private void finishStreamedText(int endIndex) throws IOException {
+        int obfuscationEnd = streamedTextEnd(textIndex, endIndex);
+        if (textIndex < obfuscationEnd) {
+            source.appendTo(textIndex, obfuscationEnd, obfuscatingWriter);
+        }
+        obfuscatingWriter.close();
+        obfuscatingWriter = null;
+
+        int cdataEnd = source.skipTrailingWhitespace(obfuscationEnd, endIndex) - CDATA_END.length();
+        if (streamingCDATA && (cdataEnd < obfuscationEnd || !containsAtIndex(cdataEnd, CDATA_END))) {
+            // the text did not end with the CDATA section that it started with; end it after the obfuscated text so the result is well-formed
+            destination.append(CDATA_END);
+        }
+        if (obfuscationEnd < endIndex) {
+            source.appendTo(obfuscationEnd, endIndex, destination);
+        }
+    }
+
     private void finishLatestText(int currentEventStart) throws IOException {
+        if (obfuscatingWriter != null) {
+            // the streamed text may have been streamed completely already, but the obfuscating writer still needs to be closed
+            finishStreamedText(currentEventStart);
+            return;
+        }
         if (textIndex >= currentEventStart) {
             // no need to finish anything
             return;
@@ -237,6 +470,11 @@ final class IndexedObfuscatingXMLParser {
         textIndex = source.appendRemainder(textIndex, textEnd, destination);
     }
 
+    // Only to be used if the destination is a LimitAppendable
+    void appendRemainderUntilLimit() throws IOException {
+        textIndex = source.appendRemainderUntilLimit(textIndex, textEnd, (LimitAppendable) destination);
+    }
+
     private static final class ObfuscatedElement {
 
         private final ElementConfig config;
@@ -0,0 +1,113 @@
+/*
+ * IndexedXMLReader.java
+ * Copyright 2026 Rob Spoor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robtimus.obfuscation.xml;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.codehaus.stax2.LocationInfo;
+import org.codehaus.stax2.XMLStreamReader2;
+
+// The subset of XMLStreamReader that IndexedObfuscatingXMLParser needs, with the location of each event as character offsets
+interface IndexedXMLReader {
+
+    boolean hasNext() throws XMLStreamException;
+
+    int next() throws XMLStreamException;
+
+    int getStartOffset() throws XMLStreamException;
+
+    int getEndOffset() throws XMLStreamException;
+
+    // Local names and namespace URIs are interned, so they can be compared by identity
+
+    String getLocalName();
+
+    String getNamespaceURI();
+
+    QName getName();
+
+    // Attributes are returned in document order, and do not include namespace declarations
+
+    int getAttributeCount();
+
+    String getAttributeLocalName(int index);
+
+    String getAttributeNamespace(int index);
+
+    final class OfXMLStreamReader implements IndexedXMLReader {
+
+        private final XMLStreamReader2 xmlStreamReader;
+        private final LocationInfo locationInfo;
+
+        OfXMLStreamReader(XMLStreamReader2 xmlStreamReader) {
+            this.xmlStreamReader = xmlStreamReader;
+            this.locationInfo = xmlStreamReader.getLocationInfo();
+        }
+
+        @Override
+        public boolean hasNext() throws XMLStreamException {
+            return xmlStreamReader.hasNext();
+        }
+
+        @Override
+        public int next() throws XMLStreamException {
+            return xmlStreamReader.next();
+        }
+
+        @Override
+        public int getStartOffset() throws XMLStreamException {
+            return (int) locationInfo.getStartingCharOffset();
+        }
+
+        @Override
+        public int getEndOffset() throws XMLStreamException {
+            return (int) locationInfo.getEndingCharOffset();
+        }
+
+        @Override
+        public String getLocalName() {
+            return xmlStreamReader.getLocalName();
+        }
+
+        @Override
+        public QName getName() {
+            return xmlStreamReader.getName();
+        }
+
+        @Override
+        public String getNamespaceURI() {
+            return xmlStreamReader.getNamespaceURI();
+        }
+
+        @Override
+        public int getAttributeCount() {
+            return xmlStreamReader.getAttributeCount();
+        }
+
+        @Override
+        public String getAttributeLocalName(int index) {
+            return xmlStreamReader.getAttributeLocalName(index);
+        }
+
+        @Override
+        public String getAttributeNamespace(int index) {
+            return xmlStreamReader.getAttributeNamespace(index);
+        }
+    }
+}
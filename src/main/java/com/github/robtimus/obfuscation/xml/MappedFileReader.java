@@ -0,0 +1,123 @@
+/*
+ * MappedFileReader.java
+ * Copyright 2026 Rob Spoor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robtimus.obfuscation.xml;
+
+import static com.github.robtimus.obfuscation.support.ObfuscatorUtils.checkOffsetAndLength;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.Buffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+// A Reader that decodes characters directly from memory-mapped windows of a file, without copying the bytes to an intermediate buffer.
+// Windows are mapped one at a time, so files larger than 2GB can be read as well.
+final class MappedFileReader extends Reader {
+
+    static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024; // 64MB
+
+    // The minimum window size, to ensure that any window can contain at least one complete character
+    private static final int MIN_WINDOW_SIZE = 16;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int windowSize;
+    private final CharsetDecoder decoder;
+    // Characters that have been decoded but not yet returned, like the low surrogate of a pair that did not fit; always in write mode
+    private final CharBuffer pending;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private boolean flushed;
+    private boolean closed;
+
+    MappedFileReader(FileChannel channel, long position, Charset charset) throws IOException {
+        this(channel, position, charset, DEFAULT_WINDOW_SIZE);
+    }
+
+    MappedFileReader(FileChannel channel, long position, Charset charset, int windowSize) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        this.windowSize = Math.max(windowSize, MIN_WINDOW_SIZE);
+        // Be consistent with InputStreamReader
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        // large enough for a surrogate pair
+        this.pending = CharBuffer.allocate(2);
+
+        map(Math.min(position, size));
+        flushed = false;
+        closed = false;
+    }
+
+    private void map(long position) throws IOException {
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowSize, size - position));
+        windowStart = position;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        checkOffsetAndLength(cbuf, off, len);
+        ensureOpen();
+        if (len == 0) {
+            return 0;
+        }
+        CharBuffer target = CharBuffer.wrap(cbuf, off, len);
+        while (target.position() == off && (pending.position() > 0 || !flushed)) {
+            if (pending.position() > 0) {
+                ((Buffer) pending).flip();
+                while (target.hasRemaining() && pending.hasRemaining()) {
+                    target.put(pending.get());
+                }
+                pending.compact();
+                continue;
+            }
+            boolean endOfInput = windowStart + window.limit() == size;
+            // The decoder cannot write a surrogate pair to a target with room for only one character; it would keep reporting an overflow
+            CharBuffer destination = target.remaining() < 2 ? pending : target;
+            CoderResult result = decoder.decode(window, destination, endOfInput);
+            if (result.isUnderflow()) {
+                if (endOfInput) {
+                    flushed = decoder.flush(destination).isUnderflow();
+                } else {
+                    // Continue with the next window, starting with any bytes of a partial character
+                    map(windowStart + window.position());
+                }
+            }
+        }
+        int n = target.position() - off;
+        return n == 0 ? -1 : n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        window = null;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException(Messages.MappedFileReader.closed());
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * MemoizingObfuscator.java
+ * Copyright 2026 Rob Spoor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robtimus.obfuscation.xml;
+
+import static com.github.robtimus.obfuscation.support.ObfuscatorUtils.checkStartAndEnd;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import com.github.robtimus.obfuscation.Obfuscator;
+
+/*
+ * An obfuscator that caches the results of another obfuscator, which must be deterministic. The least recently used results are evicted first.
+ *
+ * Results are computed outside of the lock of the cache, so a slow obfuscator does not block other threads. Two threads can therefore compute the
+ * same result at the same time, which is harmless for deterministic obfuscators.
+ * Content from Readers is not cached, as that would require reading it completely first; it's obfuscated by the other obfuscator directly.
+ */
+final class MemoizingObfuscator extends Obfuscator {
+
+    private final Obfuscator obfuscator;
+    private final int maxSize;
+
+    private final Map<String, String> cache;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    MemoizingObfuscator(Obfuscator obfuscator, int maxSize) {
+        this.obfuscator = Objects.requireNonNull(obfuscator);
+        this.maxSize = maxSize;
+
+        this.cache = new LinkedHashMap<String, String>(16, 0.75F, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > MemoizingObfuscator.this.maxSize;
+            }
+        };
+    }
+
+    @Override
+    public CharSequence obfuscateText(CharSequence s, int start, int end) {
+        checkStartAndEnd(s, start, end);
+        String text = s.subSequence(start, end).toString();
+        String result;
+        synchronized (cache) {
+            result = cache.get(text);
+        }
+        if (result != null) {
+            hitCount.increment();
+            return result;
+        }
+        missCount.increment();
+        result = obfuscator.obfuscateText(text).toString();
+        synchronized (cache) {
+            cache.put(text, result);
+        }
+        return result;
+    }
+
+    @Override
+    public void obfuscateText(CharSequence s, int start, int end, Appendable destination) throws IOException {
+        destination.append(obfuscateText(s, start, end));
+    }
+
+    @Override
+    public void obfuscateText(Reader input, Appendable destination) throws IOException {
+        obfuscator.obfuscateText(input, destination);
+    }
+
+    @Override
+    public Writer streamTo(Appendable destination) {
+        return obfuscator.streamTo(destination);
+    }
+
+    long hitCount() {
+        return hitCount.sum();
+    }
+
+    long missCount() {
+        return missCount.sum();
+    }
+
+    int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || o.getClass() != getClass()) {
+            return false;
+        }
+        MemoizingObfuscator other = (MemoizingObfuscator) o;
+        return obfuscator.equals(other.obfuscator)
+                && maxSize == other.maxSize;
+    }
+
+    @Override
+    public int hashCode() {
+        return obfuscator.hashCode() ^ maxSize;
+    }
+
+    @Override
+    @SuppressWarnings("nls")
+    public String toString() {
+        return obfuscator + " (cached, max size: " + maxSize + ")";
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * MetricsCollector.java
+ * Copyright 2026 Rob Spoor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robtimus.obfuscation.xml;
+
+import java.io.Flushable;
+import java.io.IOException;
+import com.github.robtimus.obfuscation.xml.XMLObfuscator.Metrics;
+import com.github.robtimus.obfuscation.xml.XMLObfuscator.MetricsListener;
+
+/*
+ * Collects the metrics of a single obfuscation call. Instances are only created if a metrics listener is configured, or if the Java Flight Recorder
+ * event for obfuscation calls is enabled.
+ */
+final class MetricsCollector implements Metrics {
+
+    static final String ENGINE_PASSTHROUGH = "passthrough"; //$NON-NLS-1$
+    static final String ENGINE_INDEXED = "indexed"; //$NON-NLS-1$
+    static final String ENGINE_WRITING = "writing"; //$NON-NLS-1$
+    static final String ENGINE_STREAMING = "streaming"; //$NON-NLS-1$
+    static final String ENGINE_PARALLEL = "parallel"; //$NON-NLS-1$
+
+    // null if there is no listener
+    private final MetricsListener listener;
+    // null if the Java Flight Recorder event is not enabled
+    private final Object event;
+    private final long startTime;
+
+    private String engine;
+    private OutputCounter outputCounter;
+    private int bufferTruncationCount;
+
+    private long characterCount;
+    private int matchedElementCount;
+    private int matchedAttributeCount;
+    private boolean truncated;
+    private boolean malformedXML;
+    private int maxBufferSize;
+    private long durationNanos;
+
+    MetricsCollector(MetricsListener listener, Object event) {
+        this.listener = listener;
+        this.event = event;
+        this.startTime = System.nanoTime();
+    }
+
+    static MetricsCollector create(MetricsListener listener) {
+        Object event = FlightRecorderSupport.beginObfuscationEvent();
+        return listener == null && event == null ? null : new MetricsCollector(listener, event);
+    }
+
+    // Returns a collector for the matches of a single chunk of a document that is obfuscated in parallel; it will not report anything itself
+    static MetricsCollector forChunk() {
+        return new MetricsCollector(null, null);
+    }
+
+    void resetMatchCounts() {
+        matchedElementCount = 0;
+        matchedAttributeCount = 0;
+    }
+
+    void addMatchCounts(MetricsCollector other) {
+        matchedElementCount += other.matchedElementCount;
+        matchedAttributeCount += other.matchedAttributeCount;
+    }
+
+    void engine(String name) {
+        engine = name;
+    }
+
+    // Returns an Appendable that counts the characters appended to the given destination, but only if the count is needed
+    Appendable countOutput(Appendable destination) {
+        if (event == null) {
+            return destination;
+        }
+        outputCounter = new OutputCounter(destination);
+        return outputCounter;
+    }
+
+    void bufferTruncationCount(int count) {
+        bufferTruncationCount = count;
+    }
+
+    void characterCount(long count) {
+        characterCount = count;
+    }
+
+    void elementMatched() {
+        matchedElementCount++;
+    }
+
+    void attributeMatched() {
+        matchedAttributeCount++;
+    }
+
+    void truncated(boolean limitExceeded) {
+        truncated = limitExceeded;
+    }
+
+    void malformedXMLFound() {
+        malformedXML = true;
+    }
+
+    void maxBufferSize(int size) {
+        maxBufferSize = size;
+    }
+
+    void report() {
+        durationNanos = System.nanoTime() - startTime;
+        if (event != null) {
+            FlightRecorderSupport.commitObfuscationEvent(event, this);
+        }
+        if (listener != null) {
+            listener.obfuscated(this);
+        }
+    }
+
+    String engine() {
+        return engine;
+    }
+
+    long outputCount() {
+        return outputCounter == null ? 0 : outputCounter.count;
+    }
+
+    int bufferTruncationCount() {
+        return bufferTruncationCount;
+    }
+
+    @Override
+    public long characterCount() {
+        return characterCount;
+    }
+
+    @Override
+    public int matchedElementCount() {
+        return matchedElementCount;
+    }
+
+    @Override
+    public int matchedAttributeCount() {
+        return matchedAttributeCount;
+    }
+
+    @Override
+    public boolean truncated() {
+        return truncated;
+    }
+
+    @Override
+    public boolean malformedXML() {
+        return malformedXML;
+    }
+
+    @Override
+    public int maxBufferSize() {
+        return maxBufferSize;
+    }
+
+    @Override
+    public long durationNanos() {
+        return durationNanos;
+    }
+
+    @Override
+    @SuppressWarnings("nls")
+    public String toString() {
+        return "[characterCount=" + characterCount
+                + ",matchedElementCount=" + matchedElementCount
+                + ",matchedAttributeCount=" + matchedAttributeCount
+                + ",truncated=" + truncated
+                + ",malformedXML=" + malformedXML
+                + ",maxBufferSize=" + maxBufferSize
+                + ",durationNanos=" + durationNanos
+                + "]";
+    }
+
+    private static final class OutputCounter implements Appendable, Flushable {
+
+        private final Appendable destination;
+        private long count;
+
+        private OutputCounter(Appendable destination) {
+            this.destination = destination;
+            this.count = 0;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) throws IOException {
+            destination.append(csq);
+            count += csq == null ? 4 : csq.length();
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) throws IOException {
+            destination.append(csq, start, end);
+            count += end - start;
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            destination.append(c);
+            count++;
+            return this;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (destination instanceof Flushable) {
+                ((Flushable) destination).flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * NamePattern.java
+ * Copyright 2026 Rob Spoor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robtimus.obfuscation.xml;
+
+import static com.github.robtimus.obfuscation.support.CaseSensitivity.CASE_SENSITIVE;
+import java.util.Objects;
+import java.util.regex.Pattern;
+import com.github.robtimus.obfuscation.support.CaseSensitivity;
+
+/*
+ * A pattern for local names of elements or attributes. This is either a glob pattern, where * matches any number of characters and ? matches a
+ * single character, or a regular expression. Both must match complete names.
+ *
+ * Patterns are compared using their regular expressions and flags, as Pattern does not override equals and hashCode.
+ */
+final class NamePattern {
+
+    private final Pattern pattern;
+    // the glob pattern or regular expression as specified
+    private final String description;
+    // a string that occurs in all matching names, or null if there is none
+    private final String literal;
+    private final CaseSensitivity literalCaseSensitivity;
+
+    private NamePattern(Pattern pattern, String description, String literal, CaseSensitivity literalCaseSensitivity) {
+        this.pattern = pattern;
+        this.description = description;
+        this.literal = literal;
+        this.literalCaseSensitivity = literalCaseSensitivity;
+    }
+
+    static NamePattern glob(String glob, CaseSensitivity caseSensitivity) {
+        Objects.requireNonNull(glob);
+        Objects.requireNonNull(caseSensitivity);
+
+        StringBuilder regex = new StringBuilder(glob.length() + 16);
+        String longestLiteral = ""; //$NON-NLS-1$
+        int literalStart = 0;
+        for (int i = 0; i <= glob.length(); i++) {
+            char c = i < glob.length() ? glob.charAt(i) : 0;
+            if (i == glob.length() || c == '*' || c == '?') {
+                if (literalStart < i) {
+                    String literal = glob.substring(literalStart, i);
+                    regex.append(Pattern.quote(literal));
+                    if (literal.length() > longestLiteral.length()) {
+                        longestLiteral = literal;
+                    }
+                }
+                if (i < glob.length()) {
+                    regex.append(c == '*' ? ".*" : "."); //$NON-NLS-1$ //$NON-NLS-2$
+                }
+                literalStart = i + 1;
+            }
+        }
+        int flags = caseSensitivity == CASE_SENSITIVE ? 0 : Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+        Pattern pattern = Pattern.compile(regex.toString(), flags);
+        String description = caseSensitivity == CASE_SENSITIVE ? glob : glob + " (case insensitive)"; //$NON-NLS-1$
+        return new NamePattern(pattern, description, longestLiteral.isEmpty() ? null : longestLiteral, caseSensitivity);
+    }
+
+    static NamePattern regex(Pattern pattern) {
+        return new NamePattern(Objects.requireNonNull(pattern), pattern.pattern(), null, null);
+    }
+
+    boolean matches(String localName) {
+        return pattern.matcher(localName).matches();
+    }
+
+    // Returns a string that occurs in all names that match this pattern, or null if there is none
+    String literal() {
+        return literal;
+    }
+
+    CaseSensitivity literalCaseSensitivity() {
+        return literalCaseSensitivity;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || o.getClass() != getClass()) {
+            return false;
+        }
+        NamePattern other = (NamePattern) o;
+        return pattern.pattern().equals(other.pattern.pattern())
+                && pattern.flags() == other.pattern.flags();
+    }
+
+    @Override
+    public int hashCode() {
+        return pattern.pattern().hashCode() ^ pattern.flags();
+    }
+
+    @Override
+    public String toString() {
+        return description;
+    }
+}
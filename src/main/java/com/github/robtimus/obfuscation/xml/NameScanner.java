@@ -0,0 +1,234 @@
+/*
+ * NameScanner.java
+ * Copyright 2026 Rob Spoor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robtimus.obfuscation.xml;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+ * Checks whether any of a set of names occurs anywhere in a piece of text, using a single pass over the text.
+ *
+ * This is an Aho-Corasick automaton. If there are case insensitive names, all names are added in case folded form, and the text is folded the
+ * same way as String.CASE_INSENSITIVE_ORDER does. Matches of case sensitive names are then verified against the original text.
+ */
+final class NameScanner {
+
+    private static final int ROOT = 0;
+    private static final int NO_STATE = -1;
+
+    private static final char[] ASCII_FOLDED = new char[128];
+
+    static {
+        for (char c = 0; c < ASCII_FOLDED.length; c++) {
+            ASCII_FOLDED[c] = foldNonASCII(c);
+        }
+    }
+
+    private final boolean fold;
+
+    // per state, the sorted characters of the transitions and the matching target states
+    private final char[][] transitionCharacters;
+    private final int[][] transitionTargets;
+    private final int[] failures;
+    // per state, whether a case insensitive name ends in that state
+    private final boolean[] matches;
+    // per state, the case sensitive names that end in that state; these still need to be verified if the text is folded
+    private final String[][] caseSensitiveMatches;
+
+    NameScanner(Collection<String> caseSensitiveNames, Collection<String> caseInsensitiveNames) {
+        fold = !caseInsensitiveNames.isEmpty();
+
+        Builder builder = new Builder();
+        for (String name : caseSensitiveNames) {
+            int state = builder.add(fold(name));
+            if (fold) {
+                builder.caseSensitiveMatches.get(state).add(name);
+            } else {
+                builder.matches.set(state, true);
+            }
+        }
+        for (String name : caseInsensitiveNames) {
+            int state = builder.add(fold(name));
+            builder.matches.set(state, true);
+        }
+        builder.computeFailures();
+
+        int stateCount = builder.transitions.size();
+        transitionCharacters = new char[stateCount][];
+        transitionTargets = new int[stateCount][];
+        failures = new int[stateCount];
+        matches = new boolean[stateCount];
+        caseSensitiveMatches = new String[stateCount][];
+        for (int state = 0; state < stateCount; state++) {
+            Map<Character, Integer> transitions = builder.transitions.get(state);
+            char[] characters = new char[transitions.size()];
+            int[] targets = new int[transitions.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> entry : transitions.entrySet()) {
+                characters[i] = entry.getKey();
+                targets[i] = entry.getValue();
+                i++;
+            }
+            transitionCharacters[state] = characters;
+            transitionTargets[state] = targets;
+            failures[state] = builder.failures[state];
+            matches[state] = builder.matches.get(state);
+            List<String> names = builder.caseSensitiveMatches.get(state);
+            caseSensitiveMatches[state] = names.isEmpty() ? null : names.toArray(new String[0]);
+        }
+    }
+
+    boolean containsAny(CharSequence s, int start, int end) {
+        if (matches[ROOT] || caseSensitiveMatches[ROOT] != null) {
+            // an empty name occurs everywhere
+            return true;
+        }
+        int state = ROOT;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (fold) {
+                c = fold(c);
+            }
+            state = next(state, c);
+            if (matches[state] || caseSensitiveMatches[state] != null && containsCaseSensitive(s, i + 1, caseSensitiveMatches[state])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int next(int state, char c) {
+        int current = state;
+        int target;
+        while ((target = transition(current, c)) == NO_STATE && current != ROOT) {
+            current = failures[current];
+        }
+        return target == NO_STATE ? ROOT : target;
+    }
+
+    private int transition(int state, char c) {
+        int index = Arrays.binarySearch(transitionCharacters[state], c);
+        return index < 0 ? NO_STATE : transitionTargets[state][index];
+    }
+
+    private static boolean containsCaseSensitive(CharSequence s, int end, String[] names) {
+        for (String name : names) {
+            if (regionMatches(s, end - name.length(), name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean regionMatches(CharSequence s, int start, String name) {
+        for (int i = 0; i < name.length(); i++) {
+            if (s.charAt(start + i) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String fold(String name) {
+        if (!fold) {
+            return name;
+        }
+        char[] folded = name.toCharArray();
+        for (int i = 0; i < folded.length; i++) {
+            folded[i] = fold(folded[i]);
+        }
+        return new String(folded);
+    }
+
+    private static char fold(char c) {
+        return c < ASCII_FOLDED.length ? ASCII_FOLDED[c] : foldNonASCII(c);
+    }
+
+    private static char foldNonASCII(char c) {
+        // the same as String.CASE_INSENSITIVE_ORDER
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    private static final class Builder {
+
+        private final List<Map<Character, Integer>> transitions = new ArrayList<>();
+        private final List<Boolean> matches = new ArrayList<>();
+        private final List<List<String>> caseSensitiveMatches = new ArrayList<>();
+        private int[] failures;
+
+        private Builder() {
+            addState();
+        }
+
+        private int addState() {
+            transitions.add(new TreeMap<>());
+            matches.add(false);
+            caseSensitiveMatches.add(new ArrayList<>());
+            return transitions.size() - 1;
+        }
+
+        private int add(String name) {
+            int state = ROOT;
+            for (int i = 0; i < name.length(); i++) {
+                Character c = name.charAt(i);
+                Integer target = transitions.get(state).get(c);
+                if (target == null) {
+                    target = addState();
+                    transitions.get(state).put(c, target);
+                }
+                state = target;
+            }
+            return state;
+        }
+
+        private void computeFailures() {
+            failures = new int[transitions.size()];
+            Deque<Integer> queue = new ArrayDeque<>();
+            for (int target : transitions.get(ROOT).values()) {
+                failures[target] = ROOT;
+                queue.add(target);
+            }
+            // breadth first, so the failure state of each state is handled before the state itself
+            while (!queue.isEmpty()) {
+                int state = queue.remove();
+                for (Map.Entry<Character, Integer> entry : transitions.get(state).entrySet()) {
+                    char c = entry.getKey();
+                    int target = entry.getValue();
+                    int failure = failures[state];
+                    Integer failureTarget;
+                    while ((failureTarget = transitions.get(failure).get(c)) == null && failure != ROOT) {
+                        failure = failures[failure];
+                    }
+                    failures[target] = failureTarget == null ? ROOT : failureTarget;
+                    // any name that ends in the failure state also ends in the target state
+                    if (matches.get(failures[target])) {
+                        matches.set(target, true);
+                    }
+                    caseSensitiveMatches.get(target).addAll(caseSensitiveMatches.get(failures[target]));
+                    queue.add(target);
+                }
+            }
+        }
+    }
+}
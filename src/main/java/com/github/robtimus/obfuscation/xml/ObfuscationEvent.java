@@ -0,0 +1,80 @@
+/*
+ * ObfuscationEvent.java
+ * Copyright 2026 Rob Spoor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robtimus.obfuscation.xml;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * A Java Flight Recorder event for a single obfuscation call.
+ *
+ * This class must only be accessed through FlightRecorderSupport, as it cannot be loaded on Java runtimes without Java Flight Recorder.
+ */
+@Name(ObfuscationEvent.NAME)
+@Label("XML Obfuscation")
+@Category({ "Obfuscation", "XML" })
+@Description("An XML obfuscation call")
+@StackTrace(false)
+@SuppressWarnings("nls")
+final class ObfuscationEvent extends Event {
+
+    static final String NAME = "com.github.robtimus.obfuscation.xml.Obfuscation";
+
+    // Used to check whether or not the event is enabled without having to create an event first
+    private static final ObfuscationEvent PROBE = new ObfuscationEvent();
+
+    @Label("Engine")
+    @Description("The engine used for obfuscating; passthrough, indexed, writing, streaming or parallel")
+    String engine;
+
+    @Label("Input Characters")
+    @Description("The number of characters of the input; this is not the number of bytes, even when obfuscating bytes")
+    long inputCharacters;
+
+    @Label("Output Characters")
+    @Description("The number of characters of the output, including any malformed XML warning or truncated indicator")
+    long outputCharacters;
+
+    @Label("Matched Elements")
+    @Description("The number of elements for which an obfuscator was configured")
+    int matchedElements;
+
+    @Label("Matched Attributes")
+    @Description("The number of attributes for which an obfuscator was configured")
+    int matchedAttributes;
+
+    @Label("Truncated")
+    @Description("Whether or not the output was truncated because the limit was exceeded")
+    boolean truncated;
+
+    @Label("Malformed XML")
+    @Description("Whether or not obfuscation was aborted due to malformed XML")
+    boolean malformedXML;
+
+    @Label("Buffer Truncations")
+    @Description("The number of times the buffer for Readers or streaming writers discarded processed content")
+    int bufferTruncations;
+
+    static boolean isEventEnabled() {
+        return PROBE.isEnabled();
+    }
+}
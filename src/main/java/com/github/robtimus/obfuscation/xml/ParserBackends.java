@@ -0,0 +1,89 @@
+/*
+ * ParserBackends.java
+ * Copyright 2026 Rob Spoor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robtimus.obfuscation.xml;
+
+import java.io.Reader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import org.codehaus.stax2.XMLInputFactory2;
+import org.codehaus.stax2.XMLStreamReader2;
+import com.fasterxml.aalto.stax.InputFactoryImpl;
+import com.github.robtimus.obfuscation.xml.XMLObfuscator.ParserBackend;
+
+/*
+ * The built-in parser backends.
+ *
+ * Aalto is an optional dependency, so its classes may only be loaded when the Aalto backend is requested.
+ */
+final class ParserBackends {
+
+    static final ParserBackend WOODSTOX = new Woodstox();
+
+    private ParserBackends() {
+    }
+
+    static ParserBackend aalto() {
+        try {
+            return Aalto.INSTANCE;
+        } catch (LinkageError e) {
+            throw new IllegalStateException(Messages.ParserBackends.aaltoNotAvailable(), e);
+        }
+    }
+
+    private static final class Woodstox implements ParserBackend {
+
+        @Override
+        public XMLStreamReader2 createXMLStreamReader(Reader input) throws XMLStreamException {
+            // Woodstox readers implement the Stax2 extensions
+            return (XMLStreamReader2) XMLFactories.INPUT_FACTORY.createXMLStreamReader(input);
+        }
+
+        @Override
+        @SuppressWarnings("nls")
+        public String toString() {
+            return "Woodstox";
+        }
+    }
+
+    private static final class Aalto implements ParserBackend {
+
+        private static final Aalto INSTANCE = new Aalto();
+
+        private final XMLInputFactory inputFactory;
+
+        private Aalto() {
+            inputFactory = new InputFactoryImpl();
+            // Aalto never resolves external DTDs, and always interns names and namespace URIs
+            inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            inputFactory.setProperty(XMLInputFactory2.P_INTERN_NAMES, true);
+            inputFactory.setProperty(XMLInputFactory2.P_INTERN_NS_URIS, true);
+        }
+
+        @Override
+        public XMLStreamReader2 createXMLStreamReader(Reader input) throws XMLStreamException {
+            // Aalto readers implement the Stax2 extensions
+            return (XMLStreamReader2) inputFactory.createXMLStreamReader(input);
+        }
+
+        @Override
+        @SuppressWarnings("nls")
+        public String toString() {
+            return "Aalto";
+        }
+    }
+}
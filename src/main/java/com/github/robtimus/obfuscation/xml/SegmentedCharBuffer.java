@@ -0,0 +1,216 @@
+/*
+ * SegmentedCharBuffer.java
+ * Copyright 2026 Rob Spoor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robtimus.obfuscation.xml;
+
+import static com.github.robtimus.obfuscation.support.ObfuscatorUtils.checkIndex;
+import static com.github.robtimus.obfuscation.support.ObfuscatorUtils.checkStartAndEnd;
+import static com.github.robtimus.obfuscation.support.ObfuscatorUtils.wrapArray;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import com.github.robtimus.obfuscation.Obfuscator;
+import com.github.robtimus.obfuscation.support.ObfuscatorUtils;
+
+/*
+ * A character buffer that stores its content in fixed-size segments. Segments are kept in a ring, so content can be discarded from the start
+ * of the buffer by releasing segments, without copying the remaining content. Released segments are recycled for new content.
+ */
+final class SegmentedCharBuffer implements CharSequence {
+
+    static final int MIN_SEGMENT_SIZE = 16;
+    static final int MAX_SEGMENT_SIZE = 8192;
+
+    private static final int MAX_SPARE_SEGMENTS = 4;
+
+    private final int segmentShift;
+    private final int segmentMask;
+
+    // the ring of segments; its length is always a power of two
+    private char[][] segments;
+    private int firstSegment;
+    private int segmentCount;
+
+    private final Deque<char[]> spareSegments = new ArrayDeque<>(MAX_SPARE_SEGMENTS);
+
+    // the index of the first character in the first segment
+    private int start;
+    private int length;
+
+    SegmentedCharBuffer(int segmentSize, int initialCapacity) {
+        int size = Integer.highestOneBit(Math.max(MIN_SEGMENT_SIZE, Math.min(segmentSize, MAX_SEGMENT_SIZE)));
+        segmentShift = Integer.numberOfTrailingZeros(size);
+        segmentMask = size - 1;
+
+        int initialSegmentCount = Math.max(1, (initialCapacity + segmentMask) >>> segmentShift);
+        segments = new char[Integer.highestOneBit(initialSegmentCount * 2 - 1)][];
+        for (int i = 0; i < initialSegmentCount; i++) {
+            segments[i] = new char[size];
+        }
+        firstSegment = 0;
+        segmentCount = initialSegmentCount;
+
+        start = 0;
+        length = 0;
+    }
+
+    int segmentSize() {
+        return segmentMask + 1;
+    }
+
+    int segmentCount() {
+        return segmentCount;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        checkIndex(this, index);
+        int position = start + index;
+        return segment(position >>> segmentShift)[position & segmentMask];
+    }
+
+    private char[] segment(int index) {
+        return segments[(firstSegment + index) & (segments.length - 1)];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        checkStartAndEnd(this, start, end);
+        StringBuilder sb = new StringBuilder(end - start);
+        appendTo(start, end, sb);
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return subSequence(0, length).toString();
+    }
+
+    private void appendTo(int from, int to, StringBuilder sb) {
+        int position = start + from;
+        int end = start + to;
+        while (position < end) {
+            int offset = position & segmentMask;
+            int count = Math.min(end - position, segmentMask + 1 - offset);
+            sb.append(segment(position >>> segmentShift), offset, count);
+            position += count;
+        }
+    }
+
+    // Appends each segment's part of the range in one call, instead of one character at a time like Appendable.append(CharSequence, int, int)
+    void appendTo(int from, int to, Appendable destination) throws IOException {
+        checkStartAndEnd(this, from, to);
+        int position = start + from;
+        int end = start + to;
+        while (position < end) {
+            int offset = position & segmentMask;
+            int count = Math.min(end - position, segmentMask + 1 - offset);
+            ObfuscatorUtils.append(segment(position >>> segmentShift), offset, offset + count, destination);
+            position += count;
+        }
+    }
+
+    // If the range is part of a single segment, the obfuscator gets that segment's characters directly, without any index calculations
+    void obfuscateText(int from, int to, Obfuscator obfuscator, Appendable destination) throws IOException {
+        checkStartAndEnd(this, from, to);
+        int position = start + from;
+        int offset = position & segmentMask;
+        if (offset + to - from <= segmentMask + 1) {
+            obfuscator.obfuscateText(wrapArray(segment(position >>> segmentShift)), offset, offset + to - from, destination);
+        } else {
+            obfuscator.obfuscateText(this, from, to, destination);
+        }
+    }
+
+    void append(char c) {
+        int position = start + length;
+        ensureSegment(position >>> segmentShift);
+        segment(position >>> segmentShift)[position & segmentMask] = c;
+        length++;
+    }
+
+    void append(CharSequence s, int from, int to) {
+        int index = from;
+        while (index < to) {
+            int position = start + length;
+            int segmentIndex = position >>> segmentShift;
+            ensureSegment(segmentIndex);
+            char[] segment = segment(segmentIndex);
+            int offset = position & segmentMask;
+            int count = Math.min(to - index, segment.length - offset);
+            copy(s, index, index + count, segment, offset);
+            index += count;
+            length += count;
+        }
+    }
+
+    private static void copy(CharSequence s, int from, int to, char[] destination, int offset) {
+        if (s instanceof String) {
+            ((String) s).getChars(from, to, destination, offset);
+        } else if (s instanceof StringBuilder) {
+            ((StringBuilder) s).getChars(from, to, destination, offset);
+        } else {
+            for (int i = from, j = offset; i < to; i++, j++) {
+                destination[j] = s.charAt(i);
+            }
+        }
+    }
+
+    private void ensureSegment(int index) {
+        if (index < segmentCount) {
+            return;
+        }
+        if (segmentCount == segments.length) {
+            char[][] newSegments = new char[segments.length * 2][];
+            for (int i = 0; i < segmentCount; i++) {
+                newSegments[i] = segment(i);
+            }
+            segments = newSegments;
+            firstSegment = 0;
+        }
+        char[] segment = spareSegments.pollFirst();
+        segments[(firstSegment + segmentCount) & (segments.length - 1)] = segment != null ? segment : new char[segmentMask + 1];
+        segmentCount++;
+    }
+
+    // Removes the given number of characters from the start of this buffer, releasing any segments that no longer contain any content
+    void discard(int count) {
+        start += count;
+        length -= count;
+        for (int i = start >>> segmentShift; i > 0; i--) {
+            releaseFirstSegment();
+        }
+        // if there is no more content, start at the beginning of the first segment to use as much of it as possible
+        start = length == 0 ? 0 : start & segmentMask;
+    }
+
+    private void releaseFirstSegment() {
+        int ringMask = segments.length - 1;
+        char[] segment = segments[firstSegment];
+        segments[firstSegment] = null;
+        firstSegment = (firstSegment + 1) & ringMask;
+        segmentCount--;
+        if (spareSegments.size() < MAX_SPARE_SEGMENTS) {
+            spareSegments.addFirst(segment);
+        }
+    }
+}
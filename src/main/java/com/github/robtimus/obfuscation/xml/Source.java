@@ -18,11 +18,13 @@
 package com.github.robtimus.obfuscation.xml;
 
 import static com.github.robtimus.obfuscation.support.ObfuscatorUtils.copyAll;
+import static com.github.robtimus.obfuscation.support.ObfuscatorUtils.wrapArray;
 import java.io.IOException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.github.robtimus.obfuscation.Obfuscator;
 import com.github.robtimus.obfuscation.support.CountingReader;
+import com.github.robtimus.obfuscation.support.LimitAppendable;
 import com.github.robtimus.obfuscation.support.ObfuscatorUtils;
 
 interface Source {
@@ -41,6 +43,9 @@ interface Source {
 
     int appendRemainder(int from, int to, Appendable destination) throws IOException;
 
+    // Like appendRemainder, but stops reading as soon as the limit of the destination has been exceeded
+    int appendRemainderUntilLimit(int from, int to, LimitAppendable destination) throws IOException;
+
     boolean needsTruncating();
 
     void truncate();
@@ -89,6 +94,12 @@ interface Source {
             return to;
         }
 
+        @Override
+        public int appendRemainderUntilLimit(int from, int to, LimitAppendable destination) throws IOException {
+            // Nothing needs to be read
+            return appendRemainder(from, to, destination);
+        }
+
         @Override
         public boolean needsTruncating() {
             return false;
@@ -110,26 +121,53 @@ interface Source {
 
         static final int PREFERRED_MAX_BUFFER_SIZE = getPreferredMaxBufferSize();
 
+        static final int DEFAULT_INITIAL_CAPACITY = 16; // the same as StringBuilder
+
+        private static final int SEGMENTS_PER_BUFFER = 8;
+
+        private static final int COPY_BUFFER_SIZE = 1024;
+
         private final CountingReader reader;
 
-        private final StringBuilder buffer;
+        private final SegmentedCharBuffer buffer;
+        private final int preferredMaxBufferSize;
 
         private int offset;
         private int firstUnread;
+        private int maxBufferSize;
+        private int truncationCount;
 
         private final Logger logger;
 
         OfReader(CountingReader reader, Logger logger) {
+            this(reader, DEFAULT_INITIAL_CAPACITY, PREFERRED_MAX_BUFFER_SIZE, logger);
+        }
+
+        OfReader(CountingReader reader, int initialCapacity, int preferredMaxBufferSize, Logger logger) {
             this.reader = reader;
 
-            buffer = new StringBuilder();
+            // use enough segments so that content can be discarded in small steps
+            buffer = new SegmentedCharBuffer(preferredMaxBufferSize / SEGMENTS_PER_BUFFER, initialCapacity);
+            this.preferredMaxBufferSize = preferredMaxBufferSize;
 
             offset = 0;
             firstUnread = 0;
+            maxBufferSize = 0;
+            truncationCount = 0;
 
             this.logger = logger;
         }
 
+        // For content that is appended directly, without a Reader to read from
+        OfReader(Logger logger) {
+            this(null, logger);
+        }
+
+        // For content that is appended directly, without a Reader to read from
+        OfReader(int initialCapacity, int preferredMaxBufferSize, Logger logger) {
+            this(null, initialCapacity, preferredMaxBufferSize, logger);
+        }
+
         @Override
         public char charAt(int index) {
             return buffer.charAt(index - offset);
@@ -152,7 +190,7 @@ interface Source {
 
         @Override
         public void appendTo(int from, int to, Appendable destination) throws IOException {
-            destination.append(buffer, from - offset, to - offset);
+            buffer.appendTo(from - offset, to - offset, destination);
             firstUnread = Math.max(firstUnread, to);
 
             // Truncate if necessary, now that firstUnread has been updated
@@ -161,7 +199,7 @@ interface Source {
 
         @Override
         public void obfuscateText(int from, int to, Obfuscator obfuscator, Appendable destination) throws IOException {
-            obfuscator.obfuscateText(buffer, from - offset, to - offset, destination);
+            buffer.obfuscateText(from - offset, to - offset, obfuscator, destination);
             firstUnread = Math.max(firstUnread, to);
 
             // Truncate if necessary, now that firstUnread has been updated
@@ -172,18 +210,51 @@ interface Source {
         public int appendRemainder(int from, int to, Appendable destination) throws IOException {
             // First append from the buffer, as that's already been read from the Reader.
             // to will be -1 at this point, so ignore it
-            destination.append(buffer, from - offset, buffer.length());
+            buffer.appendTo(from - offset, buffer.length(), destination);
             firstUnread = buffer.length() + offset;
 
+            if (reader == null) {
+                return firstUnread;
+            }
+
             // Now copy everything from the Reader without appending to the buffer
             copyAll(reader, destination);
 
             return (int) Math.min(Integer.MAX_VALUE, reader.count());
         }
 
+        @Override
+        public int appendRemainderUntilLimit(int from, int to, LimitAppendable destination) throws IOException {
+            // to will be -1 at this point, so ignore it
+            buffer.appendTo(from - offset, buffer.length(), destination);
+            firstUnread = buffer.length() + offset;
+
+            if (reader == null) {
+                return firstUnread;
+            }
+
+            char[] chunk = new char[COPY_BUFFER_SIZE];
+            int n;
+            while (!destination.limitExceeded() && (n = reader.read(chunk)) != -1) {
+                destination.append(wrapArray(chunk), 0, n);
+            }
+
+            return (int) Math.min(Integer.MAX_VALUE, reader.count());
+        }
+
+        // Returns the maximum number of characters that have been in the buffer at any time
+        int maxBufferSize() {
+            return maxBufferSize;
+        }
+
+        // Returns the number of times content has been discarded from the buffer
+        int truncationCount() {
+            return truncationCount;
+        }
+
         @Override
         public boolean needsTruncating() {
-            return buffer.length() > PREFERRED_MAX_BUFFER_SIZE;
+            return buffer.length() > preferredMaxBufferSize;
         }
 
         @Override
@@ -196,8 +267,9 @@ interface Source {
                 logger.trace(Messages.Source.truncating(buffer.length()));
             }
 
-            buffer.delete(0, firstUnread - offset);
+            buffer.discard(firstUnread - offset);
             offset = firstUnread;
+            truncationCount++;
 
             if (logger.isTraceEnabled()) {
                 logger.trace(Messages.Source.truncated(buffer.length()));
@@ -208,6 +280,7 @@ interface Source {
         public Appendable append(char c) {
             truncateIfNeeded(1);
             buffer.append(c);
+            updateMaxBufferSize();
             return this;
         }
 
@@ -215,7 +288,8 @@ interface Source {
         public Appendable append(CharSequence csq) {
             CharSequence cs = csq == null ? "null" : csq; //$NON-NLS-1$
             truncateIfNeeded(cs.length());
-            buffer.append(cs);
+            buffer.append(cs, 0, cs.length());
+            updateMaxBufferSize();
             return this;
         }
 
@@ -224,11 +298,16 @@ interface Source {
             CharSequence cs = csq == null ? "null" : csq; //$NON-NLS-1$
             truncateIfNeeded(end - start);
             buffer.append(cs, start, end);
+            updateMaxBufferSize();
             return this;
         }
 
+        private void updateMaxBufferSize() {
+            maxBufferSize = Math.max(maxBufferSize, buffer.length());
+        }
+
         private void truncateIfNeeded(int additional) {
-            if (buffer.length() + additional > PREFERRED_MAX_BUFFER_SIZE) {
+            if (buffer.length() + additional > preferredMaxBufferSize) {
                 truncate();
             }
         }
@@ -0,0 +1,218 @@
+/*
+ * StreamingObfuscatingWriter.java
+ * Copyright 2026 Rob Spoor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robtimus.obfuscation.xml;
+
+import static com.github.robtimus.obfuscation.support.ObfuscatorUtils.appendAtMost;
+import static com.github.robtimus.obfuscation.support.ObfuscatorUtils.checkOffsetAndLength;
+import static com.github.robtimus.obfuscation.support.ObfuscatorUtils.checkStartAndEnd;
+import static com.github.robtimus.obfuscation.support.ObfuscatorUtils.wrapArray;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import javax.xml.stream.XMLStreamException;
+import org.slf4j.Logger;
+import com.github.robtimus.obfuscation.support.LimitAppendable;
+import com.github.robtimus.obfuscation.support.ObfuscatingWriter;
+
+// Obfuscates content as it is written, instead of caching everything until the writer is closed
+final class StreamingObfuscatingWriter extends ObfuscatingWriter {
+
+    // Content is processed in batches, to prevent writing small pieces of content to the destination
+    private static final int MIN_BATCH_SIZE = 4096;
+
+    private final Source.OfReader source;
+    private final IncrementalXMLReader xmlReader;
+    private final IndexedObfuscatingXMLParser parser;
+
+    private final Appendable destination;
+    private final LimitAppendable appendable;
+
+    private final String malformedXMLWarning;
+    private final String truncatedIndicator;
+    private final boolean truncatedIndicatorWithTotal;
+
+    // null if no metrics are collected
+    private final MetricsCollector metrics;
+
+    private final Logger logger;
+
+    private long count;
+    private int unprocessed;
+    // set when the XML is malformed or the limit has been exceeded; any further content is ignored
+    private boolean stopped;
+    // set when the parser has completed; any further content is appended as-is
+    private boolean completed;
+
+    StreamingObfuscatingWriter(ParserFactory parserFactory, Appendable destination, int initialBufferCapacity, int preferredMaxBufferSize,
+            long limit, String malformedXMLWarning, String truncatedIndicator, boolean truncatedIndicatorWithTotal, MetricsCollector metrics,
+            Logger logger) {
+
+        this.source = new Source.OfReader(initialBufferCapacity, preferredMaxBufferSize, logger);
+        this.xmlReader = new IncrementalXMLReader(source);
+
+        this.destination = destination;
+        this.appendable = appendAtMost(destination, limit);
+
+        this.parser = parserFactory.createParser(xmlReader, source, appendable);
+
+        this.malformedXMLWarning = malformedXMLWarning;
+        this.truncatedIndicator = truncatedIndicator;
+        this.truncatedIndicatorWithTotal = truncatedIndicatorWithTotal;
+
+        this.metrics = metrics;
+
+        this.logger = logger;
+
+        count = 0;
+        unprocessed = 0;
+        stopped = false;
+        completed = false;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        checkClosed();
+        count++;
+        if (completed && !stopped) {
+            appendable.append((char) c);
+            stopped = appendable.limitExceeded();
+        } else if (!stopped) {
+            source.append((char) c);
+            unprocessed++;
+            processIfNeeded();
+        }
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        checkOffsetAndLength(cbuf, off, len);
+        checkClosed();
+        appendContent(wrapArray(cbuf), off, off + len);
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        checkOffsetAndLength(str, off, len);
+        checkClosed();
+        appendContent(str, off, off + len);
+    }
+
+    @Override
+    public Writer append(CharSequence csq) throws IOException {
+        CharSequence cs = csq == null ? "null" : csq; //$NON-NLS-1$
+        checkClosed();
+        appendContent(cs, 0, cs.length());
+        return this;
+    }
+
+    @Override
+    public Writer append(CharSequence csq, int start, int end) throws IOException {
+        CharSequence cs = csq == null ? "null" : csq; //$NON-NLS-1$
+        checkStartAndEnd(cs, start, end);
+        checkClosed();
+        appendContent(cs, start, end);
+        return this;
+    }
+
+    @Override
+    public Writer append(char c) throws IOException {
+        write(c);
+        return this;
+    }
+
+    private void appendContent(CharSequence csq, int start, int end) throws IOException {
+        count += end - start;
+        if (completed && !stopped) {
+            appendable.append(csq, start, end);
+            stopped = appendable.limitExceeded();
+        } else if (!stopped) {
+            source.append(csq, start, end);
+            unprocessed += end - start;
+            processIfNeeded();
+        }
+    }
+
+    private void processIfNeeded() throws IOException {
+        if (unprocessed >= MIN_BATCH_SIZE) {
+            process();
+        }
+    }
+
+    private void process() throws IOException {
+        unprocessed = 0;
+        try {
+            while (parser.hasNext() && !appendable.limitExceeded()) {
+                parser.processNext();
+            }
+            if (parser.isCompleted() && !appendable.limitExceeded()) {
+                // no need to parse any further content
+                parser.appendRemainder();
+                completed = true;
+            }
+            stopped = appendable.limitExceeded();
+        } catch (XMLStreamException e) {
+            logger.warn(Messages.XMLObfuscator.malformedXML.warning(), e);
+            parser.finishLatestText();
+            if (malformedXMLWarning != null) {
+                appendable.append(malformedXMLWarning);
+            }
+            if (metrics != null) {
+                metrics.malformedXMLFound();
+            }
+            stopped = true;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        checkClosed();
+        if (!stopped && !completed) {
+            process();
+        }
+        if (destination instanceof Flushable) {
+            ((Flushable) destination).flush();
+        }
+    }
+
+    @Override
+    protected void onClose() throws IOException {
+        if (!stopped && !completed) {
+            xmlReader.endOfInput();
+            process();
+            if (!stopped && !completed) {
+                parser.appendRemainder();
+            }
+        }
+        if (appendable.limitExceeded() && truncatedIndicator != null) {
+            destination.append(truncatedIndicatorWithTotal ? String.format(truncatedIndicator, count) : truncatedIndicator);
+        }
+        if (metrics != null) {
+            metrics.characterCount(count);
+            metrics.truncated(appendable.limitExceeded());
+            metrics.maxBufferSize(source.maxBufferSize());
+            metrics.bufferTruncationCount(source.truncationCount());
+            metrics.report();
+        }
+    }
+
+    @FunctionalInterface
+    interface ParserFactory {
+
+        IndexedObfuscatingXMLParser createParser(IndexedXMLReader xmlReader, Source source, Appendable destination);
+    }
+}
@@ -19,44 +19,72 @@ package com.github.robtimus.obfuscation.xml;
 
 import static com.github.robtimus.obfuscation.support.ObfuscatorUtils.skipLeadingWhitespace;
 import static com.github.robtimus.obfuscation.support.ObfuscatorUtils.skipTrailingWhitespace;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayDeque;
 import java.util.Deque;
-import java.util.Map;
-import javax.xml.namespace.QName;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.XMLStreamReader;
-import javax.xml.stream.XMLStreamWriter;
 import org.codehaus.stax2.DTDInfo;
 import org.codehaus.stax2.XMLStreamReader2;
+import org.codehaus.stax2.XMLStreamWriter2;
+import com.ctc.wstx.exc.WstxIOException;
+import com.github.robtimus.obfuscation.Obfuscator;
 import com.github.robtimus.obfuscation.xml.XMLObfuscator.ElementConfigurer.ObfuscationMode;
 
 //Do not implement XMLStreamParser, the mechanism is too different
+/*
+ * Text is never turned into Strings, unless it's obfuscated. Text that is not obfuscated is written from the XMLStreamReader's character array, and
+ * comments are copied from the XMLStreamReader to the XMLStreamWriter directly.
+ *
+ * Memory usage is bounded, even for large text:
+ * - Text that is not obfuscated is written immediately. Consecutive CDATA events are written as a single CDATA section that is kept open until the
+ *   next non-CDATA event.
+ * - Text that is obfuscated is collected, because leading and trailing whitespace is not obfuscated. If the collected text exceeds the maximum
+ *   size, everything but the whitespace at the end is streamed to the writer returned by the obfuscator's streamTo method.
+ */
 final class WritingObfuscatingXMLParser {
 
-    private final XMLStreamReader xmlStreamReader;
-    private final XMLStreamWriter xmlStreamWriter;
+    private static final int TEXT_BUFFER_SIZE = 4096;
 
-    private final Map<String, ElementConfig> elements;
-    private final Map<QName, ElementConfig> qualifiedElements;
-    private final Map<String, AttributeConfig> attributes;
-    private final Map<QName, AttributeConfig> qualifiedAttributes;
+    private static final String CDATA_START = "<![CDATA["; //$NON-NLS-1$
+    private static final String CDATA_END = "]]>"; //$NON-NLS-1$
+
+    private final XMLStreamReader2 xmlStreamReader;
+    private final XMLStreamWriter2 xmlStreamWriter;
+
+    private final ConfigResolver<ElementConfig> elementResolver;
+    private final ElementPathMatcher.Tracker elementPaths;
+    private final ConfigResolver<AttributeConfig> attributeResolver;
 
     private final Deque<ObfuscatedElement> currentElements = new ArrayDeque<>();
     private final StringBuilder currentText = new StringBuilder();
     private TextType currentTextType = TextType.NONE;
     private boolean obfuscateCurrentText;
 
-    WritingObfuscatingXMLParser(XMLStreamReader xmlStreamReader, XMLStreamWriter xmlStreamWriter,
-            Map<String, ElementConfig> elements, Map<QName, ElementConfig> qualifiedElements,
-            Map<String, AttributeConfig> attributes, Map<QName, AttributeConfig> qualifiedAttributes) {
+    // the maximum size of currentText before it's streamed to obfuscatingWriter
+    private final int maxTextSize;
+    // non-null if the current text was too large and is being streamed
+    private Writer obfuscatingWriter;
+    // used for streaming to obfuscatingWriter
+    private char[] obfuscationBuffer;
+
+    private final TextOutput textOutput = new TextOutput();
+
+    // null if no metrics are collected
+    private final MetricsCollector metrics;
+
+    WritingObfuscatingXMLParser(XMLStreamReader2 xmlStreamReader, XMLStreamWriter2 xmlStreamWriter,
+            ConfigResolver<ElementConfig> elementResolver, ElementPathMatcher elementPathMatcher, ConfigResolver<AttributeConfig> attributeResolver,
+            int maxTextSize, MetricsCollector metrics) {
 
         this.xmlStreamReader = xmlStreamReader;
         this.xmlStreamWriter = xmlStreamWriter;
-        this.elements = elements;
-        this.qualifiedElements = qualifiedElements;
-        this.attributes = attributes;
-        this.qualifiedAttributes = qualifiedAttributes;
+        this.elementResolver = elementResolver;
+        this.elementPaths = elementPathMatcher.tracker();
+        this.attributeResolver = attributeResolver;
+        this.maxTextSize = maxTextSize;
+        this.metrics = metrics;
     }
 
     void initialize() throws XMLStreamException {
@@ -123,16 +151,24 @@ final class WritingObfuscatingXMLParser {
     }
 
     private void startElement() throws XMLStreamException {
-        QName name = xmlStreamReader.getName();
+        String namespaceURI = xmlStreamReader.getNamespaceURI();
+        String localName = xmlStreamReader.getLocalName();
+
+        // element paths need to be tracked for all elements, including nested elements of elements that are being obfuscated
+        ElementConfig pathConfig = elementPaths.startElement(localName);
 
         ObfuscatedElement currentElement = currentElements.peekLast();
         if (currentElement == null || currentElement.allowsOverriding()) {
             // either not obfuscating any element, or the element allows overriding obfuscation - check the element itself
-            ElementConfig config = configForElement(name);
+            // element paths take precedence over element names
+            ElementConfig config = pathConfig != null ? pathConfig : elementResolver.resolve(namespaceURI, localName);
             if (config != null) {
                 currentElement = new ObfuscatedElement(config);
                 currentElements.addLast(currentElement);
                 currentElement.depth++;
+                if (metrics != null) {
+                    metrics.elementMatched();
+                }
             } else if (currentElement != null) {
                 currentElement.depth++;
             }
@@ -141,44 +177,38 @@ final class WritingObfuscatingXMLParser {
             currentElement.depth++;
         }
 
-        xmlStreamWriter.writeStartElement(name.getPrefix(), name.getLocalPart(), name.getNamespaceURI());
+        xmlStreamWriter.writeStartElement(nonNull(xmlStreamReader.getPrefix()), localName, nonNull(namespaceURI));
 
-        writeAttributes(name);
+        writeAttributes(namespaceURI, localName);
     }
 
-    private void writeAttributes(QName elementName) throws XMLStreamException {
+    private void writeAttributes(String elementNamespaceURI, String elementLocalName) throws XMLStreamException {
         int attributeCount = xmlStreamReader.getAttributeCount();
         for (int i = 0; i < attributeCount; i++) {
-            QName attributeName = xmlStreamReader.getAttributeName(i);
+            String namespaceURI = xmlStreamReader.getAttributeNamespace(i);
+            String localName = xmlStreamReader.getAttributeLocalName(i);
             String attributeValue = xmlStreamReader.getAttributeValue(i);
 
-            AttributeConfig attributeConfig = configForAttribute(attributeName);
+            AttributeConfig attributeConfig = attributeResolver.resolve(namespaceURI, localName);
             if (attributeConfig != null) {
-                attributeValue = attributeConfig.obfuscator(elementName).obfuscateText(attributeValue).toString();
+                if (metrics != null) {
+                    metrics.attributeMatched();
+                }
+                attributeValue = attributeConfig.obfuscator(elementNamespaceURI, elementLocalName).obfuscateText(attributeValue).toString();
             }
-            xmlStreamWriter.writeAttribute(attributeName.getPrefix(), attributeName.getNamespaceURI(), attributeName.getLocalPart(), attributeValue);
+            xmlStreamWriter.writeAttribute(nonNull(xmlStreamReader.getAttributePrefix(i)), nonNull(namespaceURI), localName, attributeValue);
         }
     }
 
-    private ElementConfig configForElement(QName elementName) {
-        ElementConfig config = qualifiedElements.get(elementName);
-        if (config == null) {
-            config = elements.get(elementName.getLocalPart());
-        }
-        return config;
-    }
-
-    private AttributeConfig configForAttribute(QName attributeName) {
-        AttributeConfig config = qualifiedAttributes.get(attributeName);
-        if (config == null) {
-            config = attributes.get(attributeName.getLocalPart());
-        }
-        return config;
+    private static String nonNull(String s) {
+        return s == null ? "" : s; //$NON-NLS-1$
     }
 
     private void endElement() throws XMLStreamException {
         xmlStreamWriter.writeEndElement();
 
+        elementPaths.endElement();
+
         if (!currentElements.isEmpty()) {
             ObfuscatedElement currentElement = currentElements.getLast();
             currentElement.depth--;
@@ -207,37 +237,41 @@ final class WritingObfuscatingXMLParser {
             finishLatestText();
         }
 
-        String text = xmlStreamReader.getText();
+        if (!obfuscateText()) {
+            xmlStreamWriter.writeCharacters(xmlStreamReader.getTextCharacters(), xmlStreamReader.getTextStart(), xmlStreamReader.getTextLength());
+            return;
+        }
+        // the text should be obfuscated, but not at this time
+        appendCurrentText();
+        currentTextType = TextType.CHARACTERS;
+        obfuscateCurrentText = true;
+        limitCurrentText();
+    }
+
+    private boolean obfuscateText() {
         if (currentElements.isEmpty()) {
             // not obfuscating anything
-            xmlStreamWriter.writeCharacters(text);
-            return;
+            return false;
         }
         ObfuscatedElement currentElement = currentElements.getLast();
         if (!currentElement.obfuscateNestedElements() && currentElement.depth != 1) {
             // nested inside an element that is configured to not have nested elements obfuscated, don't obfuscate
-            xmlStreamWriter.writeCharacters(text);
-            return;
+            return false;
         }
-        if (!currentElement.config.performObfuscation) {
-            // the obfuscator is Obfuscator.none(), which means we don't need to obfuscate
-            xmlStreamWriter.writeCharacters(text);
-            return;
-        }
-        // the text should be obfuscated, but not at this time
-        currentText.append(text);
-        currentTextType = TextType.CHARACTERS;
-        obfuscateCurrentText = true;
+        // if the obfuscator is Obfuscator.none() we don't need to obfuscate
+        return currentElement.config.performObfuscation;
+    }
+
+    private void appendCurrentText() {
+        currentText.append(xmlStreamReader.getTextCharacters(), xmlStreamReader.getTextStart(), xmlStreamReader.getTextLength());
     }
 
     private void comment() throws XMLStreamException {
-        String comment = xmlStreamReader.getText();
-        xmlStreamWriter.writeComment(comment);
+        xmlStreamWriter.copyEventFromReader(xmlStreamReader, false);
     }
 
     private void space() throws XMLStreamException {
-        String space = xmlStreamReader.getText();
-        xmlStreamWriter.writeCharacters(space);
+        xmlStreamWriter.writeCharacters(xmlStreamReader.getTextCharacters(), xmlStreamReader.getTextStart(), xmlStreamReader.getTextLength());
     }
 
     private void startDocument() throws XMLStreamException {
@@ -253,7 +287,7 @@ final class WritingObfuscatingXMLParser {
 
     private void dtd() throws XMLStreamException {
         // Woodstox returns the internal subset, but expects a full DTD - build it ourselves
-        String dtd = getDTD((XMLStreamReader2) xmlStreamReader);
+        String dtd = getDTD(xmlStreamReader);
         xmlStreamWriter.writeDTD(dtd);
     }
 
@@ -287,30 +321,57 @@ final class WritingObfuscatingXMLParser {
         if (currentTextType != TextType.CDATA) {
             // including CHARACTERS -> CDATA
             finishLatestText();
-        }
 
-        // always capture all CDATA text, to prevent multiple CDATA blocks after each other if the text becomes too large
-        currentText.append(xmlStreamReader.getText());
-        currentTextType = TextType.CDATA;
+            // consecutive CDATA events are written as one CDATA section
+            currentTextType = TextType.CDATA;
+            textOutput.startCData();
+        }
 
-        if (currentElements.isEmpty()) {
-            // not obfuscating anything
-            obfuscateCurrentText = false;
+        if (!obfuscateText()) {
+            textOutput.write(xmlStreamReader.getTextCharacters(), xmlStreamReader.getTextStart(), xmlStreamReader.getTextLength());
             return;
         }
-        ObfuscatedElement currentElement = currentElements.getLast();
-        if (!currentElement.obfuscateNestedElements() && currentElement.depth != 1) {
-            // nested inside an element that is configured to not have nested elements obfuscated, don't obfuscate
-            obfuscateCurrentText = false;
+        // the text should be obfuscated, but not at this time
+        appendCurrentText();
+        obfuscateCurrentText = true;
+        limitCurrentText();
+    }
+
+    private void limitCurrentText() throws XMLStreamException {
+        int textLength = currentText.length();
+        if (textLength <= maxTextSize) {
             return;
         }
-        if (!currentElement.config.performObfuscation) {
-            // the obfuscator is Obfuscator.none(), which means we don't need to obfuscate
-            obfuscateCurrentText = false;
-            return;
+        int obfuscationStart = 0;
+        if (obfuscatingWriter == null) {
+            obfuscationStart = skipLeadingWhitespace(currentText, 0, textLength);
+            textOutput.write(currentText, 0, obfuscationStart);
+            if (obfuscationStart == textLength) {
+                // only leading whitespace so far
+                currentText.setLength(0);
+                return;
+            }
+            obfuscatingWriter = currentElements.getLast().config.obfuscator.streamTo(textOutput);
+        }
+        // keep any whitespace at the end, as it may turn out to be trailing whitespace that should not be obfuscated
+        int obfuscationEnd = skipTrailingWhitespace(currentText, obfuscationStart, textLength);
+        streamToObfuscator(obfuscationStart, obfuscationEnd);
+        currentText.delete(0, obfuscationEnd);
+    }
+
+    private void streamToObfuscator(int start, int end) throws XMLStreamException {
+        if (obfuscationBuffer == null) {
+            obfuscationBuffer = new char[TEXT_BUFFER_SIZE];
+        }
+        try {
+            for (int index = start; index < end; index += obfuscationBuffer.length) {
+                int count = Math.min(end - index, obfuscationBuffer.length);
+                currentText.getChars(index, index + count, obfuscationBuffer, 0);
+                obfuscatingWriter.write(obfuscationBuffer, 0, count);
+            }
+        } catch (IOException e) {
+            throw xmlStreamException(e);
         }
-        // the text should be obfuscated, but not at this time
-        obfuscateCurrentText = true;
     }
 
     private void finishLatestText() throws XMLStreamException {
@@ -319,34 +380,56 @@ final class WritingObfuscatingXMLParser {
             return;
         }
         if (obfuscateCurrentText) {
-            ObfuscatedElement currentElement = currentElements.getLast();
             int textLength = currentText.length();
-            int obfuscationStart = skipLeadingWhitespace(currentText, 0, textLength);
-            int obfuscationEnd = skipTrailingWhitespace(currentText, obfuscationStart, textLength);
-
-            if (obfuscationStart == 0 && obfuscationEnd == textLength) {
-                // obfuscate all
-                String obfuscatedText = currentElement.config.obfuscator.obfuscateText(currentText, obfuscationStart, obfuscationEnd).toString();
-                currentTextType.writeText(xmlStreamWriter, obfuscatedText);
-            } else if (obfuscationStart == obfuscationEnd) {
-                // obfuscate nothing
-                currentTextType.writeText(xmlStreamWriter, currentText.toString());
+            if (obfuscatingWriter == null) {
+                int obfuscationStart = skipLeadingWhitespace(currentText, 0, textLength);
+                int obfuscationEnd = skipTrailingWhitespace(currentText, obfuscationStart, textLength);
+
+                textOutput.write(currentText, 0, obfuscationStart);
+                if (obfuscationStart < obfuscationEnd) {
+                    Obfuscator obfuscator = currentElements.getLast().config.obfuscator;
+                    obfuscate(obfuscator, obfuscationStart, obfuscationEnd);
+                }
+                textOutput.write(currentText, obfuscationEnd, textLength);
             } else {
-                StringBuilder text = new StringBuilder();
-                text.append(currentText, 0, obfuscationStart);
-                currentElement.config.obfuscator.obfuscateText(currentText, obfuscationStart, obfuscationEnd, text);
-                text.append(currentText, obfuscationEnd, textLength);
-                currentTextType.writeText(xmlStreamWriter, text.toString());
+                int obfuscationEnd = skipTrailingWhitespace(currentText, 0, textLength);
+                streamToObfuscator(0, obfuscationEnd);
+                closeObfuscatingWriter();
+                textOutput.write(currentText, obfuscationEnd, textLength);
             }
-        } else {
-            // CDATA; CHARACTERS that don't need obfuscation are written out immediately
-            currentTextType.writeText(xmlStreamWriter, currentText.toString());
         }
-        currentText.delete(0, currentText.length());
+        // else the text has already been written
+        if (currentTextType == TextType.CDATA) {
+            textOutput.endCData();
+        }
+        currentText.setLength(0);
         currentTextType = TextType.NONE;
         obfuscateCurrentText = false;
     }
 
+    private void obfuscate(Obfuscator obfuscator, int start, int end) throws XMLStreamException {
+        try {
+            obfuscator.obfuscateText(currentText, start, end, textOutput);
+        } catch (IOException e) {
+            throw xmlStreamException(e);
+        }
+    }
+
+    private void closeObfuscatingWriter() throws XMLStreamException {
+        try {
+            obfuscatingWriter.close();
+        } catch (IOException e) {
+            throw xmlStreamException(e);
+        } finally {
+            obfuscatingWriter = null;
+        }
+    }
+
+    private static XMLStreamException xmlStreamException(IOException e) {
+        // TextOutput wraps XMLStreamExceptions in IOExceptions, because it's used as Appendable
+        return e instanceof TextOutputException ? ((TextOutputException) e).getCause() : new WstxIOException(e);
+    }
+
     void flush() throws XMLStreamException {
         xmlStreamWriter.flush();
     }
@@ -371,28 +454,111 @@ final class WritingObfuscatingXMLParser {
     }
 
     private enum TextType {
-        CHARACTERS(XMLStreamWriter::writeCharacters),
-        CDATA(XMLStreamWriter::writeCData),
+        CHARACTERS,
+        CDATA,
         NONE,
-        ;
+    }
+
+    // Writes text as characters or as CDATA, depending on the current text type
+    private final class TextOutput implements Appendable {
 
-        private final TextWriter textWriter;
+        private final char[] buffer = new char[TEXT_BUFFER_SIZE];
+        // the number of consecutive ] characters at the end of the current CDATA section, up to 2
+        private int closingBrackets;
 
-        TextType() {
-            this(null);
+        private void startCData() throws XMLStreamException {
+            xmlStreamWriter.writeRaw(CDATA_START);
+            closingBrackets = 0;
         }
 
-        TextType(TextWriter textWriter) {
-            this.textWriter = textWriter;
+        private void endCData() throws XMLStreamException {
+            xmlStreamWriter.writeRaw(CDATA_END);
         }
 
-        void writeText(XMLStreamWriter xmlStreamWriter, String text) throws XMLStreamException {
-            textWriter.writeText(xmlStreamWriter, text);
+        private void write(CharSequence s, int start, int end) throws XMLStreamException {
+            for (int index = start; index < end; index += buffer.length) {
+                int count = Math.min(end - index, buffer.length);
+                getChars(s, index, index + count, buffer);
+                write(buffer, 0, count);
+            }
         }
 
-        private interface TextWriter {
+        private void getChars(CharSequence s, int start, int end, char[] dest) {
+            if (s instanceof String) {
+                ((String) s).getChars(start, end, dest, 0);
+            } else if (s instanceof StringBuilder) {
+                ((StringBuilder) s).getChars(start, end, dest, 0);
+            } else {
+                for (int i = start; i < end; i++) {
+                    dest[i - start] = s.charAt(i);
+                }
+            }
+        }
+
+        private void write(char[] text, int start, int length) throws XMLStreamException {
+            if (currentTextType == TextType.CDATA) {
+                writeCData(text, start, start + length);
+            } else {
+                xmlStreamWriter.writeCharacters(text, start, length);
+            }
+        }
+
+        private void writeCData(char[] text, int start, int end) throws XMLStreamException {
+            int segmentStart = start;
+            for (int i = start; i < end; i++) {
+                char c = text[i];
+                if (c == '>' && closingBrackets == 2) {
+                    // ]]> cannot occur inside a CDATA section; end the section after the ]] and start a new one for the >
+                    xmlStreamWriter.writeRaw(text, segmentStart, i - segmentStart);
+                    xmlStreamWriter.writeRaw(CDATA_END);
+                    xmlStreamWriter.writeRaw(CDATA_START);
+                    segmentStart = i;
+                }
+                closingBrackets = c == ']' ? Math.min(closingBrackets + 1, 2) : 0;
+            }
+            xmlStreamWriter.writeRaw(text, segmentStart, end - segmentStart);
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) throws IOException {
+            CharSequence s = csq == null ? "null" : csq; //$NON-NLS-1$
+            return append(s, 0, s.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) throws IOException {
+            CharSequence s = csq == null ? "null" : csq; //$NON-NLS-1$
+            try {
+                write(s, start, end);
+            } catch (XMLStreamException e) {
+                throw new TextOutputException(e);
+            }
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            buffer[0] = c;
+            try {
+                write(buffer, 0, 1);
+            } catch (XMLStreamException e) {
+                throw new TextOutputException(e);
+            }
+            return this;
+        }
+    }
+
+    private static final class TextOutputException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        private TextOutputException(XMLStreamException cause) {
+            super(cause);
+        }
 
-            void writeText(XMLStreamWriter xmlStreamWriter, String text) throws XMLStreamException;
+        @Override
+        public synchronized XMLStreamException getCause() {
+            return (XMLStreamException) super.getCause();
         }
     }
 }
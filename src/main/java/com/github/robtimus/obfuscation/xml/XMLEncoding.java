@@ -0,0 +1,112 @@
+/*
+ * XMLEncoding.java
+ * Copyright 2026 Rob Spoor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robtimus.obfuscation.xml;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// The encoding of an XML document, as determined by its byte order mark or XML declaration, or UTF-8 if neither is present
+final class XMLEncoding {
+
+    // The number of bytes needed to detect the encoding; this should be enough for any XML declaration
+    static final int DETECTION_LENGTH = 1024;
+
+    private static final Pattern ENCODING_PATTERN = Pattern.compile(
+            "^<\\?xml\\s[^>]*?encoding\\s*=\\s*([\"'])([A-Za-z][A-Za-z0-9._\\-]*)\\1"); //$NON-NLS-1$
+
+    private static final int[] UTF_8_BOM = { 0xEF, 0xBB, 0xBF };
+    private static final int[] UTF_16BE_BOM = { 0xFE, 0xFF };
+    private static final int[] UTF_16LE_BOM = { 0xFF, 0xFE };
+    // "<?" in UTF-16 without byte order mark
+    private static final int[] UTF_16BE_START = { 0x00, 0x3C, 0x00, 0x3F };
+    private static final int[] UTF_16LE_START = { 0x3C, 0x00, 0x3F, 0x00 };
+
+    final Charset charset;
+    final int byteOrderMarkLength;
+
+    private XMLEncoding(Charset charset, int byteOrderMarkLength) {
+        this.charset = charset;
+        this.byteOrderMarkLength = byteOrderMarkLength;
+    }
+
+    static XMLEncoding detect(byte[] bytes, int offset, int length) throws UnsupportedEncodingException {
+        if (startsWith(bytes, offset, length, UTF_8_BOM)) {
+            return new XMLEncoding(StandardCharsets.UTF_8, UTF_8_BOM.length);
+        }
+        if (startsWith(bytes, offset, length, UTF_16BE_BOM)) {
+            return new XMLEncoding(StandardCharsets.UTF_16BE, UTF_16BE_BOM.length);
+        }
+        if (startsWith(bytes, offset, length, UTF_16LE_BOM)) {
+            return new XMLEncoding(StandardCharsets.UTF_16LE, UTF_16LE_BOM.length);
+        }
+        if (startsWith(bytes, offset, length, UTF_16BE_START)) {
+            return new XMLEncoding(StandardCharsets.UTF_16BE, 0);
+        }
+        if (startsWith(bytes, offset, length, UTF_16LE_START)) {
+            return new XMLEncoding(StandardCharsets.UTF_16LE, 0);
+        }
+        // Any other supported encoding is ASCII compatible for the XML declaration
+        String declaration = new String(bytes, offset, Math.min(length, DETECTION_LENGTH), StandardCharsets.ISO_8859_1);
+        Matcher matcher = ENCODING_PATTERN.matcher(declaration);
+        if (matcher.find()) {
+            return new XMLEncoding(charset(matcher.group(2)), 0);
+        }
+        return new XMLEncoding(StandardCharsets.UTF_8, 0);
+    }
+
+    // Returns whether detect returns the same result for the given bytes as it would for any bytes that start with the given bytes
+    static boolean canDetect(byte[] bytes, int offset, int length) {
+        if (length >= DETECTION_LENGTH) {
+            return true;
+        }
+        // Any XML declaration ends with the first '>', and no byte order mark or UTF-16 start contains it
+        for (int i = offset, end = offset + length; i < end; i++) {
+            if (bytes[i] == '>') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean startsWith(byte[] bytes, int offset, int length, int[] prefix) {
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if ((bytes[offset + i] & 0xFF) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Charset charset(String encoding) throws UnsupportedEncodingException {
+        try {
+            return Charset.forName(encoding);
+        } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+            UnsupportedEncodingException exception = new UnsupportedEncodingException(Messages.XMLObfuscator.unsupportedEncoding(encoding));
+            exception.initCause(e);
+            throw exception;
+        }
+    }
+}
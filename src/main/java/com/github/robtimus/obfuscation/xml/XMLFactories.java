@@ -0,0 +1,117 @@
+/*
+ * XMLFactories.java
+ * Copyright 2026 Rob Spoor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robtimus.obfuscation.xml;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLResolver;
+import javax.xml.stream.XMLStreamException;
+import org.codehaus.stax2.XMLInputFactory2;
+import org.codehaus.stax2.XMLOutputFactory2;
+import com.ctc.wstx.api.WstxInputProperties;
+import com.ctc.wstx.api.WstxOutputProperties;
+import com.ctc.wstx.stax.WstxInputFactory;
+import com.ctc.wstx.stax.WstxOutputFactory;
+
+/*
+ * The XML factories that are shared by all XMLObfuscators.
+ *
+ * Initializing this class has no side effects besides creating the factories; it does not log, and does not read any system properties itself.
+ * That allows it to be initialized when a native image is built, so the factories become part of the image. Properties that are not supported
+ * are therefore only collected, and logged when XMLObfuscator is initialized.
+ *
+ * The output factory is only needed when XML is generated, so it's only created when it's first needed.
+ */
+final class XMLFactories {
+
+    static final XMLInputFactory INPUT_FACTORY;
+
+    // the names of properties that are not supported by INPUT_FACTORY
+    static final List<String> UNSUPPORTED_PROPERTIES;
+
+    static {
+        List<String> unsupportedProperties = new ArrayList<>();
+        INPUT_FACTORY = createInputFactory(unsupportedProperties);
+        UNSUPPORTED_PROPERTIES = Collections.unmodifiableList(unsupportedProperties);
+    }
+
+    private XMLFactories() {
+    }
+
+    static XMLOutputFactory outputFactory() {
+        return OutputFactoryHolder.OUTPUT_FACTORY;
+    }
+
+    static XMLInputFactory createInputFactory() {
+        return createInputFactory(new ArrayList<>());
+    }
+
+    private static XMLInputFactory createInputFactory(Collection<String> unsupportedProperties) {
+        // Explicitly use Woodstox; any other implementation may not produce the correct locations
+        XMLInputFactory inputFactory = new WstxInputFactory();
+        setPropertyIfSupported(inputFactory, XMLConstants.ACCESS_EXTERNAL_DTD, "", unsupportedProperties); //$NON-NLS-1$
+        setPropertyIfSupported(inputFactory, XMLConstants.ACCESS_EXTERNAL_SCHEMA, "", unsupportedProperties); //$NON-NLS-1$
+        setPropertyIfSupported(inputFactory, XMLConstants.ACCESS_EXTERNAL_STYLESHEET, "", unsupportedProperties); //$NON-NLS-1$
+        setPropertyIfSupported(inputFactory, XMLConstants.FEATURE_SECURE_PROCESSING, true, unsupportedProperties);
+        setPropertyIfSupported(inputFactory, XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false, unsupportedProperties);
+        // ConfigResolver relies on interned names
+        setPropertyIfSupported(inputFactory, XMLInputFactory2.P_INTERN_NAMES, true, unsupportedProperties);
+        setPropertyIfSupported(inputFactory, XMLInputFactory2.P_INTERN_NS_URIS, true, unsupportedProperties);
+        setPropertyIfSupported(inputFactory, WstxInputProperties.P_DTD_RESOLVER, new ExternalDTDRejector(), unsupportedProperties);
+        return inputFactory;
+    }
+
+    private static void setPropertyIfSupported(XMLInputFactory inputFactory, String name, Object value, Collection<String> unsupportedProperties) {
+        if (inputFactory.isPropertySupported(name)) {
+            inputFactory.setProperty(name, value);
+        } else {
+            unsupportedProperties.add(name);
+        }
+    }
+
+    private static XMLOutputFactory createOutputFactory() {
+        // Explicitly use Woodstox, to be consistent with the input factory
+        XMLOutputFactory2 outputFactory = new WstxOutputFactory();
+        outputFactory.configureForSpeed();
+        // Needed to get namespace declarations in the resulting XML
+        outputFactory.setProperty(XMLOutputFactory.IS_REPAIRING_NAMESPACES, true);
+        outputFactory.setProperty(WstxOutputProperties.P_USE_DOUBLE_QUOTES_IN_XML_DECL, true);
+        return outputFactory;
+    }
+
+    private static final class OutputFactoryHolder {
+
+        private static final XMLOutputFactory OUTPUT_FACTORY = createOutputFactory();
+
+        private OutputFactoryHolder() {
+        }
+    }
+
+    private static final class ExternalDTDRejector implements XMLResolver {
+
+        @Override
+        public Object resolveEntity(String publicID, String systemID, String baseURI, String namespace) throws XMLStreamException {
+            throw new XMLStreamException(Messages.XMLObfuscator.externalDTDsNotSupported(systemID));
+        }
+    }
+}
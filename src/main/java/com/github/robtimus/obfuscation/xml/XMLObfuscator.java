@@ -25,30 +25,55 @@ import static com.github.robtimus.obfuscation.support.ObfuscatorUtils.counting;
 import static com.github.robtimus.obfuscation.support.ObfuscatorUtils.discardAll;
 import static com.github.robtimus.obfuscation.support.ObfuscatorUtils.reader;
 import static com.github.robtimus.obfuscation.support.ObfuscatorUtils.writer;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PushbackInputStream;
 import java.io.Reader;
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.regex.Pattern;
 import javax.xml.XMLConstants;
 import javax.xml.namespace.QName;
-import javax.xml.stream.XMLInputFactory;
-import javax.xml.stream.XMLOutputFactory;
-import javax.xml.stream.XMLResolver;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
-import javax.xml.stream.XMLStreamWriter;
-import org.codehaus.stax2.XMLOutputFactory2;
+import org.codehaus.stax2.LocationInfo;
+import org.codehaus.stax2.XMLStreamReader2;
+import org.codehaus.stax2.XMLStreamWriter2;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import com.ctc.wstx.api.WstxInputProperties;
-import com.ctc.wstx.api.WstxOutputProperties;
 import com.ctc.wstx.exc.WstxLazyException;
-import com.ctc.wstx.stax.WstxInputFactory;
-import com.ctc.wstx.stax.WstxOutputFactory;
+import com.ctc.wstx.io.WstxInputData;
 import com.github.robtimus.obfuscation.Obfuscator;
 import com.github.robtimus.obfuscation.support.CachingObfuscatingWriter;
 import com.github.robtimus.obfuscation.support.CaseSensitivity;
@@ -58,7 +83,8 @@ import com.github.robtimus.obfuscation.support.MapBuilder;
 import com.github.robtimus.obfuscation.xml.XMLObfuscator.ElementConfigurer.ObfuscationMode;
 
 /**
- * An obfuscator that obfuscates XML elements in {@link CharSequence CharSequences} or the contents of {@link Reader Readers}.
+ * An obfuscator that obfuscates XML elements in {@link CharSequence CharSequences}, the contents of {@link Reader Readers},
+ * or XML documents stored as bytes.
  * An {@code XMLObfuscator} will only obfuscate text, and ignore leading and trailing whitespace.
  * It will never obfuscate element tag names, comments, etc.
  * <p>
@@ -66,10 +92,13 @@ import com.github.robtimus.obfuscation.xml.XMLObfuscator.ElementConfigurer.Obfus
  * off using {@link Builder#excludeNestedElementsByDefault()} and/or {@link ElementConfigurer#excludeNestedElements()}. This will allow the nested
  * elements to use their own obfuscators.
  * <p>
- * Note: preferably, obfuscation is done in such a way that the original structure and formatting is maintained. However, some functionality does not
- * allow for this to happen. If this functionality is needed, obfuscation will instead generate new, obfuscated XML documents. The resulting
- * obfuscated XML documents may slightly differ from the original. Methods in class {@link Builder} will mention it if they result in generating new
- * XML documents.
+ * Note: obfuscation is done in such a way that the original structure and formatting is maintained. This includes the obfuscation of attributes;
+ * only the values of obfuscated attributes will be replaced. If preferred, obfuscation can instead generate new, obfuscated XML documents using
+ * {@link Builder#generateXML()}. The resulting obfuscated XML documents may slightly differ from the original.
+ * <p>
+ * Unless XML is generated, well-formed {@link CharSequence CharSequences} in which none of the configured element or attribute names occur,
+ * and that do not contain a document type declaration, are copied as-is after only a quick well-formedness check. Because there is nothing to
+ * obfuscate in such documents, this does not affect the result. Documents that fail this check are obfuscated as usual.
  *
  * @author Rob Spoor
  */
@@ -77,68 +106,109 @@ public final class XMLObfuscator extends Obfuscator {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(XMLObfuscator.class);
 
-    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
-    private static final XMLOutputFactory OUTPUT_FACTORY = createOutputFactory();
+    static {
+        for (String property : XMLFactories.UNSUPPORTED_PROPERTIES) {
+            LOGGER.warn(Messages.XMLObfuscator.unsupportedProperty(property));
+        }
+    }
+
+    private static final int BATCHES_PER_PROCESSOR = 4;
+
+    static final int MIN_PARALLEL_CHUNK_SIZE = 64 * 1024;
 
     private final Map<String, ElementConfig> elements;
     private final Map<QName, ElementConfig> qualifiedElements;
+    // in the order in which they were added
+    private final Map<NamePattern, ElementConfig> elementPatterns;
+    private final Map<ElementPath, ElementConfig> elementPaths;
 
     private final Map<String, AttributeConfig> attributes;
     private final Map<QName, AttributeConfig> qualifiedAttributes;
+    // in the order in which they were added
+    private final Map<NamePattern, AttributeConfig> attributePatterns;
+
+    // shared by all parsers, so decisions for element and attribute names only need to be made once
+    private final ConfigResolver<ElementConfig> elementResolver;
+    private final ConfigResolver<AttributeConfig> attributeResolver;
+    private final ElementPathMatcher elementPathMatcher;
+
+    // determines whether text can contain anything that needs to be obfuscated
+    private final NameScanner nameScanner;
+
+    // the number of elements that need to be processed before parsing can stop, or 0 if parsing can never stop early
+    private final int singleOccurrenceElementCount;
 
     private final String malformedXMLWarning;
 
     private final long limit;
     private final String truncatedIndicator;
+    // false if the truncated indicator has no place holder for the total number of characters
+    private final boolean truncatedIndicatorWithTotal;
+
+    private final int initialBufferCapacity;
+    private final int preferredMaxBufferSize;
+
+    private final ParserBackend parserBackend;
+
+    private final MetricsListener metricsListener;
+
+    // the obfuscators that cache their results
+    private final List<MemoizingObfuscator> cachingObfuscators;
 
     private final boolean generateXML;
 
     private XMLObfuscator(ObfuscatorBuilder builder) {
         elements = builder.elements();
         qualifiedElements = builder.qualifiedElements();
+        elementPatterns = builder.elementPatterns();
+        elementPaths = builder.elementPaths();
 
         attributes = builder.attributes();
         qualifiedAttributes = builder.qualifiedAttributes();
+        attributePatterns = builder.attributePatterns();
+
+        elementResolver = new ConfigResolver<>(elements, qualifiedElements, elementPatterns);
+        attributeResolver = new ConfigResolver<>(attributes, qualifiedAttributes, attributePatterns);
+        elementPathMatcher = new ElementPathMatcher(elementPaths);
+
+        nameScanner = builder.nameScanner();
+
+        singleOccurrenceElementCount = attributeResolver.isEmpty()
+                ? singleOccurrenceElementCount(elements, qualifiedElements, elementPatterns, elementPaths)
+                : 0;
 
         malformedXMLWarning = builder.malformedXMLWarning;
 
         limit = builder.limit;
         truncatedIndicator = builder.truncatedIndicator;
+        truncatedIndicatorWithTotal = builder.truncatedIndicatorWithTotal;
 
-        generateXML = builder.generateXML;
-    }
+        initialBufferCapacity = builder.initialBufferCapacity;
+        preferredMaxBufferSize = builder.preferredMaxBufferSize;
 
-    static XMLInputFactory createInputFactory() {
-        // Explicitly use Woodstox; any other implementation may not produce the correct locations
-        XMLInputFactory inputFactory = new WstxInputFactory();
-        setPropertyIfSupported(inputFactory, XMLConstants.ACCESS_EXTERNAL_DTD, ""); //$NON-NLS-1$
-        setPropertyIfSupported(inputFactory, XMLConstants.ACCESS_EXTERNAL_SCHEMA, ""); //$NON-NLS-1$
-        setPropertyIfSupported(inputFactory, XMLConstants.ACCESS_EXTERNAL_STYLESHEET, ""); //$NON-NLS-1$
-        setPropertyIfSupported(inputFactory, XMLConstants.FEATURE_SECURE_PROCESSING, true);
-        setPropertyIfSupported(inputFactory, XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
-        setPropertyIfSupported(inputFactory, WstxInputProperties.P_DTD_RESOLVER, (XMLResolver) (publicID, systemID, baseURI, namespace) -> {
-            throw new XMLStreamException(Messages.XMLObfuscator.externalDTDsNotSupported(systemID));
-        });
-        return inputFactory;
-    }
+        parserBackend = builder.parserBackend;
 
-    private static void setPropertyIfSupported(XMLInputFactory inputFactory, String name, Object value) {
-        if (inputFactory.isPropertySupported(name)) {
-            inputFactory.setProperty(name, value);
-        } else {
-            String message = Messages.XMLObfuscator.unsupportedProperty(name);
-            LOGGER.warn(message);
-        }
+        metricsListener = builder.metricsListener;
+
+        cachingObfuscators = Collections.unmodifiableList(new ArrayList<>(builder.cachingObfuscators));
+
+        generateXML = builder.generateXML;
     }
 
-    private static XMLOutputFactory createOutputFactory() {
-        // Explicitly use Woodstox, to be consistent with the input factory
-        XMLOutputFactory2 outputFactory = new WstxOutputFactory();
-        outputFactory.configureForSpeed();
-        // Needed to get namespace declarations in the resulting XML
-        outputFactory.setProperty(XMLOutputFactory.IS_REPAIRING_NAMESPACES, true);
-        outputFactory.setProperty(WstxOutputProperties.P_USE_DOUBLE_QUOTES_IN_XML_DECL, true);
-        return outputFactory;
+    private static int singleOccurrenceElementCount(Map<String, ElementConfig> elements, Map<QName, ElementConfig> qualifiedElements,
+            Map<NamePattern, ElementConfig> elementPatterns, Map<ElementPath, ElementConfig> elementPaths) {
+
+        Set<ElementConfig> configs = Collections.newSetFromMap(new IdentityHashMap<>());
+        configs.addAll(elements.values());
+        configs.addAll(qualifiedElements.values());
+        configs.addAll(elementPatterns.values());
+        configs.addAll(elementPaths.values());
+        for (ElementConfig config : configs) {
+            if (!config.occursOnce) {
+                return 0;
+            }
+        }
+        return configs.size();
     }
 
     @Override
@@ -152,47 +222,402 @@ public final class XMLObfuscator extends Obfuscator {
     @Override
     public void obfuscateText(CharSequence s, int start, int end, Appendable destination) throws IOException {
         checkStartAndEnd(s, start, end);
+        MetricsCollector metrics = MetricsCollector.create(metricsListener);
+        Appendable output = metrics != null ? metrics.countOutput(destination) : destination;
         if (generateXML) {
-            obfuscateTextWriting(s, start, end, destination);
+            obfuscateTextWriting(s, start, end, output, metrics);
+        } else if (nameScanner.containsAny(s, start, end) || !isWellFormed(s, start, end)) {
+            // Malformed XML is handled by the indexed engine, so the result is the same as if a configured name occurred
+            obfuscateTextIndexed(s, start, end, output, metrics);
         } else {
-            obfuscateTextIndexed(s, start, end, destination);
+            appendUnobfuscated(s, start, end, output, metrics);
+        }
+        if (metrics != null) {
+            metrics.characterCount(end - start);
+            metrics.report();
         }
     }
 
     @Override
     public void obfuscateText(Reader input, Appendable destination) throws IOException {
+        MetricsCollector metrics = MetricsCollector.create(metricsListener);
+        Appendable output = metrics != null ? metrics.countOutput(destination) : destination;
         if (generateXML) {
-            obfuscateTextWriting(input, destination);
+            obfuscateTextWriting(input, output, metrics);
         } else {
-            obfuscateTextIndexed(input, destination);
+            obfuscateTextIndexed(input, output, metrics);
+        }
+        if (metrics != null) {
+            metrics.report();
+        }
+    }
+
+    /**
+     * Obfuscates the contents of an {@link InputStream} that contains an XML document.
+     * The encoding of the document is determined by its byte order mark or XML declaration; if neither is present, UTF-8 is used.
+     * The obfuscated result is written to the given {@link OutputStream} using the same encoding, including any byte order mark.
+     * <p>
+     * Any {@link Builder#limitTo(long) limit} applies to the number of characters in the obfuscated result, not the number of bytes.
+     * The given {@link InputStream} and {@link OutputStream} will not be closed.
+     *
+     * @param input The {@link InputStream} with the XML document to obfuscate.
+     * @param destination The {@link OutputStream} to write the obfuscated result to.
+     * @throws NullPointerException If the given {@link InputStream} or {@link OutputStream} is {@code null}.
+     * @throws UnsupportedEncodingException If the encoding of the XML document is not supported.
+     * @throws IOException If an I/O error occurs.
+     * @since 1.5
+     */
+    public void obfuscateBytes(InputStream input, OutputStream destination) throws IOException {
+        Objects.requireNonNull(destination);
+        @SuppressWarnings("resource")
+        PushbackInputStream pushbackInput = new PushbackInputStream(input, XMLEncoding.DETECTION_LENGTH);
+        byte[] prefix = new byte[XMLEncoding.DETECTION_LENGTH];
+        int length = readAtMost(pushbackInput, prefix);
+
+        XMLEncoding encoding = XMLEncoding.detect(prefix, 0, length);
+        int byteOrderMarkLength = encoding.byteOrderMarkLength;
+        destination.write(prefix, 0, byteOrderMarkLength);
+        pushbackInput.unread(prefix, byteOrderMarkLength, length - byteOrderMarkLength);
+
+        @SuppressWarnings("resource")
+        Reader reader = new InputStreamReader(pushbackInput, encoding.charset);
+        obfuscateText(reader, destination, encoding.charset);
+    }
+
+    /**
+     * Obfuscates an XML document stored as bytes.
+     * The encoding of the document is determined by its byte order mark or XML declaration; if neither is present, UTF-8 is used.
+     * The obfuscated result is written to the given {@link OutputStream} using the same encoding, including any byte order mark.
+     * <p>
+     * Any {@link Builder#limitTo(long) limit} applies to the number of characters in the obfuscated result, not the number of bytes.
+     * The given {@link OutputStream} will not be closed.
+     *
+     * @param input The bytes of the XML document to obfuscate.
+     * @param destination The {@link OutputStream} to write the obfuscated result to.
+     * @throws NullPointerException If the given array or {@link OutputStream} is {@code null}.
+     * @throws UnsupportedEncodingException If the encoding of the XML document is not supported.
+     * @throws IOException If an I/O error occurs.
+     * @since 1.5
+     */
+    public void obfuscateBytes(byte[] input, OutputStream destination) throws IOException {
+        Objects.requireNonNull(destination);
+        XMLEncoding encoding = XMLEncoding.detect(input, 0, input.length);
+        int byteOrderMarkLength = encoding.byteOrderMarkLength;
+        destination.write(input, 0, byteOrderMarkLength);
+
+        // Decode the bytes while they are obfuscated, instead of decoding the entire document first
+        @SuppressWarnings("resource")
+        Reader reader = new InputStreamReader(new ByteArrayInputStream(input, byteOrderMarkLength, input.length - byteOrderMarkLength),
+                encoding.charset);
+        obfuscateText(reader, destination, encoding.charset);
+    }
+
+    /**
+     * Obfuscates an XML document stored in a file, and writes the obfuscated result to another file.
+     * The input file is memory-mapped in consecutive regions, and decoded directly from these regions. This makes this method suitable for
+     * very large files.
+     * <p>
+     * The encoding of the document is determined by its byte order mark or XML declaration; if neither is present, UTF-8 is used.
+     * The obfuscated result is written using the same encoding, including any byte order mark.
+     * If the output file already exists it will be overwritten.
+     * <p>
+     * Any {@link Builder#limitTo(long) limit} applies to the number of characters in the obfuscated result, not the number of bytes.
+     *
+     * @param input The path to the file with the XML document to obfuscate.
+     * @param output The path to the file to write the obfuscated result to.
+     * @throws NullPointerException If either path is {@code null}.
+     * @throws IllegalArgumentException If both paths refer to the same file.
+     * @throws UnsupportedEncodingException If the encoding of the XML document is not supported.
+     * @throws IOException If an I/O error occurs.
+     * @since 1.5
+     */
+    public void obfuscateFile(Path input, Path output) throws IOException {
+        Objects.requireNonNull(input);
+        Objects.requireNonNull(output);
+        if (Files.exists(output) && Files.isSameFile(input, output)) {
+            throw new IllegalArgumentException(Messages.XMLObfuscator.sameFile(input));
+        }
+
+        try (FileChannel inputChannel = FileChannel.open(input, StandardOpenOption.READ);
+                OutputStream outputStream = Files.newOutputStream(output)) {
+
+            byte[] prefix = new byte[XMLEncoding.DETECTION_LENGTH];
+            int length = readAtMost(inputChannel, prefix);
+
+            XMLEncoding encoding = XMLEncoding.detect(prefix, 0, length);
+            int byteOrderMarkLength = encoding.byteOrderMarkLength;
+            outputStream.write(prefix, 0, byteOrderMarkLength);
+
+            try (Reader reader = new MappedFileReader(inputChannel, byteOrderMarkLength, encoding.charset)) {
+                obfuscateText(reader, outputStream, encoding.charset);
+            }
+        }
+    }
+
+    /**
+     * Starts a session for obfuscating an XML document that is provided as a sequence of {@link ByteBuffer ByteBuffers}.
+     * Unlike the other methods to obfuscate bytes, sessions never block on input. This makes them suitable for non-blocking I/O, where a
+     * document is received in chunks.
+     * <p>
+     * The encoding of the document is determined by its byte order mark or XML declaration; if neither is present, UTF-8 is used.
+     * The obfuscated result is passed to the given consumer using the same encoding, including any byte order mark. Each call to
+     * {@link ObfuscationSession#feed(ByteBuffer)} passes the obfuscated result of as much of the document as has been received, without
+     * waiting for more content. Only content that cannot be obfuscated yet, like incomplete tags or incomplete text of elements that need to be
+     * obfuscated, is held back until more content is provided.
+     * <p>
+     * Unless this obfuscator {@link Builder#generateXML() generates XML}, the document is obfuscated like content written to the
+     * {@link #streamTo(Appendable) streaming writers} of this obfuscator. If this obfuscator does generate XML, the obfuscated result is only
+     * passed to the given consumer once the session is {@link ObfuscationSession#complete() completed}.
+     * <p>
+     * Any {@link Builder#limitTo(long) limit} applies to the number of characters in the obfuscated result, not the number of bytes.
+     *
+     * @param output The consumer for the obfuscated result. Each {@link ByteBuffer} that is passed to it is a new buffer that is not used by
+     *                   the session afterwards.
+     * @return The created session.
+     * @throws NullPointerException If the given consumer is {@code null}.
+     * @since 1.5
+     */
+    public ObfuscationSession obfuscateBytesAsync(Consumer<? super ByteBuffer> output) {
+        return new ByteBufferObfuscationSession(this::streamTo, output);
+    }
+
+    /**
+     * Obfuscates several XML documents concurrently.
+     * The documents are divided into batches, and each batch is obfuscated by a single task that is submitted to the given {@link Executor}.
+     * This method blocks until all documents have been obfuscated.
+     * <p>
+     * The given {@link Executor} can be any executor, including {@link ForkJoinPool#commonPool()}, one that uses virtual threads, or even one
+     * that runs tasks directly on the calling thread.
+     * If obfuscating a document fails, the exception is rethrown after all tasks have finished.
+     *
+     * @param inputs The XML documents to obfuscate.
+     * @param executor The executor to use for obfuscating the documents.
+     * @return A list with the obfuscated documents, in the same order as the given documents.
+     * @throws NullPointerException If the given collection or {@link Executor}, or any of the documents, is {@code null}.
+     * @throws RejectedExecutionException If the given {@link Executor} rejects a task.
+     * @since 1.5
+     */
+    public List<CharSequence> obfuscateAll(Collection<? extends CharSequence> inputs, Executor executor) {
+        Objects.requireNonNull(executor);
+        CharSequence[] texts = inputs.toArray(new CharSequence[0]);
+        for (CharSequence text : texts) {
+            Objects.requireNonNull(text);
+        }
+        CharSequence[] results = new CharSequence[texts.length];
+
+        int batchSize = batchSize(texts.length);
+        List<CompletableFuture<Void>> tasks = new ArrayList<>((texts.length + batchSize - 1) / batchSize);
+        for (int start = 0; start < texts.length; start += batchSize) {
+            int from = start;
+            int to = Math.min(start + batchSize, texts.length);
+            tasks.add(CompletableFuture.runAsync(() -> obfuscateBatch(texts, from, to, results), executor));
+        }
+        try {
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+        return Collections.unmodifiableList(Arrays.asList(results));
+    }
+
+    private static int batchSize(int count) {
+        // Use several batches per processor so that batches with larger documents do not leave other processors idle
+        int batchCount = BATCHES_PER_PROCESSOR * Runtime.getRuntime().availableProcessors();
+        return Math.max(1, (count + batchCount - 1) / batchCount);
+    }
+
+    private void obfuscateBatch(CharSequence[] texts, int from, int to, CharSequence[] results) {
+        // Reuse the same StringBuilder for all documents in the batch
+        StringBuilder sb = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            sb.setLength(0);
+            obfuscateText(texts[i], 0, texts[i].length(), sb);
+            results[i] = sb.toString();
+        }
+    }
+
+    /**
+     * Obfuscates a single large XML document using several threads.
+     * The document is split into chunks between the child elements of its root element, and the chunks are obfuscated concurrently using tasks
+     * that are submitted to the given {@link Executor}. The obfuscated chunks are then written to the given destination in order.
+     * This method blocks until the entire document has been obfuscated.
+     * <p>
+     * The result is the same as that of {@link #obfuscateText(CharSequence, Appendable)}. The document is obfuscated as a whole if it is too small
+     * to be split, if it contains a document type declaration, if its root element has no child elements, if XML is
+     * {@link Builder#generateXML() generated}, or if all configured elements {@link ElementConfigurer#occursOnce() occur only once}.
+     * If a chunk contains malformed XML, the document is obfuscated again as a whole, so the result contains the same malformed XML warning as
+     * when obfuscating the document on a single thread.
+     * <p>
+     * Because chunks are obfuscated concurrently, any {@link Builder#limitTo(long) limit} is only applied when writing the obfuscated chunks.
+     * All obfuscated chunks are kept in memory until they are written.
+     *
+     * @param s The XML document to obfuscate.
+     * @param destination The {@link Appendable} to write the obfuscated result to.
+     * @param executor The executor to use for obfuscating the chunks.
+     * @throws NullPointerException If the given document, {@link Appendable} or {@link Executor} is {@code null}.
+     * @throws RejectedExecutionException If the given {@link Executor} rejects a task.
+     * @throws IOException If an I/O error occurs.
+     * @since 1.5
+     */
+    public void obfuscateText(CharSequence s, Appendable destination, Executor executor) throws IOException {
+        int chunkCount = BATCHES_PER_PROCESSOR * Runtime.getRuntime().availableProcessors();
+        obfuscateText(s, destination, executor, Math.max(MIN_PARALLEL_CHUNK_SIZE, s.length() / chunkCount));
+    }
+
+    void obfuscateText(CharSequence s, Appendable destination, Executor executor, int minChunkSize) throws IOException {
+        Objects.requireNonNull(destination);
+        Objects.requireNonNull(executor);
+
+        DocumentChunks chunks = generateXML || singleOccurrenceElementCount > 0 ? null : DocumentChunks.split(s, 0, s.length(), minChunkSize);
+        if (chunks == null) {
+            obfuscateText(s, destination);
+            return;
+        }
+
+        MetricsCollector metrics = MetricsCollector.create(metricsListener);
+        List<CompletableFuture<ObfuscatedChunk>> tasks = new ArrayList<>(chunks.chunkCount());
+        for (int i = 0; i < chunks.chunkCount(); i++) {
+            int index = i;
+            tasks.add(CompletableFuture.supplyAsync(() -> obfuscateChunk(chunks, index, metrics != null), executor));
+        }
+        List<ObfuscatedChunk> obfuscatedChunks = new ArrayList<>(tasks.size());
+        try {
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+            for (CompletableFuture<ObfuscatedChunk> task : tasks) {
+                obfuscatedChunks.add(task.join());
+            }
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+        if (obfuscatedChunks.contains(null)) {
+            // at least one chunk contains malformed XML; obfuscate the document as a whole to get the usual result
+            obfuscateText(s, destination);
+            return;
+        }
+
+        Appendable output = metrics != null ? metrics.countOutput(destination) : destination;
+        LimitAppendable appendable = appendAtMost(output, limit);
+        for (int i = 0; i < obfuscatedChunks.size() && !appendable.limitExceeded(); i++) {
+            ObfuscatedChunk chunk = obfuscatedChunks.get(i);
+            appendable.append(chunk.content, chunk.start, chunk.end);
+            if (metrics != null) {
+                metrics.addMatchCounts(chunk.metrics);
+            }
+        }
+        if (appendable.limitExceeded()) {
+            appendTruncatedIndicator(output, s.length());
+        }
+        if (metrics != null) {
+            metrics.engine(MetricsCollector.ENGINE_PARALLEL);
+            metrics.characterCount(s.length());
+            metrics.truncated(appendable.limitExceeded());
+            metrics.report();
+        }
+    }
+
+    // Returns null if the chunk contains malformed XML
+    private ObfuscatedChunk obfuscateChunk(DocumentChunks chunks, int index, boolean collectMetrics) {
+        String document = chunks.document(index);
+        StringBuilder content = new StringBuilder(document.length());
+        MetricsCollector metrics = collectMetrics ? MetricsCollector.forChunk() : null;
+        IndexedObfuscatingXMLParser parser = new IndexedObfuscatingXMLParser(createIndexedXmlReader(reader(document, 0, document.length())),
+                new Source.OfCharSequence(document), 0, document.length(), content, elementResolver, elementPathMatcher, attributeResolver, 0,
+                metrics);
+        try {
+            int start = 0;
+            if (chunks.prefixLength(index) > 0) {
+                // the first event is the root element's start tag; its obfuscated form needs to be skipped
+                parser.processNext();
+                start = content.length();
+                if (metrics != null) {
+                    // the root element and its attributes are already counted for the first chunk
+                    metrics.resetMatchCounts();
+                }
+            }
+            while (parser.hasNext()) {
+                parser.processNext();
+            }
+            parser.appendRemainder();
+            return new ObfuscatedChunk(content, start, content.length() - chunks.suffixLength(index), metrics);
+        } catch (XMLStreamException | WstxLazyException e) {
+            return null;
+        } catch (IOException e) {
+            // appending to a StringBuilder does not throw any IOException
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static RuntimeException unwrap(CompletionException exception) {
+        Throwable cause = exception.getCause();
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return exception;
+    }
+
+    private void obfuscateText(Reader input, OutputStream destination, Charset charset) throws IOException {
+        Writer writer = new OutputStreamWriter(destination, charset);
+        obfuscateText(input, writer);
+        writer.flush();
+    }
+
+    private static int readAtMost(InputStream input, byte[] buffer) throws IOException {
+        int length = 0;
+        int n;
+        while (length < buffer.length && (n = input.read(buffer, length, buffer.length - length)) != -1) {
+            length += n;
+        }
+        return length;
+    }
+
+    private static int readAtMost(FileChannel channel, byte[] buffer) throws IOException {
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+        while (byteBuffer.hasRemaining() && channel.read(byteBuffer, byteBuffer.position()) > 0) {
+            // read until the buffer is full or there is no more content
         }
+        return byteBuffer.position();
     }
 
-    private void obfuscateTextWriting(CharSequence s, int start, int end, Appendable destination) throws IOException {
+    private void obfuscateTextWriting(CharSequence s, int start, int end, Appendable destination, MetricsCollector metrics) throws IOException {
         @SuppressWarnings("resource")
         Reader reader = reader(s, start, end);
         LimitAppendable appendable = appendAtMost(destination, limit);
         // No need to consume the reader, as it's backed by the CharSequence
-        obfuscateTextWriting(reader, appendable, false);
-        if (appendable.limitExceeded() && truncatedIndicator != null) {
-            destination.append(String.format(truncatedIndicator, end - start));
+        obfuscateTextWriting(reader, appendable, false, metrics);
+        if (appendable.limitExceeded()) {
+            appendTruncatedIndicator(destination, end - start);
+        }
+        if (metrics != null) {
+            metrics.truncated(appendable.limitExceeded());
         }
     }
 
-    private void obfuscateTextWriting(Reader input, Appendable destination) throws IOException {
+    private void obfuscateTextWriting(Reader input, Appendable destination, MetricsCollector metrics) throws IOException {
         @SuppressWarnings("resource")
         CountingReader countingReader = counting(input);
         LimitAppendable appendable = appendAtMost(destination, limit);
-        // Consume the reader so countingReader.count() will give the correct result
-        obfuscateTextWriting(countingReader, appendable, true);
-        if (appendable.limitExceeded() && truncatedIndicator != null) {
-            destination.append(String.format(truncatedIndicator, countingReader.count()));
+        // Consume the reader so countingReader.count() will give the correct result, unless the total is not needed
+        obfuscateTextWriting(countingReader, appendable, truncatedIndicatorWithTotal, metrics);
+        if (appendable.limitExceeded()) {
+            appendTruncatedIndicator(destination, countingReader.count());
+        }
+        if (metrics != null) {
+            metrics.characterCount(countingReader.count());
+            metrics.truncated(appendable.limitExceeded());
         }
     }
 
-    private void obfuscateTextWriting(Reader reader, LimitAppendable destination, boolean consumeReader) throws IOException {
+    private void obfuscateTextWriting(Reader reader, LimitAppendable destination, boolean consumeReader, MetricsCollector metrics)
+            throws IOException {
+
+        if (metrics != null) {
+            metrics.engine(MetricsCollector.ENGINE_WRITING);
+        }
         try {
-            WritingObfuscatingXMLParser parser = createWritingParser(reader, destination);
+            WritingObfuscatingXMLParser parser = createWritingParser(reader, destination, metrics);
             parser.initialize();
             try {
                 while (parser.hasNext() && !destination.limitExceeded()) {
@@ -209,79 +634,317 @@ public final class XMLObfuscator extends Obfuscator {
             if (malformedXMLWarning != null) {
                 destination.append(malformedXMLWarning);
             }
+            if (metrics != null) {
+                metrics.malformedXMLFound();
+            }
+        }
+    }
+
+    private void appendTruncatedIndicator(Appendable destination, long total) throws IOException {
+        if (truncatedIndicator != null) {
+            destination.append(truncatedIndicatorWithTotal ? String.format(truncatedIndicator, total) : truncatedIndicator);
+        }
+    }
+
+    private WritingObfuscatingXMLParser createWritingParser(Reader input, LimitAppendable destination, MetricsCollector metrics) {
+        // Woodstox readers and writers implement the Stax2 extensions
+        XMLStreamReader2 xmlStreamReader = (XMLStreamReader2) createXmlStreamReader(input);
+        XMLStreamWriter2 xmlStreamWriter = createXmlStreamWriter(destination);
+        return new WritingObfuscatingXMLParser(xmlStreamReader, xmlStreamWriter, elementResolver, elementPathMatcher, attributeResolver,
+                preferredMaxBufferSize, metrics);
+    }
+
+    private static boolean isWellFormed(CharSequence s, int start, int end) {
+        IncrementalXMLReader xmlReader = new IncrementalXMLReader(new Source.OfCharSequence(CharBuffer.wrap(s, start, end)));
+        xmlReader.endOfInput();
+        try {
+            while (xmlReader.hasNext()) {
+                xmlReader.next();
+            }
+            return true;
+        } catch (XMLStreamException e) {
+            return false;
         }
     }
 
-    private WritingObfuscatingXMLParser createWritingParser(Reader input, LimitAppendable destination) {
-        XMLStreamReader xmlStreamReader = createXmlStreamReader(input);
-        XMLStreamWriter xmlStreamWriter = createXmlStreamWriter(destination);
-        return new WritingObfuscatingXMLParser(xmlStreamReader, xmlStreamWriter, elements, qualifiedElements, attributes, qualifiedAttributes);
+    private void appendUnobfuscated(CharSequence s, int start, int end, Appendable destination, MetricsCollector metrics) throws IOException {
+        if (metrics != null) {
+            metrics.engine(MetricsCollector.ENGINE_PASSTHROUGH);
+        }
+        LimitAppendable appendable = appendAtMost(destination, limit);
+        appendable.append(s, start, end);
+        if (appendable.limitExceeded()) {
+            appendTruncatedIndicator(destination, end - start);
+        }
+        if (metrics != null) {
+            metrics.truncated(appendable.limitExceeded());
+        }
     }
 
-    private void obfuscateTextIndexed(CharSequence s, int start, int end, Appendable destination) throws IOException {
+    private void obfuscateTextIndexed(CharSequence s, int start, int end, Appendable destination, MetricsCollector metrics) throws IOException {
         @SuppressWarnings("resource")
         Reader reader = reader(s, start, end);
         LimitAppendable appendable = appendAtMost(destination, limit);
-        obfuscateTextIndexed(reader, new Source.OfCharSequence(s), start, end, appendable);
-        if (appendable.limitExceeded() && truncatedIndicator != null) {
-            destination.append(String.format(truncatedIndicator, end - start));
+        obfuscateTextIndexed(reader, new Source.OfCharSequence(s), start, end, appendable, metrics);
+        if (appendable.limitExceeded()) {
+            appendTruncatedIndicator(destination, end - start);
+        }
+        if (metrics != null) {
+            metrics.truncated(appendable.limitExceeded());
         }
     }
 
-    private void obfuscateTextIndexed(Reader input, Appendable destination) throws IOException {
+    private void obfuscateTextIndexed(Reader input, Appendable destination, MetricsCollector metrics) throws IOException {
         @SuppressWarnings("resource")
         CountingReader countingReader = counting(input);
-        Source.OfReader source = new Source.OfReader(countingReader, LOGGER);
+        Source.OfReader source = new Source.OfReader(countingReader, initialBufferCapacity, preferredMaxBufferSize, LOGGER);
         @SuppressWarnings("resource")
         Reader reader = copyTo(countingReader, source);
         LimitAppendable appendable = appendAtMost(destination, limit);
-        obfuscateTextIndexed(reader, source, 0, -1, appendable);
-        if (appendable.limitExceeded() && truncatedIndicator != null) {
-            destination.append(String.format(truncatedIndicator, countingReader.count()));
+        obfuscateTextIndexed(reader, source, 0, -1, appendable, metrics);
+        if (appendable.limitExceeded()) {
+            appendTruncatedIndicator(destination, countingReader.count());
+        }
+        if (metrics != null) {
+            metrics.characterCount(countingReader.count());
+            metrics.truncated(appendable.limitExceeded());
+            metrics.maxBufferSize(source.maxBufferSize());
+            metrics.bufferTruncationCount(source.truncationCount());
         }
     }
 
-    private void obfuscateTextIndexed(Reader input, Source source, int start, int end, LimitAppendable destination) throws IOException {
-        IndexedObfuscatingXMLParser parser = createIndexedParser(input, source, start, end, destination);
+    private void obfuscateTextIndexed(Reader input, Source source, int start, int end, LimitAppendable destination, MetricsCollector metrics)
+            throws IOException {
+
+        if (metrics != null) {
+            metrics.engine(MetricsCollector.ENGINE_INDEXED);
+        }
+        IndexedObfuscatingXMLParser parser = createIndexedParser(input, source, start, end, destination, metrics);
         try {
             while (parser.hasNext() && !destination.limitExceeded()) {
                 parser.processNext();
             }
-            parser.appendRemainder();
+            if (truncatedIndicatorWithTotal) {
+                parser.appendRemainder();
+            } else {
+                // the total is not needed, so stop reading once the limit has been exceeded
+                parser.appendRemainderUntilLimit();
+            }
         } catch (XMLStreamException | WstxLazyException e) {
             LOGGER.warn(Messages.XMLObfuscator.malformedXML.warning(), e);
             parser.finishLatestText();
             if (malformedXMLWarning != null) {
                 destination.append(malformedXMLWarning);
             }
+            if (metrics != null) {
+                metrics.malformedXMLFound();
+            }
         }
     }
 
-    private IndexedObfuscatingXMLParser createIndexedParser(Reader input, Source source, int start, int end, LimitAppendable destination) {
-        XMLStreamReader xmlStreamReader = createXmlStreamReader(input);
-        return new IndexedObfuscatingXMLParser(xmlStreamReader, source, start, end, destination, elements, qualifiedElements);
+    private IndexedObfuscatingXMLParser createIndexedParser(Reader input, Source source, int start, int end, LimitAppendable destination,
+            MetricsCollector metrics) {
+
+        return createIndexedParser(createIndexedXmlReader(input), source, start, end, destination, metrics);
+    }
+
+    private IndexedObfuscatingXMLParser createIndexedParser(IndexedXMLReader xmlReader, Source source, int start, int end, Appendable destination,
+            MetricsCollector metrics) {
+
+        return new IndexedObfuscatingXMLParser(xmlReader, source, start, end, destination, elementResolver, elementPathMatcher, attributeResolver,
+                singleOccurrenceElementCount, metrics);
+    }
+
+    private IndexedXMLReader createIndexedXmlReader(Reader input) {
+        try {
+            return new IndexedXMLReader.OfXMLStreamReader(parserBackend.createXMLStreamReader(input));
+        } catch (XMLStreamException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     private XMLStreamReader createXmlStreamReader(Reader input) {
         try {
-            return INPUT_FACTORY.createXMLStreamReader(input);
+            return XMLFactories.INPUT_FACTORY.createXMLStreamReader(input);
         } catch (XMLStreamException e) {
             throw new IllegalStateException(e);
         }
     }
 
     @SuppressWarnings("resource")
-    private XMLStreamWriter createXmlStreamWriter(Appendable destination) {
+    private XMLStreamWriter2 createXmlStreamWriter(Appendable destination) {
         try {
-            return OUTPUT_FACTORY.createXMLStreamWriter(writer(destination));
+            return (XMLStreamWriter2) XMLFactories.outputFactory().createXMLStreamWriter(writer(destination));
         } catch (XMLStreamException e) {
             throw new IllegalStateException(e);
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Unless this obfuscator {@link Builder#generateXML() generates XML}, the returned writer will obfuscate content as it is being written,
+     * and will only buffer as much of the content as is needed. This makes it suitable for large documents.
+     * Malformed XML is reported the same way as by the other obfuscation methods, with two exceptions that both require processing DTDs,
+     * which this writer does not do:
+     * <ul>
+     *   <li>Errors inside the document type declaration are not reported.</li>
+     *   <li>In documents with a document type declaration, references to undeclared entities are not reported.
+     *       Without a document type declaration, any reference to an entity other than the predefined ones is still reported.</li>
+     * </ul>
+     * <p>
+     * If this obfuscator does generate XML, the returned writer will cache all written content until it is closed.
+     */
     @Override
     public Writer streamTo(Appendable destination) {
-        return new CachingObfuscatingWriter(this, destination);
+        if (generateXML) {
+            return new CachingObfuscatingWriter(this, destination);
+        }
+        MetricsCollector metrics = MetricsCollector.create(metricsListener);
+        Appendable output = destination;
+        if (metrics != null) {
+            metrics.engine(MetricsCollector.ENGINE_STREAMING);
+            output = metrics.countOutput(destination);
+        }
+        return streamTo(output, metrics);
+    }
+
+    private Writer streamTo(Appendable destination, MetricsCollector metrics) {
+        return new StreamingObfuscatingWriter((xmlReader, source, appendable) -> createIndexedParser(xmlReader, source, 0, -1, appendable, metrics),
+                destination, initialBufferCapacity, preferredMaxBufferSize, limit, malformedXMLWarning, truncatedIndicator,
+                truncatedIndicatorWithTotal, metrics, LOGGER);
+    }
+
+    /**
+     * Warms up this obfuscator, by obfuscating a synthetic document several times.
+     * This loads all classes that are needed to obfuscate documents, and gives the JIT compiler the opportunity to compile the code that
+     * obfuscates documents. Calling this method when an application starts reduces the latency of the first obfuscation calls.
+     * <p>
+     * The synthetic document contains all elements and attributes that are configured by name. The results are discarded, and no
+     * {@link Builder#withMetricsListener(MetricsListener) metrics} are reported. However, the configured obfuscators are called, so obfuscators
+     * that {@link ElementConfigurer#cacheResults(int) cache their results} will include the results for the synthetic document in their caches.
+     *
+     * @param iterations The number of times to obfuscate the synthetic document.
+     * @throws IllegalArgumentException If the given number of iterations is negative.
+     * @since 1.5
+     */
+    public void warmUp(int iterations) {
+        if (iterations < 0) {
+            throw new IllegalArgumentException(iterations + " < 0"); //$NON-NLS-1$
+        }
+        String document = warmUpDocument();
+        StringBuilder destination = new StringBuilder(document.length());
+        try {
+            for (int i = 0; i < iterations; i++) {
+                if (generateXML) {
+                    destination.setLength(0);
+                    obfuscateTextWriting(document, 0, document.length(), destination, null);
+                    destination.setLength(0);
+                    obfuscateTextWriting(new StringReader(document), destination, null);
+                } else {
+                    destination.setLength(0);
+                    obfuscateTextIndexed(document, 0, document.length(), destination, null);
+                    destination.setLength(0);
+                    obfuscateTextIndexed(new StringReader(document), destination, null);
+                    destination.setLength(0);
+                    try (Writer writer = streamTo(destination, null)) {
+                        writer.write(document);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // appending to a StringBuilder does not throw any IOException
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Names that cannot occur in a well-formed document, like names with a prefix, are skipped; these are never matched anyway
+    @SuppressWarnings("nls")
+    private String warmUpDocument() {
+        StringBuilder document = new StringBuilder("<?xml version=\"1.0\"?>\n<warmUp>\n");
+        int namespaceIndex = 0;
+
+        document.append("  <!-- comment --><attributes");
+        // attributes are unique by namespace and local name, so an attribute can be configured both by name and by qualified name
+        Set<QName> addedAttributes = new HashSet<>();
+        for (String attribute : attributes.keySet()) {
+            if (isWarmUpName(attribute) && !XMLConstants.XMLNS_ATTRIBUTE.equals(attribute) && addedAttributes.add(new QName(attribute))) {
+                document.append(' ').append(attribute).append("=\"value &amp; more\"");
+            }
+        }
+        for (QName attribute : qualifiedAttributes.keySet()) {
+            if (isWarmUpName(attribute) && addedAttributes.add(attribute)) {
+                String name = appendNamespace(document, attribute, namespaceIndex++);
+                document.append(' ').append(name).append("=\"value &amp; more\"");
+            }
+        }
+        document.append(" />\n");
+
+        for (String element : elements.keySet()) {
+            if (isWarmUpName(element)) {
+                appendWarmUpElement(document.append("  <").append(element).append('>'), element);
+            }
+        }
+        for (QName element : qualifiedElements.keySet()) {
+            if (isWarmUpName(element)) {
+                document.append("  <");
+                int nameStart = document.length();
+                String name = appendNamespace(document, element, namespaceIndex++);
+                // the name must precede the namespace declaration
+                document.insert(nameStart, name);
+                appendWarmUpElement(document.append('>'), name);
+            }
+        }
+        return document.append("</warmUp>\n").toString();
+    }
+
+    private static boolean isWarmUpName(String name) {
+        return !name.isEmpty() && WstxInputData.findIllegalNameChar(name, true, false) == -1;
+    }
+
+    private static boolean isWarmUpName(QName name) {
+        // names in the xmlns namespace are namespace declarations, not attributes or elements
+        return isWarmUpName(name.getLocalPart()) && !XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(name.getNamespaceURI());
+    }
+
+    @SuppressWarnings("nls")
+    private static void appendWarmUpElement(StringBuilder document, String name) {
+        document.append("text &amp; more<nested>nested</nested><![CDATA[<cdata>]]></").append(name).append(">\n");
+    }
+
+    // Appends a namespace declaration if needed, and returns the qualified name to use
+    @SuppressWarnings("nls")
+    private static String appendNamespace(StringBuilder document, QName name, int namespaceIndex) {
+        if (name.getNamespaceURI().isEmpty()) {
+            return name.getLocalPart();
+        }
+        if (XMLConstants.XML_NS_URI.equals(name.getNamespaceURI())) {
+            // the xml prefix is always bound, and may not be declared for any other prefix
+            return XMLConstants.XML_NS_PREFIX + ":" + name.getLocalPart();
+        }
+        String prefix = "ns" + namespaceIndex;
+        String namespaceURI = name.getNamespaceURI().replace("&", "&amp;").replace("<", "&lt;").replace("\"", "&quot;");
+        document.append(" xmlns:").append(prefix).append("=\"").append(namespaceURI).append('"');
+        return prefix + ":" + name.getLocalPart();
+    }
+
+    /**
+     * Returns statistics for the caches of obfuscators that {@link ElementConfigurer#cacheResults(int) cache their results}.
+     * The statistics of all caches are combined. If no obfuscator caches its results, all statistics are {@code 0}.
+     *
+     * @return A snapshot of the statistics for the caches of this obfuscator.
+     * @since 1.5
+     */
+    public CacheStatistics cacheStatistics() {
+        long hitCount = 0;
+        long missCount = 0;
+        long size = 0;
+        for (MemoizingObfuscator cachingObfuscator : cachingObfuscators) {
+            hitCount += cachingObfuscator.hitCount();
+            missCount += cachingObfuscator.missCount();
+            size += cachingObfuscator.size();
+        }
+        return new CacheStatisticsSnapshot(hitCount, missCount, size);
     }
 
     @Override
@@ -295,25 +958,46 @@ public final class XMLObfuscator extends Obfuscator {
         XMLObfuscator other = (XMLObfuscator) o;
         return elements.equals(other.elements)
                 && qualifiedElements.equals(other.qualifiedElements)
+                // the order of element patterns and paths matters, as the first match wins
+                && inOrder(elementPatterns).equals(inOrder(other.elementPatterns))
+                && inOrder(elementPaths).equals(inOrder(other.elementPaths))
                 && attributes.equals(other.attributes)
                 && qualifiedAttributes.equals(other.qualifiedAttributes)
+                && inOrder(attributePatterns).equals(inOrder(other.attributePatterns))
                 && Objects.equals(malformedXMLWarning, other.malformedXMLWarning)
                 && limit == other.limit
                 && Objects.equals(truncatedIndicator, other.truncatedIndicator)
+                && truncatedIndicatorWithTotal == other.truncatedIndicatorWithTotal
+                && initialBufferCapacity == other.initialBufferCapacity
+                && preferredMaxBufferSize == other.preferredMaxBufferSize
+                && parserBackend.equals(other.parserBackend)
+                && Objects.equals(metricsListener, other.metricsListener)
                 && generateXML == other.generateXML;
     }
 
+    private static <K, V> List<Map.Entry<K, V>> inOrder(Map<K, V> map) {
+        return new ArrayList<>(map.entrySet());
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
         int result = 1;
         result = prime * result + elements.hashCode();
         result = prime * result + qualifiedElements.hashCode();
+        result = prime * result + elementPatterns.hashCode();
+        result = prime * result + elementPaths.hashCode();
         result = prime * result + attributes.hashCode();
         result = prime * result + qualifiedAttributes.hashCode();
+        result = prime * result + attributePatterns.hashCode();
         result = prime * result + Objects.hashCode(malformedXMLWarning);
         result = prime * result + Long.hashCode(limit);
         result = prime * result + Objects.hashCode(truncatedIndicator);
+        result = prime * result + Boolean.hashCode(truncatedIndicatorWithTotal);
+        result = prime * result + initialBufferCapacity;
+        result = prime * result + preferredMaxBufferSize;
+        result = prime * result + parserBackend.hashCode();
+        result = prime * result + Objects.hashCode(metricsListener);
         result = prime * result + Boolean.hashCode(generateXML);
         return result;
     }
@@ -324,11 +1008,19 @@ public final class XMLObfuscator extends Obfuscator {
         return getClass().getName()
                 + "[elements=" + elements
                 + ",qualifiedElements=" + qualifiedElements
+                + ",elementPatterns=" + elementPatterns
+                + ",elementPaths=" + elementPaths
                 + ",attributes=" + attributes
                 + ",qualifiedAttributes=" + qualifiedAttributes
+                + ",attributePatterns=" + attributePatterns
                 + ",malformedXMLWarning=" + malformedXMLWarning
                 + ",limit=" + limit
                 + ",truncatedIndicator=" + truncatedIndicator
+                + ",truncatedIndicatorWithTotal=" + truncatedIndicatorWithTotal
+                + ",initialBufferCapacity=" + initialBufferCapacity
+                + ",preferredMaxBufferSize=" + preferredMaxBufferSize
+                + ",parserBackend=" + parserBackend
+                + ",metricsListener=" + metricsListener
                 + ",generateXML=" + generateXML
                 + "]";
     }
@@ -388,15 +1080,105 @@ public final class XMLObfuscator extends Obfuscator {
          */
         ElementConfigurer withElement(QName element, Obfuscator obfuscator);
 
+        /**
+         * Adds a path to elements to obfuscate.
+         * <p>
+         * This method is an alias for {@link #withElementPath(String, Obfuscator, CaseSensitivity)} with the last specified default case
+         * sensitivity using {@link #caseSensitiveByDefault()} or {@link #caseInsensitiveByDefault()}. The default is
+         * {@link CaseSensitivity#CASE_SENSITIVE}.
+         *
+         * @param path The path to the elements. See {@link #withElementPath(String, Obfuscator, CaseSensitivity)} for its syntax.
+         * @param obfuscator The obfuscator to use for obfuscating the elements.
+         * @return An object that can be used to configure the elements, or continue building {@link XMLObfuscator XMLObfuscators}.
+         * @throws NullPointerException If the given path or obfuscator is {@code null}.
+         * @throws IllegalArgumentException If the given path is invalid, or if the same path with the same case sensitivity was already added.
+         * @since 1.5
+         */
+        ElementConfigurer withElementPath(String path, Obfuscator obfuscator);
+
+        /**
+         * Adds a path to elements to obfuscate. A path consists of one or more steps. Each step is preceded by {@code /} to match a child element,
+         * or by {@code //} to match a descendant element. A step is either a local name, or {@code *} to match any element. A path always starts
+         * at the root element. For instance:
+         * <ul>
+         * <li>{@code /Envelope/Body/Login/password} matches {@code password} elements that are children of {@code Login} elements that are
+         *     children of {@code Body} elements that are children of a root {@code Envelope} element.</li>
+         * <li>{@code //Login/password} matches {@code password} elements that are children of any {@code Login} element.</li>
+         * <li><code>/Envelope/*&#47;Login</code> matches {@code Login} elements that are grandchildren of a root {@code Envelope} element.</li>
+         * </ul>
+         * Paths are matched while parsing, and take constant time per element.
+         * <p>
+         * Any path added using this method will take precedence over elements added using {@link #withElement(String, Obfuscator)},
+         * {@link #withElement(String, Obfuscator, CaseSensitivity)} or {@link #withElement(QName, Obfuscator)}. If multiple paths match the same
+         * element, the path that was added first is used.
+         *
+         * @param path The path to the elements.
+         * @param obfuscator The obfuscator to use for obfuscating the elements.
+         * @param caseSensitivity The case sensitivity for the local names in the path.
+         * @return An object that can be used to configure the elements, or continue building {@link XMLObfuscator XMLObfuscators}.
+         * @throws NullPointerException If the given path, obfuscator or case sensitivity is {@code null}.
+         * @throws IllegalArgumentException If the given path is invalid, or if the same path with the same case sensitivity was already added.
+         * @since 1.5
+         */
+        ElementConfigurer withElementPath(String path, Obfuscator obfuscator, CaseSensitivity caseSensitivity);
+
+        /**
+         * Adds a glob pattern for elements to obfuscate.
+         * <p>
+         * This method is an alias for {@link #withElementGlob(String, Obfuscator, CaseSensitivity)} with the last specified default case
+         * sensitivity using {@link #caseSensitiveByDefault()} or {@link #caseInsensitiveByDefault()}. The default is
+         * {@link CaseSensitivity#CASE_SENSITIVE}.
+         *
+         * @param glob The glob pattern for the local names of the elements. See {@link #withElementGlob(String, Obfuscator, CaseSensitivity)}
+         *                 for its syntax.
+         * @param obfuscator The obfuscator to use for obfuscating the elements.
+         * @return An object that can be used to configure the elements, or continue building {@link XMLObfuscator XMLObfuscators}.
+         * @throws NullPointerException If the given glob pattern or obfuscator is {@code null}.
+         * @throws IllegalArgumentException If the same glob pattern with the same case sensitivity was already added.
+         * @since 1.5
+         */
+        ElementConfigurer withElementGlob(String glob, Obfuscator obfuscator);
+
+        /**
+         * Adds a glob pattern for elements to obfuscate. In the pattern, {@code *} matches any number of characters, and {@code ?} matches a
+         * single character. Any other character only matches itself. The pattern must match the complete local name of elements; for instance,
+         * {@code *Password*} matches {@code newPassword} and {@code PasswordHash}, and {@code ssn*} matches {@code ssn} and {@code ssnCountry}.
+         * <p>
+         * Elements added using {@link #withElement(String, Obfuscator)}, {@link #withElement(String, Obfuscator, CaseSensitivity)} or
+         * {@link #withElement(QName, Obfuscator)} take precedence over patterns. If multiple patterns match the same element, the pattern that
+         * was added first is used. For each distinct element name, patterns are only matched once.
+         *
+         * @param glob The glob pattern for the local names of the elements.
+         * @param obfuscator The obfuscator to use for obfuscating the elements.
+         * @param caseSensitivity The case sensitivity for the glob pattern.
+         * @return An object that can be used to configure the elements, or continue building {@link XMLObfuscator XMLObfuscators}.
+         * @throws NullPointerException If the given glob pattern, obfuscator or case sensitivity is {@code null}.
+         * @throws IllegalArgumentException If the same glob pattern with the same case sensitivity was already added.
+         * @since 1.5
+         */
+        ElementConfigurer withElementGlob(String glob, Obfuscator obfuscator, CaseSensitivity caseSensitivity);
+
+        /**
+         * Adds a regular expression for elements to obfuscate. The regular expression must match the complete local name of elements.
+         * <p>
+         * Regular expressions are handled like glob patterns; see {@link #withElementGlob(String, Obfuscator, CaseSensitivity)} for more
+         * information.
+         *
+         * @param pattern The regular expression for the local names of the elements.
+         * @param obfuscator The obfuscator to use for obfuscating the elements.
+         * @return An object that can be used to configure the elements, or continue building {@link XMLObfuscator XMLObfuscators}.
+         * @throws NullPointerException If the given regular expression or obfuscator is {@code null}.
+         * @throws IllegalArgumentException If the same regular expression with the same flags was already added.
+         * @since 1.5
+         */
+        ElementConfigurer withElementPattern(Pattern pattern, Obfuscator obfuscator);
+
         /**
          * Adds an attribute to obfuscate. This will cause any occurrence of the attribute to be obfuscated, regardless of their elements.
          * The returned object can be used to define obfuscators for occurrences of the attribute in specific elements.
          * <p>
          * This method is an alias for {@link #withAttribute(String, Obfuscator, CaseSensitivity)} with the last specified default case sensitivity
          * using {@link #caseSensitiveByDefault()} or {@link #caseInsensitiveByDefault()}. The default is {@link CaseSensitivity#CASE_SENSITIVE}.
-         * <p>
-         * Note: because locations of attributes are not easily available, XML obfuscators will generate new, obfuscated documents when attributes
-         * need to be obfuscated.
          *
          * @param attribute The local name of the attribute.
          * @param obfuscator The obfuscator to use for obfuscating the attribute.
@@ -410,9 +1192,6 @@ public final class XMLObfuscator extends Obfuscator {
         /**
          * Adds an attribute to obfuscate. This will cause any occurrence of the attribute to be obfuscated, regardless of their elements.
          * The returned object can be used to define obfuscators for occurrences of the attribute in specific elements.
-         * <p>
-         * Note: because locations of attributes are not easily available, XML obfuscators will generate new, obfuscated documents when attributes
-         * need to be obfuscated.
          *
          * @param attribute The local name of the attribute.
          * @param obfuscator The obfuscator to use for obfuscating the attribute.
@@ -429,9 +1208,6 @@ public final class XMLObfuscator extends Obfuscator {
          * The returned object can be used to define obfuscators for occurrences of the attribute in specific elements.
          * Any attribute added using this method will take precedence over attributes added using {@link #withAttribute(String, Obfuscator)} or
          * {@link #withAttribute(String, Obfuscator, CaseSensitivity)}.
-         * <p>
-         * Note: because locations of attributes are not easily available, XML obfuscators will generate new, obfuscated documents when attributes
-         * need to be obfuscated.
          *
          * @param attribute The qualified name of the attribute.
          * @param obfuscator The obfuscator to use for obfuscating the attribute.
@@ -442,6 +1218,60 @@ public final class XMLObfuscator extends Obfuscator {
          */
         AttributeConfigurer withAttribute(QName attribute, Obfuscator obfuscator);
 
+        /**
+         * Adds a glob pattern for attributes to obfuscate. This will cause any occurrence of matching attributes to be obfuscated, regardless of
+         * their elements. The returned object can be used to define obfuscators for occurrences of the attributes in specific elements.
+         * <p>
+         * This method is an alias for {@link #withAttributeGlob(String, Obfuscator, CaseSensitivity)} with the last specified default case
+         * sensitivity using {@link #caseSensitiveByDefault()} or {@link #caseInsensitiveByDefault()}. The default is
+         * {@link CaseSensitivity#CASE_SENSITIVE}.
+         *
+         * @param glob The glob pattern for the local names of the attributes. See {@link #withAttributeGlob(String, Obfuscator, CaseSensitivity)}
+         *                 for its syntax.
+         * @param obfuscator The obfuscator to use for obfuscating the attributes.
+         * @return An object that can be used to configure the attributes, or continue building {@link XMLObfuscator XMLObfuscators}.
+         * @throws NullPointerException If the given glob pattern or obfuscator is {@code null}.
+         * @throws IllegalArgumentException If the same glob pattern with the same case sensitivity was already added.
+         * @since 1.5
+         */
+        AttributeConfigurer withAttributeGlob(String glob, Obfuscator obfuscator);
+
+        /**
+         * Adds a glob pattern for attributes to obfuscate. This will cause any occurrence of matching attributes to be obfuscated, regardless of
+         * their elements. The returned object can be used to define obfuscators for occurrences of the attributes in specific elements.
+         * <p>
+         * In the pattern, {@code *} matches any number of characters, and {@code ?} matches a single character. Any other character only matches
+         * itself. The pattern must match the complete local name of attributes.
+         * <p>
+         * Attributes added using {@link #withAttribute(String, Obfuscator)}, {@link #withAttribute(String, Obfuscator, CaseSensitivity)} or
+         * {@link #withAttribute(QName, Obfuscator)} take precedence over patterns. If multiple patterns match the same attribute, the pattern that
+         * was added first is used. For each distinct attribute name, patterns are only matched once.
+         *
+         * @param glob The glob pattern for the local names of the attributes.
+         * @param obfuscator The obfuscator to use for obfuscating the attributes.
+         * @param caseSensitivity The case sensitivity for the glob pattern.
+         * @return An object that can be used to configure the attributes, or continue building {@link XMLObfuscator XMLObfuscators}.
+         * @throws NullPointerException If the given glob pattern, obfuscator or case sensitivity is {@code null}.
+         * @throws IllegalArgumentException If the same glob pattern with the same case sensitivity was already added.
+         * @since 1.5
+         */
+        AttributeConfigurer withAttributeGlob(String glob, Obfuscator obfuscator, CaseSensitivity caseSensitivity);
+
+        /**
+         * Adds a regular expression for attributes to obfuscate. The regular expression must match the complete local name of attributes.
+         * <p>
+         * Regular expressions are handled like glob patterns; see {@link #withAttributeGlob(String, Obfuscator, CaseSensitivity)} for more
+         * information.
+         *
+         * @param pattern The regular expression for the local names of the attributes.
+         * @param obfuscator The obfuscator to use for obfuscating the attributes.
+         * @return An object that can be used to configure the attributes, or continue building {@link XMLObfuscator XMLObfuscators}.
+         * @throws NullPointerException If the given regular expression or obfuscator is {@code null}.
+         * @throws IllegalArgumentException If the same regular expression with the same flags was already added.
+         * @since 1.5
+         */
+        AttributeConfigurer withAttributePattern(Pattern pattern, Obfuscator obfuscator);
+
         /**
          * Sets the default case sensitivity for new elements and attributes to {@link CaseSensitivity#CASE_SENSITIVE}. This is the default setting.
          * <p>
@@ -542,16 +1372,72 @@ public final class XMLObfuscator extends Obfuscator {
         LimitConfigurer limitTo(long limit);
 
         /**
-         * Indicates that XML obfuscators will always generate new, obfuscated documents. This method can be called when generating obfuscated
-         * documents is preferred, and no other method triggers the generation of obfuscated documents.
+         * Sets the initial capacity of the buffer that is used when obfuscating the contents of {@link Reader Readers}, or content written to
+         * {@link XMLObfuscator#streamTo(Appendable) streaming writers}. The default is 16.
+         * <p>
+         * This setting is ignored if the obfuscator {@link Builder#generateXML() generates XML}.
          *
+         * @param capacity The initial buffer capacity to use.
          * @return This object.
-         * @since 1.3
+         * @throws IllegalArgumentException If the given capacity is negative.
+         * @since 1.5
          */
-        Builder generateXML();
+        Builder withInitialBufferCapacity(int capacity);
 
         /**
-         * This method allows the application of a function to this builder.
+         * Sets the preferred maximum size of the buffer that is used when obfuscating the contents of {@link Reader Readers}, or content written
+         * to {@link XMLObfuscator#streamTo(Appendable) streaming writers}. Once the buffer exceeds this size, content that has already been
+         * processed is removed from it. If the buffer only contains content that has not yet been processed, it is allowed to grow beyond this
+         * size. Text of elements that are obfuscated is the exception; once it exceeds this size, it is streamed to the
+         * {@link Obfuscator#streamTo(Appendable) writer} of the obfuscator for its element, so it can be removed from the buffer.
+         * <p>
+         * The default is 512KB, unless system property {@code com.github.robtimus.obfuscation.xml.preferredMaxBufferSize} is set to a positive
+         * value, in which case that value is the default.
+         * <p>
+         * If the obfuscator {@link Builder#generateXML() generates XML}, this is instead the maximum size of text that is collected for
+         * obfuscation. Larger text is streamed to the {@link Obfuscator#streamTo(Appendable) writer} of the obfuscator for its element.
+         *
+         * @param size The preferred maximum buffer size to use.
+         * @return This object.
+         * @throws IllegalArgumentException If the given size is not positive.
+         * @since 1.5
+         */
+        Builder withPreferredMaxBufferSize(int size);
+
+        /**
+         * Sets the backend that is used to parse XML documents. The default is {@link ParserBackend#woodstox()}.
+         * <p>
+         * This setting is ignored if the obfuscator {@link Builder#generateXML() generates XML}, and for content written to
+         * {@link XMLObfuscator#streamTo(Appendable) streaming writers}.
+         *
+         * @param backend The backend to use.
+         * @return This object.
+         * @throws NullPointerException If the given backend is {@code null}.
+         * @since 1.5
+         */
+        Builder withParserBackend(ParserBackend backend);
+
+        /**
+         * Sets the listener that will receive the {@link Metrics metrics} of each obfuscation call.
+         * By default there is no listener, and no metrics are collected.
+         *
+         * @param listener The listener to use, or {@code null} to not collect any metrics.
+         * @return This object.
+         * @since 1.5
+         */
+        Builder withMetricsListener(MetricsListener listener);
+
+        /**
+         * Indicates that XML obfuscators will always generate new, obfuscated documents. This method can be called when generating obfuscated
+         * documents is preferred over obfuscating documents in-place.
+         *
+         * @return This object.
+         * @since 1.3
+         */
+        Builder generateXML();
+
+        /**
+         * This method allows the application of a function to this builder.
          * <p>
          * Any exception thrown by the function will be propagated to the caller.
          *
@@ -628,6 +1514,38 @@ public final class XMLObfuscator extends Obfuscator {
          */
         ElementConfigurer forNestedElements(ObfuscationMode obfuscationMode);
 
+        /**
+         * Indicates that elements with the current name occur at most once in each XML document.
+         * <p>
+         * If all configured elements occur at most once, and no attributes are configured, obfuscation stops as soon as each configured
+         * element has been processed. The remainder of the XML document is then copied as-is, without being parsed. This is useful if
+         * obfuscated elements only occur near the start of large XML documents, for instance in SOAP headers.
+         * Malformed XML in the remainder of the XML document will not be detected.
+         * <p>
+         * This setting is ignored if the obfuscator {@link Builder#generateXML() generates XML}.
+         *
+         * @return This object.
+         * @since 1.5
+         */
+        ElementConfigurer occursOnce();
+
+        /**
+         * Indicates that the results of the obfuscator for the current element should be cached.
+         * <p>
+         * This is useful if the same values occur often, and the obfuscator is expensive, for instance because it calculates a hash.
+         * The obfuscator must be deterministic; it must always return the same result for the same text. Otherwise cached results would differ
+         * from results that would otherwise have been returned.
+         * <p>
+         * Once the cache contains the given maximum number of results, the least recently used result is removed for each new result.
+         * Use {@link XMLObfuscator#cacheStatistics()} to determine how effective the cache is.
+         *
+         * @param maxSize The maximum number of results to cache.
+         * @return This object.
+         * @throws IllegalArgumentException If the given maximum size is not positive.
+         * @since 1.5
+         */
+        ElementConfigurer cacheResults(int maxSize);
+
         /**
          * The possible ways to deal with nested elements.
          *
@@ -698,6 +1616,25 @@ public final class XMLObfuscator extends Obfuscator {
          * @since 1.3
          */
         AttributeConfigurer forElement(QName element, Obfuscator obfuscator);
+
+        /**
+         * Indicates that the results of the obfuscator for the current attribute should be cached.
+         * Obfuscators that are added for specific elements using {@link #forElement(String, Obfuscator)},
+         * {@link #forElement(String, Obfuscator, CaseSensitivity)} or {@link #forElement(QName, Obfuscator)} are not affected.
+         * <p>
+         * This is useful if the same values occur often, and the obfuscator is expensive, for instance because it calculates a hash.
+         * The obfuscator must be deterministic; it must always return the same result for the same text. Otherwise cached results would differ
+         * from results that would otherwise have been returned.
+         * <p>
+         * Once the cache contains the given maximum number of results, the least recently used result is removed for each new result.
+         * Use {@link XMLObfuscator#cacheStatistics()} to determine how effective the cache is.
+         *
+         * @param maxSize The maximum number of results to cache.
+         * @return This object.
+         * @throws IllegalArgumentException If the given maximum size is not positive.
+         * @since 1.5
+         */
+        AttributeConfigurer cacheResults(int maxSize);
     }
 
     /**
@@ -717,20 +1654,314 @@ public final class XMLObfuscator extends Obfuscator {
          * @return This object.
          */
         LimitConfigurer withTruncatedIndicator(String pattern);
+
+        /**
+         * Sets the indicator to use when the obfuscated result is truncated due to the limit being exceeded.
+         * Unlike {@link #withTruncatedIndicator(String)}, the indicator has no place holder for the total number of characters, and is used as-is.
+         * Use {@code null} to omit the indicator.
+         * <p>
+         * Because the total number of characters is then not needed, the contents of {@link Reader Readers}, {@link InputStream InputStreams} and
+         * files are no longer read once the limit has been exceeded. Any remaining content is left unread. This can save a lot of time for large
+         * documents with small limits. It also means that {@link Metrics#characterCount()} only includes the characters that have been read.
+         *
+         * @param indicator The indicator to use.
+         * @return This object.
+         * @since 1.5
+         */
+        LimitConfigurer withTruncatedIndicatorWithoutTotal(String indicator);
+    }
+
+    /**
+     * A backend that parses XML documents that are obfuscated without {@link Builder#generateXML() generating XML}.
+     * <p>
+     * These documents are obfuscated in-place; anything that does not need to be obfuscated is copied from the original document as-is.
+     * This relies on the character offsets of the parsed events, so backends must provide the following guarantees:
+     * <ul>
+     *   <li>{@link LocationInfo#getStartingCharOffset()} and {@link LocationInfo#getEndingCharOffset()} of the
+     *       {@link XMLStreamReader2#getLocationInfo() location info} of created readers return the exact character offsets of the current event,
+     *       relative to the start of the input. Ending offsets are exclusive. For start and end tags, these include the {@code <} and {@code >}
+     *       characters. For CDATA sections, these include {@code <![CDATA[} and {@code ]]>}. The only exception are events up to and
+     *       including the root element's start tag, whose starting offsets may include preceding whitespace.</li>
+     *   <li>Local names and namespace URIs of elements and attributes are {@link String#intern() interned}.</li>
+     *   <li>Attributes are returned in document order, without namespace declarations.</li>
+     *   <li>External DTDs and external entities are never resolved.</li>
+     * </ul>
+     * <p>
+     * Backends must be thread-safe, as obfuscators can be used concurrently.
+     *
+     * @author Rob Spoor
+     * @since 1.5
+     */
+    public interface ParserBackend {
+
+        /**
+         * Creates a reader for an XML document.
+         *
+         * @param input The {@link Reader} with the XML document.
+         * @return The created reader.
+         * @throws XMLStreamException If the reader could not be created.
+         */
+        XMLStreamReader2 createXMLStreamReader(Reader input) throws XMLStreamException;
+
+        /**
+         * Returns a backend that uses <a href="https://github.com/FasterXML/woodstox">Woodstox</a>. This is the default backend.
+         *
+         * @return A backend that uses Woodstox.
+         */
+        static ParserBackend woodstox() {
+            return ParserBackends.WOODSTOX;
+        }
+
+        /**
+         * Returns a backend that uses <a href="https://github.com/FasterXML/aalto-xml">Aalto</a>. This requires Aalto to be on the class path.
+         * <p>
+         * Aalto is usually faster than Woodstox, but it differs in the following ways:
+         * <ul>
+         *   <li>References to entities that are declared in the document type declaration are not supported. Documents that contain them are
+         *       treated as malformed XML.</li>
+         *   <li>If a document is truncated inside text, that text is omitted from the result.</li>
+         * </ul>
+         *
+         * @return A backend that uses Aalto.
+         * @throws IllegalStateException If Aalto is not available.
+         */
+        static ParserBackend aalto() {
+            return ParserBackends.aalto();
+        }
+    }
+
+    /**
+     * A session for obfuscating an XML document that is provided as a sequence of {@link ByteBuffer ByteBuffers}.
+     * <p>
+     * Sessions are not thread-safe. However, they can be used by different threads, as long as they are not used concurrently.
+     *
+     * @author Rob Spoor
+     * @see XMLObfuscator#obfuscateBytesAsync(Consumer)
+     * @since 1.5
+     */
+    public interface ObfuscationSession {
+
+        /**
+         * Provides the next chunk of the XML document. All remaining bytes of the given {@link ByteBuffer} are consumed.
+         * Any content that has been obfuscated is passed to the consumer of this session before this method returns.
+         *
+         * @param input The next chunk of the XML document.
+         * @throws NullPointerException If the given {@link ByteBuffer} is {@code null}.
+         * @throws IllegalStateException If this session has already been completed.
+         * @throws UnsupportedEncodingException If the encoding of the XML document is not supported.
+         * @throws IOException If an I/O error occurs.
+         */
+        void feed(ByteBuffer input) throws IOException;
+
+        /**
+         * Signals that the entire XML document has been provided.
+         * The remainder of the obfuscated result is passed to the consumer of this session before this method returns.
+         *
+         * @throws IllegalStateException If this session has already been completed.
+         * @throws UnsupportedEncodingException If the encoding of the XML document is not supported.
+         * @throws IOException If an I/O error occurs.
+         */
+        void complete() throws IOException;
+    }
+
+    /**
+     * A listener for the {@link Metrics metrics} of obfuscation calls.
+     * <p>
+     * Listeners are called from the thread that performs the obfuscation, so implementations should be thread-safe and return quickly.
+     * Any exception thrown by a listener will be propagated to the caller of the obfuscation call.
+     *
+     * @author Rob Spoor
+     * @since 1.5
+     */
+    @FunctionalInterface
+    public interface MetricsListener {
+
+        /**
+         * Called when an obfuscation call has finished.
+         * For {@link XMLObfuscator#streamTo(Appendable) streaming writers}, this is when the writer is closed.
+         * <p>
+         * If the obfuscation call failed with an exception, this method is not called.
+         *
+         * @param metrics The metrics of the obfuscation call. This object should not be used after this method returns.
+         */
+        void obfuscated(Metrics metrics);
+    }
+
+    /**
+     * Metrics of a single obfuscation call.
+     *
+     * @author Rob Spoor
+     * @since 1.5
+     */
+    public interface Metrics {
+
+        /**
+         * Returns the number of characters of the input. This includes characters that have been omitted due to a
+         * {@link Builder#limitTo(long) limit}.
+         *
+         * @return The number of characters of the input.
+         */
+        long characterCount();
+
+        /**
+         * Returns the number of elements for which an obfuscator was configured.
+         * Elements nested in an element that is being obfuscated are only included if they have their own obfuscator and
+         * {@link ObfuscationMode#INHERIT_OVERRIDABLE} or {@link ObfuscationMode#EXCLUDE} is used.
+         *
+         * @return The number of elements for which an obfuscator was configured.
+         */
+        int matchedElementCount();
+
+        /**
+         * Returns the number of attributes for which an obfuscator was configured.
+         *
+         * @return The number of attributes for which an obfuscator was configured.
+         */
+        int matchedAttributeCount();
+
+        /**
+         * Returns whether or not the obfuscated result was truncated because its {@link Builder#limitTo(long) limit} was exceeded.
+         *
+         * @return {@code true} if the obfuscated result was truncated, or {@code false} otherwise.
+         */
+        boolean truncated();
+
+        /**
+         * Returns whether or not obfuscation was aborted due to malformed XML.
+         *
+         * @return {@code true} if obfuscation was aborted due to malformed XML, or {@code false} otherwise.
+         */
+        boolean malformedXML();
+
+        /**
+         * Returns the maximum size that the buffer for the contents of {@link Reader Readers} or
+         * {@link XMLObfuscator#streamTo(Appendable) streaming writers} reached.
+         * This is {@code 0} if no such buffer was used, for instance when obfuscating {@link CharSequence CharSequences}.
+         *
+         * @return The maximum size of the buffer.
+         */
+        int maxBufferSize();
+
+        /**
+         * Returns the duration of the obfuscation call, in nanoseconds.
+         *
+         * @return The duration of the obfuscation call, in nanoseconds.
+         */
+        long durationNanos();
+    }
+
+    /**
+     * Statistics for the caches of obfuscators that {@link ElementConfigurer#cacheResults(int) cache their results}.
+     *
+     * @author Rob Spoor
+     * @since 1.5
+     */
+    public interface CacheStatistics {
+
+        /**
+         * Returns the number of times a result was found in a cache.
+         *
+         * @return The number of times a result was found in a cache.
+         */
+        long hitCount();
+
+        /**
+         * Returns the number of times a result was not found in a cache, and had to be calculated.
+         *
+         * @return The number of times a result was not found in a cache.
+         */
+        long missCount();
+
+        /**
+         * Returns the number of results that are currently cached.
+         *
+         * @return The number of results that are currently cached.
+         */
+        long size();
+    }
+
+    private static final class CacheStatisticsSnapshot implements CacheStatistics {
+
+        private final long hitCount;
+        private final long missCount;
+        private final long size;
+
+        private CacheStatisticsSnapshot(long hitCount, long missCount, long size) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.size = size;
+        }
+
+        @Override
+        public long hitCount() {
+            return hitCount;
+        }
+
+        @Override
+        public long missCount() {
+            return missCount;
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        @SuppressWarnings("nls")
+        public String toString() {
+            return "[hitCount=" + hitCount
+                    + ",missCount=" + missCount
+                    + ",size=" + size
+                    + "]";
+        }
+    }
+
+    private static final class ObfuscatedChunk {
+
+        private final CharSequence content;
+        private final int start;
+        private final int end;
+        // null if no metrics are collected
+        private final MetricsCollector metrics;
+
+        private ObfuscatedChunk(CharSequence content, int start, int end, MetricsCollector metrics) {
+            this.content = content;
+            this.start = start;
+            this.end = end;
+            this.metrics = metrics;
+        }
     }
 
     private static final class ObfuscatorBuilder implements ElementConfigurer, AttributeConfigurer, LimitConfigurer {
 
         private final MapBuilder<ElementConfig> elements;
         private final Map<QName, ElementConfig> qualifiedElements;
+        private final Map<NamePattern, ElementConfig> elementPatterns;
+        private final Map<ElementPath, ElementConfig> elementPaths;
 
         private final MapBuilder<AttributeConfig> attributes;
         private final Map<QName, AttributeConfig> qualifiedAttributes;
+        private final Map<NamePattern, AttributeConfig> attributePatterns;
+
+        // the names of all elements and attributes, for the NameScanner
+        private final List<String> caseSensitiveNames;
+        private final List<String> caseInsensitiveNames;
 
         private String malformedXMLWarning;
 
         private long limit;
         private String truncatedIndicator;
+        private boolean truncatedIndicatorWithTotal;
+
+        private int initialBufferCapacity;
+        private int preferredMaxBufferSize;
+
+        private ParserBackend parserBackend;
+
+        private MetricsListener metricsListener;
+
+        private final List<MemoizingObfuscator> cachingObfuscators;
 
         // default settings
         private CaseSensitivity defaultCaseSensitivity;
@@ -739,11 +1970,16 @@ public final class XMLObfuscator extends Obfuscator {
         // per element / attribute settings
         private String element;
         private QName qualifiedElement;
+        private NamePattern elementPattern;
+        private ElementPath elementPath;
         private String attribute;
         private QName qualifiedAttribute;
+        private NamePattern attributePattern;
         private Obfuscator obfuscator;
         private CaseSensitivity caseSensitivity;
         private ObfuscationMode forNestedElements;
+        private boolean occursOnce;
+        private int cacheSize;
         private MapBuilder<Obfuscator> attributeElements;
         private Map<QName, Obfuscator> qualifiedAttributeElements;
 
@@ -753,14 +1989,28 @@ public final class XMLObfuscator extends Obfuscator {
         private ObfuscatorBuilder() {
             elements = new MapBuilder<>();
             qualifiedElements = new HashMap<>();
+            elementPatterns = new LinkedHashMap<>();
+            elementPaths = new LinkedHashMap<>();
 
             attributes = new MapBuilder<>();
             qualifiedAttributes = new HashMap<>();
+            attributePatterns = new LinkedHashMap<>();
+
+            caseSensitiveNames = new ArrayList<>();
+            caseInsensitiveNames = new ArrayList<>();
 
             malformedXMLWarning = Messages.XMLObfuscator.malformedXML.text();
 
             limit = Long.MAX_VALUE;
             truncatedIndicator = "... (total: %d)"; //$NON-NLS-1$
+            truncatedIndicatorWithTotal = true;
+
+            initialBufferCapacity = Source.OfReader.DEFAULT_INITIAL_CAPACITY;
+            preferredMaxBufferSize = Source.OfReader.PREFERRED_MAX_BUFFER_SIZE;
+
+            parserBackend = ParserBackends.WOODSTOX;
+
+            cachingObfuscators = new ArrayList<>();
 
             defaultCaseSensitivity = CASE_SENSITIVE;
             forNestedElementsByDefault = ObfuscationMode.INHERIT;
@@ -783,6 +2033,7 @@ public final class XMLObfuscator extends Obfuscator {
             this.obfuscator = obfuscator;
             this.caseSensitivity = caseSensitivity;
             this.forNestedElements = forNestedElementsByDefault;
+            this.occursOnce = false;
 
             return this;
         }
@@ -802,6 +2053,65 @@ public final class XMLObfuscator extends Obfuscator {
             this.obfuscator = obfuscator;
             this.caseSensitivity = null;
             this.forNestedElements = forNestedElementsByDefault;
+            this.occursOnce = false;
+
+            return this;
+        }
+
+        @Override
+        public ElementConfigurer withElementGlob(String glob, Obfuscator obfuscator) {
+            return withElementGlob(glob, obfuscator, defaultCaseSensitivity);
+        }
+
+        @Override
+        public ElementConfigurer withElementGlob(String glob, Obfuscator obfuscator, CaseSensitivity caseSensitivity) {
+            return withElementPattern(NamePattern.glob(glob, caseSensitivity), obfuscator);
+        }
+
+        @Override
+        public ElementConfigurer withElementPattern(Pattern pattern, Obfuscator obfuscator) {
+            return withElementPattern(NamePattern.regex(pattern), obfuscator);
+        }
+
+        private ElementConfigurer withElementPattern(NamePattern pattern, Obfuscator obfuscator) {
+            addLastElementOrAttribute();
+
+            Objects.requireNonNull(obfuscator);
+
+            if (elementPatterns.containsKey(pattern)) {
+                throw new IllegalArgumentException(Messages.XMLObfuscator.duplicateElement(pattern));
+            }
+
+            this.elementPattern = pattern;
+            this.obfuscator = obfuscator;
+            this.caseSensitivity = null;
+            this.forNestedElements = forNestedElementsByDefault;
+            this.occursOnce = false;
+
+            return this;
+        }
+
+        @Override
+        public ElementConfigurer withElementPath(String path, Obfuscator obfuscator) {
+            return withElementPath(path, obfuscator, defaultCaseSensitivity);
+        }
+
+        @Override
+        public ElementConfigurer withElementPath(String path, Obfuscator obfuscator, CaseSensitivity caseSensitivity) {
+            addLastElementOrAttribute();
+
+            Objects.requireNonNull(obfuscator);
+            ElementPath elementPath = new ElementPath(path, caseSensitivity);
+
+            if (elementPaths.containsKey(elementPath)) {
+                throw new IllegalArgumentException(Messages.XMLObfuscator.duplicateElementPath(elementPath));
+            }
+
+            this.elementPath = elementPath;
+            this.obfuscator = obfuscator;
+            this.caseSensitivity = caseSensitivity;
+            this.forNestedElements = forNestedElementsByDefault;
+            this.occursOnce = false;
 
             return this;
         }
@@ -824,8 +2134,6 @@ public final class XMLObfuscator extends Obfuscator {
             this.attributeElements = new MapBuilder<>();
             this.qualifiedAttributeElements = new HashMap<>();
 
-            generateXML();
-
             return this;
         }
 
@@ -847,7 +2155,39 @@ public final class XMLObfuscator extends Obfuscator {
             this.attributeElements = new MapBuilder<>();
             this.qualifiedAttributeElements = new HashMap<>();
 
-            generateXML();
+            return this;
+        }
+
+        @Override
+        public AttributeConfigurer withAttributeGlob(String glob, Obfuscator obfuscator) {
+            return withAttributeGlob(glob, obfuscator, defaultCaseSensitivity);
+        }
+
+        @Override
+        public AttributeConfigurer withAttributeGlob(String glob, Obfuscator obfuscator, CaseSensitivity caseSensitivity) {
+            return withAttributePattern(NamePattern.glob(glob, caseSensitivity), obfuscator);
+        }
+
+        @Override
+        public AttributeConfigurer withAttributePattern(Pattern pattern, Obfuscator obfuscator) {
+            return withAttributePattern(NamePattern.regex(pattern), obfuscator);
+        }
+
+        private AttributeConfigurer withAttributePattern(NamePattern pattern, Obfuscator obfuscator) {
+            addLastElementOrAttribute();
+
+            Objects.requireNonNull(obfuscator);
+
+            if (attributePatterns.containsKey(pattern)) {
+                throw new IllegalArgumentException(Messages.XMLObfuscator.duplicateAttribute(pattern));
+            }
+
+            this.attributePattern = pattern;
+            this.obfuscator = obfuscator;
+            this.caseSensitivity = null;
+
+            this.attributeElements = new MapBuilder<>();
+            this.qualifiedAttributeElements = new HashMap<>();
 
             return this;
         }
@@ -902,6 +2242,21 @@ public final class XMLObfuscator extends Obfuscator {
             return this;
         }
 
+        @Override
+        public ElementConfigurer occursOnce() {
+            occursOnce = true;
+            return this;
+        }
+
+        @Override
+        public ObfuscatorBuilder cacheResults(int maxSize) {
+            if (maxSize <= 0) {
+                throw new IllegalArgumentException(maxSize + " <= 0"); //$NON-NLS-1$
+            }
+            cacheSize = maxSize;
+            return this;
+        }
+
         @Override
         public Builder withMalformedXMLWarning(String warning) {
             malformedXMLWarning = warning;
@@ -920,6 +2275,44 @@ public final class XMLObfuscator extends Obfuscator {
         @Override
         public LimitConfigurer withTruncatedIndicator(String pattern) {
             this.truncatedIndicator = pattern;
+            this.truncatedIndicatorWithTotal = true;
+            return this;
+        }
+
+        @Override
+        public LimitConfigurer withTruncatedIndicatorWithoutTotal(String indicator) {
+            this.truncatedIndicator = indicator;
+            this.truncatedIndicatorWithTotal = false;
+            return this;
+        }
+
+        @Override
+        public Builder withInitialBufferCapacity(int capacity) {
+            if (capacity < 0) {
+                throw new IllegalArgumentException(capacity + " < 0"); //$NON-NLS-1$
+            }
+            this.initialBufferCapacity = capacity;
+            return this;
+        }
+
+        @Override
+        public Builder withPreferredMaxBufferSize(int size) {
+            if (size <= 0) {
+                throw new IllegalArgumentException(size + " <= 0"); //$NON-NLS-1$
+            }
+            this.preferredMaxBufferSize = size;
+            return this;
+        }
+
+        @Override
+        public Builder withParserBackend(ParserBackend backend) {
+            this.parserBackend = Objects.requireNonNull(backend);
+            return this;
+        }
+
+        @Override
+        public Builder withMetricsListener(MetricsListener listener) {
+            this.metricsListener = listener;
             return this;
         }
 
@@ -937,6 +2330,14 @@ public final class XMLObfuscator extends Obfuscator {
             return Collections.unmodifiableMap(new HashMap<>(qualifiedElements));
         }
 
+        private Map<NamePattern, ElementConfig> elementPatterns() {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(elementPatterns));
+        }
+
+        private Map<ElementPath, ElementConfig> elementPaths() {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(elementPaths));
+        }
+
         private Map<String, AttributeConfig> attributes() {
             return attributes.build();
         }
@@ -945,6 +2346,10 @@ public final class XMLObfuscator extends Obfuscator {
             return Collections.unmodifiableMap(new HashMap<>(qualifiedAttributes));
         }
 
+        private Map<NamePattern, AttributeConfig> attributePatterns() {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(attributePatterns));
+        }
+
         private Map<String, Obfuscator> attributeElements() {
             return attributeElements.build();
         }
@@ -953,32 +2358,99 @@ public final class XMLObfuscator extends Obfuscator {
             return Collections.unmodifiableMap(new HashMap<>(qualifiedAttributeElements));
         }
 
+        private NameScanner nameScanner() {
+            List<String> names = new ArrayList<>(caseSensitiveNames);
+            // Documents with a document type declaration can contain entity references that expand to elements
+            names.add("<!DOCTYPE"); //$NON-NLS-1$
+            return new NameScanner(names, caseInsensitiveNames);
+        }
+
         private void addLastElementOrAttribute() {
+            Obfuscator obfuscator = cachingIfNeeded(this.obfuscator);
             if (attribute != null) {
                 AttributeConfig attributeConfig = new AttributeConfig(obfuscator, attributeElements(), qualifiedAttributeElements());
                 attributes.withEntry(attribute, attributeConfig, caseSensitivity);
+                addName(attribute, caseSensitivity);
             } else if (qualifiedAttribute != null) {
                 AttributeConfig attributeConfig = new AttributeConfig(obfuscator, attributeElements(), qualifiedAttributeElements());
                 qualifiedAttributes.put(qualifiedAttribute, attributeConfig);
+                addName(qualifiedAttribute.getLocalPart(), CASE_SENSITIVE);
+            } else if (attributePattern != null) {
+                AttributeConfig attributeConfig = new AttributeConfig(obfuscator, attributeElements(), qualifiedAttributeElements());
+                attributePatterns.put(attributePattern, attributeConfig);
+                addName(attributePattern);
             } else if (element != null) {
-                ElementConfig elementConfig = new ElementConfig(obfuscator, forNestedElements);
+                ElementConfig elementConfig = new ElementConfig(obfuscator, forNestedElements, occursOnce);
                 elements.withEntry(element, elementConfig, caseSensitivity);
+                addName(element, caseSensitivity);
             } else if (qualifiedElement != null) {
-                ElementConfig elementConfig = new ElementConfig(obfuscator, forNestedElements);
+                ElementConfig elementConfig = new ElementConfig(obfuscator, forNestedElements, occursOnce);
                 qualifiedElements.put(qualifiedElement, elementConfig);
+                addName(qualifiedElement.getLocalPart(), CASE_SENSITIVE);
+            } else if (elementPattern != null) {
+                ElementConfig elementConfig = new ElementConfig(obfuscator, forNestedElements, occursOnce);
+                elementPatterns.put(elementPattern, elementConfig);
+                addName(elementPattern);
+            } else if (elementPath != null) {
+                ElementConfig elementConfig = new ElementConfig(obfuscator, forNestedElements, occursOnce);
+                elementPaths.put(elementPath, elementConfig);
+                String lastName = elementPath.lastName();
+                if (lastName != null) {
+                    addName(lastName, caseSensitivity);
+                } else {
+                    addAnyName();
+                }
             }
 
             element = null;
             qualifiedElement = null;
+            elementPattern = null;
+            elementPath = null;
             attribute = null;
             qualifiedAttribute = null;
+            attributePattern = null;
             obfuscator = null;
             caseSensitivity = defaultCaseSensitivity;
             forNestedElements = forNestedElementsByDefault;
+            occursOnce = false;
+            cacheSize = 0;
             attributeElements = null;
             qualifiedAttributeElements = null;
         }
 
+        private Obfuscator cachingIfNeeded(Obfuscator obfuscator) {
+            // Obfuscator.none() is not wrapped, so it can still be recognized to skip obfuscation
+            if (cacheSize == 0 || obfuscator == null || obfuscator.equals(Obfuscator.none())) {
+                return obfuscator;
+            }
+            MemoizingObfuscator cachingObfuscator = new MemoizingObfuscator(obfuscator, cacheSize);
+            cachingObfuscators.add(cachingObfuscator);
+            return cachingObfuscator;
+        }
+
+        private void addName(NamePattern pattern) {
+            String literal = pattern.literal();
+            if (literal != null) {
+                // all matching names contain the literal
+                addName(literal, pattern.literalCaseSensitivity());
+            } else {
+                addAnyName();
+            }
+        }
+
+        private void addAnyName() {
+            // every element starts with <, and attributes are only found inside elements
+            addName("<", CASE_SENSITIVE); //$NON-NLS-1$
+        }
+
+        private void addName(String name, CaseSensitivity nameCaseSensitivity) {
+            if (nameCaseSensitivity == CASE_SENSITIVE) {
+                caseSensitiveNames.add(name);
+            } else {
+                caseInsensitiveNames.add(name);
+            }
+        }
+
         @Override
         public XMLObfuscator build() {
             addLastElementOrAttribute();
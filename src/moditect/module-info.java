@@ -19,7 +19,9 @@ module com.github.robtimus.obfuscation.xml {
     requires transitive com.github.robtimus.obfuscation;
     requires transitive java.xml;
     requires com.ctc.wstx;
+    requires static com.fasterxml.aalto;
     requires org.slf4j;
+    requires static jdk.jfr;
 
     exports com.github.robtimus.obfuscation.xml;
 }
@@ -0,0 +1,126 @@
+/*
+ * ConfigResolverTest.java
+ * Copyright 2026 Rob Spoor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robtimus.obfuscation.xml;
+
+import static com.github.robtimus.obfuscation.support.CaseSensitivity.CASE_INSENSITIVE;
+import static com.github.robtimus.obfuscation.support.CaseSensitivity.CASE_SENSITIVE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import com.github.robtimus.obfuscation.support.MapBuilder;
+
+@SuppressWarnings("nls")
+class ConfigResolverTest {
+
+    @Test
+    @DisplayName("isEmpty()")
+    void testIsEmpty() {
+        assertTrue(new ConfigResolver<>(Collections.emptyMap(), Collections.emptyMap()).isEmpty());
+        assertFalse(new ConfigResolver<>(Collections.singletonMap("a", "b"), Collections.emptyMap()).isEmpty());
+        assertFalse(new ConfigResolver<>(Collections.emptyMap(), Collections.singletonMap(new QName("a"), "b")).isEmpty());
+        assertTrue(new ConfigResolver<>(Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("resolve(String, String)")
+    void testResolve() {
+        Map<String, String> configs = new MapBuilder<String>()
+                .withEntry("local", "local config", CASE_SENSITIVE)
+                .withEntry("INSENSITIVE", "case insensitive config", CASE_INSENSITIVE)
+                .build();
+        Map<QName, String> qualifiedConfigs = new HashMap<>();
+        qualifiedConfigs.put(new QName("urn:test", "local"), "qualified config");
+        qualifiedConfigs.put(new QName("unqualified"), "unqualified config");
+
+        ConfigResolver<String> resolver = new ConfigResolver<>(configs, qualifiedConfigs);
+
+        // repeat, so results come from the cache as well
+        for (int i = 0; i < 2; i++) {
+            assertEquals("qualified config", resolver.resolve("urn:test", "local"));
+            assertEquals("local config", resolver.resolve(XMLConstants.NULL_NS_URI, "local"));
+            assertEquals("local config", resolver.resolve(null, "local"));
+            assertEquals("local config", resolver.resolve("urn:other", "local"));
+            assertEquals("case insensitive config", resolver.resolve(XMLConstants.NULL_NS_URI, "insensitive"));
+            assertEquals("unqualified config", resolver.resolve(XMLConstants.NULL_NS_URI, "unqualified"));
+            assertEquals("unqualified config", resolver.resolve(null, "unqualified"));
+            assertNull(resolver.resolve("urn:test", "unqualified"));
+            assertNull(resolver.resolve(XMLConstants.NULL_NS_URI, "other"));
+        }
+        assertEquals(9, resolver.cacheSize());
+    }
+
+    @Test
+    @DisplayName("resolve(String, String) with patterns")
+    void testResolveWithPatterns() {
+        Map<NamePattern, String> patternConfigs = new LinkedHashMap<>();
+        patternConfigs.put(NamePattern.glob("*Password*", CASE_SENSITIVE), "first pattern config");
+        patternConfigs.put(NamePattern.regex(Pattern.compile(".*Password|ssn.*")), "second pattern config");
+
+        ConfigResolver<String> resolver = new ConfigResolver<>(Collections.singletonMap("oldPassword", "local config"),
+                Collections.singletonMap(new QName("urn:test", "newPassword"), "qualified config"), patternConfigs);
+
+        assertFalse(resolver.isEmpty());
+        assertFalse(new ConfigResolver<>(Collections.emptyMap(), Collections.emptyMap(), patternConfigs).isEmpty());
+
+        // repeat, so results come from the cache as well
+        for (int i = 0; i < 2; i++) {
+            assertEquals("qualified config", resolver.resolve("urn:test", "newPassword"));
+            assertEquals("local config", resolver.resolve(XMLConstants.NULL_NS_URI, "oldPassword"));
+            assertEquals("first pattern config", resolver.resolve(XMLConstants.NULL_NS_URI, "newPassword"));
+            assertEquals("second pattern config", resolver.resolve(XMLConstants.NULL_NS_URI, "ssnCountry"));
+            assertNull(resolver.resolve(XMLConstants.NULL_NS_URI, "password"));
+        }
+        assertEquals(5, resolver.cacheSize());
+    }
+
+    @Test
+    @DisplayName("resolve(String, String) with names that are not interned")
+    void testResolveNotInterned() {
+        ConfigResolver<String> resolver = new ConfigResolver<>(Collections.singletonMap("local", "local config"), Collections.emptyMap());
+
+        for (int i = 0; i < ConfigResolver.MAX_CACHE_SIZE * 2; i++) {
+            assertEquals("local config", resolver.resolve(XMLConstants.NULL_NS_URI, new String("local")));
+        }
+        assertEquals(ConfigResolver.MAX_CACHE_SIZE, resolver.cacheSize());
+    }
+
+    @Test
+    @DisplayName("resolve(String, String) with many names without configuration")
+    void testResolveManyUnmatchedNames() {
+        ConfigResolver<String> resolver = new ConfigResolver<>(Collections.singletonMap("local", "local config"), Collections.emptyMap());
+
+        for (int i = 0; i < ConfigResolver.MAX_CACHE_SIZE * 2; i++) {
+            assertNull(resolver.resolve(XMLConstants.NULL_NS_URI, ("other" + i).intern()));
+        }
+        assertEquals(ConfigResolver.MAX_CACHE_SIZE, resolver.cacheSize());
+
+        // names with a configuration are still cached
+        assertEquals("local config", resolver.resolve(XMLConstants.NULL_NS_URI, "local"));
+        assertEquals(ConfigResolver.MAX_CACHE_SIZE + 1, resolver.cacheSize());
+    }
+}
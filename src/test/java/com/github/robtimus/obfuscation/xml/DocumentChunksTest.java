@@ -0,0 +1,108 @@
+/*
+ * DocumentChunksTest.java
+ * Copyright 2026 Rob Spoor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robtimus.obfuscation.xml;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+@SuppressWarnings("nls")
+class DocumentChunksTest {
+
+    @Test
+    @DisplayName("split between child elements")
+    void testSplit() {
+        String xml = "<?xml version=\"1.0\"?><!-- <x> --><r:root xmlns:r=\"urn:test\" a=\">\"><a>1</a> <b/><c><d>2</d></c>text<e>3</e></r:root> ";
+
+        DocumentChunks chunks = DocumentChunks.split(xml, 0, xml.length(), 1);
+
+        assertNotNull(chunks);
+        assertEquals(Arrays.asList(
+                "<?xml version=\"1.0\"?><!-- <x> --><r:root xmlns:r=\"urn:test\" a=\">\"><a>1</a></r:root>",
+                "<r:root xmlns:r=\"urn:test\" a=\">\"> <b/></r:root>",
+                "<r:root xmlns:r=\"urn:test\" a=\">\"><c><d>2</d></c></r:root>",
+                "<r:root xmlns:r=\"urn:test\" a=\">\">text<e>3</e></r:root> "),
+                documents(chunks));
+        assertEquals(0, chunks.prefixLength(0));
+        assertEquals("<r:root xmlns:r=\"urn:test\" a=\">\">".length(), chunks.prefixLength(1));
+        assertEquals("</r:root>".length(), chunks.suffixLength(0));
+        assertEquals(0, chunks.suffixLength(3));
+    }
+
+    @Test
+    @DisplayName("markup inside comments, CDATA sections and processing instructions is ignored")
+    void testMarkupIgnored() {
+        String xml = "<root><a><!-- </a> --></a><b><![CDATA[</b><c>]]></b><?pi </c> ?><c x='/>'/></root>";
+
+        DocumentChunks chunks = DocumentChunks.split(xml, 0, xml.length(), 1);
+
+        assertNotNull(chunks);
+        assertEquals(Arrays.asList(
+                "<root><a><!-- </a> --></a></root>",
+                "<root><b><![CDATA[</b><c>]]></b></root>",
+                "<root><?pi </c> ?><c x='/>'/></root>"),
+                documents(chunks));
+    }
+
+    @Test
+    @DisplayName("minimum chunk size")
+    void testMinChunkSize() {
+        String xml = "<root><a>1</a><b>2</b><c>3</c><d>4</d></root>";
+
+        DocumentChunks chunks = DocumentChunks.split(xml, 0, xml.length(), 16);
+
+        assertNotNull(chunks);
+        // the last chunk would only contain <d>4</d></root>, so it's merged with the previous chunk
+        assertEquals(Arrays.asList(
+                "<root><a>1</a><b>2</b></root>",
+                "<root><c>3</c><d>4</d></root>"),
+                documents(chunks));
+    }
+
+    @ParameterizedTest(name = "[{index}] {0}")
+    @ValueSource(strings = {
+            "",
+            "text",
+            "<root/>",
+            "<root><a>1</a></root>",
+            "<!DOCTYPE root><root><a>1</a><b>2</b></root>",
+            "<root><a>1</a><!DOCTYPE root><b>2</b></root>",
+            "<root><a>1</a><b>2</b>",
+            "<root><a>1</a><b>2</b><!-- </root>",
+            "<root attr='>",
+    })
+    @DisplayName("not split")
+    void testNotSplit(String xml) {
+        assertNull(DocumentChunks.split(xml, 0, xml.length(), 1));
+    }
+
+    private List<String> documents(DocumentChunks chunks) {
+        List<String> documents = new ArrayList<>();
+        for (int i = 0; i < chunks.chunkCount(); i++) {
+            documents.add(chunks.document(i));
+        }
+        return documents;
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * ElementPathMatcherTest.java
+ * Copyright 2026 Rob Spoor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robtimus.obfuscation.xml;
+
+import static com.github.robtimus.obfuscation.Obfuscator.fixedLength;
+import static com.github.robtimus.obfuscation.support.CaseSensitivity.CASE_INSENSITIVE;
+import static com.github.robtimus.obfuscation.support.CaseSensitivity.CASE_SENSITIVE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import com.github.robtimus.obfuscation.xml.XMLObfuscator.ElementConfigurer.ObfuscationMode;
+
+@SuppressWarnings("nls")
+class ElementPathMatcherTest {
+
+    @Nested
+    @DisplayName("ElementPath")
+    class ElementPathTest {
+
+        @ParameterizedTest(name = "[{index}] {0}")
+        @ValueSource(strings = { "/a", "/a/b", "//a", "/a//b", "//a//b", "/*", "/a/*/c", "//*", "/a-b.c_d" })
+        @DisplayName("valid paths")
+        void testValidPath(String path) {
+            ElementPath elementPath = new ElementPath(path, CASE_SENSITIVE);
+
+            assertEquals(path, elementPath.toString());
+        }
+
+        @ParameterizedTest(name = "[{index}] {0}")
+        @ValueSource(strings = { "", "/", "//", "a", "a/b", "/a/", "/a//", "/a///b", "/a/b*", "/*a", "/p:a", "/a b" })
+        @DisplayName("invalid paths")
+        void testInvalidPath(String path) {
+            IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> new ElementPath(path, CASE_SENSITIVE));
+            assertEquals(Messages.XMLObfuscator.invalidElementPath(path), exception.getMessage());
+        }
+
+        @Test
+        @DisplayName("lastName()")
+        void testLastName() {
+            assertEquals("b", new ElementPath("/a//b", CASE_SENSITIVE).lastName());
+            assertNull(new ElementPath("/a/*", CASE_SENSITIVE).lastName());
+        }
+
+        @Test
+        @DisplayName("equals(Object) and hashCode()")
+        void testEqualsAndHashCode() {
+            ElementPath path = new ElementPath("/a/B", CASE_SENSITIVE);
+            ElementPath caseInsensitivePath = new ElementPath("/a/B", CASE_INSENSITIVE);
+
+            assertEquals(path, new ElementPath("/a/B", CASE_SENSITIVE));
+            assertEquals(path.hashCode(), new ElementPath("/a/B", CASE_SENSITIVE).hashCode());
+            assertNotEquals(path, new ElementPath("/a/b", CASE_SENSITIVE));
+            assertNotEquals(path, caseInsensitivePath);
+
+            assertEquals(caseInsensitivePath, new ElementPath("/A/b", CASE_INSENSITIVE));
+            assertEquals(caseInsensitivePath.hashCode(), new ElementPath("/A/b", CASE_INSENSITIVE).hashCode());
+            assertNotEquals(caseInsensitivePath, new ElementPath("/a/c", CASE_INSENSITIVE));
+            assertEquals("/a/B (case insensitive)", caseInsensitivePath.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("isEmpty()")
+    void testIsEmpty() {
+        assertTrue(new ElementPathMatcher(Collections.emptyMap()).isEmpty());
+        assertFalse(new ElementPathMatcher(Collections.singletonMap(new ElementPath("/a", CASE_SENSITIVE), config())).isEmpty());
+    }
+
+    @Test
+    @DisplayName("without paths")
+    void testWithoutPaths() {
+        ElementPathMatcher.Tracker tracker = new ElementPathMatcher(Collections.emptyMap()).tracker();
+
+        assertNull(tracker.startElement("a"));
+        tracker.endElement();
+        // unbalanced end elements are ignored
+        tracker.endElement();
+        assertNull(tracker.startElement("a"));
+    }
+
+    @Test
+    @DisplayName("absolute paths")
+    void testAbsolutePaths() {
+        ElementConfig abc = config();
+        ElementConfig ab = config();
+        Map<ElementPath, ElementConfig> paths = new LinkedHashMap<>();
+        paths.put(new ElementPath("/a/b/c", CASE_SENSITIVE), abc);
+        paths.put(new ElementPath("/a/b", CASE_SENSITIVE), ab);
+
+        ElementPathMatcher.Tracker tracker = new ElementPathMatcher(paths).tracker();
+
+        // repeat, so transitions come from the cache as well
+        for (int i = 0; i < 2; i++) {
+            assertNull(tracker.startElement("a"));
+            assertSame(ab, tracker.startElement("b"));
+            assertSame(abc, tracker.startElement("c"));
+            assertNull(tracker.startElement("c"));
+            tracker.endElement();
+            tracker.endElement();
+            assertNull(tracker.startElement("d"));
+            tracker.endElement();
+            tracker.endElement();
+            assertNull(tracker.startElement("c"));
+            tracker.endElement();
+            tracker.endElement();
+
+            assertNull(tracker.startElement("b"));
+            assertNull(tracker.startElement("b"));
+            tracker.endElement();
+            tracker.endElement();
+        }
+    }
+
+    @Test
+    @DisplayName("descendant paths")
+    void testDescendantPaths() {
+        ElementConfig loginPassword = config();
+        ElementConfig password = config();
+        Map<ElementPath, ElementConfig> paths = new LinkedHashMap<>();
+        paths.put(new ElementPath("/Envelope//Login/password", CASE_SENSITIVE), loginPassword);
+        paths.put(new ElementPath("//password", CASE_SENSITIVE), password);
+
+        ElementPathMatcher.Tracker tracker = new ElementPathMatcher(paths).tracker();
+
+        assertSame(password, tracker.startElement("password"));
+        tracker.endElement();
+
+        assertNull(tracker.startElement("Envelope"));
+        assertNull(tracker.startElement("Body"));
+        assertNull(tracker.startElement("Login"));
+        // the first matching path wins
+        assertSame(loginPassword, tracker.startElement("password"));
+        tracker.endElement();
+        tracker.endElement();
+        assertSame(password, tracker.startElement("password"));
+        tracker.endElement();
+        assertNull(tracker.startElement("Other"));
+        assertSame(password, tracker.startElement("password"));
+    }
+
+    @Test
+    @DisplayName("wildcards")
+    void testWildcards() {
+        ElementConfig wildcard = config();
+        ElementConfig descendantWildcard = config();
+        Map<ElementPath, ElementConfig> paths = new LinkedHashMap<>();
+        paths.put(new ElementPath("/a/*/c", CASE_SENSITIVE), wildcard);
+        paths.put(new ElementPath("/x//*", CASE_SENSITIVE), descendantWildcard);
+
+        ElementPathMatcher.Tracker tracker = new ElementPathMatcher(paths).tracker();
+
+        assertNull(tracker.startElement("a"));
+        assertNull(tracker.startElement("b"));
+        assertSame(wildcard, tracker.startElement("c"));
+        tracker.endElement();
+        assertNull(tracker.startElement("d"));
+        tracker.endElement();
+        tracker.endElement();
+        assertNull(tracker.startElement("c"));
+        tracker.endElement();
+        tracker.endElement();
+
+        assertNull(tracker.startElement("x"));
+        assertSame(descendantWildcard, tracker.startElement("y"));
+        assertSame(descendantWildcard, tracker.startElement("z"));
+    }
+
+    @Test
+    @DisplayName("case insensitive paths")
+    void testCaseInsensitivePaths() {
+        ElementConfig config = config();
+        ElementPathMatcher.Tracker tracker = new ElementPathMatcher(Collections.singletonMap(new ElementPath("/A/b", CASE_INSENSITIVE), config))
+                .tracker();
+
+        assertNull(tracker.startElement("a"));
+        assertSame(config, tracker.startElement("B"));
+    }
+
+    @Test
+    @DisplayName("deeply nested elements")
+    void testDeeplyNested() {
+        ElementConfig config = config();
+        ElementPathMatcher.Tracker tracker = new ElementPathMatcher(Collections.singletonMap(new ElementPath("//a/b", CASE_SENSITIVE), config))
+                .tracker();
+
+        for (int i = 0; i < 100; i++) {
+            assertNull(tracker.startElement("a"));
+        }
+        assertSame(config, tracker.startElement("b"));
+    }
+
+    @Test
+    @DisplayName("limited number of states")
+    void testLimitedStateCount() {
+        ElementConfig config = config();
+        ElementPathMatcher matcher = new ElementPathMatcher(Collections.singletonMap(new ElementPath("//a/*/*/*/*/*/*/*/*/*/*/b", CASE_SENSITIVE),
+                config));
+        ElementPathMatcher.Tracker tracker = matcher.tracker();
+
+        // each combination of a and other elements results in a different state
+        for (int i = 0; i < 4096; i++) {
+            for (int bit = 0; bit < 12; bit++) {
+                tracker.startElement((i & 1 << bit) != 0 ? "a" : "c");
+            }
+            for (int bit = 0; bit < 12; bit++) {
+                tracker.endElement();
+            }
+        }
+        assertEquals(ElementPathMatcher.MAX_STATE_COUNT, matcher.stateCount());
+
+        // states that are not cached still match
+        for (int i = 0; i < 12; i++) {
+            tracker.startElement("a");
+        }
+        assertSame(config, tracker.startElement("b"));
+    }
+
+    private static ElementConfig config() {
+        return new ElementConfig(fixedLength(3), ObfuscationMode.INHERIT, false);
+    }
+}
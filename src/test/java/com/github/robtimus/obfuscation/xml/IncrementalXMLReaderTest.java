@@ -0,0 +1,343 @@
+/*
+ * IncrementalXMLReaderTest.java
+ * Copyright 2026 Rob Spoor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robtimus.obfuscation.xml;
+
+import static com.github.robtimus.obfuscation.xml.XMLObfuscatorTest.readResource;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+import static org.mockito.Mockito.mock;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.slf4j.Logger;
+
+@SuppressWarnings("nls")
+class IncrementalXMLReaderTest {
+
+    @ParameterizedTest(name = "{0}")
+    @ValueSource(strings = { "XMLObfuscator.input.valid.xml", "XMLObfuscator.input.valid.all-events.xml" })
+    @DisplayName("events match Woodstox")
+    void testEventsMatchWoodstox(String resource) throws XMLStreamException {
+        assertEventsMatchWoodstox(readResource(resource));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @ValueSource(strings = {
+            "<root>]]</root>",
+            "<root>]>]]]</root>",
+            "<root><![CDATA[]]]]></root>",
+            "<root><!-- a - b --></root>",
+            "<root a='&lt;&#x10000;&#65;' b=\"'\"/>",
+            "<root>&#x1F600;&#9;&amp;&lt;&gt;&quot;&apos;</root>",
+            "<root>\uD83D\uDE00</root>",
+            "<t:root xmlns:t='urn:t' xmlns:u='urn:u' t:a='1' u:a='2' a='3'/>",
+            "<root xmlns:t='urn:t'><child xmlns:t='urn:u'/></root>",
+            "<?xml version='1.0'?><root><?pi content?></root>",
+            "<_r-o.o:t\u00B7 xmlns:_r-o.o='urn:test'/>",
+            "<!DOCTYPE root [<!ENTITY foo 'bar'>]><root a='&foo;'>&foo;</root>",
+            "<!DOCTYPE root [ <!-- ' ] > --> <?pi \" ] > ?> <!ENTITY e \"]>\"> ]><root/>",
+    })
+    @DisplayName("well-formed XML")
+    void testWellFormedXML(String xml) throws XMLStreamException {
+        assertEventsMatchWoodstox(xml);
+    }
+
+    private void assertEventsMatchWoodstox(String xml) throws XMLStreamException {
+        IndexedXMLReader woodstoxReader = new IndexedXMLReader.OfXMLStreamReader(
+                ParserBackends.WOODSTOX.createXMLStreamReader(new StringReader(xml)));
+        List<String> expected = new ArrayList<>();
+        while (woodstoxReader.hasNext()) {
+            addEvent(woodstoxReader, woodstoxReader.next(), expected);
+        }
+
+        for (int chunkSize : new int[] { 1, 5, 4096 }) {
+            Source.OfReader source = new Source.OfReader(mock(Logger.class));
+            IncrementalXMLReader xmlReader = new IncrementalXMLReader(source);
+            List<String> actual = new ArrayList<>();
+            for (int i = 0; i < xml.length(); i += chunkSize) {
+                source.append(xml, i, Math.min(i + chunkSize, xml.length()));
+                while (xmlReader.hasNext()) {
+                    addEvent(xmlReader, xmlReader.next(), actual);
+                }
+            }
+            xmlReader.endOfInput();
+            while (xmlReader.hasNext()) {
+                addEvent(xmlReader, xmlReader.next(), actual);
+            }
+
+            assertEquals(expected, actual, "chunk size: " + chunkSize);
+        }
+    }
+
+    private void addEvent(IndexedXMLReader xmlReader, int event, List<String> events) throws XMLStreamException {
+        // text can be split over several events
+        switch (event) {
+            case XMLStreamConstants.START_ELEMENT:
+            case XMLStreamConstants.END_ELEMENT:
+                QName name = xmlReader.getName();
+                StringBuilder attributes = new StringBuilder();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    for (int i = 0; i < xmlReader.getAttributeCount(); i++) {
+                        attributes.append(new QName(xmlReader.getAttributeNamespace(i), xmlReader.getAttributeLocalName(i)));
+                    }
+                }
+                events.add(event + ":" + xmlReader.getStartOffset() + "-" + xmlReader.getEndOffset() + ":" + name + ":" + xmlReader.getLocalName()
+                        + ":" + xmlReader.getNamespaceURI() + ":" + attributes);
+                break;
+            case XMLStreamConstants.COMMENT:
+            case XMLStreamConstants.PROCESSING_INSTRUCTION:
+            case XMLStreamConstants.DTD:
+                events.add(event + ":" + xmlReader.getStartOffset() + "-" + xmlReader.getEndOffset());
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Test
+    @DisplayName("names are interned")
+    void testNamesAreInterned() throws XMLStreamException {
+        Source.OfReader source = new Source.OfReader(mock(Logger.class));
+        IncrementalXMLReader xmlReader = new IncrementalXMLReader(source);
+        source.append("<t:root xmlns:t=\"urn:test\" t:a=\"foo\" b=\"bar\"/>");
+        xmlReader.endOfInput();
+
+        assertEquals(XMLStreamConstants.START_ELEMENT, xmlReader.next());
+        assertSame("root", xmlReader.getLocalName());
+        assertSame("urn:test", xmlReader.getNamespaceURI());
+        assertEquals(2, xmlReader.getAttributeCount());
+        assertSame("a", xmlReader.getAttributeLocalName(0));
+        assertSame("urn:test", xmlReader.getAttributeNamespace(0));
+        assertSame("b", xmlReader.getAttributeLocalName(1));
+        assertSame(XMLConstants.NULL_NS_URI, xmlReader.getAttributeNamespace(1));
+    }
+
+    @Test
+    @DisplayName("names are interned when the name table is full")
+    void testNamesAreInternedForManyNames() throws XMLStreamException {
+        Source.OfReader source = new Source.OfReader(mock(Logger.class));
+        IncrementalXMLReader xmlReader = new IncrementalXMLReader(source);
+        source.append("<root>");
+        for (int i = 0; i < 10_000; i++) {
+            source.append("<e" + i + " a" + i + "=\"\"/>");
+        }
+        source.append("</root>");
+        xmlReader.endOfInput();
+
+        assertEquals(XMLStreamConstants.START_ELEMENT, xmlReader.next());
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(XMLStreamConstants.START_ELEMENT, xmlReader.next());
+            assertSame(("e" + i).intern(), xmlReader.getLocalName());
+            assertSame(("a" + i).intern(), xmlReader.getAttributeLocalName(0));
+            assertEquals(XMLStreamConstants.END_ELEMENT, xmlReader.next());
+        }
+    }
+
+    @Test
+    @DisplayName("document type declaration that arrives in parts")
+    void testDoctypeInParts() throws XMLStreamException {
+        StringBuilder xml = new StringBuilder("<!DOCTYPE root [");
+        for (int i = 0; i < 1_000; i++) {
+            xml.append("<!ENTITY e").append(i).append(" 'value'><!-- comment --><?pi content?>");
+        }
+        int doctypeEnd = xml.append("]>").length();
+        xml.append("<root/>");
+
+        CountingCharSequence s = new CountingCharSequence(xml);
+        IncrementalXMLReader xmlReader = new IncrementalXMLReader(new Source.OfCharSequence(s));
+        List<Integer> events = new ArrayList<>();
+        while (s.length < xml.length()) {
+            s.length = Math.min(s.length + 10, xml.length());
+            while (xmlReader.hasNext()) {
+                events.add(xmlReader.next());
+                if (events.size() == 1) {
+                    assertEquals(0, xmlReader.getStartOffset());
+                    assertEquals(doctypeEnd, xmlReader.getEndOffset());
+                }
+            }
+        }
+        xmlReader.endOfInput();
+        while (xmlReader.hasNext()) {
+            events.add(xmlReader.next());
+        }
+
+        assertEquals(Arrays.asList(XMLStreamConstants.DTD, XMLStreamConstants.START_ELEMENT, XMLStreamConstants.END_ELEMENT), events);
+        // scanning continues where it stopped, instead of starting over from the start of the document type declaration for each part
+        assertThat(s.charAtCount, lessThan(3L * xml.length()));
+    }
+
+    private static final class CountingCharSequence implements CharSequence {
+
+        private final CharSequence s;
+        private int length;
+        private long charAtCount;
+
+        private CountingCharSequence(CharSequence s) {
+            this.s = s;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            charAtCount++;
+            return s.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return s.subSequence(start, end);
+        }
+    }
+
+    @ParameterizedTest(name = "{1}")
+    @MethodSource
+    @DisplayName("malformed XML")
+    void testMalformedXML(String xml, String expectedMessage) {
+        Source.OfReader source = new Source.OfReader(mock(Logger.class));
+        IncrementalXMLReader xmlReader = new IncrementalXMLReader(source);
+        source.append(xml);
+        xmlReader.endOfInput();
+
+        XMLStreamException exception = assertThrows(XMLStreamException.class, () -> {
+            while (xmlReader.hasNext()) {
+                xmlReader.next();
+            }
+        });
+        assertEquals(expectedMessage, exception.getMessage());
+    }
+
+    static Arguments[] testMalformedXML() {
+        return new Arguments[] {
+                arguments("", Messages.IncrementalXMLReader.unexpectedEOF(0)),
+                arguments("<root>", Messages.IncrementalXMLReader.unexpectedEOF(6)),
+                arguments("<root attr=\"value", Messages.IncrementalXMLReader.unexpectedEOF(17)),
+                arguments("<root><![CDATA[text", Messages.IncrementalXMLReader.unexpectedEOF(19)),
+                arguments("<root><!-- comment", Messages.IncrementalXMLReader.unexpectedEOF(18)),
+                arguments("<root></other>", Messages.IncrementalXMLReader.mismatchedEndTag("other", 6, "root")),
+                arguments("</root>", Messages.IncrementalXMLReader.unexpectedEndTag("root", 0)),
+                arguments("<root/><root/>", Messages.IncrementalXMLReader.multipleRootElements(7)),
+                arguments("text<root/>", Messages.IncrementalXMLReader.textOutsideRoot(0)),
+                arguments("<root/>text", Messages.IncrementalXMLReader.textOutsideRoot(7)),
+                arguments("<p:root/>", Messages.IncrementalXMLReader.unboundPrefix("p", 1)),
+                arguments("<root p:a=\"foo\"/>", Messages.IncrementalXMLReader.unboundPrefix("p", 6)),
+                arguments("<root attr/>", Messages.IncrementalXMLReader.unexpectedCharacter('/', 10)),
+                arguments("<root attr=value/>", Messages.IncrementalXMLReader.unexpectedCharacter('v', 11)),
+                arguments("<root><!FOO></root>", Messages.IncrementalXMLReader.unexpectedCharacter('!', 7)),
+                arguments("<1bad/>", Messages.IncrementalXMLReader.unexpectedCharacter('1', 1)),
+                arguments("<:root/>", Messages.IncrementalXMLReader.unexpectedCharacter(':', 1)),
+                arguments("<p:/>", Messages.IncrementalXMLReader.unexpectedCharacter(':', 2)),
+                arguments("<root a&b='1'/>", Messages.IncrementalXMLReader.unexpectedCharacter('&', 7)),
+                arguments("<root a='1' a='2'/>", Messages.IncrementalXMLReader.duplicateAttribute("a", 12)),
+                arguments("<root xmlns:t='urn:t' xmlns:u='urn:t' t:a='1' u:a='2'/>", Messages.IncrementalXMLReader.duplicateAttribute("u:a", 46)),
+                arguments("<root xmlns:t='a' xmlns:t='b'/>", Messages.IncrementalXMLReader.duplicateAttribute("xmlns:t", 18)),
+                arguments("<root a='<'/>", Messages.IncrementalXMLReader.unexpectedCharacter('<', 9)),
+                arguments("<root a='&amp'/>", Messages.IncrementalXMLReader.unexpectedCharacter('\'', 13)),
+                arguments("<root a='\u0001'/>", Messages.IncrementalXMLReader.invalidCharacter("1", 9)),
+                arguments("<root><!-- a -- b --></root>", Messages.IncrementalXMLReader.doubleHyphenInComment(13)),
+                arguments("<root><!-- a ---></root>", Messages.IncrementalXMLReader.doubleHyphenInComment(13)),
+                arguments("<root>]]></root>", Messages.IncrementalXMLReader.cdataEndInText(6)),
+                arguments("<root>\u0001</root>", Messages.IncrementalXMLReader.invalidCharacter("1", 6)),
+                arguments("<root>\uFFFF</root>", Messages.IncrementalXMLReader.invalidCharacter("ffff", 6)),
+                arguments("<root><![CDATA[\u0001]]></root>", Messages.IncrementalXMLReader.invalidCharacter("1", 15)),
+                arguments("<root><?pi \u0001?></root>", Messages.IncrementalXMLReader.invalidCharacter("1", 11)),
+                arguments("<root>&foo;</root>", Messages.IncrementalXMLReader.undeclaredEntity("foo", 6)),
+                arguments("<root a='&foo;'/>", Messages.IncrementalXMLReader.undeclaredEntity("foo", 9)),
+                arguments("<root>&#0;</root>", Messages.IncrementalXMLReader.invalidCharacterReference("#0", 6)),
+                arguments("<root>&#xD800;</root>", Messages.IncrementalXMLReader.invalidCharacterReference("#xD800", 6)),
+                arguments("<root>&#x;</root>", Messages.IncrementalXMLReader.invalidCharacterReference("#x", 6)),
+                arguments("<root>&amp</root>", Messages.IncrementalXMLReader.unexpectedCharacter('<', 10)),
+                arguments("<root>& </root>", Messages.IncrementalXMLReader.unexpectedCharacter(' ', 7)),
+                arguments("<root>&", Messages.IncrementalXMLReader.unexpectedEOF(7)),
+                arguments("<root/><?xml version='1.0'?>", Messages.IncrementalXMLReader.unexpectedCharacter('x', 9)),
+                arguments("<root><? ?></root>", Messages.IncrementalXMLReader.unexpectedCharacter(' ', 8)),
+        };
+    }
+
+    @Test
+    @DisplayName("text up to and including ]]> is reported before the error")
+    void testCDataEndInText() throws XMLStreamException {
+        Source.OfReader source = new Source.OfReader(mock(Logger.class));
+        IncrementalXMLReader xmlReader = new IncrementalXMLReader(source);
+        source.append("<root>x]]>y</root>");
+        xmlReader.endOfInput();
+
+        assertEquals(XMLStreamConstants.START_ELEMENT, xmlReader.next());
+        assertEquals(XMLStreamConstants.CHARACTERS, xmlReader.next());
+        assertEquals(6, xmlReader.getStartOffset());
+        assertEquals(10, xmlReader.getEndOffset());
+
+        XMLStreamException exception = assertThrows(XMLStreamException.class, xmlReader::hasNext);
+        assertEquals(Messages.IncrementalXMLReader.cdataEndInText(7), exception.getMessage());
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    @DisplayName("incomplete events")
+    void testIncompleteEvents(String xml, int expectedEventCount) throws XMLStreamException {
+        Source.OfReader source = new Source.OfReader(mock(Logger.class));
+        IncrementalXMLReader xmlReader = new IncrementalXMLReader(source);
+        source.append(xml);
+
+        int eventCount = 0;
+        while (xmlReader.hasNext()) {
+            xmlReader.next();
+            eventCount++;
+        }
+        assertFalse(xmlReader.hasNext());
+        assertEquals(expectedEventCount, eventCount);
+    }
+
+    static Arguments[] testIncompleteEvents() {
+        return new Arguments[] {
+                arguments("<root", 0),
+                arguments("<root attr=\"a>b", 0),
+                arguments("<!-", 0),
+                arguments("<!DOCTYPE root [ <!-- ] --> ", 0),
+                arguments("<?pi ?", 0),
+                arguments("<root><!-- comment --", 1),
+                // whitespace outside the root element is not reported
+                arguments("  <!-- comment -->  <root>", 2),
+                // the start tag, and the CDATA section up to the possible start of the end
+                arguments("<root><![CDATA[x]]", 2),
+                // the start tag, and the text up to the possible start of a CDATA end
+                arguments("<root>x]]", 2),
+                // the start tag, and the text up to the incomplete reference
+                arguments("<root>x&am", 2),
+        };
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * MappedFileReaderTest.java
+ * Copyright 2026 Rob Spoor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robtimus.obfuscation.xml;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.Timeout.ThreadMode;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+@SuppressWarnings("nls")
+class MappedFileReaderTest {
+
+    // characters of 1, 2, 3 and 4 bytes in UTF-8, and 2 and 4 bytes in UTF-16
+    private static final String TEXT = "<root>aé€😀</root>";
+
+    @ParameterizedTest(name = "window size: {0}")
+    @ValueSource(ints = { 1, 16, 17, 18, 19, 20, 1024 })
+    @DisplayName("read with characters spanning windows")
+    void testReadSpanningWindows(int windowSize, @TempDir Path tempDir) throws IOException {
+        String text = repeat(TEXT, 10);
+        for (Charset charset : new Charset[] { StandardCharsets.UTF_8, StandardCharsets.UTF_16BE, StandardCharsets.UTF_16LE }) {
+            Path file = Files.write(tempDir.resolve("file.xml"), text.getBytes(charset));
+            assertEquals(text, readAll(file, 0, charset, windowSize), "charset: " + charset);
+        }
+    }
+
+    @ParameterizedTest(name = "window size: {0}")
+    @ValueSource(ints = { 16, 17, 1024 })
+    @DisplayName("read one character at a time")
+    @Timeout(value = 10, threadMode = ThreadMode.SEPARATE_THREAD)
+    void testReadSingleCharacters(int windowSize, @TempDir Path tempDir) throws IOException {
+        String text = repeat(TEXT, 3) + "a\uD83D\uDE00b";
+        for (Charset charset : new Charset[] { StandardCharsets.UTF_8, StandardCharsets.UTF_16BE }) {
+            Path file = Files.write(tempDir.resolve("file.xml"), text.getBytes(charset));
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+                    Reader reader = new MappedFileReader(channel, 0, charset, windowSize)) {
+
+                StringBuilder sb = new StringBuilder();
+                char[] buffer = new char[1];
+                int n;
+                while ((n = reader.read(buffer, 0, 1)) != -1) {
+                    assertEquals(1, n);
+                    sb.append(buffer[0]);
+                }
+                assertEquals(text, sb.toString(), "charset: " + charset);
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+                    Reader reader = new MappedFileReader(channel, 0, charset, windowSize)) {
+
+                StringBuilder sb = new StringBuilder();
+                int c;
+                while ((c = reader.read()) != -1) {
+                    sb.append((char) c);
+                }
+                assertEquals(text, sb.toString(), "charset: " + charset);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("read from position")
+    void testReadFromPosition(@TempDir Path tempDir) throws IOException {
+        Path file = Files.write(tempDir.resolve("file.xml"), ("﻿" + TEXT).getBytes(StandardCharsets.UTF_8));
+        assertEquals(TEXT, readAll(file, 3, StandardCharsets.UTF_8, 16));
+    }
+
+    @Test
+    @DisplayName("read empty file")
+    void testReadEmptyFile(@TempDir Path tempDir) throws IOException {
+        Path file = Files.write(tempDir.resolve("file.xml"), new byte[0]);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+                Reader reader = new MappedFileReader(channel, 0, StandardCharsets.UTF_8)) {
+
+            assertEquals(-1, reader.read());
+            assertEquals(0, reader.read(new char[10], 0, 0));
+        }
+    }
+
+    @Test
+    @DisplayName("read after close")
+    void testReadAfterClose(@TempDir Path tempDir) throws IOException {
+        Path file = Files.write(tempDir.resolve("file.xml"), TEXT.getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            @SuppressWarnings("resource")
+            Reader reader = new MappedFileReader(channel, 0, StandardCharsets.UTF_8);
+            reader.close();
+
+            IOException exception = assertThrows(IOException.class, reader::read);
+            assertEquals(Messages.MappedFileReader.closed(), exception.getMessage());
+        }
+    }
+
+    private String readAll(Path file, long position, Charset charset, int windowSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+                Reader reader = new MappedFileReader(channel, position, charset, windowSize)) {
+
+            StringWriter writer = new StringWriter();
+            char[] buffer = new char[7];
+            int n;
+            while ((n = reader.read(buffer)) != -1) {
+                writer.write(buffer, 0, n);
+            }
+            return writer.toString();
+        }
+    }
+
+    private String repeat(String s, int count) {
+        StringBuilder sb = new StringBuilder(s.length() * count);
+        for (int i = 0; i < count; i++) {
+            sb.append(s);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * MemoizingObfuscatorTest.java
+ * Copyright 2026 Rob Spoor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robtimus.obfuscation.xml;
+
+import static com.github.robtimus.obfuscation.Obfuscator.fixedLength;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import com.github.robtimus.obfuscation.Obfuscator;
+
+@SuppressWarnings("nls")
+class MemoizingObfuscatorTest {
+
+    private final AtomicInteger callCount = new AtomicInteger();
+
+    private final Obfuscator delegate = Obfuscator.fromFunction((Function<CharSequence, CharSequence>) s -> {
+        callCount.incrementAndGet();
+        return "[" + s + "]";
+    });
+
+    @Test
+    @DisplayName("obfuscateText(CharSequence, int, int)")
+    void testObfuscateTextRange() {
+        MemoizingObfuscator obfuscator = new MemoizingObfuscator(delegate, 16);
+
+        assertEquals("[bc]", obfuscator.obfuscateText("abcd", 1, 3).toString());
+        assertEquals("[bc]", obfuscator.obfuscateText(new StringBuilder("xbcx"), 1, 3).toString());
+        assertEquals("[]", obfuscator.obfuscateText("abcd", 2, 2).toString());
+
+        assertEquals(2, callCount.get());
+        assertEquals(1, obfuscator.hitCount());
+        assertEquals(2, obfuscator.missCount());
+        assertEquals(2, obfuscator.size());
+
+        assertThrows(IndexOutOfBoundsException.class, () -> obfuscator.obfuscateText("abcd", 3, 2));
+    }
+
+    @Test
+    @DisplayName("obfuscateText(CharSequence, int, int, Appendable)")
+    void testObfuscateTextRangeToAppendable() throws IOException {
+        MemoizingObfuscator obfuscator = new MemoizingObfuscator(delegate, 16);
+        StringBuilder destination = new StringBuilder();
+
+        obfuscator.obfuscateText("abcd", 1, 3, destination);
+        obfuscator.obfuscateText("abcd", 1, 3, destination);
+
+        assertEquals("[bc][bc]", destination.toString());
+        assertEquals(1, callCount.get());
+    }
+
+    @Test
+    @DisplayName("obfuscateText(Reader, Appendable) is not cached")
+    void testObfuscateTextReader() throws IOException {
+        MemoizingObfuscator obfuscator = new MemoizingObfuscator(delegate, 16);
+        StringBuilder destination = new StringBuilder();
+
+        obfuscator.obfuscateText(new StringReader("abc"), destination);
+
+        assertEquals("[abc]", destination.toString());
+        assertEquals(0, obfuscator.missCount());
+        assertEquals(0, obfuscator.size());
+    }
+
+    @Test
+    @DisplayName("streamTo(Appendable) is not cached")
+    void testStreamTo() throws IOException {
+        MemoizingObfuscator obfuscator = new MemoizingObfuscator(delegate, 16);
+        StringBuilder destination = new StringBuilder();
+
+        try (Writer writer = obfuscator.streamTo(destination)) {
+            writer.write("abc");
+        }
+
+        assertEquals("[abc]", destination.toString());
+        assertEquals(0, obfuscator.missCount());
+        assertEquals(0, obfuscator.size());
+    }
+
+    @Test
+    @DisplayName("least recently used results are evicted")
+    void testEviction() {
+        MemoizingObfuscator obfuscator = new MemoizingObfuscator(delegate, 2);
+
+        obfuscator.obfuscateText("a");
+        obfuscator.obfuscateText("b");
+        obfuscator.obfuscateText("a");
+        obfuscator.obfuscateText("c");
+        obfuscator.obfuscateText("a");
+        obfuscator.obfuscateText("b");
+
+        assertEquals(4, callCount.get());
+        assertEquals(2, obfuscator.hitCount());
+        assertEquals(4, obfuscator.missCount());
+        assertEquals(2, obfuscator.size());
+    }
+
+    @Test
+    @DisplayName("equals(Object) and hashCode()")
+    void testEqualsAndHashCode() {
+        Obfuscator obfuscator = new MemoizingObfuscator(fixedLength(3), 16);
+
+        assertEquals(obfuscator, new MemoizingObfuscator(fixedLength(3), 16));
+        assertEquals(obfuscator.hashCode(), new MemoizingObfuscator(fixedLength(3), 16).hashCode());
+        assertNotEquals(obfuscator, new MemoizingObfuscator(fixedLength(4), 16));
+        assertNotEquals(obfuscator, new MemoizingObfuscator(fixedLength(3), 32));
+        assertNotEquals(obfuscator, fixedLength(3));
+        assertNotEquals(obfuscator, null);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * NamePatternTest.java
+ * Copyright 2026 Rob Spoor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robtimus.obfuscation.xml;
+
+import static com.github.robtimus.obfuscation.support.CaseSensitivity.CASE_INSENSITIVE;
+import static com.github.robtimus.obfuscation.support.CaseSensitivity.CASE_SENSITIVE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+@SuppressWarnings("nls")
+class NamePatternTest {
+
+    @ParameterizedTest(name = "{0} matches {1}: {2}")
+    @CsvSource({
+            "*Password*, Password, true",
+            "*Password*, newPasswordHash, true",
+            "*Password*, password, false",
+            "*Iban, Iban, true",
+            "*Iban, accountIban, true",
+            "*Iban, IbanCode, false",
+            "ssn*, ssnCountry, true",
+            "ssn*, mySsn, false",
+            "a?c, abc, true",
+            "a?c, ac, false",
+            "a.c, a.c, true",
+            "a.c, abc, false",
+            "a[b]c, a[b]c, true",
+            "a\\Ec, a\\Ec, true",
+            "*, anything, true",
+    })
+    @DisplayName("glob(String, CaseSensitivity)")
+    void testGlob(String glob, String name, boolean expected) {
+        assertEquals(expected, NamePattern.glob(glob, CASE_SENSITIVE).matches(name));
+    }
+
+    @Test
+    @DisplayName("glob(String, CaseSensitivity) case insensitive")
+    void testGlobCaseInsensitive() {
+        NamePattern pattern = NamePattern.glob("*password*", CASE_INSENSITIVE);
+
+        assertTrue(pattern.matches("newPASSWORD"));
+        assertFalse(pattern.matches("passwrd"));
+        assertEquals("*password* (case insensitive)", pattern.toString());
+    }
+
+    @Test
+    @DisplayName("literal()")
+    void testLiteral() {
+        NamePattern pattern = NamePattern.glob("a*Password?b", CASE_INSENSITIVE);
+        assertEquals("Password", pattern.literal());
+        assertEquals(CASE_INSENSITIVE, pattern.literalCaseSensitivity());
+
+        assertNull(NamePattern.glob("*?", CASE_SENSITIVE).literal());
+        assertNull(NamePattern.regex(Pattern.compile("password")).literal());
+    }
+
+    @Test
+    @DisplayName("regex(Pattern)")
+    void testRegex() {
+        NamePattern pattern = NamePattern.regex(Pattern.compile("ssn|.*Iban"));
+
+        assertTrue(pattern.matches("ssn"));
+        assertTrue(pattern.matches("accountIban"));
+        assertFalse(pattern.matches("ssnCountry"));
+        assertEquals("ssn|.*Iban", pattern.toString());
+    }
+
+    @Test
+    @DisplayName("equals(Object) and hashCode()")
+    void testEqualsAndHashCode() {
+        NamePattern pattern = NamePattern.glob("*Password*", CASE_SENSITIVE);
+
+        assertEquals(pattern, NamePattern.glob("*Password*", CASE_SENSITIVE));
+        assertEquals(pattern.hashCode(), NamePattern.glob("*Password*", CASE_SENSITIVE).hashCode());
+        assertNotEquals(pattern, NamePattern.glob("*Password*", CASE_INSENSITIVE));
+        assertNotEquals(pattern, NamePattern.glob("*Password", CASE_SENSITIVE));
+
+        assertEquals(NamePattern.regex(Pattern.compile("a.*")), NamePattern.regex(Pattern.compile("a.*")));
+        assertNotEquals(NamePattern.regex(Pattern.compile("a.*")), NamePattern.regex(Pattern.compile("a.*", Pattern.CASE_INSENSITIVE)));
+    }
+
+    @Test
+    @DisplayName("null arguments")
+    void testNullArguments() {
+        assertThrows(NullPointerException.class, () -> NamePattern.glob(null, CASE_SENSITIVE));
+        assertThrows(NullPointerException.class, () -> NamePattern.glob("*", null));
+        assertThrows(NullPointerException.class, () -> NamePattern.regex(null));
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * NameScannerTest.java
+ * Copyright 2026 Rob Spoor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robtimus.obfuscation.xml;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+@SuppressWarnings("nls")
+class NameScannerTest {
+
+    @ParameterizedTest(name = "{0} / {1} in {2}: {3}")
+    @MethodSource
+    @DisplayName("containsAny(CharSequence, int, int)")
+    void testContainsAny(List<String> caseSensitiveNames, List<String> caseInsensitiveNames, String text, boolean expected) {
+        NameScanner scanner = new NameScanner(caseSensitiveNames, caseInsensitiveNames);
+
+        assertEquals(expected, scanner.containsAny(text, 0, text.length()));
+        assertEquals(expected, scanner.containsAny("xx" + text + "xx", 2, text.length() + 2));
+    }
+
+    static Arguments[] testContainsAny() {
+        List<String> none = Collections.emptyList();
+        return new Arguments[] {
+                arguments(none, none, "<root/>", false),
+                arguments(Arrays.asList(""), none, "<root/>", true),
+                arguments(Arrays.asList("root"), none, "<root/>", true),
+                arguments(Arrays.asList("ROOT"), none, "<root/>", false),
+                arguments(none, Arrays.asList("ROOT"), "<root/>", true),
+                arguments(Arrays.asList("ROOT"), Arrays.asList("other"), "<root/>", false),
+                arguments(Arrays.asList("ROOT"), Arrays.asList("other"), "<ROOT/>", true),
+                arguments(Arrays.asList("roo"), none, "<root/>", true),
+                arguments(Arrays.asList("oot"), none, "<root/>", true),
+                arguments(Arrays.asList("rooted"), none, "<root/>", false),
+                // requires following failure links
+                arguments(Arrays.asList("abcd", "bce"), none, "<abce/>", true),
+                arguments(Arrays.asList("abcd", "bc"), none, "<abce/>", true),
+                arguments(Arrays.asList("abcd", "bcf"), none, "<abce/>", false),
+                // a case sensitive match that ends in the same state as a case insensitive one
+                arguments(Arrays.asList("Abc"), Arrays.asList("xBc"), "<abc/>", false),
+                arguments(Arrays.asList("Abc"), Arrays.asList("bC"), "<abc/>", true),
+                arguments(none, Arrays.asList("cafÉ"), "<café/>", true),
+                arguments(Arrays.asList("cafÉ"), none, "<café/>", false),
+                arguments(Arrays.asList("<!DOCTYPE"), Arrays.asList("text"), "<!doctype root>", false),
+                arguments(Arrays.asList("<!DOCTYPE"), Arrays.asList("text"), "<!DOCTYPE root>", true),
+        };
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * ObfuscationEventTest.java
+ * Copyright 2026 Rob Spoor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robtimus.obfuscation.xml;
+
+import static com.github.robtimus.obfuscation.Obfuscator.fixedLength;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import com.github.robtimus.obfuscation.Obfuscator;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+@SuppressWarnings("nls")
+class ObfuscationEventTest {
+
+    private static final String XML = "<root attr=\"x\"><a>1</a><b><a>2</a></b><c>3</c></root>";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Java Flight Recorder is available")
+    void testAvailable() {
+        assertTrue(FlightRecorderSupport.AVAILABLE);
+    }
+
+    @Test
+    @DisplayName("no metrics collected when not recording")
+    void testNotRecording() {
+        assertFalse(FlightRecorderSupport.isObfuscationEventEnabled());
+        assertNull(FlightRecorderSupport.beginObfuscationEvent());
+        assertNull(MetricsCollector.create(null));
+    }
+
+    @Test
+    @DisplayName("obfuscateText(CharSequence)")
+    void testObfuscateTextCharSequence() throws IOException {
+        Obfuscator obfuscator = createObfuscator(XMLObfuscator.builder());
+        String expected = obfuscator.obfuscateText(XML).toString();
+
+        RecordedEvent event = recordSingleEvent(o -> o.obfuscateText(XML), obfuscator);
+        assertEquals(MetricsCollector.ENGINE_INDEXED, event.getString("engine"));
+        assertEquals(XML.length(), event.getLong("inputCharacters"));
+        assertEquals(expected.length(), event.getLong("outputCharacters"));
+        assertEquals(2, event.getInt("matchedElements"));
+        assertEquals(1, event.getInt("matchedAttributes"));
+        assertFalse(event.getBoolean("truncated"));
+        assertFalse(event.getBoolean("malformedXML"));
+        assertEquals(0, event.getInt("bufferTruncations"));
+    }
+
+    @Test
+    @DisplayName("obfuscateText(CharSequence) without configured names")
+    void testObfuscateTextCharSequenceWithoutConfiguredNames() throws IOException {
+        Obfuscator obfuscator = createObfuscator(XMLObfuscator.builder());
+        String xml = "<root><c>3</c></root>";
+
+        RecordedEvent event = recordSingleEvent(o -> o.obfuscateText(xml), obfuscator);
+        assertEquals(MetricsCollector.ENGINE_PASSTHROUGH, event.getString("engine"));
+        assertEquals(xml.length(), event.getLong("inputCharacters"));
+        assertEquals(xml.length(), event.getLong("outputCharacters"));
+        assertEquals(0, event.getInt("matchedElements"));
+    }
+
+    @Test
+    @DisplayName("obfuscateText(CharSequence) generating XML")
+    void testObfuscateTextCharSequenceGeneratingXML() throws IOException {
+        Obfuscator obfuscator = createObfuscator(XMLObfuscator.builder().generateXML());
+
+        RecordedEvent event = recordSingleEvent(o -> o.obfuscateText("<root><a>1</b></root>"), obfuscator);
+        assertEquals(MetricsCollector.ENGINE_WRITING, event.getString("engine"));
+        assertEquals(1, event.getInt("matchedElements"));
+        assertTrue(event.getBoolean("malformedXML"));
+    }
+
+    @Test
+    @DisplayName("obfuscateText(Reader, Appendable)")
+    void testObfuscateTextReader() throws IOException {
+        Obfuscator obfuscator = createObfuscator(XMLObfuscator.builder().withPreferredMaxBufferSize(16).limitTo(20).withTruncatedIndicator(null));
+
+        RecordedEvent event = recordSingleEvent(o -> o.obfuscateText(new StringReader(XML), new StringBuilder()), obfuscator);
+        assertEquals(MetricsCollector.ENGINE_INDEXED, event.getString("engine"));
+        assertEquals(XML.length(), event.getLong("inputCharacters"));
+        assertEquals(20, event.getLong("outputCharacters"));
+        assertTrue(event.getBoolean("truncated"));
+        assertTrue(event.getInt("bufferTruncations") > 0);
+    }
+
+    @Test
+    @DisplayName("streamTo(Appendable)")
+    void testStreamTo() throws IOException {
+        Obfuscator obfuscator = createObfuscator(XMLObfuscator.builder());
+        String expected = obfuscator.obfuscateText(XML).toString();
+
+        RecordedEvent event = recordSingleEvent(o -> {
+            try (Writer writer = o.streamTo(new StringBuilder())) {
+                writer.write(XML);
+            }
+        }, obfuscator);
+        assertEquals(MetricsCollector.ENGINE_STREAMING, event.getString("engine"));
+        assertEquals(XML.length(), event.getLong("inputCharacters"));
+        assertEquals(expected.length(), event.getLong("outputCharacters"));
+        assertEquals(2, event.getInt("matchedElements"));
+    }
+
+    @Test
+    @DisplayName("metrics listener is called when recording")
+    void testMetricsListener() throws IOException {
+        StringBuilder reported = new StringBuilder();
+        Obfuscator obfuscator = createObfuscator(XMLObfuscator.builder().withMetricsListener(m -> reported.append(m.matchedElementCount())));
+
+        RecordedEvent event = recordSingleEvent(o -> o.obfuscateText(XML), obfuscator);
+        assertEquals(2, event.getInt("matchedElements"));
+        assertEquals("2", reported.toString());
+    }
+
+    private Obfuscator createObfuscator(XMLObfuscator.Builder builder) {
+        return builder
+                .withElement("a", fixedLength(3))
+                .withAttribute("attr", fixedLength(3))
+                .build();
+    }
+
+    private RecordedEvent recordSingleEvent(IOConsumer<Obfuscator> action, Obfuscator obfuscator) throws IOException {
+        Path file = tempDir.resolve("recording.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(ObfuscationEvent.NAME).withThreshold(Duration.ZERO);
+            recording.start();
+            action.accept(obfuscator);
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        events.removeIf(e -> !ObfuscationEvent.NAME.equals(e.getEventType().getName()));
+        assertEquals(1, events.size());
+        RecordedEvent event = events.get(0);
+        assertNotNull(event.getDuration());
+        return event;
+    }
+
+    @FunctionalInterface
+    private interface IOConsumer<T> {
+
+        void accept(T t) throws IOException;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * SegmentedCharBufferTest.java
+ * Copyright 2026 Rob Spoor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robtimus.obfuscation.xml;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import com.github.robtimus.obfuscation.Obfuscator;
+
+@SuppressWarnings("nls")
+class SegmentedCharBufferTest {
+
+    @ParameterizedTest(name = "{0}")
+    @ValueSource(ints = { 0, 1, 15, 16, 17, 100 })
+    @DisplayName("segment size")
+    void testSegmentSize(int segmentSize) {
+        SegmentedCharBuffer buffer = new SegmentedCharBuffer(segmentSize, 0);
+        int expected = Math.max(SegmentedCharBuffer.MIN_SEGMENT_SIZE, Integer.highestOneBit(segmentSize));
+        assertEquals(expected, buffer.segmentSize());
+        assertEquals(SegmentedCharBuffer.MAX_SEGMENT_SIZE, new SegmentedCharBuffer(Integer.MAX_VALUE, 0).segmentSize());
+    }
+
+    @Test
+    @DisplayName("initial capacity")
+    void testInitialCapacity() {
+        assertEquals(1, new SegmentedCharBuffer(16, 0).segmentCount());
+        assertEquals(1, new SegmentedCharBuffer(16, 16).segmentCount());
+        assertEquals(2, new SegmentedCharBuffer(16, 17).segmentCount());
+        assertEquals(7, new SegmentedCharBuffer(16, 100).segmentCount());
+    }
+
+    @Test
+    @DisplayName("append and discard")
+    void testAppendAndDiscard() {
+        SegmentedCharBuffer buffer = new SegmentedCharBuffer(16, 0);
+        StringBuilder expected = new StringBuilder();
+
+        for (int i = 0; i < 1000; i++) {
+            String content = Integer.toString(i);
+            switch (i % 3) {
+                case 0:
+                    buffer.append(content, 0, content.length());
+                    break;
+                case 1:
+                    buffer.append(new StringBuilder(content), 0, content.length());
+                    break;
+                default:
+                    for (int j = 0; j < content.length(); j++) {
+                        buffer.append(content.charAt(j));
+                    }
+                    break;
+            }
+            expected.append(content);
+
+            if (i % 10 == 0) {
+                int count = expected.length() / 2;
+                buffer.discard(count);
+                expected.delete(0, count);
+            }
+
+            assertEquals(expected.length(), buffer.length());
+            assertEquals(expected.toString(), buffer.toString());
+            // only segments that contain content are kept, plus possibly a partially discarded one
+            int maxSegmentCount = Math.max(1, (expected.length() + buffer.segmentSize() - 1) / buffer.segmentSize() + 1);
+            assertTrue(buffer.segmentCount() <= maxSegmentCount);
+        }
+
+        assertEquals(expected.substring(3, 20), buffer.subSequence(3, 20));
+        for (int i = 0; i < expected.length(); i++) {
+            assertEquals(expected.charAt(i), buffer.charAt(i));
+        }
+    }
+
+    @Test
+    @DisplayName("discard all")
+    void testDiscardAll() {
+        SegmentedCharBuffer buffer = new SegmentedCharBuffer(16, 0);
+        buffer.append("0123456789012345678901234567890123456789", 0, 40);
+        assertEquals(3, buffer.segmentCount());
+
+        buffer.discard(40);
+        assertEquals(0, buffer.length());
+        assertEquals(1, buffer.segmentCount());
+
+        buffer.append("abc", 0, 3);
+        assertEquals("abc", buffer.toString());
+        assertEquals(1, buffer.segmentCount());
+    }
+
+    @Test
+    @DisplayName("appendTo")
+    void testAppendTo() throws IOException {
+        SegmentedCharBuffer buffer = new SegmentedCharBuffer(16, 0);
+        String content = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+        buffer.append(content, 0, content.length());
+        buffer.discard(5);
+        String expected = content.substring(5);
+
+        for (int from = 0; from <= expected.length(); from += 7) {
+            for (int to = from; to <= expected.length(); to += 5) {
+                StringBuilder sb = new StringBuilder();
+                buffer.appendTo(from, to, sb);
+                assertEquals(expected.substring(from, to), sb.toString());
+
+                StringWriter writer = new StringWriter();
+                buffer.appendTo(from, to, writer);
+                assertEquals(expected.substring(from, to), writer.toString());
+
+                CharBuffer charBuffer = CharBuffer.allocate(to - from);
+                buffer.appendTo(from, to, charBuffer);
+                assertEquals(expected.substring(from, to), ((CharBuffer) charBuffer.flip()).toString());
+            }
+        }
+
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.appendTo(-1, 0, new StringBuilder()));
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.appendTo(0, expected.length() + 1, new StringBuilder()));
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.appendTo(2, 1, new StringBuilder()));
+    }
+
+    @Test
+    @DisplayName("obfuscateText")
+    void testObfuscateText() throws IOException {
+        SegmentedCharBuffer buffer = new SegmentedCharBuffer(16, 0);
+        String content = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+        buffer.append(content, 0, content.length());
+        buffer.discard(5);
+        String expected = content.substring(5);
+
+        List<String> obfuscated = new ArrayList<>();
+        Obfuscator obfuscator = Obfuscator.fromFunction((Function<CharSequence, CharSequence>) s -> {
+            obfuscated.add(s.toString());
+            return "***";
+        });
+
+        for (int from = 0; from <= expected.length(); from += 7) {
+            for (int to = from; to <= expected.length(); to += 5) {
+                obfuscated.clear();
+                StringBuilder sb = new StringBuilder();
+                buffer.obfuscateText(from, to, obfuscator, sb);
+                assertEquals(Collections.singletonList(expected.substring(from, to)), obfuscated);
+                assertEquals("***", sb.toString());
+            }
+        }
+
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.obfuscateText(-1, 0, obfuscator, new StringBuilder()));
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.obfuscateText(0, expected.length() + 1, obfuscator, new StringBuilder()));
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.obfuscateText(2, 1, obfuscator, new StringBuilder()));
+    }
+
+    @Test
+    @DisplayName("charAt with invalid index")
+    void testCharAtInvalidIndex() {
+        SegmentedCharBuffer buffer = new SegmentedCharBuffer(16, 0);
+        buffer.append("abc", 0, 3);
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.charAt(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.charAt(3));
+    }
+}
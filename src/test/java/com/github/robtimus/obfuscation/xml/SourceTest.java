@@ -130,6 +130,35 @@ final class SourceTest {
             assertEquals(repeatChar('*', PREFERRED_MAX_BUFFER_SIZE / 2) + "01", sb.toString());
         }
 
+        @Test
+        @DisplayName("custom preferred max buffer size")
+        void testCustomPreferredMaxBufferSize() {
+            Logger logger = mock(Logger.class);
+            when(logger.isTraceEnabled()).thenReturn(true);
+
+            Source.OfReader source = new Source.OfReader(4, 8, logger);
+
+            source.append("********");
+            assertFalse(source.needsTruncating());
+
+            source.append('0');
+            assertTrue(source.needsTruncating());
+
+            StringBuilder sb = new StringBuilder();
+            assertDoesNotThrow(() -> source.appendTo(0, 4, sb));
+            assertEquals("****", sb.toString());
+
+            source.append('1');
+            assertFalse(source.needsTruncating());
+
+            verify(logger).trace(Messages.Source.truncating(9));
+            verify(logger).trace(Messages.Source.truncated(5));
+
+            sb.delete(0, sb.length());
+            assertDoesNotThrow(() -> source.appendTo(4, 10, sb));
+            assertEquals("****01", sb.toString());
+        }
+
         @Nested
         @DisplayName("append(CharSequence)")
         class AppendCharSequence {
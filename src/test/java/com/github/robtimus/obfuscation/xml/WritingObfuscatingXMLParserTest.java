@@ -19,7 +19,10 @@ package com.github.robtimus.obfuscation.xml;
 
 import static com.github.robtimus.obfuscation.xml.WritingObfuscatingXMLParser.getDTD;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.io.IOException;
+import java.io.Reader;
 import java.io.StringReader;
+import java.io.Writer;
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLResolver;
 import javax.xml.stream.XMLStreamConstants;
@@ -29,10 +32,151 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import com.ctc.wstx.api.WstxInputProperties;
+import com.github.robtimus.obfuscation.Obfuscator;
 
 @SuppressWarnings("nls")
 class WritingObfuscatingXMLParserTest {
 
+    @Test
+    @DisplayName("unchanged content is written as-is")
+    void testUnchangedContent() {
+        Obfuscator obfuscator = XMLObfuscator.builder()
+                .withElement("a", Obfuscator.fixedLength(3))
+                .withElement("n", Obfuscator.none())
+                .generateXML()
+                .build();
+
+        String xml = "<?xml version=\"1.0\"?><!-- c1 --><?pi some data?><root>\n"
+                + "  x &lt; y &amp;&amp; y &gt; z ]]&gt;<!-- c2 --><?pi2?><b><![CDATA[<raw>]]></b>"
+                + "<a>  s&lt;cret <![CDATA[x]]> </a><a><![CDATA[ cd ]]></a><n>a &amp; b</n></root>";
+        String expected = "<?xml version=\"1.0\"?><!-- c1 --><?pi some data?><root>\n"
+                + "  x &lt; y &amp;&amp; y > z ]]&gt;<!-- c2 --><?pi2?><b><![CDATA[<raw>]]></b>"
+                + "<a>  *** <![CDATA[***]]> </a><a><![CDATA[ *** ]]></a><n>a &amp; b</n></root>";
+
+        assertEquals(expected, obfuscator.obfuscateText(xml).toString());
+    }
+
+    @Nested
+    @DisplayName("large text")
+    class LargeText {
+
+        private final StringBuilder lengths = new StringBuilder();
+
+        @Test
+        @DisplayName("obfuscated text is streamed")
+        void testObfuscatedTextStreamed() {
+            String text = repeat("abc ", 10_000) + "x";
+            String xml = "<root><a>\n  " + text + "\n</a><a><![CDATA[ " + text + " ]]></a><a>  </a><a>" + repeat(" ", 100) + "</a></root>";
+            String expected = "<root><a>\n  [streamed: " + text.length() + "]\n</a><a><![CDATA[ [streamed: " + text.length() + "] ]]></a>"
+                    + "<a>  </a><a>" + repeat(" ", 100) + "</a></root>";
+
+            Obfuscator obfuscator = createObfuscator(16);
+
+            assertEquals(expected, obfuscateText(obfuscator, xml));
+            assertEquals("", lengths.toString());
+        }
+
+        @Test
+        @DisplayName("small obfuscated text is not streamed")
+        void testSmallObfuscatedTextNotStreamed() {
+            String xml = "<root><a> abc </a><a><![CDATA[ abc ]]></a></root>";
+            String expected = "<root><a> [3] </a><a><![CDATA[ [3] ]]></a></root>";
+
+            Obfuscator obfuscator = createObfuscator(16);
+
+            assertEquals(expected, obfuscateText(obfuscator, xml));
+            assertEquals("33", lengths.toString());
+        }
+
+        @Test
+        @DisplayName("unobfuscated CDATA is written as one section")
+        void testUnobfuscatedCData() {
+            String text = repeat("abc ", 10_000);
+            String xml = "<root><b><![CDATA[" + text + "]]><![CDATA[" + text + "]]></b></root>";
+            String expected = "<root><b><![CDATA[" + text + text + "]]></b></root>";
+
+            Obfuscator obfuscator = createObfuscator(16);
+
+            assertEquals(expected, obfuscateText(obfuscator, xml));
+        }
+
+        @Test
+        @DisplayName("CDATA end marker in combined CDATA sections")
+        void testCDataEndMarker() {
+            String xml = "<root><b><![CDATA[x]]]]><![CDATA[>y]]></b></root>";
+            String expected = "<root><b><![CDATA[x]]]]><![CDATA[>y]]></b></root>";
+
+            Obfuscator obfuscator = createObfuscator(16);
+
+            assertEquals(expected, obfuscateText(obfuscator, xml));
+        }
+
+        private Obfuscator createObfuscator(int maxBufferSize) {
+            return XMLObfuscator.builder()
+                    .withElement("a", new LengthObfuscator())
+                    .withPreferredMaxBufferSize(maxBufferSize)
+                    .generateXML()
+                    .build();
+        }
+
+        private String obfuscateText(Obfuscator obfuscator, String xml) {
+            String result = obfuscator.obfuscateText(xml).toString();
+            // strip the XML declaration
+            return result.substring(result.indexOf("?>") + 2);
+        }
+
+        private String repeat(String s, int count) {
+            StringBuilder sb = new StringBuilder(s.length() * count);
+            for (int i = 0; i < count; i++) {
+                sb.append(s);
+            }
+            return sb.toString();
+        }
+
+        // Replaces text with its length; streamed text is marked as such
+        private final class LengthObfuscator extends Obfuscator {
+
+            @Override
+            public CharSequence obfuscateText(CharSequence s, int start, int end) {
+                lengths.append(end - start);
+                return "[" + (end - start) + "]";
+            }
+
+            @Override
+            public void obfuscateText(CharSequence s, int start, int end, Appendable destination) throws IOException {
+                destination.append(obfuscateText(s, start, end));
+            }
+
+            @Override
+            public void obfuscateText(Reader input, Appendable destination) throws IOException {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Writer streamTo(Appendable destination) {
+                return new Writer() {
+
+                    private long count = 0;
+
+                    @Override
+                    public void write(char[] cbuf, int off, int len) throws IOException {
+                        count += len;
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        // does nothing
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        destination.append("[streamed: " + count + "]");
+                    }
+                };
+            }
+        }
+    }
+
     @Nested
     @DisplayName("getDTD")
     class GetDTD {
@@ -151,7 +295,7 @@ class WritingObfuscatingXMLParserTest {
         }
 
         private XMLStreamReader2 createXmlStreamReader(String xml, XMLResolver dtdResolver) throws XMLStreamException {
-            XMLInputFactory inputFactory = XMLObfuscator.createInputFactory();
+            XMLInputFactory inputFactory = XMLFactories.createInputFactory();
             inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, true);
             if (dtdResolver != null) {
                 inputFactory.setProperty(WstxInputProperties.P_DTD_RESOLVER, dtdResolver);
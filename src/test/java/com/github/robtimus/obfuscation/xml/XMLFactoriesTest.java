@@ -0,0 +1,166 @@
+/*
+ * XMLFactoriesTest.java
+ * Copyright 2026 Rob Spoor
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robtimus.obfuscation.xml;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.ResourceBundle;
+import java.util.Scanner;
+import java.util.Set;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+@SuppressWarnings("nls")
+class XMLFactoriesTest {
+
+    private static final String NATIVE_IMAGE_DIR = "META-INF/native-image/com.github.robtimus/obfuscation-xml/";
+
+    @Test
+    @DisplayName("external DTDs are rejected")
+    void testExternalDTDRejected() throws XMLStreamException {
+        XMLStreamReader xmlStreamReader = XMLFactories.INPUT_FACTORY.createXMLStreamReader(
+                new StringReader("<!DOCTYPE root SYSTEM \"root.dtd\"><root />"));
+
+        XMLStreamException exception = assertThrows(XMLStreamException.class, () -> {
+            while (xmlStreamReader.hasNext()) {
+                xmlStreamReader.next();
+            }
+        });
+        assertThat(exception.getMessage(), containsString(Messages.XMLObfuscator.externalDTDsNotSupported("root.dtd")));
+    }
+
+    @Nested
+    @DisplayName("native image metadata")
+    class NativeImageMetadata {
+
+        @Test
+        @DisplayName("classes initialized at build time exist")
+        void testInitializeAtBuildTime() throws IOException, ClassNotFoundException {
+            for (String name : classesInitializedAtBuildTime()) {
+                assertNotNull(Class.forName(name, false, XMLFactories.class.getClassLoader()));
+            }
+        }
+
+        @Test
+        @DisplayName("classes reachable from the input factory are initialized at build time")
+        void testInputFactoryInitializedAtBuildTime() throws IOException, IllegalAccessException {
+            Set<String> classesInitializedAtBuildTime = classesInitializedAtBuildTime();
+
+            for (Class<?> type : reachableClasses(XMLFactories.INPUT_FACTORY)) {
+                assertThat(classesInitializedAtBuildTime, hasItem(type.getName()));
+            }
+        }
+
+        private Set<String> classesInitializedAtBuildTime() throws IOException {
+            Properties properties = new Properties();
+            try (InputStream input = getResource("native-image.properties")) {
+                properties.load(input);
+            }
+            String args = properties.getProperty("Args");
+            String prefix = "--initialize-at-build-time=";
+            assertTrue(args.startsWith(prefix));
+
+            return new HashSet<>(Arrays.asList(args.substring(prefix.length()).split(",")));
+        }
+
+        // Returns the non-JDK classes, including super classes, of all objects reachable from the given object
+        private Set<Class<?>> reachableClasses(Object root) throws IllegalAccessException {
+            Set<Class<?>> classes = new HashSet<>();
+            Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+            Deque<Object> remaining = new ArrayDeque<>();
+            remaining.add(root);
+            while (!remaining.isEmpty()) {
+                Object object = remaining.remove();
+                if (!visited.add(object)) {
+                    continue;
+                }
+                if (object instanceof Object[]) {
+                    addNonNull(Arrays.asList((Object[]) object), remaining);
+                } else if (object instanceof Map<?, ?>) {
+                    // JDK internals cannot be accessed using reflection, so use the public API instead
+                    addNonNull(((Map<?, ?>) object).keySet(), remaining);
+                    addNonNull(((Map<?, ?>) object).values(), remaining);
+                } else if (object instanceof Collection<?>) {
+                    addNonNull((Collection<?>) object, remaining);
+                }
+                for (Class<?> type = object.getClass(); type != null && !isJDKClass(type); type = type.getSuperclass()) {
+                    classes.add(type);
+                    for (Field field : type.getDeclaredFields()) {
+                        if (!Modifier.isStatic(field.getModifiers()) && !field.getType().isPrimitive()) {
+                            field.setAccessible(true);
+                            addNonNull(Collections.singleton(field.get(object)), remaining);
+                        }
+                    }
+                }
+            }
+            return classes;
+        }
+
+        private void addNonNull(Collection<?> objects, Deque<Object> remaining) {
+            for (Object object : objects) {
+                if (object != null) {
+                    remaining.add(object);
+                }
+            }
+        }
+
+        private boolean isJDKClass(Class<?> type) {
+            return type.isArray() || type.getName().startsWith("java.") || type.getName().startsWith("javax.")
+                    || type.getName().startsWith("jdk.") || type.getName().startsWith("sun.");
+        }
+
+        @Test
+        @DisplayName("resource bundle exists")
+        void testResourceBundle() throws IOException {
+            String bundleName = "com.github.robtimus.obfuscation.xml.obfuscation-xml";
+            try (Scanner scanner = new Scanner(getResource("resource-config.json"), StandardCharsets.UTF_8.name())) {
+                String content = scanner.useDelimiter("\\A").next();
+                assertThat(content, containsString("\"" + bundleName + "\""));
+            }
+            assertNotNull(ResourceBundle.getBundle(bundleName));
+        }
+
+        private InputStream getResource(String name) {
+            InputStream input = XMLFactories.class.getClassLoader().getResourceAsStream(NATIVE_IMAGE_DIR + name);
+            assertNotNull(input, name);
+            return input;
+        }
+    }
+}
@@ -20,7 +20,9 @@ package com.github.robtimus.obfuscation.xml;
 import static com.github.robtimus.obfuscation.Obfuscator.fixedLength;
 import static com.github.robtimus.obfuscation.Obfuscator.fixedValue;
 import static com.github.robtimus.obfuscation.Obfuscator.none;
+import static com.github.robtimus.obfuscation.support.CaseSensitivity.CASE_INSENSITIVE;
 import static com.github.robtimus.obfuscation.support.CaseSensitivity.CASE_SENSITIVE;
+import static com.github.robtimus.obfuscation.support.ObfuscatorUtils.counting;
 import static com.github.robtimus.obfuscation.xml.XMLObfuscator.builder;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.anyOf;
@@ -31,34 +33,55 @@ import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.params.provider.Arguments.arguments;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
 import java.io.Writer;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Inherited;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -77,17 +100,23 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.ArgumentCaptor;
 import com.ctc.wstx.exc.WstxLazyException;
 import com.github.robtimus.junit.support.extension.testlogger.Reload4jLoggerContext;
 import com.github.robtimus.junit.support.extension.testlogger.TestLogger;
 import com.github.robtimus.obfuscation.Obfuscator;
+import com.github.robtimus.obfuscation.support.CountingReader;
 import com.github.robtimus.obfuscation.xml.XMLObfuscator.AttributeConfigurer;
 import com.github.robtimus.obfuscation.xml.XMLObfuscator.Builder;
+import com.github.robtimus.obfuscation.xml.XMLObfuscator.ElementConfigurer;
 import com.github.robtimus.obfuscation.xml.XMLObfuscator.ElementConfigurer.ObfuscationMode;
+import com.github.robtimus.obfuscation.xml.XMLObfuscator.ObfuscationSession;
+import com.github.robtimus.obfuscation.xml.XMLObfuscator.ParserBackend;
 import com.github.robtimus.obfuscation.xml.XMLObfuscatorTest.ObfuscatorTest.UseSourceTruncation;
 
 @SuppressWarnings("nls")
@@ -112,7 +141,12 @@ class XMLObfuscatorTest {
                 arguments(obfuscator, createObfuscator(builder().withElement(new QName("test"), none())), false),
                 arguments(obfuscator, createObfuscator(builder().withElement("test", fixedLength(3))), false),
                 arguments(obfuscator, createObfuscator(builder().withElement("test", none()).excludeNestedElements()), false),
+                arguments(obfuscator, createObfuscator(builder().withElement("test", none()).occursOnce()), false),
+                arguments(obfuscator, createObfuscator(builder().withElement("test", none()).cacheResults(16)), true),
                 arguments(obfuscator, createObfuscator(builder().withElement("test", none()).withElement(new QName("text"), none())), false),
+                arguments(obfuscator, createObfuscator(builder().withElement("test", none()).withElementPath("//test", none())), false),
+                arguments(obfuscator, createObfuscator(builder().withElement("test", none()).withElementGlob("test*", none())), false),
+                arguments(obfuscator, createObfuscator(builder().withElement("test", none()).withAttributeGlob("test*", none())), false),
                 arguments(obfuscator, createObfuscator(builder().withElement("test", none()).withAttribute("test", none())), false),
                 arguments(obfuscator, createObfuscator(builder().withElement("test", none()).withAttribute(new QName("test"), none())), false),
                 arguments(obfuscator, obfuscatorWithAttributes, false),
@@ -120,8 +154,16 @@ class XMLObfuscatorTest {
                 arguments(obfuscator, createObfuscator(builder().withElement("test", none()).limitTo(1024)), false),
                 arguments(obfuscator, createObfuscator(builder().withElement("test", none()).limitTo(Long.MAX_VALUE).withTruncatedIndicator(null)),
                         false),
+                arguments(obfuscator, createObfuscator(builder().withElement("test", none()).limitTo(Long.MAX_VALUE)
+                        .withTruncatedIndicatorWithoutTotal("... (total: %d)")), false),
                 arguments(obfuscator, builder().build(), false),
                 arguments(obfuscator, createObfuscator(builder().withElement("test", none()).withMalformedXMLWarning(null)), false),
+                arguments(obfuscator, createObfuscator(builder().withElement("test", none()).withInitialBufferCapacity(16)), true),
+                arguments(obfuscator, createObfuscator(builder().withElement("test", none()).withInitialBufferCapacity(1024)), false),
+                arguments(obfuscator, createObfuscator(builder().withElement("test", none()).withPreferredMaxBufferSize(1024)), false),
+                arguments(obfuscator, createObfuscator(builder().withElement("test", none()).withParserBackend(ParserBackend.woodstox())), true),
+                arguments(obfuscator, createObfuscator(builder().withElement("test", none()).withParserBackend(ParserBackend.aalto())), false),
+                arguments(obfuscator, createObfuscator(builder().withElement("test", none()).withMetricsListener(metrics -> { /* no-op */ })), false),
                 arguments(obfuscator, createObfuscator(builder().withElement("test", none()).generateXML()), false),
                 arguments(obfuscator, createObfuscator(false), false),
                 arguments(obfuscator, "foo", false),
@@ -140,6 +182,8 @@ class XMLObfuscatorTest {
                 arguments(obfuscatorWithAttributes,
                         createObfuscator(builder().withElement("test", none()).withAttribute("a", none()).forElement(new QName("test"), none())),
                         false),
+                arguments(obfuscatorWithAttributes,
+                        createObfuscator(builder().withElement("test", none()).withAttribute("a", none()).cacheResults(16)), true),
         };
     }
 
@@ -165,103 +209,1391 @@ class XMLObfuscatorTest {
     }
 
     @Nested
-    @DisplayName("external access")
+    @DisplayName("external access")
+    @TestInstance(Lifecycle.PER_CLASS)
+    class ExternalAccess {
+
+        @TestLogger.ForClass(XMLObfuscator.class)
+        private Reload4jLoggerContext logger;
+
+        private Appender appender;
+
+        @BeforeEach
+        void configureLogger() {
+            appender = mock(Appender.class);
+            logger.setLevel(Level.INFO)
+                    .setAppender(appender)
+                    .useParentAppenders(false);
+        }
+
+        @ParameterizedTest(name = "{1}")
+        @MethodSource("obfuscators")
+        @DisplayName("external DTD not allowed")
+        void testExternalDTDNotAllowed(Obfuscator obfuscator, @SuppressWarnings("unused") String displayName) {
+            String xml = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+                    + "<!DOCTYPE html PUBLIC \"-//W3C//DTD XHTML 1.0 Transitional//EN\"\n"
+                    + "\"http://www.w3.org/TR/xhtml1/DTD/xhtml1-transitional.dtd\">\n"
+                    + "<html xmlns=\"http://www.w3.org/1999/xhtml\">\n"
+                    + "</html>";
+
+            String obfuscated = obfuscator.obfuscateText(xml).toString();
+            assertThat(obfuscated, endsWith(Messages.XMLObfuscator.malformedXML.text()));
+
+            ArgumentCaptor<LoggingEvent> loggingEvents = ArgumentCaptor.forClass(LoggingEvent.class);
+
+            verify(appender, atLeast(1)).doAppend(loggingEvents.capture());
+
+            List<LoggingEvent> warningEvents = loggingEvents.getAllValues().stream()
+                    .filter(event -> event.getLevel() == Level.WARN)
+                    .collect(Collectors.toList());
+
+            assertFalse(warningEvents.isEmpty());
+
+            LoggingEvent warningEvent = warningEvents.get(warningEvents.size() - 1);
+
+            assertEquals(Messages.XMLObfuscator.malformedXML.warning(), warningEvent.getRenderedMessage());
+
+            ThrowableInformation throwableInformation = warningEvent.getThrowableInformation();
+            assertNotNull(throwableInformation);
+
+            Throwable throwable = throwableInformation.getThrowable();
+            assertInstanceOf(XMLStreamException.class, throwable);
+            assertEquals(Messages.XMLObfuscator.externalDTDsNotSupported("http://www.w3.org/TR/xhtml1/DTD/xhtml1-transitional.dtd"),
+                    throwable.getMessage());
+        }
+
+        @ParameterizedTest(name = "{1}")
+        @MethodSource("obfuscators")
+        @DisplayName("external entity not allowed")
+        void testExternalEntityNotAllowed(Obfuscator obfuscator, @SuppressWarnings("unused") String displayName) {
+            String xml = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+                    + "<!DOCTYPE html [\n"
+                    + "  <!ENTITY name SYSTEM \"irrelevant\">\n"
+                    + "]>\n"
+                    + "<html xmlns=\"http://www.w3.org/1999/xhtml\">\n"
+                    + "&name;\n"
+                    + "</html>";
+
+            String obfuscated = obfuscator.obfuscateText(xml).toString();
+            assertThat(obfuscated, endsWith(Messages.XMLObfuscator.malformedXML.text()));
+
+            ArgumentCaptor<LoggingEvent> loggingEvents = ArgumentCaptor.forClass(LoggingEvent.class);
+
+            verify(appender, atLeast(1)).doAppend(loggingEvents.capture());
+
+            List<LoggingEvent> warningEvents = loggingEvents.getAllValues().stream()
+                    .filter(event -> event.getLevel() == Level.WARN)
+                    .collect(Collectors.toList());
+
+            assertFalse(warningEvents.isEmpty());
+
+            LoggingEvent warningEvent = warningEvents.get(warningEvents.size() - 1);
+
+            assertEquals(Messages.XMLObfuscator.malformedXML.warning(), warningEvent.getRenderedMessage());
+
+            ThrowableInformation throwableInformation = warningEvent.getThrowableInformation();
+            assertNotNull(throwableInformation);
+
+            Throwable throwable = throwableInformation.getThrowable();
+            assertThat(throwable, anyOf(instanceOf(XMLStreamException.class), instanceOf(WstxLazyException.class)));
+
+            String expectedPrefix = String.format("Encountered a reference to external entity \"%s\", but stream reader has feature \"%s\" disabled",
+                    "name", XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES);
+            assertThat(throwable.getMessage(), containsString(expectedPrefix));
+        }
+
+        private Arguments[] obfuscators() {
+            return new Arguments[] {
+                    arguments(createObfuscator(), "default"),
+                    arguments(createObfuscatorWithAttributes(), "with attributes"),
+            };
+        }
+    }
+
+    @Nested
+    @DisplayName("elements that occur once")
+    @TestInstance(Lifecycle.PER_CLASS)
+    class OccursOnce {
+
+        private static final String XML = "<root><header><token>abc</token><id>123</id></header><body><token>def</token><broken></body></root>";
+
+        @ParameterizedTest(name = "{0}")
+        @MethodSource("obfuscators")
+        @DisplayName("obfuscateText(CharSequence)")
+        void testObfuscateTextCharSequence(@SuppressWarnings("unused") String displayName, Obfuscator obfuscator, String expected) {
+            assertEquals(expected, obfuscator.obfuscateText(XML).toString());
+        }
+
+        @ParameterizedTest(name = "{0}")
+        @MethodSource("obfuscators")
+        @DisplayName("obfuscateText(Reader, Appendable)")
+        void testObfuscateTextReader(@SuppressWarnings("unused") String displayName, Obfuscator obfuscator, String expected) throws IOException {
+            StringBuilder destination = new StringBuilder();
+            obfuscator.obfuscateText(new StringReader(XML), destination);
+            assertEquals(expected, destination.toString());
+        }
+
+        @ParameterizedTest(name = "{0}")
+        @MethodSource("obfuscators")
+        @DisplayName("streamTo(Appendable)")
+        void testStreamTo(@SuppressWarnings("unused") String displayName, Obfuscator obfuscator, String expected) throws IOException {
+            // make sure the parser completes before all content has been written
+            String padding = repeat(' ', 8192);
+            String xml = XML.replace("<body>", "<body>" + padding);
+            StringBuilder destination = new StringBuilder();
+            try (Writer writer = obfuscator.streamTo(destination)) {
+                for (int i = 0; i < xml.length(); i += 100) {
+                    writer.write(xml, i, Math.min(100, xml.length() - i));
+                }
+            }
+            assertEquals(expected.replace("<body>", "<body>" + padding), destination.toString());
+        }
+
+        Arguments[] obfuscators() {
+            String malformedXML = Messages.XMLObfuscator.malformedXML.text();
+            return new Arguments[] {
+                    arguments("all elements occur once",
+                            builder()
+                                    .withElement("token", fixedLength(3)).occursOnce()
+                                    .withElement(new QName("id"), fixedLength(3)).occursOnce()
+                                    .build(),
+                            "<root><header><token>***</token><id>***</id></header><body><token>def</token><broken></body></root>"),
+                    arguments("not all elements occur once",
+                            builder()
+                                    .withElement("token", fixedLength(3))
+                                    .withElement(new QName("id"), fixedLength(3)).occursOnce()
+                                    .build(),
+                            "<root><header><token>***</token><id>***</id></header><body><token>***</token><broken>" + malformedXML),
+                    arguments("not all elements processed",
+                            builder()
+                                    .withElement("token", fixedLength(3)).occursOnce()
+                                    .withElement("other", fixedLength(3)).occursOnce()
+                                    .build(),
+                            "<root><header><token>***</token><id>123</id></header><body><token>***</token><broken>" + malformedXML),
+                    arguments("with attributes",
+                            builder()
+                                    .withElement("token", fixedLength(3)).occursOnce()
+                                    .withAttribute("attr", fixedLength(3))
+                                    .build(),
+                            "<root><header><token>***</token><id>123</id></header><body><token>***</token><broken>" + malformedXML),
+                    arguments("element path occurs once",
+                            builder()
+                                    .withElementPath("/root/header/token", fixedLength(3)).occursOnce()
+                                    .build(),
+                            "<root><header><token>***</token><id>123</id></header><body><token>def</token><broken></body></root>"),
+                    arguments("with limit",
+                            builder()
+                                    .withElement("token", fixedLength(3)).occursOnce()
+                                    .limitTo(40)
+                                    .withTruncatedIndicator(null)
+                                    .build(),
+                            "<root><header><token>***</token><id>123<"),
+            };
+        }
+
+        private String repeat(char c, int count) {
+            char[] chars = new char[count];
+            Arrays.fill(chars, c);
+            return new String(chars);
+        }
+    }
+
+    @Nested
+    @DisplayName("truncated indicator without total")
+    @TestInstance(Lifecycle.PER_CLASS)
+    class TruncatedIndicatorWithoutTotal {
+
+        private final String xml = createXML();
+
+        @ParameterizedTest(name = "{0}")
+        @MethodSource("obfuscators")
+        @DisplayName("obfuscateText(Reader, Appendable) stops reading")
+        void testObfuscateTextReader(@SuppressWarnings("unused") String displayName, Obfuscator obfuscator) throws IOException {
+            CountingReader reader = counting(new StringReader(xml));
+            StringBuilder destination = new StringBuilder();
+            obfuscator.obfuscateText(reader, destination);
+
+            assertEquals(obfuscator.obfuscateText(xml).toString(), destination.toString());
+            assertThat(destination.toString(), endsWith("..."));
+            assertThat(reader.count(), lessThanOrEqualTo(64L * 1024));
+        }
+
+        @Test
+        @DisplayName("obfuscateText(Reader, Appendable) with total reads all")
+        void testObfuscateTextReaderWithTotal() throws IOException {
+            Obfuscator obfuscator = builder()
+                    .withElement("password", fixedLength(3))
+                    .limitTo(100)
+                    .build();
+            CountingReader reader = counting(new StringReader(xml));
+            StringBuilder destination = new StringBuilder();
+            obfuscator.obfuscateText(reader, destination);
+
+            assertThat(destination.toString(), endsWith("... (total: " + xml.length() + ")"));
+            assertEquals(xml.length(), reader.count());
+        }
+
+        @Test
+        @DisplayName("obfuscateText(Reader, Appendable) without indicator")
+        void testObfuscateTextReaderWithoutIndicator() throws IOException {
+            Obfuscator obfuscator = builder()
+                    .withElement("password", fixedLength(3))
+                    .limitTo(100)
+                    .withTruncatedIndicatorWithoutTotal(null)
+                    .build();
+            CountingReader reader = counting(new StringReader(xml));
+            StringBuilder destination = new StringBuilder();
+            obfuscator.obfuscateText(reader, destination);
+
+            assertEquals(obfuscator.obfuscateText(xml).toString(), destination.toString());
+            assertEquals(100, destination.length());
+            assertThat(reader.count(), lessThanOrEqualTo(64L * 1024));
+        }
+
+        @Test
+        @DisplayName("indicator is not formatted")
+        void testIndicatorNotFormatted() {
+            Obfuscator obfuscator = builder()
+                    .withElement("password", fixedLength(3))
+                    .limitTo(10)
+                    .withTruncatedIndicatorWithoutTotal("... (%d)")
+                    .build();
+
+            assertEquals("<root><pas... (%d)", obfuscator.obfuscateText(xml).toString());
+        }
+
+        @Test
+        @DisplayName("indicator is not formatted for streamTo(Appendable)")
+        void testIndicatorNotFormattedForStreamTo() throws IOException {
+            Obfuscator obfuscator = builder()
+                    .withElement("password", fixedLength(3))
+                    .limitTo(10)
+                    .withTruncatedIndicatorWithoutTotal("... (%d)")
+                    .build();
+
+            StringBuilder destination = new StringBuilder();
+            try (Writer writer = obfuscator.streamTo(destination)) {
+                writer.write(xml);
+            }
+            assertEquals("<root><pas... (%d)", destination.toString());
+        }
+
+        Arguments[] obfuscators() {
+            return new Arguments[] {
+                    arguments("indexed", builder()
+                            .withElement("password", fixedLength(3))
+                            .limitTo(100)
+                            .withTruncatedIndicatorWithoutTotal("...")
+                            .build()),
+                    arguments("generating XML", builder()
+                            .withElement("password", fixedLength(3))
+                            .limitTo(100)
+                            .withTruncatedIndicatorWithoutTotal("...")
+                            .generateXML()
+                            .build()),
+                    arguments("occurs once", builder()
+                            .withElement("password", fixedLength(3)).occursOnce()
+                            .limitTo(100)
+                            .withTruncatedIndicatorWithoutTotal("...")
+                            .build()),
+            };
+        }
+
+        private String createXML() {
+            StringBuilder sb = new StringBuilder("<root><password>secret</password>");
+            while (sb.length() < 1024 * 1024) {
+                sb.append("<item>value</item>");
+            }
+            return sb.append("</root>").toString();
+        }
+    }
+
+    @Nested
+    @DisplayName("metrics listener")
+    class WithMetricsListener {
+
+        private static final String XML = "<root attr=\"x\"><a>1</a><b><a>2</a></b><c>3</c></root>";
+
+        private final List<XMLObfuscator.Metrics> reported = new ArrayList<>();
+
+        @ParameterizedTest(name = "generateXML: {0}")
+        @ValueSource(booleans = { false, true })
+        @DisplayName("obfuscateText(CharSequence)")
+        void testObfuscateTextCharSequence(boolean generateXML) {
+            Obfuscator obfuscator = builder(generateXML).build();
+            obfuscator.obfuscateText(XML);
+
+            XMLObfuscator.Metrics metrics = singleMetrics();
+            assertEquals(XML.length(), metrics.characterCount());
+            assertEquals(2, metrics.matchedElementCount());
+            assertEquals(1, metrics.matchedAttributeCount());
+            assertFalse(metrics.truncated());
+            assertFalse(metrics.malformedXML());
+            assertEquals(0, metrics.maxBufferSize());
+            assertThat(metrics.durationNanos(), greaterThanOrEqualTo(0L));
+        }
+
+        @ParameterizedTest(name = "generateXML: {0}")
+        @ValueSource(booleans = { false, true })
+        @DisplayName("obfuscateText(Reader, Appendable)")
+        void testObfuscateTextReader(boolean generateXML) throws IOException {
+            Obfuscator obfuscator = builder(generateXML).build();
+            obfuscator.obfuscateText(new StringReader(XML), new StringBuilder());
+
+            XMLObfuscator.Metrics metrics = singleMetrics();
+            assertEquals(XML.length(), metrics.characterCount());
+            assertEquals(2, metrics.matchedElementCount());
+            assertEquals(1, metrics.matchedAttributeCount());
+            assertFalse(metrics.truncated());
+            assertFalse(metrics.malformedXML());
+            if (generateXML) {
+                assertEquals(0, metrics.maxBufferSize());
+            } else {
+                assertThat(metrics.maxBufferSize(), greaterThanOrEqualTo(1));
+                assertThat(metrics.maxBufferSize(), lessThanOrEqualTo(XML.length()));
+            }
+        }
+
+        @Test
+        @DisplayName("streamTo(Appendable)")
+        void testStreamTo() throws IOException {
+            Obfuscator obfuscator = builder(false).build();
+            try (Writer writer = obfuscator.streamTo(new StringBuilder())) {
+                writer.write(XML);
+                assertEquals(0, reported.size());
+            }
+
+            XMLObfuscator.Metrics metrics = singleMetrics();
+            assertEquals(XML.length(), metrics.characterCount());
+            assertEquals(2, metrics.matchedElementCount());
+            assertEquals(1, metrics.matchedAttributeCount());
+            assertFalse(metrics.truncated());
+            assertFalse(metrics.malformedXML());
+            assertEquals(XML.length(), metrics.maxBufferSize());
+        }
+
+        @ParameterizedTest(name = "generateXML: {0}")
+        @ValueSource(booleans = { false, true })
+        @DisplayName("truncated")
+        void testTruncated(boolean generateXML) {
+            Obfuscator obfuscator = builder(generateXML).limitTo(10).build();
+            obfuscator.obfuscateText(XML);
+
+            XMLObfuscator.Metrics metrics = singleMetrics();
+            assertEquals(XML.length(), metrics.characterCount());
+            assertTrue(metrics.truncated());
+            assertFalse(metrics.malformedXML());
+        }
+
+        @ParameterizedTest(name = "generateXML: {0}")
+        @ValueSource(booleans = { false, true })
+        @DisplayName("malformed XML")
+        void testMalformedXML(boolean generateXML) {
+            Obfuscator obfuscator = builder(generateXML).build();
+            obfuscator.obfuscateText("<root><a>1</b></root>");
+
+            XMLObfuscator.Metrics metrics = singleMetrics();
+            assertEquals(1, metrics.matchedElementCount());
+            assertFalse(metrics.truncated());
+            assertTrue(metrics.malformedXML());
+        }
+
+        @Test
+        @DisplayName("malformed XML with streamTo(Appendable)")
+        void testMalformedXMLWithStreamTo() throws IOException {
+            Obfuscator obfuscator = builder(false).build();
+            try (Writer writer = obfuscator.streamTo(new StringBuilder())) {
+                writer.write("<root><a>1</b></root>");
+            }
+
+            XMLObfuscator.Metrics metrics = singleMetrics();
+            assertEquals(1, metrics.matchedElementCount());
+            assertTrue(metrics.malformedXML());
+        }
+
+        @Test
+        @DisplayName("no configured names in input")
+        void testNoConfiguredNames() {
+            Obfuscator obfuscator = builder(false).build();
+            String xml = "<root><c>3</c></root>";
+            obfuscator.obfuscateText(xml);
+
+            XMLObfuscator.Metrics metrics = singleMetrics();
+            assertEquals(xml.length(), metrics.characterCount());
+            assertEquals(0, metrics.matchedElementCount());
+            assertEquals(0, metrics.matchedAttributeCount());
+            assertFalse(metrics.malformedXML());
+        }
+
+        private Builder builder(boolean generateXML) {
+            Builder builder = XMLObfuscator.builder()
+                    .withElement("a", fixedLength(3))
+                    .withAttribute("attr", fixedLength(3))
+                    .withMetricsListener(reported::add);
+            return generateXML ? builder.generateXML() : builder;
+        }
+
+        private XMLObfuscator.Metrics singleMetrics() {
+            assertEquals(1, reported.size());
+            return reported.get(0);
+        }
+    }
+
+    @Nested
+    @DisplayName("cacheResults(int)")
+    class CacheResults {
+
+        private static final String XML = "<root attr=\"x\"><a>1</a><b><a>2</a></b><a>1</a><c attr=\"x\">3</c></root>";
+
+        private final List<String> obfuscated = new ArrayList<>();
+
+        @ParameterizedTest(name = "generateXML: {0}")
+        @ValueSource(booleans = { false, true })
+        @DisplayName("obfuscateText(CharSequence)")
+        void testObfuscateTextCharSequence(boolean generateXML) {
+            XMLObfuscator obfuscator = cachingBuilder(generateXML).build();
+            String expected = cachingBuilder(generateXML).build().obfuscateText(XML).toString();
+            obfuscated.clear();
+
+            assertEquals(expected, obfuscator.obfuscateText(XML).toString());
+            assertEquals(Arrays.asList("x", "1", "2"), obfuscated);
+
+            XMLObfuscator.CacheStatistics statistics = obfuscator.cacheStatistics();
+            assertEquals(2, statistics.hitCount());
+            assertEquals(3, statistics.missCount());
+            assertEquals(3, statistics.size());
+
+            assertEquals(expected, obfuscator.obfuscateText(XML).toString());
+            assertEquals(Arrays.asList("x", "1", "2"), obfuscated);
+
+            statistics = obfuscator.cacheStatistics();
+            assertEquals(7, statistics.hitCount());
+            assertEquals(3, statistics.missCount());
+            assertEquals(3, statistics.size());
+        }
+
+        @Test
+        @DisplayName("obfuscateText(Reader, Appendable)")
+        void testObfuscateTextReader() throws IOException {
+            XMLObfuscator obfuscator = cachingBuilder(false).build();
+            StringBuilder destination = new StringBuilder();
+            obfuscator.obfuscateText(new StringReader(XML), destination);
+
+            assertEquals(obfuscator.obfuscateText(XML).toString(), destination.toString());
+            assertEquals(Arrays.asList("x", "1", "2"), obfuscated);
+        }
+
+        @Test
+        @DisplayName("least recently used results are evicted")
+        void testEviction() {
+            XMLObfuscator obfuscator = builder()
+                    .withElement("a", obfuscator(fixedLength(3))).cacheResults(2)
+                    .build();
+            obfuscator.obfuscateText("<root><a>1</a><a>2</a><a>1</a><a>3</a><a>2</a><a>1</a></root>");
+
+            // 2 is evicted when 3 is added, and 1 is evicted when 2 is added again
+            assertEquals(Arrays.asList("1", "2", "3", "2", "1"), obfuscated);
+
+            XMLObfuscator.CacheStatistics statistics = obfuscator.cacheStatistics();
+            assertEquals(1, statistics.hitCount());
+            assertEquals(5, statistics.missCount());
+            assertEquals(2, statistics.size());
+        }
+
+        @Test
+        @DisplayName("Obfuscator.none() is not cached")
+        void testNone() {
+            XMLObfuscator obfuscator = builder()
+                    .withElement("a", none()).cacheResults(16)
+                    .build();
+
+            assertEquals(XML, obfuscator.obfuscateText(XML).toString());
+
+            XMLObfuscator.CacheStatistics statistics = obfuscator.cacheStatistics();
+            assertEquals(0, statistics.hitCount());
+            assertEquals(0, statistics.missCount());
+            assertEquals(0, statistics.size());
+        }
+
+        @Test
+        @DisplayName("only for configured elements and attributes")
+        void testNotForOtherElements() {
+            XMLObfuscator obfuscator = builder()
+                    .withElement("a", obfuscator(fixedLength(3))).cacheResults(16)
+                    .withElement("c", obfuscator(fixedLength(3)))
+                    .withAttribute("attr", obfuscator(fixedLength(3)))
+                    .build();
+            obfuscator.obfuscateText(XML);
+            obfuscator.obfuscateText(XML);
+
+            assertEquals(Arrays.asList("x", "1", "2", "x", "3", "x", "x", "3"), obfuscated);
+
+            XMLObfuscator.CacheStatistics statistics = obfuscator.cacheStatistics();
+            assertEquals(4, statistics.hitCount());
+            assertEquals(2, statistics.missCount());
+            assertEquals(2, statistics.size());
+        }
+
+        @ParameterizedTest(name = "{0}")
+        @ValueSource(ints = { 0, -1 })
+        @DisplayName("invalid max size")
+        void testInvalidMaxSize(int maxSize) {
+            ElementConfigurer elementConfigurer = builder().withElement("a", fixedLength(3));
+            assertThrows(IllegalArgumentException.class, () -> elementConfigurer.cacheResults(maxSize));
+
+            AttributeConfigurer attributeConfigurer = builder().withAttribute("attr", fixedLength(3));
+            assertThrows(IllegalArgumentException.class, () -> attributeConfigurer.cacheResults(maxSize));
+        }
+
+        private XMLObfuscator.Builder cachingBuilder(boolean generateXML) {
+            XMLObfuscator.Builder builder = XMLObfuscator.builder()
+                    .withElement("a", obfuscator(fixedLength(3))).cacheResults(16)
+                    .withAttribute("attr", obfuscator(fixedLength(3))).cacheResults(16);
+            return generateXML ? builder.generateXML() : builder;
+        }
+
+        // records the texts that are actually obfuscated
+        private Obfuscator obfuscator(Obfuscator obfuscator) {
+            return Obfuscator.fromFunction((Function<CharSequence, CharSequence>) s -> {
+                obfuscated.add(s.toString());
+                return obfuscator.obfuscateText(s);
+            });
+        }
+    }
+
+    @Nested
+    @DisplayName("warmUp(int)")
+    @TestInstance(Lifecycle.PER_CLASS)
+    class WarmUp {
+
+        @TestLogger.ForClass(XMLObfuscator.class)
+        private Reload4jLoggerContext logger;
+
+        private Appender appender;
+
+        private final List<String> obfuscated = Collections.synchronizedList(new ArrayList<>());
+
+        @BeforeEach
+        void configureLogger() {
+            appender = mock(Appender.class);
+            logger.setLevel(Level.INFO)
+                    .setAppender(appender)
+                    .useParentAppenders(false);
+            obfuscated.clear();
+        }
+
+        @ParameterizedTest(name = "generateXML: {0}")
+        @ValueSource(booleans = { false, true })
+        @DisplayName("obfuscates configured names")
+        void testWarmUp(boolean generateXML) {
+            XMLObfuscator.MetricsListener metricsListener = mock(XMLObfuscator.MetricsListener.class);
+            XMLObfuscator.Builder builder = builder()
+                    .withElement("a", obfuscator())
+                    .withElement("b", obfuscator(), CASE_INSENSITIVE)
+                    .withElement(new QName("urn:test", "c"), obfuscator())
+                    .withElement(new QName("d"), obfuscator())
+                    .withAttribute("e", obfuscator())
+                    .withAttribute(new QName("urn:test", "f"), obfuscator())
+                    .withMetricsListener(metricsListener);
+            XMLObfuscator obfuscator = (generateXML ? builder.generateXML() : builder).build();
+
+            obfuscator.warmUp(2);
+
+            // each text is obfuscated twice per iteration for generated XML, three times otherwise
+            int count = generateXML ? 4 : 6;
+            assertEquals(count * 4, obfuscated.stream().filter(text -> text.startsWith("text &")).count());
+            assertEquals(count * 2, obfuscated.stream().filter("value & more"::equals).count());
+            verify(metricsListener, never()).obfuscated(any());
+            verify(appender, never()).doAppend(any());
+        }
+
+        @ParameterizedTest(name = "generateXML: {0}")
+        @ValueSource(booleans = { false, true })
+        @DisplayName("with the same attribute configured by name and by qualified name")
+        void testWarmUpWithDuplicateAttribute(boolean generateXML) {
+            XMLObfuscator.Builder builder = builder()
+                    .withAttribute("id", obfuscator())
+                    .withAttribute(new QName("", "id"), obfuscator());
+            XMLObfuscator obfuscator = (generateXML ? builder.generateXML() : builder).build();
+
+            obfuscator.warmUp(1);
+
+            assertNotEquals(Collections.emptyList(), obfuscated);
+            verify(appender, never()).doAppend(any());
+        }
+
+        @ParameterizedTest(name = "generateXML: {0}")
+        @ValueSource(booleans = { false, true })
+        @DisplayName("with names that cannot occur in XML")
+        void testWarmUpWithInvalidNames(boolean generateXML) {
+            XMLObfuscator.Builder builder = builder()
+                    .withElement("a", obfuscator())
+                    .withElement("p:a", obfuscator())
+                    .withElement("1a", obfuscator())
+                    .withElement(new QName("urn:test", "p:a"), obfuscator())
+                    .withAttribute("p:b", obfuscator())
+                    .withAttribute("xmlns", obfuscator())
+                    .withAttribute(new QName(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, "b"), obfuscator());
+            XMLObfuscator obfuscator = (generateXML ? builder.generateXML() : builder).build();
+
+            obfuscator.warmUp(1);
+
+            assertNotEquals(Collections.emptyList(), obfuscated);
+            verify(appender, never()).doAppend(any());
+        }
+
+        @ParameterizedTest(name = "generateXML: {0}")
+        @ValueSource(booleans = { false, true })
+        @DisplayName("with names in the xml namespace")
+        void testWarmUpWithXMLNamespace(boolean generateXML) {
+            XMLObfuscator.Builder builder = builder()
+                    .withElement(new QName(XMLConstants.XML_NS_URI, "a"), obfuscator())
+                    .withAttribute(new QName(XMLConstants.XML_NS_URI, "lang"), obfuscator());
+            XMLObfuscator obfuscator = (generateXML ? builder.generateXML() : builder).build();
+
+            obfuscator.warmUp(1);
+
+            assertTrue(obfuscated.contains("value & more"));
+            verify(appender, never()).doAppend(any());
+        }
+
+        @Test
+        @DisplayName("without iterations")
+        void testWarmUpWithoutIterations() {
+            XMLObfuscator obfuscator = builder()
+                    .withElement("a", obfuscator())
+                    .build();
+
+            obfuscator.warmUp(0);
+
+            assertEquals(Collections.emptyList(), obfuscated);
+        }
+
+        @Test
+        @DisplayName("with negative iterations")
+        void testWarmUpWithNegativeIterations() {
+            XMLObfuscator obfuscator = builder()
+                    .withElement("a", obfuscator())
+                    .build();
+
+            assertThrows(IllegalArgumentException.class, () -> obfuscator.warmUp(-1));
+        }
+
+        private Obfuscator obfuscator() {
+            return Obfuscator.fromFunction((Function<CharSequence, CharSequence>) s -> {
+                obfuscated.add(s.toString());
+                return "***";
+            });
+        }
+    }
+
+    @Nested
+    @DisplayName("name patterns")
+    @TestInstance(Lifecycle.PER_CLASS)
+    class NamePatterns {
+
+        private static final String XML = "<root newPassword=\"a\" id=\"b\"><accountIban>NL00</accountIban><ssn>123</ssn><ssnCountry>NL</ssnCountry>"
+                + "<name>x</name><IbanCode>c</IbanCode></root>";
+
+        @ParameterizedTest(name = "{0}")
+        @MethodSource("obfuscators")
+        @DisplayName("obfuscateText(CharSequence)")
+        void testObfuscateTextCharSequence(@SuppressWarnings("unused") String displayName, Supplier<Builder> builder, String expected) {
+            assertEquals(expected, builder.get().build().obfuscateText(XML).toString());
+        }
+
+        @ParameterizedTest(name = "{0}")
+        @MethodSource("obfuscators")
+        @DisplayName("obfuscateText(Reader, Appendable)")
+        void testObfuscateTextReader(@SuppressWarnings("unused") String displayName, Supplier<Builder> builder, String expected) throws IOException {
+            StringBuilder destination = new StringBuilder();
+            builder.get().build().obfuscateText(new StringReader(XML), destination);
+            assertEquals(expected, destination.toString());
+        }
+
+        @ParameterizedTest(name = "{0}")
+        @MethodSource("obfuscators")
+        @DisplayName("generateXML()")
+        void testGenerateXML(@SuppressWarnings("unused") String displayName, Supplier<Builder> builder, String expected) {
+            // the generated XML always starts with an XML declaration
+            assertEquals("<?xml version=\"1.0\"?>" + expected, builder.get().generateXML().build().obfuscateText(XML).toString());
+        }
+
+        Arguments[] obfuscators() {
+            return new Arguments[] {
+                    arguments("glob patterns",
+                            (Supplier<Builder>) () -> builder()
+                                    .withElementGlob("*Iban", fixedLength(3))
+                                    .withElementGlob("ssn*", fixedLength(4))
+                                    .withAttributeGlob("*password*", fixedLength(3), CASE_INSENSITIVE),
+                            "<root newPassword=\"***\" id=\"b\"><accountIban>***</accountIban><ssn>****</ssn><ssnCountry>****</ssnCountry>"
+                                    + "<name>x</name><IbanCode>c</IbanCode></root>"),
+                    arguments("regular expressions",
+                            (Supplier<Builder>) () -> builder()
+                                    .withElementPattern(Pattern.compile(".*Iban|ssn.*"), fixedLength(3))
+                                    .withAttributePattern(Pattern.compile("(?i).*password.*"), fixedLength(3)),
+                            "<root newPassword=\"***\" id=\"b\"><accountIban>***</accountIban><ssn>***</ssn><ssnCountry>***</ssnCountry>"
+                                    + "<name>x</name><IbanCode>c</IbanCode></root>"),
+                    arguments("names take precedence over patterns",
+                            (Supplier<Builder>) () -> builder()
+                                    .withElementGlob("ssn*", fixedLength(4))
+                                    .withElement("ssnCountry", none())
+                                    .withAttributeGlob("*", fixedLength(3))
+                                    .withAttribute("id", none()),
+                            "<root newPassword=\"***\" id=\"b\"><accountIban>NL00</accountIban><ssn>****</ssn><ssnCountry>NL</ssnCountry>"
+                                    + "<name>x</name><IbanCode>c</IbanCode></root>"),
+                    arguments("first matching pattern wins",
+                            (Supplier<Builder>) () -> builder()
+                                    .withElementGlob("ssn", fixedLength(4))
+                                    .withElementGlob("ss?*", fixedLength(3)),
+                            "<root newPassword=\"a\" id=\"b\"><accountIban>NL00</accountIban><ssn>****</ssn><ssnCountry>***</ssnCountry>"
+                                    + "<name>x</name><IbanCode>c</IbanCode></root>"),
+                    arguments("attribute pattern for element",
+                            (Supplier<Builder>) () -> builder()
+                                    .withAttributeGlob("*Password", none())
+                                            .forElement("root", fixedLength(3)),
+                            "<root newPassword=\"***\" id=\"b\"><accountIban>NL00</accountIban><ssn>123</ssn><ssnCountry>NL</ssnCountry>"
+                                    + "<name>x</name><IbanCode>c</IbanCode></root>"),
+            };
+        }
+
+        @Test
+        @DisplayName("glob patterns without matching names in input")
+        void testNoMatchingNames() {
+            List<XMLObfuscator.Metrics> reported = new ArrayList<>();
+            XMLObfuscator obfuscator = builder()
+                    .withElementGlob("*Bic*", fixedLength(3))
+                    .withMetricsListener(reported::add)
+                    .build();
+
+            assertEquals(XML, obfuscator.obfuscateText(XML).toString());
+            assertEquals(MetricsCollector.ENGINE_PASSTHROUGH, ((MetricsCollector) reported.get(0)).engine());
+        }
+
+        @Test
+        @DisplayName("glob patterns without literal text")
+        void testWithoutLiteralText() {
+            List<XMLObfuscator.Metrics> reported = new ArrayList<>();
+            XMLObfuscator obfuscator = builder()
+                    .withElementGlob("???", fixedLength(3))
+                    .withMetricsListener(reported::add)
+                    .build();
+
+            assertEquals(XML.replace("<ssn>123</ssn>", "<ssn>***</ssn>"), obfuscator.obfuscateText(XML).toString());
+            assertEquals(MetricsCollector.ENGINE_INDEXED, ((MetricsCollector) reported.get(0)).engine());
+        }
+
+        @Test
+        @DisplayName("duplicate patterns")
+        void testDuplicatePatterns() {
+            Obfuscator obfuscator = fixedLength(3);
+
+            Builder builder = builder()
+                    .withElementGlob("*Iban", obfuscator)
+                    .withElementPattern(Pattern.compile("ssn.*"), obfuscator)
+                    .withAttributeGlob("*Iban", obfuscator)
+                    .withAttributePattern(Pattern.compile("ssn.*"), obfuscator);
+
+            assertDoesNotThrow(() -> builder.withElementGlob("*Iban", obfuscator, CASE_INSENSITIVE));
+            IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> builder.withElementGlob("*Iban", obfuscator));
+            assertEquals(Messages.XMLObfuscator.duplicateElement("*Iban"), exception.getMessage());
+            exception = assertThrows(IllegalArgumentException.class, () -> builder.withElementPattern(Pattern.compile("ssn.*"), obfuscator));
+            assertEquals(Messages.XMLObfuscator.duplicateElement("ssn.*"), exception.getMessage());
+            exception = assertThrows(IllegalArgumentException.class, () -> builder.withAttributeGlob("*Iban", obfuscator));
+            assertEquals(Messages.XMLObfuscator.duplicateAttribute("*Iban"), exception.getMessage());
+            exception = assertThrows(IllegalArgumentException.class, () -> builder.withAttributePattern(Pattern.compile("ssn.*"), obfuscator));
+            assertEquals(Messages.XMLObfuscator.duplicateAttribute("ssn.*"), exception.getMessage());
+        }
+    }
+
+    @Nested
+    @DisplayName("withElementPath(String, Obfuscator)")
+    @TestInstance(Lifecycle.PER_CLASS)
+    class ElementPaths {
+
+        private static final String XML = "<Envelope><Header><password>1</password></Header>"
+                + "<Body><Login><password>2</password><user>3</user></Login><Other><password>4</password><user>5</user></Other></Body>"
+                + "<password>6</password></Envelope>";
+
+        @ParameterizedTest(name = "{0}")
+        @MethodSource("obfuscators")
+        @DisplayName("obfuscateText(CharSequence)")
+        void testObfuscateTextCharSequence(@SuppressWarnings("unused") String displayName, Supplier<Builder> builder, String expected) {
+            assertEquals(expected, builder.get().build().obfuscateText(XML).toString());
+        }
+
+        @ParameterizedTest(name = "{0}")
+        @MethodSource("obfuscators")
+        @DisplayName("obfuscateText(Reader, Appendable)")
+        void testObfuscateTextReader(@SuppressWarnings("unused") String displayName, Supplier<Builder> builder, String expected) throws IOException {
+            StringBuilder destination = new StringBuilder();
+            builder.get().build().obfuscateText(new StringReader(XML), destination);
+            assertEquals(expected, destination.toString());
+        }
+
+        @ParameterizedTest(name = "{0}")
+        @MethodSource("obfuscators")
+        @DisplayName("streamTo(Appendable)")
+        void testStreamTo(@SuppressWarnings("unused") String displayName, Supplier<Builder> builder, String expected) throws IOException {
+            StringBuilder destination = new StringBuilder();
+            try (Writer writer = builder.get().build().streamTo(destination)) {
+                for (int i = 0; i < XML.length(); i += 10) {
+                    writer.write(XML, i, Math.min(10, XML.length() - i));
+                }
+            }
+            assertEquals(expected, destination.toString());
+        }
+
+        @ParameterizedTest(name = "{0}")
+        @MethodSource("obfuscators")
+        @DisplayName("obfuscateText(CharSequence, Appendable, Executor)")
+        void testObfuscateTextInParallel(@SuppressWarnings("unused") String displayName, Supplier<Builder> builder, String expected)
+                throws IOException {
+            StringBuilder destination = new StringBuilder();
+            builder.get().build().obfuscateText(XML, destination, Runnable::run, 1);
+            assertEquals(expected, destination.toString());
+        }
+
+        @ParameterizedTest(name = "{0}")
+        @MethodSource("obfuscators")
+        @DisplayName("generateXML()")
+        void testGenerateXML(@SuppressWarnings("unused") String displayName, Supplier<Builder> builder, String expected) {
+            // the generated XML always starts with an XML declaration
+            assertEquals("<?xml version=\"1.0\"?>" + expected, builder.get().generateXML().build().obfuscateText(XML).toString());
+        }
+
+        Arguments[] obfuscators() {
+            return new Arguments[] {
+                    arguments("absolute path",
+                            (Supplier<Builder>) () -> builder()
+                                    .withElementPath("/Envelope/Body/Login/password", fixedLength(3)),
+                            "<Envelope><Header><password>1</password></Header>"
+                                    + "<Body><Login><password>***</password><user>3</user></Login>"
+                                    + "<Other><password>4</password><user>5</user></Other></Body>"
+                                    + "<password>6</password></Envelope>"),
+                    arguments("descendant path",
+                            (Supplier<Builder>) () -> builder()
+                                    .withElementPath("/Envelope//password", fixedLength(3)),
+                            "<Envelope><Header><password>***</password></Header>"
+                                    + "<Body><Login><password>***</password><user>3</user></Login>"
+                                    + "<Other><password>***</password><user>5</user></Other></Body>"
+                                    + "<password>***</password></Envelope>"),
+                    arguments("wildcard",
+                            (Supplier<Builder>) () -> builder()
+                                    .withElementPath("/Envelope/Body/*/user", fixedLength(3))
+                                    .withElementPath("//Other/*", fixedValue("x")),
+                            "<Envelope><Header><password>1</password></Header>"
+                                    + "<Body><Login><password>2</password><user>***</user></Login>"
+                                    + "<Other><password>x</password><user>***</user></Other></Body>"
+                                    + "<password>6</password></Envelope>"),
+                    arguments("paths take precedence over names",
+                            (Supplier<Builder>) () -> builder()
+                                    .withElement("password", fixedLength(5))
+                                    .withElementPath("//Login/password", fixedLength(3)),
+                            "<Envelope><Header><password>*****</password></Header>"
+                                    + "<Body><Login><password>***</password><user>3</user></Login>"
+                                    + "<Other><password>*****</password><user>5</user></Other></Body>"
+                                    + "<password>*****</password></Envelope>"),
+                    arguments("nested in obfuscated element",
+                            (Supplier<Builder>) () -> builder()
+                                    .withElement("Body", fixedLength(5)).forNestedElements(ObfuscationMode.INHERIT_OVERRIDABLE)
+                                    .withElementPath("/Envelope/Body/Other/user", fixedLength(3)),
+                            "<Envelope><Header><password>1</password></Header>"
+                                    + "<Body><Login><password>*****</password><user>*****</user></Login>"
+                                    + "<Other><password>*****</password><user>***</user></Other></Body>"
+                                    + "<password>6</password></Envelope>"),
+                    arguments("case insensitive",
+                            (Supplier<Builder>) () -> builder()
+                                    .withElementPath("/envelope/body/login/PASSWORD", fixedLength(3), CASE_INSENSITIVE),
+                            "<Envelope><Header><password>1</password></Header>"
+                                    + "<Body><Login><password>***</password><user>3</user></Login>"
+                                    + "<Other><password>4</password><user>5</user></Other></Body>"
+                                    + "<password>6</password></Envelope>"),
+                    arguments("no match",
+                            (Supplier<Builder>) () -> builder()
+                                    .withElementPath("/Body/Login/password", fixedLength(3)),
+                            XML),
+            };
+        }
+    }
+
+    @Nested
+    @DisplayName("obfuscateAll(Collection, Executor)")
+    class ObfuscateAll {
+
+        @Test
+        @DisplayName("using the common ForkJoinPool")
+        void testCommonPool() {
+            testObfuscateAll(ForkJoinPool.commonPool());
+        }
+
+        @Test
+        @DisplayName("using a fixed thread pool")
+        void testFixedThreadPool() {
+            ExecutorService executor = Executors.newFixedThreadPool(3);
+            try {
+                testObfuscateAll(executor);
+            } finally {
+                executor.shutdown();
+            }
+        }
+
+        @Test
+        @DisplayName("using the calling thread")
+        void testCallingThread() {
+            testObfuscateAll(Runnable::run);
+        }
+
+        private void testObfuscateAll(Executor executor) {
+            Obfuscator obfuscator = createObfuscator();
+            String validXML = readResource("XMLObfuscator.input.valid.xml");
+            String invalidXML = readResource("XMLObfuscator.input.invalid");
+
+            List<String> inputs = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                inputs.add(i % 3 == 0 ? invalidXML : validXML.replace("<root>", "<root><index>" + i + "</index>"));
+            }
+            List<String> expected = inputs.stream()
+                    .map(input -> obfuscator.obfuscateText(input).toString())
+                    .collect(Collectors.toList());
+
+            List<CharSequence> results = ((XMLObfuscator) obfuscator).obfuscateAll(inputs, executor);
+
+            assertEquals(expected, results.stream().map(CharSequence::toString).collect(Collectors.toList()));
+        }
+
+        @Test
+        @DisplayName("no inputs")
+        void testNoInputs() {
+            XMLObfuscator obfuscator = createObfuscator(builder());
+            Executor executor = mock(Executor.class);
+
+            assertEquals(Collections.emptyList(), obfuscator.obfuscateAll(Collections.emptyList(), executor));
+            verify(executor, never()).execute(any());
+        }
+
+        @Test
+        @DisplayName("null arguments")
+        void testNullArguments() {
+            XMLObfuscator obfuscator = createObfuscator(builder());
+            Executor executor = Runnable::run;
+            List<String> inputsWithNull = Arrays.asList("<root/>", null);
+
+            assertThrows(NullPointerException.class, () -> obfuscator.obfuscateAll(null, executor));
+            assertThrows(NullPointerException.class, () -> obfuscator.obfuscateAll(Collections.emptyList(), null));
+            assertThrows(NullPointerException.class, () -> obfuscator.obfuscateAll(inputsWithNull, executor));
+        }
+
+        @Test
+        @DisplayName("failing obfuscator")
+        void testFailingObfuscator() {
+            IllegalStateException exception = new IllegalStateException();
+            XMLObfuscator obfuscator = builder()
+                    .withElement("text", Obfuscator.fromFunction((Function<CharSequence, CharSequence>) s -> {
+                        throw exception;
+                    }))
+                    .build();
+            List<String> inputs = Arrays.asList("<root/>", "<root><text>foo</text></root>");
+
+            Executor executor = ForkJoinPool.commonPool();
+
+            IllegalStateException thrown = assertThrows(IllegalStateException.class, () -> obfuscator.obfuscateAll(inputs, executor));
+            assertSame(exception, thrown);
+        }
+    }
+
+    @Nested
+    @DisplayName("obfuscateText(CharSequence, Appendable, Executor)")
+    @TestInstance(Lifecycle.PER_CLASS)
+    class ObfuscateTextInParallel {
+
+        @ParameterizedTest(name = "{0} - {1}")
+        @MethodSource("documentsAndObfuscators")
+        @DisplayName("same result as obfuscateText(CharSequence, Appendable)")
+        void testSameResult(String resource, @SuppressWarnings("unused") String displayName, XMLObfuscator obfuscator) throws IOException {
+            String xml = readResource(resource);
+            String expected = obfuscator.obfuscateText(xml).toString();
+
+            for (Executor executor : new Executor[] { Runnable::run, ForkJoinPool.commonPool() }) {
+                StringBuilder destination = new StringBuilder();
+                obfuscator.obfuscateText(xml, destination, executor, 1);
+                assertEquals(expected, destination.toString());
+            }
+        }
+
+        Arguments[] documentsAndObfuscators() {
+            List<Arguments> arguments = new ArrayList<>();
+            for (String resource : new String[] {
+                    "XMLObfuscator.input.valid.xml",
+                    "XMLObfuscator.input.valid.all-events.xml",
+                    "XMLObfuscator.input.invalid",
+                    "XMLObfuscator.input.truncated",
+            }) {
+                arguments.add(arguments(resource, "default", createObfuscator(builder())));
+                arguments.add(arguments(resource, "qualified names", createObfuscatorQualifiedNames(builder())));
+                arguments.add(arguments(resource, "with attributes", createObfuscatorWithAttributes(builder())));
+                arguments.add(arguments(resource, "obfuscating all", createObfuscatorObfuscatingAll(builder())));
+                arguments.add(arguments(resource, "obfuscating root", builder()
+                        .withElement("root", fixedLength(3)).all()
+                        .withAttribute("a", fixedLength(3))
+                        .build()));
+                arguments.add(arguments(resource, "limited", createObfuscator(builder().limitTo(500))));
+                arguments.add(arguments(resource, "Aalto", createObfuscatorWithAttributes(builder().withParserBackend(ParserBackend.aalto()))));
+            }
+            return arguments.toArray(new Arguments[0]);
+        }
+
+        @Test
+        @DisplayName("metrics")
+        void testMetrics() throws IOException {
+            List<XMLObfuscator.Metrics> reported = new ArrayList<>();
+            XMLObfuscator obfuscator = createObfuscatorWithAttributes(builder().withMetricsListener(reported::add));
+            String xml = readResource("XMLObfuscator.input.valid.xml");
+
+            obfuscator.obfuscateText(xml);
+            obfuscator.obfuscateText(xml, new StringBuilder(), ForkJoinPool.commonPool(), 1);
+
+            assertEquals(2, reported.size());
+            assertEquals(MetricsCollector.ENGINE_INDEXED, ((MetricsCollector) reported.get(0)).engine());
+            assertEquals(MetricsCollector.ENGINE_PARALLEL, ((MetricsCollector) reported.get(1)).engine());
+            assertEquals(reported.get(0).characterCount(), reported.get(1).characterCount());
+            assertEquals(reported.get(0).matchedElementCount(), reported.get(1).matchedElementCount());
+            assertEquals(reported.get(0).matchedAttributeCount(), reported.get(1).matchedAttributeCount());
+        }
+
+        @Test
+        @DisplayName("small document")
+        void testSmallDocument() throws IOException {
+            XMLObfuscator obfuscator = createObfuscator(builder());
+            String xml = readResource("XMLObfuscator.input.valid.xml");
+            Executor executor = mock(Executor.class);
+
+            StringBuilder destination = new StringBuilder();
+            obfuscator.obfuscateText(xml, destination, executor);
+
+            assertEquals(obfuscator.obfuscateText(xml).toString(), destination.toString());
+            verify(executor, never()).execute(any());
+        }
+
+        @Test
+        @DisplayName("null arguments")
+        void testNullArguments() {
+            XMLObfuscator obfuscator = createObfuscator(builder());
+            StringBuilder destination = new StringBuilder();
+            Executor executor = Runnable::run;
+
+            assertThrows(NullPointerException.class, () -> obfuscator.obfuscateText(null, destination, executor));
+            assertThrows(NullPointerException.class, () -> obfuscator.obfuscateText("<root/>", null, executor));
+            assertThrows(NullPointerException.class, () -> obfuscator.obfuscateText("<root/>", destination, null));
+        }
+    }
+
+    @Nested
+    @DisplayName("no configured names in input")
+    class NoConfiguredNames {
+
+        @Test
+        @DisplayName("valid XML")
+        void testValidXML() {
+            String xml = readResource("XMLObfuscator.input.valid.xml");
+            Obfuscator obfuscator = builder()
+                    .withElement("password", fixedLength(3))
+                    .withAttribute("secret", fixedLength(3))
+                    .build();
+
+            assertEquals(xml, obfuscator.obfuscateText(xml).toString());
+        }
+
+        @ParameterizedTest(name = "[{index}] {0}")
+        @ValueSource(strings = {
+                "<root><foo></root>",
+                "",
+                "   ",
+                "hello",
+                "<r/><r/>",
+                "<root>&foo;</root>",
+        })
+        @DisplayName("malformed XML is reported like obfuscateText(Reader, Appendable)")
+        void testMalformedXML(String xml) throws IOException {
+            Obfuscator obfuscator = builder()
+                    .withElement("FOO", fixedLength(3))
+                    .build();
+
+            StringBuilder expected = new StringBuilder();
+            obfuscator.obfuscateText(new StringReader(xml), expected);
+            assertThat(expected.toString(), endsWith(Messages.XMLObfuscator.malformedXML.text()));
+
+            assertEquals(expected.toString(), obfuscator.obfuscateText(xml).toString());
+            assertEquals(expected.toString(), obfuscator.obfuscateText("x" + xml + "x", 1, xml.length() + 1).toString());
+
+            StringBuilder destination = new StringBuilder();
+            try (Writer writer = obfuscator.streamTo(destination)) {
+                writer.write(xml);
+            }
+            assertEquals(expected.toString(), destination.toString());
+        }
+
+        @Test
+        @DisplayName("case insensitive name with different case")
+        void testCaseInsensitiveName() {
+            String xml = "<root><foo></root>";
+            Obfuscator obfuscator = builder()
+                    .withElement("FOO", fixedLength(3), CASE_INSENSITIVE)
+                    .build();
+
+            assertEquals("<root><foo>" + Messages.XMLObfuscator.malformedXML.text(), obfuscator.obfuscateText(xml).toString());
+        }
+
+        @Test
+        @DisplayName("qualified name")
+        void testQualifiedName() {
+            String xml = "<root xmlns:t=\"urn:test\"><t:foo>bar</t:foo></root>";
+            Obfuscator obfuscator = builder()
+                    .withElement(new QName("urn:test", "foo"), fixedLength(3))
+                    .build();
+
+            assertEquals("<root xmlns:t=\"urn:test\"><t:foo>***</t:foo></root>", obfuscator.obfuscateText(xml).toString());
+        }
+
+        @Test
+        @DisplayName("with document type declaration")
+        void testWithDocumentTypeDeclaration() {
+            String xml = "<!DOCTYPE root [\n"
+                    + "  <!ENTITY foo \"bar\">\n"
+                    + "]>\n"
+                    + "<root>&foo;</root>";
+            Obfuscator obfuscator = builder()
+                    .withElement("password", fixedLength(3))
+                    .build();
+
+            assertEquals(xml, obfuscator.obfuscateText(xml).toString());
+            assertEquals(Messages.XMLObfuscator.malformedXML.text(), obfuscator.obfuscateText("<!DOCTYPE root [").toString());
+        }
+
+        @Test
+        @DisplayName("with limit")
+        void testWithLimit() {
+            String xml = "<root>text</root>";
+            Obfuscator obfuscator = builder()
+                    .withElement("password", fixedLength(3))
+                    .limitTo(5)
+                    .build();
+
+            assertEquals("<root... (total: 17)", obfuscator.obfuscateText(xml).toString());
+        }
+    }
+
+    @Nested
+    @DisplayName("obfuscateBytes")
     @TestInstance(Lifecycle.PER_CLASS)
-    class ExternalAccess {
+    class ObfuscateBytes {
 
-        @TestLogger.ForClass(XMLObfuscator.class)
-        private Reload4jLoggerContext logger;
+        private final XMLObfuscator obfuscator = builder()
+                .withElement("text", fixedLength(3))
+                .build();
 
-        private Appender appender;
+        @ParameterizedTest(name = "{0}")
+        @MethodSource("encodings")
+        @DisplayName("obfuscateBytes(InputStream, OutputStream)")
+        void testObfuscateBytesInputStream(@SuppressWarnings("unused") String displayName, String encoding, Charset charset, byte[] byteOrderMark)
+                throws IOException {
 
-        @BeforeEach
-        void configureLogger() {
-            appender = mock(Appender.class);
-            logger.setLevel(Level.INFO)
-                    .setAppender(appender)
-                    .useParentAppenders(false);
+            byte[] input = encode(encoding, charset, byteOrderMark, "caf\u00e9");
+            byte[] expected = encode(encoding, charset, byteOrderMark, "***");
+
+            ByteArrayOutputStream destination = new ByteArrayOutputStream();
+            obfuscator.obfuscateBytes(new ByteArrayInputStream(input), destination);
+            assertArrayEquals(expected, destination.toByteArray());
         }
 
-        @ParameterizedTest(name = "{1}")
-        @MethodSource("obfuscators")
-        @DisplayName("external DTD not allowed")
-        void testExternalDTDNotAllowed(Obfuscator obfuscator, @SuppressWarnings("unused") String displayName) {
-            String xml = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
-                    + "<!DOCTYPE html PUBLIC \"-//W3C//DTD XHTML 1.0 Transitional//EN\"\n"
-                    + "\"http://www.w3.org/TR/xhtml1/DTD/xhtml1-transitional.dtd\">\n"
-                    + "<html xmlns=\"http://www.w3.org/1999/xhtml\">\n"
-                    + "</html>";
+        @ParameterizedTest(name = "{0}")
+        @MethodSource("encodings")
+        @DisplayName("obfuscateBytes(byte[], OutputStream)")
+        void testObfuscateBytesByteArray(@SuppressWarnings("unused") String displayName, String encoding, Charset charset, byte[] byteOrderMark)
+                throws IOException {
 
-            String obfuscated = obfuscator.obfuscateText(xml).toString();
-            assertThat(obfuscated, endsWith(Messages.XMLObfuscator.malformedXML.text()));
+            byte[] input = encode(encoding, charset, byteOrderMark, "caf\u00e9");
+            byte[] expected = encode(encoding, charset, byteOrderMark, "***");
 
-            ArgumentCaptor<LoggingEvent> loggingEvents = ArgumentCaptor.forClass(LoggingEvent.class);
+            ByteArrayOutputStream destination = new ByteArrayOutputStream();
+            obfuscator.obfuscateBytes(input, destination);
+            assertArrayEquals(expected, destination.toByteArray());
+        }
 
-            verify(appender, atLeast(1)).doAppend(loggingEvents.capture());
+        @ParameterizedTest(name = "{0}")
+        @MethodSource("encodings")
+        @DisplayName("obfuscateFile(Path, Path)")
+        void testObfuscateFile(@SuppressWarnings("unused") String displayName, String encoding, Charset charset, byte[] byteOrderMark,
+                @TempDir Path tempDir) throws IOException {
 
-            List<LoggingEvent> warningEvents = loggingEvents.getAllValues().stream()
-                    .filter(event -> event.getLevel() == Level.WARN)
-                    .collect(Collectors.toList());
+            byte[] input = encode(encoding, charset, byteOrderMark, "caf\u00e9");
+            byte[] expected = encode(encoding, charset, byteOrderMark, "***");
 
-            assertFalse(warningEvents.isEmpty());
+            Path inputFile = Files.write(tempDir.resolve("input.xml"), input);
+            Path outputFile = tempDir.resolve("output.xml");
+            obfuscator.obfuscateFile(inputFile, outputFile);
+            assertArrayEquals(expected, Files.readAllBytes(outputFile));
+        }
 
-            LoggingEvent warningEvent = warningEvents.get(warningEvents.size() - 1);
+        @Test
+        @DisplayName("obfuscateFile(Path, Path) with an existing output file")
+        void testObfuscateFileWithExistingOutput(@TempDir Path tempDir) throws IOException {
+            byte[] input = encode(null, StandardCharsets.UTF_8, new byte[0], "caf\u00e9");
+            byte[] expected = encode(null, StandardCharsets.UTF_8, new byte[0], "***");
+
+            Path inputFile = Files.write(tempDir.resolve("input.xml"), input);
+            Path outputFile = Files.write(tempDir.resolve("output.xml"), new byte[input.length * 2]);
+            obfuscator.obfuscateFile(inputFile, outputFile);
+            assertArrayEquals(expected, Files.readAllBytes(outputFile));
+        }
 
-            assertEquals(Messages.XMLObfuscator.malformedXML.warning(), warningEvent.getRenderedMessage());
+        @Test
+        @DisplayName("obfuscateFile(Path, Path) with the same input and output file")
+        void testObfuscateFileWithSameInputAndOutput(@TempDir Path tempDir) throws IOException {
+            byte[] input = encode(null, StandardCharsets.UTF_8, new byte[0], "caf\u00e9");
+
+            Path file = Files.write(tempDir.resolve("input.xml"), input);
+            IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> obfuscator.obfuscateFile(file, file));
+            assertEquals(Messages.XMLObfuscator.sameFile(file), exception.getMessage());
+            assertArrayEquals(input, Files.readAllBytes(file));
+        }
 
-            ThrowableInformation throwableInformation = warningEvent.getThrowableInformation();
-            assertNotNull(throwableInformation);
+        @ParameterizedTest(name = "{0}")
+        @MethodSource("encodings")
+        @DisplayName("obfuscateBytesAsync(Consumer)")
+        void testObfuscateBytesAsync(@SuppressWarnings("unused") String displayName, String encoding, Charset charset, byte[] byteOrderMark)
+                throws IOException {
 
-            Throwable throwable = throwableInformation.getThrowable();
-            assertInstanceOf(XMLStreamException.class, throwable);
-            assertEquals(Messages.XMLObfuscator.externalDTDsNotSupported("http://www.w3.org/TR/xhtml1/DTD/xhtml1-transitional.dtd"),
-                    throwable.getMessage());
+            byte[] input = encode(encoding, charset, byteOrderMark, "caf\u00e9");
+            byte[] expected = encode(encoding, charset, byteOrderMark, "***");
+
+            for (int chunkSize : new int[] { 1, 3, 7, input.length }) {
+                ByteArrayOutputStream destination = new ByteArrayOutputStream();
+                ObfuscationSession session = obfuscator.obfuscateBytesAsync(buffer -> write(buffer, destination));
+                for (int i = 0; i < input.length; i += chunkSize) {
+                    session.feed(ByteBuffer.wrap(input, i, Math.min(chunkSize, input.length - i)));
+                }
+                session.complete();
+                assertArrayEquals(expected, destination.toByteArray(), "chunk size: " + chunkSize);
+            }
         }
 
-        @ParameterizedTest(name = "{1}")
-        @MethodSource("obfuscators")
-        @DisplayName("external entity not allowed")
-        void testExternalEntityNotAllowed(Obfuscator obfuscator, @SuppressWarnings("unused") String displayName) {
-            String xml = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
-                    + "<!DOCTYPE html [\n"
-                    + "  <!ENTITY name SYSTEM \"irrelevant\">\n"
-                    + "]>\n"
-                    + "<html xmlns=\"http://www.w3.org/1999/xhtml\">\n"
-                    + "&name;\n"
-                    + "</html>";
+        @Test
+        @DisplayName("obfuscateBytesAsync(Consumer) passes content before the session is completed")
+        void testObfuscateBytesAsyncPassesContentEarly() throws IOException {
+            ByteArrayOutputStream destination = new ByteArrayOutputStream();
+            ObfuscationSession session = obfuscator.obfuscateBytesAsync(buffer -> write(buffer, destination));
 
-            String obfuscated = obfuscator.obfuscateText(xml).toString();
-            assertThat(obfuscated, endsWith(Messages.XMLObfuscator.malformedXML.text()));
+            session.feed(ByteBuffer.wrap("<root><text>caf\u00e9".getBytes(StandardCharsets.UTF_8)));
+            assertEquals("<root><text>", destination.toString("UTF-8"));
 
-            ArgumentCaptor<LoggingEvent> loggingEvents = ArgumentCaptor.forClass(LoggingEvent.class);
+            session.feed(ByteBuffer.wrap("</text><other>na\u00efve</other><oth".getBytes(StandardCharsets.UTF_8)));
+            assertEquals("<root><text>***</text><other>na\u00efve</other>", destination.toString("UTF-8"));
 
-            verify(appender, atLeast(1)).doAppend(loggingEvents.capture());
+            session.feed(ByteBuffer.wrap("er/></root>".getBytes(StandardCharsets.UTF_8)));
+            session.complete();
+            assertEquals("<root><text>***</text><other>na\u00efve</other><other/></root>", destination.toString("UTF-8"));
+        }
 
-            List<LoggingEvent> warningEvents = loggingEvents.getAllValues().stream()
-                    .filter(event -> event.getLevel() == Level.WARN)
-                    .collect(Collectors.toList());
+        @Test
+        @DisplayName("obfuscateBytesAsync(Consumer) with a character split between chunks")
+        void testObfuscateBytesAsyncWithSplitCharacter() throws IOException {
+            byte[] input = "<root><other>\ud83d\ude00</other></root>".getBytes(StandardCharsets.UTF_8);
+
+            ByteArrayOutputStream destination = new ByteArrayOutputStream();
+            ObfuscationSession session = obfuscator.obfuscateBytesAsync(buffer -> write(buffer, destination));
+            int split = "<root><other>".length() + 2;
+            session.feed(ByteBuffer.wrap(input, 0, split));
+            session.feed(ByteBuffer.wrap(input, split, input.length - split));
+            session.complete();
+            assertArrayEquals(input, destination.toByteArray());
+        }
 
-            assertFalse(warningEvents.isEmpty());
+        @Test
+        @DisplayName("obfuscateBytesAsync(Consumer) when generating XML")
+        void testObfuscateBytesAsyncGeneratingXML() throws IOException {
+            XMLObfuscator generatingObfuscator = builder()
+                    .withElement("text", fixedLength(3))
+                    .generateXML()
+                    .build();
+
+            ByteArrayOutputStream destination = new ByteArrayOutputStream();
+            ObfuscationSession session = generatingObfuscator.obfuscateBytesAsync(buffer -> write(buffer, destination));
+
+            session.feed(ByteBuffer.wrap("<root><text>caf\u00e9</text>".getBytes(StandardCharsets.UTF_8)));
+            assertEquals(0, destination.size());
+
+            session.feed(ByteBuffer.wrap("</root>".getBytes(StandardCharsets.UTF_8)));
+            session.complete();
+            assertEquals(generatingObfuscator.obfuscateText("<root><text>caf\u00e9</text></root>").toString(), destination.toString("UTF-8"));
+        }
 
-            LoggingEvent warningEvent = warningEvents.get(warningEvents.size() - 1);
+        @Test
+        @DisplayName("obfuscateBytesAsync(Consumer) after completion")
+        void testObfuscateBytesAsyncAfterCompletion() throws IOException {
+            ObfuscationSession session = obfuscator.obfuscateBytesAsync(buffer -> { /* discard */ });
+            session.feed(ByteBuffer.wrap("<root />".getBytes(StandardCharsets.UTF_8)));
+            session.complete();
+
+            ByteBuffer input = ByteBuffer.wrap("<root />".getBytes(StandardCharsets.UTF_8));
+            IllegalStateException exception = assertThrows(IllegalStateException.class, () -> session.feed(input));
+            assertEquals(Messages.ByteBufferObfuscationSession.completed(), exception.getMessage());
+            assertThrows(IllegalStateException.class, session::complete);
+        }
 
-            assertEquals(Messages.XMLObfuscator.malformedXML.warning(), warningEvent.getRenderedMessage());
+        @Test
+        @DisplayName("obfuscateBytesAsync(Consumer) with null arguments")
+        void testObfuscateBytesAsyncWithNullArguments() {
+            assertThrows(NullPointerException.class, () -> obfuscator.obfuscateBytesAsync(null));
 
-            ThrowableInformation throwableInformation = warningEvent.getThrowableInformation();
-            assertNotNull(throwableInformation);
+            ObfuscationSession session = obfuscator.obfuscateBytesAsync(buffer -> { /* discard */ });
+            assertThrows(NullPointerException.class, () -> session.feed(null));
+        }
 
-            Throwable throwable = throwableInformation.getThrowable();
-            assertThat(throwable, anyOf(instanceOf(XMLStreamException.class), instanceOf(WstxLazyException.class)));
+        private void write(ByteBuffer buffer, ByteArrayOutputStream destination) {
+            destination.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
 
-            String expectedPrefix = String.format("Encountered a reference to external entity \"%s\", but stream reader has feature \"%s\" disabled",
-                    "name", XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES);
-            assertThat(throwable.getMessage(), containsString(expectedPrefix));
+        @Test
+        @DisplayName("unsupported encoding")
+        void testUnsupportedEncoding() {
+            byte[] input = "<?xml version=\"1.0\" encoding=\"unsupported\"?><root />".getBytes(StandardCharsets.US_ASCII);
+            ByteArrayOutputStream destination = new ByteArrayOutputStream();
+
+            UnsupportedEncodingException exception = assertThrows(UnsupportedEncodingException.class,
+                    () -> obfuscator.obfuscateBytes(input, destination));
+            assertEquals(Messages.XMLObfuscator.unsupportedEncoding("unsupported"), exception.getMessage());
+
+            exception = assertThrows(UnsupportedEncodingException.class,
+                    () -> obfuscator.obfuscateBytes(new ByteArrayInputStream(input), destination));
+            assertEquals(Messages.XMLObfuscator.unsupportedEncoding("unsupported"), exception.getMessage());
+
+            ObfuscationSession session = obfuscator.obfuscateBytesAsync(buffer -> { /* discard */ });
+            exception = assertThrows(UnsupportedEncodingException.class, () -> session.feed(ByteBuffer.wrap(input)));
+            assertEquals(Messages.XMLObfuscator.unsupportedEncoding("unsupported"), exception.getMessage());
         }
 
-        private Arguments[] obfuscators() {
+        private byte[] encode(String encoding, Charset charset, byte[] byteOrderMark, String text) throws IOException {
+            String xml = (encoding != null ? "<?xml version=\"1.0\" encoding=\"" + encoding + "\"?>\n" : "")
+                    + "<root><text>" + text + "</text><other>na\u00efve</other></root>";
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            output.write(byteOrderMark);
+            output.write(xml.getBytes(charset));
+            return output.toByteArray();
+        }
+
+        Arguments[] encodings() {
+            byte[] noByteOrderMark = {};
             return new Arguments[] {
-                    arguments(createObfuscator(), "default"),
-                    arguments(createObfuscatorWithAttributes(), "with attributes"),
+                    arguments("no XML declaration", null, StandardCharsets.UTF_8, noByteOrderMark),
+                    arguments("UTF-8", "UTF-8", StandardCharsets.UTF_8, noByteOrderMark),
+                    arguments("UTF-8 with BOM", "UTF-8", StandardCharsets.UTF_8, new byte[] { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF }),
+                    arguments("ISO-8859-1", "ISO-8859-1", StandardCharsets.ISO_8859_1, noByteOrderMark),
+                    arguments("windows-1252", "windows-1252", Charset.forName("windows-1252"), noByteOrderMark),
+                    arguments("UTF-16LE without BOM", "UTF-16", StandardCharsets.UTF_16LE, noByteOrderMark),
+                    arguments("UTF-16BE without BOM", "UTF-16", StandardCharsets.UTF_16BE, noByteOrderMark),
+                    arguments("UTF-16BE with BOM", "UTF-16", StandardCharsets.UTF_16BE, new byte[] { (byte) 0xFE, (byte) 0xFF }),
+                    arguments("UTF-16LE with BOM", "UTF-16", StandardCharsets.UTF_16LE, new byte[] { (byte) 0xFF, (byte) 0xFE }),
             };
         }
     }
@@ -270,6 +1602,13 @@ class XMLObfuscatorTest {
     @DisplayName("Builder")
     class BuilderTest {
 
+        @Test
+        @DisplayName("withParserBackend(ParserBackend) with null backend")
+        void testWithNullParserBackend() {
+            Builder builder = builder();
+            assertThrows(NullPointerException.class, () -> builder.withParserBackend(null));
+        }
+
         @Test
         @DisplayName("withElement(QName, Obfuscator) with the same local name but different namespaces")
         void testQualifiedElementNameWithSameLocalName() {
@@ -293,6 +1632,33 @@ class XMLObfuscatorTest {
             assertEquals(Messages.XMLObfuscator.duplicateElement(element), exception.getMessage());
         }
 
+        @Test
+        @DisplayName("withElementPath(String, Obfuscator) with duplicate path")
+        void testDuplicateElementPath() {
+            Obfuscator obfuscator = fixedLength(3);
+
+            Builder builder = builder();
+            assertDoesNotThrow(() -> builder.withElementPath("/a/b", obfuscator));
+            assertDoesNotThrow(() -> builder.withElementPath("/a/B", obfuscator));
+            assertDoesNotThrow(() -> builder.withElementPath("/a/b", obfuscator, CASE_INSENSITIVE));
+            IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> builder.withElementPath("/a/b", obfuscator));
+            assertEquals(Messages.XMLObfuscator.duplicateElementPath("/a/b"), exception.getMessage());
+            exception = assertThrows(IllegalArgumentException.class, () -> builder.withElementPath("/A/b", obfuscator, CASE_INSENSITIVE));
+            assertEquals(Messages.XMLObfuscator.duplicateElementPath("/A/b (case insensitive)"), exception.getMessage());
+        }
+
+        @Test
+        @DisplayName("withElementPath(String, Obfuscator) with invalid path")
+        void testInvalidElementPath() {
+            Obfuscator obfuscator = fixedLength(3);
+
+            Builder builder = builder();
+            IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> builder.withElementPath("a/b", obfuscator));
+            assertEquals(Messages.XMLObfuscator.invalidElementPath("a/b"), exception.getMessage());
+            assertThrows(NullPointerException.class, () -> builder.withElementPath(null, obfuscator));
+            assertThrows(NullPointerException.class, () -> builder.withElementPath("/a", null));
+        }
+
         @Test
         @DisplayName("withAttribute(QName, Obfuscator) with the same local name but different namespaces")
         void testQualifiedAttributeNameWithSameLocalName() {
@@ -356,6 +1722,23 @@ class XMLObfuscatorTest {
                 assertThrows(IllegalArgumentException.class, () -> builder.limitTo(-1));
             }
         }
+
+        @Test
+        @DisplayName("withInitialBufferCapacity with negative capacity")
+        void testNegativeInitialBufferCapacity() {
+            Builder builder = builder();
+            assertThrows(IllegalArgumentException.class, () -> builder.withInitialBufferCapacity(-1));
+            assertDoesNotThrow(() -> builder.withInitialBufferCapacity(0));
+        }
+
+        @Test
+        @DisplayName("withPreferredMaxBufferSize with non-positive size")
+        void testNonPositivePreferredMaxBufferSize() {
+            Builder builder = builder();
+            assertThrows(IllegalArgumentException.class, () -> builder.withPreferredMaxBufferSize(0));
+            assertThrows(IllegalArgumentException.class, () -> builder.withPreferredMaxBufferSize(-1));
+            assertDoesNotThrow(() -> builder.withPreferredMaxBufferSize(1));
+        }
     }
 
     @Nested
@@ -374,6 +1757,113 @@ class XMLObfuscatorTest {
             }
         }
 
+        @Nested
+        @DisplayName("with small buffers")
+        class WithSmallBuffers {
+
+            private final String input = readResource("XMLObfuscator.input.valid.xml");
+            private final String expected = readResource("XMLObfuscator.expected.valid.all");
+            private final Obfuscator obfuscator = createObfuscator(builder().withInitialBufferCapacity(0).withPreferredMaxBufferSize(64));
+
+            @Test
+            @DisplayName("obfuscateText(Reader, Appendable)")
+            void testObfuscateTextReaderToAppendable() throws IOException {
+                StringBuilder destination = new StringBuilder();
+                obfuscator.obfuscateText(new StringReader(input), destination);
+                assertEquals(expected, destination.toString());
+            }
+
+            @Test
+            @DisplayName("streamTo(Appendable)")
+            void testStreamTo() throws IOException {
+                StringBuilder destination = new StringBuilder();
+                try (Writer writer = obfuscator.streamTo(destination)) {
+                    for (int i = 0; i < input.length(); i += 5) {
+                        writer.write(input, i, Math.min(5, input.length() - i));
+                    }
+                }
+                assertEquals(expected, destination.toString());
+            }
+        }
+
+        @Nested
+        @DisplayName("with large text")
+        class WithLargeText {
+
+            private static final int MAX_BUFFER_SIZE = 16 * 1024;
+
+            private final List<XMLObfuscator.Metrics> reported = new ArrayList<>();
+            private final XMLObfuscator obfuscator = builder()
+                    .withElement("a", fixedLength(3))
+                    .withPreferredMaxBufferSize(MAX_BUFFER_SIZE)
+                    .withMetricsListener(reported::add)
+                    .build();
+
+            private final String largeText = createLargeText();
+
+            @ParameterizedTest(name = "{0}")
+            @ValueSource(strings = {
+                    "<root><a>%s</a></root>",
+                    "<root><a>%n  %s%n</a><b>%1$s</b></root>",
+                    "<root><a>  <![CDATA[ %s ]]>  </a></root>",
+                    "<root><a><![CDATA[%s]]><![CDATA[%1$s]]></a></root>",
+                    "<root><a>%s<![CDATA[x]]></a></root>",
+            })
+            @DisplayName("obfuscateText(Reader, Appendable)")
+            void testObfuscateTextReaderToAppendable(String format) throws IOException {
+                String input = String.format(format, largeText);
+                String expected = obfuscator.obfuscateText(input).toString();
+                reported.clear();
+
+                StringBuilder destination = new StringBuilder();
+                obfuscator.obfuscateText(new StringReader(input), destination);
+
+                assertEquals(expected, destination.toString());
+                assertBufferSizeBounded();
+            }
+
+            @Test
+            @DisplayName("streamTo(Appendable)")
+            void testStreamTo() throws IOException {
+                String input = "<root><a> " + largeText + " </a></root>";
+
+                StringBuilder destination = new StringBuilder();
+                try (Writer writer = obfuscator.streamTo(destination)) {
+                    for (int i = 0; i < input.length(); i += 1000) {
+                        writer.write(input, i, Math.min(1000, input.length() - i));
+                    }
+                }
+
+                assertEquals("<root><a> *** </a></root>", destination.toString());
+                assertBufferSizeBounded();
+            }
+
+            @Test
+            @DisplayName("text that starts with but does not end with a CDATA section")
+            void testMixedCDATA() throws IOException {
+                String input = "<root><a><![CDATA[" + largeText + "]]>text</a></root>";
+
+                StringBuilder destination = new StringBuilder();
+                obfuscator.obfuscateText(new StringReader(input), destination);
+
+                // the CDATA section is ended after the obfuscated text, so the result is still well-formed
+                assertEquals("<root><a><![CDATA[***]]></a></root>", destination.toString());
+            }
+
+            private void assertBufferSizeBounded() {
+                assertEquals(1, reported.size());
+                assertThat(reported.get(0).maxBufferSize(), lessThanOrEqualTo(2 * MAX_BUFFER_SIZE));
+            }
+
+            private String createLargeText() {
+                StringBuilder sb = new StringBuilder();
+                while (sb.length() < 50 * MAX_BUFFER_SIZE) {
+                    sb.append("large &amp; text ");
+                }
+                return sb.toString().trim();
+            }
+        }
+
         @Nested
         @DisplayName("caseInsensitiveByDefault()")
         @TestInstance(Lifecycle.PER_CLASS)
@@ -500,6 +1990,96 @@ class XMLObfuscatorTest {
         }
     }
 
+    @Nested
+    @DisplayName("malformed XML with streamTo(Appendable)")
+    @TestInstance(Lifecycle.PER_CLASS)
+    class MalformedXMLWithStreamTo {
+
+        private final String warning = Messages.XMLObfuscator.malformedXML.text();
+
+        private final Obfuscator obfuscator = builder()
+                .withElement("a", fixedLength(3))
+                .build();
+
+        @ParameterizedTest(name = "[{index}] {0}")
+        @ValueSource(strings = {
+                "<1bad/>",
+                "<root a='1' a='2'/>",
+                "<root xmlns:t='urn:t' xmlns:u='urn:t' t:a='1' u:a='2'/>",
+                "<root a='<'/>",
+                "<root><!-- a -- b --></root>",
+                "<root>]]></root>",
+                "<root>\u0001</root>",
+                "<root>&#0;</root>",
+                "<root>&amp</root>",
+                "<root><a>1</b></root>",
+                "<p:root/>",
+                "<root/><root/>",
+                "<root>&foo;</root>",
+                "<a>&foo;</a>",
+                "<root a='&foo;'/>",
+                "<root>x]]>y</root>",
+                "<root><a>x]]>y</a></root>",
+                "",
+                "   ",
+                "hello",
+        })
+        @DisplayName("malformed XML is reported like obfuscateText(Reader, Appendable)")
+        void testMalformedXML(String input) throws IOException {
+            StringBuilder expected = new StringBuilder();
+            obfuscator.obfuscateText(new StringReader(input), expected);
+            assertThat(expected.toString(), endsWith(warning));
+
+            for (int chunkSize : new int[] { 1, 4096 }) {
+                StringBuilder destination = new StringBuilder();
+                try (Writer writer = obfuscator.streamTo(destination)) {
+                    for (int i = 0; i < input.length(); i += chunkSize) {
+                        writer.write(input, i, Math.min(chunkSize, input.length() - i));
+                    }
+                }
+                assertEquals(expected.toString(), destination.toString(), "chunk size: " + chunkSize);
+            }
+        }
+
+        @ParameterizedTest(name = "{0}")
+        @ValueSource(strings = {
+                "<!DOCTYPE root><root>&foo;<a>x</a></root>",
+                "<!DOCTYPE root [ garbage ]><root><a>x</a></root>",
+        })
+        @DisplayName("document type declarations are not processed")
+        void testDocumentTypeDeclarationNotProcessed(String input) throws IOException {
+            StringBuilder destination = new StringBuilder();
+            try (Writer writer = obfuscator.streamTo(destination)) {
+                writer.write(input);
+            }
+            assertEquals(input.replace("<a>x</a>", "<a>***</a>"), destination.toString());
+        }
+
+        @ParameterizedTest(name = "{0}")
+        @ValueSource(strings = {
+                "<root>]]<a>x</a></root>",
+                "<root><!-- a - b --><a>x</a></root>",
+                "<root b='&lt;&#x10000;'><a>&#x1F600;&amp;</a></root>",
+                "<t:root xmlns:t='urn:t' xmlns:u='urn:u' t:b='1' u:b='2'><a>x</a></t:root>",
+        })
+        @DisplayName("well-formed XML is obfuscated like obfuscateText(Reader, Appendable)")
+        void testWellFormedXML(String input) throws IOException {
+            StringBuilder expected = new StringBuilder();
+            obfuscator.obfuscateText(new StringReader(input), expected);
+            assertThat(expected.toString(), not(endsWith(warning)));
+
+            for (int chunkSize : new int[] { 1, 4096 }) {
+                StringBuilder destination = new StringBuilder();
+                try (Writer writer = obfuscator.streamTo(destination)) {
+                    for (int i = 0; i < input.length(); i += chunkSize) {
+                        writer.write(input, i, Math.min(chunkSize, input.length() - i));
+                    }
+                }
+                assertEquals(expected.toString(), destination.toString(), "chunk size: " + chunkSize);
+            }
+        }
+    }
+
     @Nested
     @DisplayName("truncated XML")
     @TestInstance(Lifecycle.PER_CLASS)
@@ -533,9 +2113,44 @@ class XMLObfuscatorTest {
 
     @Nested
     @DisplayName("with attributes")
-    @UseSourceTruncation(false)
+    @TestInstance(Lifecycle.PER_CLASS)
     class WithAttributes {
 
+        @ParameterizedTest(name = "{0}")
+        @MethodSource
+        @DisplayName("attribute values")
+        void testAttributeValues(String input, Obfuscator attributeObfuscator, String expected) throws IOException {
+            Obfuscator obfuscator = builder()
+                    .withAttribute("a", attributeObfuscator)
+                    .withAttribute(new QName("urn:test", "b"), attributeObfuscator)
+                    .build();
+
+            assertEquals(expected, obfuscator.obfuscateText(input).toString());
+
+            StringWriter destination = new StringWriter();
+            try (Writer writer = obfuscator.streamTo(destination)) {
+                writer.write(input);
+            }
+            assertEquals(expected, destination.toString());
+        }
+
+        Arguments[] testAttributeValues() {
+            return new Arguments[] {
+                    arguments("<root a=\"foo\" c=\"bar\"/>", fixedLength(3), "<root a=\"***\" c=\"bar\"/>"),
+                    arguments("<root\n  a = 'foo'\n  c='bar' >x</root>", fixedLength(3), "<root\n  a = '***'\n  c='bar' >x</root>"),
+                    arguments("<root a=\"\"/>", fixedLength(3), "<root a=\"***\"/>"),
+                    arguments("<root a=\"x&amp;&lt;&#65;&#x42;&quot;'\"/>", none(), "<root a=\"x&amp;&lt;AB&quot;'\"/>"),
+                    arguments("<root a='x&amp;&lt;&quot;&apos;'/>", none(), "<root a='x&amp;&lt;\"&apos;'/>"),
+                    arguments("<root a=\"foo\"/>", fixedValue("<&\"'>"), "<root a=\"&lt;&amp;&quot;'>\"/>"),
+                    arguments("<root xmlns:a=\"urn:a\" xmlns=\"urn:b\" a=\"foo\"/>", fixedLength(3),
+                            "<root xmlns:a=\"urn:a\" xmlns=\"urn:b\" a=\"***\"/>"),
+                    arguments("<root xmlns:t=\"urn:test\" t:a=\"foo\" t:b=\"bar\" b=\"baz\"/>", fixedLength(3),
+                            "<root xmlns:t=\"urn:test\" t:a=\"***\" t:b=\"***\" b=\"baz\"/>"),
+                    arguments("<root c=\"foo\" xmlns:t=\"urn:test\" t:b=\"bar\" xmlns=\"urn:test\" a=\"baz\"/>", fixedLength(3),
+                            "<root c=\"foo\" xmlns:t=\"urn:test\" t:b=\"***\" xmlns=\"urn:test\" a=\"***\"/>"),
+            };
+        }
+
         @Nested
         @DisplayName("valid XML")
         @TestInstance(Lifecycle.PER_CLASS)
@@ -644,6 +2259,17 @@ class XMLObfuscatorTest {
                     }
                 }
             }
+
+            @Nested
+            @DisplayName("generating XML")
+            @UseSourceTruncation(false)
+            class GenerateXML extends ObfuscatorTest {
+
+                GenerateXML() {
+                    super("XMLObfuscator.input.valid.xml", "XMLObfuscator.expected.valid.with-attributes.generate-xml",
+                            () -> createObfuscatorWithAttributes(builder().generateXML()));
+                }
+            }
         }
 
         @Nested
@@ -700,7 +2326,6 @@ class XMLObfuscatorTest {
         @Nested
         @DisplayName("with attributes")
         @TestInstance(Lifecycle.PER_CLASS)
-        @UseSourceTruncation(false)
         class WithAttributes extends ObfuscatorTest {
 
             WithAttributes() {
@@ -711,6 +2336,7 @@ class XMLObfuscatorTest {
             @Nested
             @DisplayName("limited")
             @TestInstance(Lifecycle.PER_CLASS)
+            @UseSourceTruncation(false)
             class Limited extends ObfuscatorTest {
 
                 Limited() {
@@ -721,6 +2347,121 @@ class XMLObfuscatorTest {
         }
     }
 
+    @Nested
+    @DisplayName("using Aalto")
+    @TestInstance(Lifecycle.PER_CLASS)
+    class UsingAalto {
+
+        @Nested
+        @DisplayName("valid XML")
+        @TestInstance(Lifecycle.PER_CLASS)
+        class ValidXML extends ObfuscatorTest {
+
+            ValidXML() {
+                super("XMLObfuscator.input.valid.xml", "XMLObfuscator.expected.valid.all",
+                        () -> createObfuscator(aaltoBuilder()));
+            }
+        }
+
+        @Nested
+        @DisplayName("valid XML with attributes")
+        @TestInstance(Lifecycle.PER_CLASS)
+        class ValidXMLWithAttributes extends ObfuscatorTest {
+
+            ValidXMLWithAttributes() {
+                super("XMLObfuscator.input.valid.xml", "XMLObfuscator.expected.valid.with-attributes.all",
+                        () -> createObfuscatorWithAttributes(aaltoBuilder()));
+            }
+        }
+
+        @Nested
+        @DisplayName("limited")
+        @TestInstance(Lifecycle.PER_CLASS)
+        class Limited extends ObfuscatorTest {
+
+            Limited() {
+                super("XMLObfuscator.input.valid.xml", "XMLObfuscator.expected.valid.limited.with-indicator",
+                        () -> createObfuscator(aaltoBuilder().limitTo(289)));
+            }
+        }
+
+        @Nested
+        @DisplayName("invalid XML")
+        @TestInstance(Lifecycle.PER_CLASS)
+        class InvalidXML extends ObfuscatorTest {
+
+            InvalidXML() {
+                super("XMLObfuscator.input.invalid", "XMLObfuscator.expected.invalid",
+                        () -> createObfuscator(aaltoBuilder()));
+            }
+        }
+
+        @Test
+        @DisplayName("attributes of root element after prolog")
+        void testRootAttributesAfterProlog() throws IOException {
+            Obfuscator obfuscator = aaltoBuilder()
+                    .withAttribute("a", fixedLength(3))
+                    .build();
+
+            String input = "<?xml version=\"1.0\"?>\n<!-- comment -->\n<root a=\"foo\" b=\"bar\"><child a='baz'/></root>";
+            String expected = "<?xml version=\"1.0\"?>\n<!-- comment -->\n<root a=\"***\" b=\"bar\"><child a='***'/></root>";
+
+            assertEquals(expected, obfuscator.obfuscateText(input).toString());
+            assertEquals(expected, obfuscator.obfuscateText(new StringReader(input)).toString());
+        }
+
+        @ParameterizedTest(name = "{0}")
+        @ValueSource(strings = {
+                "<?xml version='1.0'?>\n\n<root a='foo'>text</root>",
+                "<?xml version='1.0'?>\n  <root a='foo'>it's</root>",
+                "<!-- c -->  \n<root a='foo'>x</root>",
+                "  \n<root a='foo'>x</root>",
+                "<?xml version='1.0'?>\n\n<root>text</root>",
+                "<?xml version='1.0'?>\n  <root>it's</root>",
+                "<!-- c -->  \n<root>x</root>",
+        })
+        @DisplayName("attributes of root element after whitespace")
+        void testRootAttributesAfterWhitespace(String input) throws IOException {
+            Obfuscator obfuscator = aaltoBuilder()
+                    .withAttribute("a", fixedLength(3))
+                    .build();
+
+            String expected = input.replace("a='foo'", "a='***'");
+
+            assertEquals(expected, obfuscator.obfuscateText(input).toString());
+            assertEquals(expected, obfuscator.obfuscateText(new StringReader(input)).toString());
+        }
+
+        @Test
+        @DisplayName("internal entity references are treated as malformed XML")
+        void testInternalEntityReference() {
+            Obfuscator obfuscator = aaltoBuilder()
+                    .withElement("text", fixedLength(3))
+                    .build();
+
+            String input = "<!DOCTYPE root [<!ENTITY entity \"value\">]><root><text>&entity;</text></root>";
+
+            assertThat(obfuscator.obfuscateText(input).toString(), endsWith(Messages.XMLObfuscator.malformedXML.text()));
+        }
+
+        @Test
+        @DisplayName("truncated text is omitted")
+        void testTruncatedText() {
+            Obfuscator obfuscator = aaltoBuilder()
+                    .withElement("text", fixedLength(3))
+                    .build();
+
+            String input = "<root><text>foo</text><other>bar";
+            String expected = "<root><text>***</text><other>" + Messages.XMLObfuscator.malformedXML.text();
+
+            assertEquals(expected, obfuscator.obfuscateText(input).toString());
+        }
+
+        private Builder aaltoBuilder() {
+            return builder().withParserBackend(ParserBackend.aalto());
+        }
+    }
+
     abstract static class ObfuscatorTest {
 
         private final String input;
@@ -934,7 +2675,41 @@ class XMLObfuscatorTest {
             assertEquals(expectedWithLargeValues, writer.toString());
             verify(writer, never()).close();
 
-            // streamTo caches the entire results, then obfuscate the cached contents as a CharSequence
+            // streamTo only caches the entire results when generating XML
+            if (usesSourceTruncation) {
+                assertTruncationLogging(appender);
+            } else {
+                assertNoTruncationLogging(appender);
+            }
+        }
+
+        @Test
+        @DisplayName("obfuscateBytes(InputStream, OutputStream)")
+        @SuppressWarnings("resource")
+        void testObfuscateBytesInputStream() throws IOException {
+            XMLObfuscator obfuscator = (XMLObfuscator) obfuscatorSupplier.get();
+
+            ByteArrayOutputStream destination = spy(new ByteArrayOutputStream());
+            InputStream inputStream = spy(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+            obfuscator.obfuscateBytes(inputStream, destination);
+            assertEquals(expected, new String(destination.toByteArray(), StandardCharsets.UTF_8));
+            verify(inputStream, never()).close();
+            verify(destination, never()).close();
+
+            assertNoTruncationLogging(appender);
+        }
+
+        @Test
+        @DisplayName("obfuscateBytes(byte[], OutputStream)")
+        @SuppressWarnings("resource")
+        void testObfuscateBytesByteArray() throws IOException {
+            XMLObfuscator obfuscator = (XMLObfuscator) obfuscatorSupplier.get();
+
+            ByteArrayOutputStream destination = spy(new ByteArrayOutputStream());
+            obfuscator.obfuscateBytes(input.getBytes(StandardCharsets.UTF_8), destination);
+            assertEquals(expected, new String(destination.toByteArray(), StandardCharsets.UTF_8));
+            verify(destination, never()).close();
+
             assertNoTruncationLogging(appender);
         }
 